@@ -0,0 +1,108 @@
+package com.company.producthub.benchmarks;
+
+import com.company.producthub.entities.Merchant;
+import com.company.producthub.entities.Product;
+import com.company.producthub.entities.ProductRequest;
+import com.company.producthub.entities.ProductResponse;
+import com.company.producthub.utils.Deadline;
+import com.company.producthub.utils.HttpUtils;
+import java.lang.reflect.Field;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+/**
+ * Represents the fixtures shared by the benchmarks of the product hub.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+final class BenchmarkFixtures {
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * Builds a product request of the given search term sent to the given
+     * number of merchants
+     *
+     * @param searchTerm the search term
+     * @param merchantCount the number of merchants
+     *
+     * @return the product request
+     */
+    static ProductRequest buildProductRequest(String searchTerm, int merchantCount) {
+        ProductRequest request = new ProductRequest();
+        request.setId("1");
+        request.setSearchTerm(searchTerm);
+        request.setMinPrice(0);
+        request.setMaxPrice(100000);
+        for (int i = 0; i < merchantCount; i++) {
+            request.addMerchant(new Merchant("http://merchant-" + i + ".com/api/product"));
+        }
+
+        return request;
+    }
+
+    /**
+     * Builds a product response of the given price
+     *
+     * @param id the id of the product response
+     * @param price the price of the product
+     *
+     * @return the product response
+     */
+    static ProductResponse buildProductResponse(String id, double price) {
+        Product product = new Product();
+        product.setId(id);
+        product.setName("car");
+        product.setDescription("A car sold by merchant " + id);
+        product.setPrice(price);
+        ProductResponse prodResp = new ProductResponse();
+        prodResp.setId(id);
+        prodResp.setProduct(product);
+
+        return prodResp;
+    }
+
+    /**
+     * Builds an http entity for the given product request sent to the product
+     * hub, with the http header X-Request-Timeout set to the milliseconds
+     * remaining until the given deadline
+     *
+     * @param request the product request
+     * @param deadline the deadline of the product request
+     *
+     * @return the HttpEntity of the product request
+     */
+    static HttpEntity<ProductRequest> buildHttpEntityAppJson(ProductRequest request, Deadline deadline) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set(HttpUtils.HEADER_REQUEST_TIMEOUT, String.valueOf(deadline.remainingMillis()));
+
+        return new HttpEntity<>(request, headers);
+    }
+
+    /**
+     * Sets the given field of the given target, as injected by spring
+     *
+     * @param target the target object
+     * @param fieldName the name of the field declared by the target's class
+     * or a superclass
+     * @param value the value of the field
+     */
+    static void setField(Object target, String fieldName, Object value) {
+        for (Class<?> type = target.getClass(); type != null; type = type.getSuperclass()) {
+            try {
+                Field field = type.getDeclaredField(fieldName);
+                field.setAccessible(true);
+                field.set(target, value);
+                return;
+            } catch (NoSuchFieldException ex) {
+                // continues with the superclass
+            } catch (IllegalAccessException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+        throw new IllegalArgumentException("No field " + fieldName + " in " + target.getClass());
+    }
+}
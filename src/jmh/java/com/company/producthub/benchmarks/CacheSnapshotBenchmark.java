@@ -0,0 +1,74 @@
+package com.company.producthub.benchmarks;
+
+import com.company.producthub.cache.CacheSnapshot;
+import com.company.producthub.cache.CachedProductResponse;
+import com.company.producthub.cache.TermOffers;
+import com.company.producthub.entities.SearchCriteria;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Represents the benchmark of the snapshot of the cache per number of cached
+ * winners, opening the snapshot with its checksum verified and restoring a
+ * winner from it. The size of the snapshot is printed at setup.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CacheSnapshotBenchmark {
+
+    @Param({"10000", "100000"})
+    private int winnerCount;
+
+    private Path file;
+    private CacheSnapshot snapshot;
+
+    @Setup
+    public void setUp() throws IOException {
+        byte[] body = new ObjectMapper().writeValueAsBytes(BenchmarkFixtures.buildProductResponse("1", 15500));
+        Map<SearchCriteria, CachedProductResponse> winners = new HashMap<>();
+        for (int i = 0; i < winnerCount; i++) {
+            winners.put(new SearchCriteria("car " + i, 12000, 17000),
+                    new CachedProductResponse(body, System.currentTimeMillis()));
+        }
+        file = Files.createTempFile("cache", ".snapshot");
+        long size = CacheSnapshot.write(file, winners, Collections.<String, TermOffers>emptyMap(),
+                System.currentTimeMillis());
+        snapshot = CacheSnapshot.open(file);
+        System.out.printf("%nSnapshot of %d winners: %d bytes%n", winnerCount, size);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public CacheSnapshot open() throws IOException {
+        return CacheSnapshot.open(file);
+    }
+
+    @Benchmark
+    public CachedProductResponse findWinner() {
+        return snapshot.findWinner(new SearchCriteria("car " + ThreadLocalRandom.current().nextInt(winnerCount),
+                12000, 17000));
+    }
+}
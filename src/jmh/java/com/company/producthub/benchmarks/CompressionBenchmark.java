@@ -0,0 +1,78 @@
+package com.company.producthub.benchmarks;
+
+import com.company.producthub.entities.ProductResponse;
+import com.company.producthub.services.MerchantRegistry;
+import com.company.producthub.transport.MerchantCompression;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Represents the benchmark of the gzip compression of the bodies exchanged
+ * with merchants, compressing and decompressing a product response whose
+ * description is padded to the given number of bytes, so that the
+ * compression size of merchants can be tuned. The compressed size is printed
+ * at setup.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CompressionBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    private int descriptionBytes;
+
+    private MerchantCompression compression;
+    private byte[] body;
+    private byte[] compressedBody;
+    private byte[] buffer;
+
+    @Setup
+    public void setUp() throws IOException {
+        compression = new MerchantCompression(new MerchantRegistry(), new SimpleMeterRegistry(), true, 0);
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+        ProductResponse prodResp = BenchmarkFixtures.buildProductResponse("1", 15500);
+        StringBuilder description = new StringBuilder(descriptionBytes);
+        while (description.length() < descriptionBytes) {
+            description.append("Product ").append(description.length()).append(' ');
+        }
+        prodResp.getProduct().setDescription(description.toString());
+        body = mapper.writeValueAsBytes(prodResp);
+        compressedBody = compression.compress(null, body);
+        buffer = new byte[8192];
+        System.out.printf("%nBytes of a product response: original %d, compressed %d%n", body.length,
+                compressedBody.length);
+    }
+
+    @Benchmark
+    public byte[] compress() {
+        return compression.compress(null, body);
+    }
+
+    @Benchmark
+    public int decompress() throws IOException {
+        int count = 0;
+        try (InputStream in = compression.decompress(new ByteArrayInputStream(compressedBody),
+                MerchantCompression.GZIP)) {
+            int n;
+            while ((n = in.read(buffer)) > 0) {
+                count += n;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,67 @@
+package com.company.producthub.benchmarks;
+
+import com.company.producthub.entities.MerchantProductRequest;
+import com.company.producthub.entities.ProductRequest;
+import com.company.producthub.entities.WireFormat;
+import com.company.producthub.utils.Deadline;
+import com.company.producthub.utils.HttpUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Represents the benchmark of encoding the product request sent to the
+ * merchants of a fan-out, either serializing the whole product request for
+ * each merchant call, as before, or encoding its lean projection once and
+ * sharing the bytes among the merchant calls. The bytes sent per fan-out by
+ * each way are printed at setup.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FanoutEncodingBenchmark {
+
+    @Param({"3", "50", "500"})
+    private int merchantCount;
+
+    private ObjectMapper mapper;
+    private ProductRequest request;
+
+    @Setup
+    public void setUp() throws IOException {
+        mapper = Jackson2ObjectMapperBuilder.json().build();
+        request = BenchmarkFixtures.buildProductRequest("car", merchantCount);
+        long perCallBytes = (long) mapper.writeValueAsBytes(request).length * merchantCount;
+        long onceBytes = (long) mapper.writeValueAsBytes(MerchantProductRequest.of(request)).length * merchantCount;
+        System.out.printf("%nBytes sent per fan-out of %d merchants: per call %d, encoded once %d%n",
+                merchantCount, perCallBytes, onceBytes);
+    }
+
+    @Benchmark
+    public void encodePerMerchantCall(Blackhole blackhole) throws IOException {
+        for (int i = 0; i < merchantCount; i++) {
+            blackhole.consume(HttpUtils.buildHttpEntity(mapper.writeValueAsBytes(request), WireFormat.JSON,
+                    Deadline.after(1000)));
+        }
+    }
+
+    @Benchmark
+    public void encodeOncePerFanout(Blackhole blackhole) throws IOException {
+        byte[] body = mapper.writeValueAsBytes(MerchantProductRequest.of(request));
+        for (int i = 0; i < merchantCount; i++) {
+            blackhole.consume(HttpUtils.buildHttpEntity(body, WireFormat.JSON, Deadline.after(1000)));
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.company.producthub.benchmarks;
+
+import com.company.producthub.entities.ProductRequest;
+import com.company.producthub.entities.ProductResponse;
+import com.company.producthub.utils.Deadline;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Represents the benchmark of the json binding of product requests sent to
+ * merchants and product responses received from merchants, along with the
+ * building of the http entity of a product request. The object mapper is
+ * configured the same way as the one of the application.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class JsonBindingBenchmark {
+
+    private ObjectMapper mapper;
+    private ProductRequest request;
+    private ProductResponse prodResp;
+    private byte[] requestBytes;
+    private byte[] prodRespBytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        mapper = Jackson2ObjectMapperBuilder.json().build();
+        request = BenchmarkFixtures.buildProductRequest("car", 3);
+        prodResp = BenchmarkFixtures.buildProductResponse("1", 15500);
+        requestBytes = mapper.writeValueAsBytes(request);
+        prodRespBytes = mapper.writeValueAsBytes(prodResp);
+    }
+
+    @Benchmark
+    public byte[] writeProductRequest() throws IOException {
+        return mapper.writeValueAsBytes(request);
+    }
+
+    @Benchmark
+    public ProductRequest readProductRequest() throws IOException {
+        return mapper.readValue(requestBytes, ProductRequest.class);
+    }
+
+    @Benchmark
+    public byte[] writeProductResponse() throws IOException {
+        return mapper.writeValueAsBytes(prodResp);
+    }
+
+    @Benchmark
+    public ProductResponse readProductResponse() throws IOException {
+        return mapper.readValue(prodRespBytes, ProductResponse.class);
+    }
+
+    @Benchmark
+    public HttpEntity<ProductRequest> buildHttpEntityAppJson() {
+        return BenchmarkFixtures.buildHttpEntityAppJson(request, Deadline.after(1000));
+    }
+}
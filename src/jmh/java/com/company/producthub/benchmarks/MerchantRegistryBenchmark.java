@@ -0,0 +1,88 @@
+package com.company.producthub.benchmarks;
+
+import com.company.producthub.entities.ProductRequest;
+import com.company.producthub.entities.RegisteredMerchant;
+import com.company.producthub.services.MerchantRegistry;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Represents the benchmark of looking up the merchants of a search term in
+ * the merchant registry as the number of registered merchants grows.
+ *
+ * Each merchant sells three categories and the number of categories grows
+ * along with the number of merchants, so that every category is sold by
+ * about the same number of merchants. The lookup cost is expected to stay
+ * flat regardless of the number of registered merchants.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MerchantRegistryBenchmark {
+
+    private static final int MERCHANTS_PER_CATEGORY = 15;
+    private static final int CATEGORIES_PER_MERCHANT = 3;
+
+    @Param({"100", "1000", "10000"})
+    private int merchantCount;
+
+    private MerchantRegistry registry;
+    private String[] searchTerms;
+    private int nextSearchTerm;
+
+    @Setup
+    public void setUp() {
+        int categoryCount = Math.max(1, merchantCount * CATEGORIES_PER_MERCHANT / MERCHANTS_PER_CATEGORY);
+        Random random = new Random(42);
+        List<RegisteredMerchant> merchants = new ArrayList<>(merchantCount);
+        for (int i = 0; i < merchantCount; i++) {
+            merchants.add(new RegisteredMerchant("merchant-" + i, "merchant_" + i,
+                    "http://merchant-" + i + ".com/api/product", new HashSet<>(Arrays.asList(
+                            "category" + random.nextInt(categoryCount),
+                            "category" + random.nextInt(categoryCount),
+                            "category" + random.nextInt(categoryCount)))));
+        }
+        registry = new MerchantRegistry();
+        registry.update(merchants);
+
+        searchTerms = new String[1024];
+        for (int i = 0; i < searchTerms.length; i++) {
+            searchTerms[i] = "Category" + random.nextInt(categoryCount);
+        }
+    }
+
+    @Benchmark
+    public Collection<RegisteredMerchant> findBySearchTerm() {
+        return registry.findBySearchTerm(nextSearchTerm());
+    }
+
+    @Benchmark
+    public ProductRequest setMerchantsToProductRequest() {
+        ProductRequest request = new ProductRequest();
+        request.setSearchTerm(nextSearchTerm());
+        registry.findBySearchTerm(request.getSearchTerm()).forEach(request::addMerchant);
+
+        return request;
+    }
+
+    private String nextSearchTerm() {
+        nextSearchTerm = (nextSearchTerm + 1) & (searchTerms.length - 1);
+
+        return searchTerms[nextSearchTerm];
+    }
+}
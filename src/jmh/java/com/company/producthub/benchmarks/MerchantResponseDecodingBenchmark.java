@@ -0,0 +1,92 @@
+package com.company.producthub.benchmarks;
+
+import com.company.producthub.entities.ProductResponse;
+import com.company.producthub.entities.ProductSearchContext;
+import com.company.producthub.transport.MerchantOfferRejectedException;
+import com.company.producthub.transport.MerchantResponseDecoder;
+import com.company.producthub.transport.WireFormatMappers;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Represents the benchmark of the decoding of product responses received
+ * from merchants, binding a whole product response by the object mapper
+ * against decoding it by the streaming decoder of merchant responses, either
+ * accepted or rejected as soon as its price is read. The description of the
+ * product is padded to the given number of bytes, and the object mapper is
+ * optionally registered with the Afterburner module, as the one of the
+ * application.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class MerchantResponseDecodingBenchmark {
+
+    @Param({"100", "10000"})
+    private int descriptionBytes;
+
+    @Param({"false", "true"})
+    private boolean afterburner;
+
+    private ObjectMapper mapper;
+    private MerchantResponseDecoder decoder;
+    private ProductSearchContext acceptingSearch;
+    private ProductSearchContext rejectingSearch;
+    private byte[] prodRespBytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        mapper = Jackson2ObjectMapperBuilder.json().build();
+        if (afterburner) {
+            mapper.registerModule(new AfterburnerModule());
+        }
+        decoder = new MerchantResponseDecoder(new WireFormatMappers(mapper, Jackson2ObjectMapperBuilder.json()),
+                new SimpleMeterRegistry(), Long.MAX_VALUE);
+        acceptingSearch = new ProductSearchContext(BenchmarkFixtures.buildProductRequest("car", 3));
+        rejectingSearch = new ProductSearchContext(BenchmarkFixtures.buildProductRequest("car", 3));
+        rejectingSearch.setOfferCeiling(10000);
+
+        StringBuilder description = new StringBuilder(descriptionBytes);
+        for (int i = 0; i < descriptionBytes; i++) {
+            description.append('x');
+        }
+        // a merchant sending the price before the description
+        prodRespBytes = ("{\"id\":\"1\",\"product\":{\"id\":\"1\",\"name\":\"Product 1\",\"price\":15500,"
+                + "\"description\":\"" + description + "\"}}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public ProductResponse bindByMapper() throws IOException {
+        return mapper.readValue(prodRespBytes, ProductResponse.class);
+    }
+
+    @Benchmark
+    public ProductResponse decodeAccepted() throws IOException {
+        return decoder.decode(new ByteArrayInputStream(prodRespBytes), prodRespBytes.length, acceptingSearch);
+    }
+
+    @Benchmark
+    public ProductResponse decodeRejected() throws IOException {
+        try {
+            return decoder.decode(new ByteArrayInputStream(prodRespBytes), prodRespBytes.length, rejectingSearch);
+        } catch (MerchantOfferRejectedException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.company.producthub.benchmarks;
+
+import com.company.producthub.cache.CachedProductResponse;
+import com.company.producthub.cache.TermOffers;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Represents the benchmark of the offer index per number of merchants of a
+ * search term, finding the cheapest offer within a price range and indexing
+ * the answer of a merchant.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class OfferIndexBenchmark {
+
+    private static final long TTL_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+    @Param({"3", "30", "300"})
+    private int merchantCount;
+
+    private List<String> merchantUrls;
+    private TermOffers offers;
+    private byte[] body;
+
+    @Setup
+    public void setUp() {
+        merchantUrls = new ArrayList<>(merchantCount);
+        body = new byte[256];
+        offers = TermOffers.empty();
+        long nowMillis = System.currentTimeMillis();
+        for (int i = 0; i < merchantCount; i++) {
+            String merchantUrl = "http://merchant-" + i + ".com/api/product";
+            merchantUrls.add(merchantUrl);
+            offers = offers.answer(merchantUrl, 0, 100000, ThreadLocalRandom.current().nextInt(20000, 100000),
+                    body, nowMillis, TTL_MILLIS);
+        }
+    }
+
+    @Benchmark
+    public CachedProductResponse findCheapest() {
+        return offers.findCheapest(merchantUrls, 40000, 60000, System.currentTimeMillis(), TTL_MILLIS);
+    }
+
+    @Benchmark
+    public TermOffers answer() {
+        return offers.answer(merchantUrls.get(0), 0, 100000, 50000, body, System.currentTimeMillis(),
+                TTL_MILLIS);
+    }
+}
@@ -0,0 +1,94 @@
+package com.company.producthub.benchmarks;
+
+import com.company.producthub.App;
+import com.company.producthub.entities.ProductRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Represents the end-to-end benchmark of the product controller. The
+ * application runs in the JVM of the benchmark against stub merchants,
+ * with the cache of winner product responses disabled, so that every
+ * product request is sent to all merchants.
+ *
+ * The client of the benchmark runs in the same JVM, so the allocation
+ * reported by the gc profiler includes the allocation of the client.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ProductControllerBenchmark {
+
+    private static final String CATEGORY = "car";
+
+    @Param({"default", "nonblocking"})
+    private String serviceType;
+
+    @Param({"3", "30"})
+    private int merchantCount;
+
+    private StubMerchants stubMerchants;
+    private Path registryFile;
+    private ConfigurableApplicationContext context;
+    private RestTemplate client;
+    private String productHubUrl;
+    private HttpEntity<ProductRequest> httpEntity;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+        stubMerchants = new StubMerchants(merchantCount, 0, mapper);
+        registryFile = Files.createTempFile("merchants", ".json");
+        stubMerchants.writeRegistry(registryFile, CATEGORY, mapper);
+
+        context = SpringApplication.run(App.class,
+                "--server.port=0",
+                "--product.service.type=" + serviceType,
+                "--product.cache.enabled=false",
+                "--merchant.registry.location=" + registryFile.toUri(),
+                "--logging.level.root=WARN");
+        productHubUrl = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port")
+                + "/products";
+
+        client = new RestTemplate(new HttpComponentsClientHttpRequestFactory());
+        ProductRequest request = BenchmarkFixtures.buildProductRequest(CATEGORY, 0);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON_UTF8);
+        httpEntity = new HttpEntity<>(request, headers);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.close();
+        stubMerchants.close();
+        Files.deleteIfExists(registryFile);
+    }
+
+    @Benchmark
+    public ResponseEntity<byte[]> searchWinnerProduct() {
+        return client.postForEntity(productHubUrl, httpEntity, byte[].class);
+    }
+}
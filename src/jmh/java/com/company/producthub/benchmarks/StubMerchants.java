@@ -0,0 +1,105 @@
+package com.company.producthub.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerResponse;
+import reactor.netty.resources.LoopResources;
+
+/**
+ * Represents merchants stubbed by an http server running in the JVM of a
+ * benchmark. Each merchant answers with a product response of a fixed price
+ * after an optional latency, so that a benchmark measures the product hub
+ * rather than the merchants.
+ *
+ * The http server is a non-blocking reactor netty server running on its own
+ * event loops, so that the latency of the merchants holds no thread and the
+ * merchants keep up with thousands of concurrent calls.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+final class StubMerchants implements AutoCloseable {
+
+    private final LoopResources loopResources;
+    private final DisposableServer server;
+    private final List<String> apiUrls = new ArrayList<>();
+
+    /**
+     * Starts the given number of stub merchants selling the given category
+     *
+     * @param merchantCount the number of merchants
+     * @param latencyMillis the latency of each product response
+     * @param mapper the object mapper writing the product responses
+     *
+     * @throws IOException if a product response cannot be written
+     */
+    StubMerchants(int merchantCount, long latencyMillis, ObjectMapper mapper) throws IOException {
+        List<String> paths = new ArrayList<>();
+        List<byte[]> bodies = new ArrayList<>();
+        for (int i = 0; i < merchantCount; i++) {
+            paths.add("/merchant-" + i + "/api/product");
+            bodies.add(mapper.writeValueAsBytes(
+                    BenchmarkFixtures.buildProductResponse(String.valueOf(i), 10000 + 100 * i)));
+        }
+        loopResources = LoopResources.create("stub-merchants");
+        server = HttpServer.create()
+                .host("127.0.0.1")
+                .port(0)
+                .tcpConfiguration(tcpServer -> tcpServer.runOn(loopResources))
+                .route(routes -> {
+                    for (int i = 0; i < merchantCount; i++) {
+                        byte[] body = bodies.get(i);
+                        routes.post(paths.get(i), (request, response) -> request.receive()
+                                .then()
+                                .then(latencyMillis > 0
+                                        ? Mono.delay(Duration.ofMillis(latencyMillis)).then() : Mono.empty())
+                                .then(answer(response, body)));
+                    }
+                })
+                .bindNow();
+        paths.forEach(path -> apiUrls.add("http://127.0.0.1:" + server.port() + path));
+    }
+
+    /**
+     * Writes the merchant registry of the stub merchants to the given file
+     *
+     * @param registryFile the registry file
+     * @param category the category sold by all stub merchants
+     * @param mapper the object mapper writing the registry
+     *
+     * @throws IOException if the file cannot be written
+     */
+    void writeRegistry(Path registryFile, String category, ObjectMapper mapper) throws IOException {
+        List<Map<String, Object>> merchants = new ArrayList<>();
+        for (int i = 0; i < apiUrls.size(); i++) {
+            Map<String, Object> merchant = new LinkedHashMap<>();
+            merchant.put("id", "merchant-" + i);
+            merchant.put("name", "merchant_" + i);
+            merchant.put("apiUrl", apiUrls.get(i));
+            merchant.put("categories", new String[]{category});
+            merchants.add(merchant);
+        }
+        Files.write(registryFile, mapper.writeValueAsBytes(merchants));
+    }
+
+    @Override
+    public void close() {
+        server.disposeNow();
+        loopResources.dispose();
+    }
+
+    private static Mono<Void> answer(HttpServerResponse response, byte[] body) {
+        return response.header("Content-Type", "application/json")
+                .sendByteArray(Mono.just(body))
+                .then();
+    }
+}
@@ -0,0 +1,117 @@
+package com.company.producthub.benchmarks;
+
+import com.company.producthub.App;
+import com.company.producthub.entities.ProductRequest;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Represents the end-to-end benchmark of the servlet web stack against the
+ * reactive web stack at high connection counts. Each operation sends a
+ * product request over each of the client connections at once and waits for
+ * all product responses, against stub merchants answering after a fixed
+ * latency. Product requests have distinct search terms, so that they are not
+ * coalesced, and the concurrency limit is disabled, so that no product
+ * request is rejected.
+ *
+ * Both stacks call merchants by the nonblocking implementation, so that
+ * they differ only in the way product requests are served: a tomcat thread
+ * waiting for the merchants of each product request, or no thread at all.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class WebStackBenchmark {
+
+    private static final String CATEGORY = "car";
+    private static final int MERCHANT_COUNT = 3;
+    private static final long MERCHANT_LATENCY_MILLIS = 20;
+
+    @Param({"servlet", "reactive"})
+    private String webStack;
+
+    @Param({"64", "512"})
+    private int connections;
+
+    private StubMerchants stubMerchants;
+    private Path registryFile;
+    private ConfigurableApplicationContext context;
+    private ConnectionProvider connectionProvider;
+    private WebClient client;
+    private ProductRequest[] requests;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper mapper = Jackson2ObjectMapperBuilder.json().build();
+        stubMerchants = new StubMerchants(MERCHANT_COUNT, MERCHANT_LATENCY_MILLIS, mapper);
+        registryFile = Files.createTempFile("merchants", ".json");
+        stubMerchants.writeRegistry(registryFile, CATEGORY, mapper);
+
+        context = SpringApplication.run(App.class,
+                "--server.port=0",
+                "--spring.main.web-application-type=" + webStack,
+                "--product.service.type=nonblocking",
+                "--product.cache.enabled=false",
+                "--product.concurrency.limit.enabled=false",
+                "--merchant.pool.max.connections.per.host=" + connections * MERCHANT_COUNT,
+                "--merchant.pool.max.connections=" + connections * MERCHANT_COUNT,
+                "--merchant.registry.location=" + registryFile.toUri(),
+                "--logging.level.root=WARN");
+        String productHubUrl = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port")
+                + "/products";
+
+        connectionProvider = ConnectionProvider.fixed("benchmark", connections);
+        client = WebClient.builder()
+                .baseUrl(productHubUrl)
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)))
+                .build();
+        requests = new ProductRequest[connections];
+        for (int i = 0; i < connections; i++) {
+            requests[i] = BenchmarkFixtures.buildProductRequest(CATEGORY + " " + i, 0);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        connectionProvider.dispose();
+        context.close();
+        stubMerchants.close();
+        Files.deleteIfExists(registryFile);
+    }
+
+    @Benchmark
+    public Long searchWinnerProducts() {
+        return Flux.fromArray(requests)
+                .flatMap(request -> client.post()
+                        .contentType(MediaType.APPLICATION_JSON_UTF8)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .syncBody(request)
+                        .retrieve()
+                        .bodyToMono(byte[].class), connections)
+                .count()
+                .block();
+    }
+}
@@ -0,0 +1,67 @@
+package com.company.producthub.benchmarks;
+
+import com.company.producthub.entities.ProductRequest;
+import com.company.producthub.entities.ProductResponse;
+import com.company.producthub.entities.ProductSearchContext;
+import com.company.producthub.entities.ProductSearchResult;
+import com.company.producthub.services.MerchantRegistry;
+import com.company.producthub.services.ProductServiceDefaultImpl;
+import com.company.producthub.utils.Deadline;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Represents the benchmark of selecting the winner product response over
+ * the futures of the merchants' product responses, as the number of
+ * merchants grows. All futures are already completed, so the benchmark
+ * measures the aggregation rather than waiting.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class WinnerSelectionBenchmark {
+
+    @Param({"3", "30", "300"})
+    private int merchantCount;
+
+    private ProductServiceDefaultImpl productService;
+    private ProductRequest request;
+    private List<CompletableFuture<ProductResponse>> prodResps;
+
+    @Setup
+    public void setUp() {
+        productService = new ProductServiceDefaultImpl();
+        BenchmarkFixtures.setField(productService, "quorumRatio", 1.0);
+        BenchmarkFixtures.setField(productService, "quorumGraceMillis", 100L);
+        BenchmarkFixtures.setField(productService, "meterRegistry", new SimpleMeterRegistry());
+        BenchmarkFixtures.setField(productService, "merchantRegistry", new MerchantRegistry());
+        productService.init();
+
+        request = BenchmarkFixtures.buildProductRequest("car", merchantCount);
+        Random random = new Random(42);
+        prodResps = new ArrayList<>(merchantCount);
+        for (int i = 0; i < merchantCount; i++) {
+            prodResps.add(CompletableFuture.completedFuture(
+                    BenchmarkFixtures.buildProductResponse(String.valueOf(i), 10000 + random.nextInt(10000))));
+        }
+    }
+
+    @Benchmark
+    public ProductSearchResult searchWinnerProduct() {
+        return productService.searchWinnerProduct(new ProductSearchContext(request), prodResps, Deadline.after(1000));
+    }
+}
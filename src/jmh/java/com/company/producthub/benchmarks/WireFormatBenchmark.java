@@ -0,0 +1,75 @@
+package com.company.producthub.benchmarks;
+
+import com.company.producthub.entities.MerchantProductRequest;
+import com.company.producthub.entities.ProductResponse;
+import com.company.producthub.entities.ProductSearchContext;
+import com.company.producthub.entities.WireFormat;
+import com.company.producthub.transport.MerchantResponseDecoder;
+import com.company.producthub.transport.WireFormatMappers;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Represents the benchmark of the wire formats exchanged with merchants,
+ * encoding the product request sent to a merchant and decoding the product
+ * response received, by the object mapper and by the streaming decoder of
+ * merchant responses. The bytes of the product request and the product
+ * response in each wire format are printed at setup.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class WireFormatBenchmark {
+
+    @Param({"JSON", "SMILE", "CBOR"})
+    private WireFormat format;
+
+    private ObjectMapper mapper;
+    private MerchantResponseDecoder decoder;
+    private ProductSearchContext search;
+    private MerchantProductRequest merchantRequest;
+    private byte[] prodRespBytes;
+
+    @Setup
+    public void setUp() throws IOException {
+        WireFormatMappers mappers = new WireFormatMappers(Jackson2ObjectMapperBuilder.json().build(),
+                Jackson2ObjectMapperBuilder.json());
+        mapper = mappers.get(format);
+        decoder = new MerchantResponseDecoder(mappers, new SimpleMeterRegistry(), Long.MAX_VALUE);
+        search = new ProductSearchContext(BenchmarkFixtures.buildProductRequest("car", 3));
+        merchantRequest = MerchantProductRequest.of(search.getRequest());
+        ProductResponse prodResp = BenchmarkFixtures.buildProductResponse("1", 15500);
+        prodRespBytes = mapper.writeValueAsBytes(prodResp);
+        System.out.printf("%nBytes in %s: product request %d, product response %d%n", format,
+                mapper.writeValueAsBytes(merchantRequest).length, prodRespBytes.length);
+    }
+
+    @Benchmark
+    public byte[] encodeProductRequest() throws IOException {
+        return mapper.writeValueAsBytes(merchantRequest);
+    }
+
+    @Benchmark
+    public ProductResponse readProductResponse() throws IOException {
+        return mapper.readValue(prodRespBytes, ProductResponse.class);
+    }
+
+    @Benchmark
+    public ProductResponse decodeProductResponse() throws IOException {
+        return decoder.decode(new ByteArrayInputStream(prodRespBytes), prodRespBytes.length, search, format);
+    }
+}
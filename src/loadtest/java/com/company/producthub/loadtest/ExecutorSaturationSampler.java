@@ -0,0 +1,104 @@
+package com.company.producthub.loadtest;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Represents the sampler of the saturation of the task executor of the
+ * product hub. It periodically samples the active threads and the queued
+ * tasks of the executor, and reports their maximum and average along with
+ * the ratio of samples having all threads of the executor busy.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+final class ExecutorSaturationSampler implements AutoCloseable {
+
+    private static final long SAMPLE_PERIOD_MILLIS = 100;
+
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "executor-sampler");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ScheduledFuture<?> sampling;
+
+    private long sampleCount;
+    private long activeSum;
+    private long queuedSum;
+    private int maxActive;
+    private int maxQueued;
+    private long saturatedCount;
+
+    /**
+     * Creates the sampler of the given executor
+     *
+     * @param executor the task executor of the product hub
+     */
+    ExecutorSaturationSampler(ThreadPoolExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Starts sampling from scratch
+     */
+    synchronized void start() {
+        sampleCount = activeSum = queuedSum = saturatedCount = 0;
+        maxActive = maxQueued = 0;
+        sampling = sampler.scheduleAtFixedRate(this::sample, 0, SAMPLE_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops sampling
+     */
+    synchronized void stop() {
+        if (sampling != null) {
+            sampling.cancel(false);
+        }
+    }
+
+    synchronized int getMaxPoolSize() {
+        return executor.getMaximumPoolSize();
+    }
+
+    synchronized int getMaxActive() {
+        return maxActive;
+    }
+
+    synchronized double getAverageActive() {
+        return sampleCount == 0 ? 0 : (double) activeSum / sampleCount;
+    }
+
+    synchronized int getMaxQueued() {
+        return maxQueued;
+    }
+
+    synchronized double getAverageQueued() {
+        return sampleCount == 0 ? 0 : (double) queuedSum / sampleCount;
+    }
+
+    synchronized double getSaturatedRatio() {
+        return sampleCount == 0 ? 0 : (double) saturatedCount / sampleCount;
+    }
+
+    @Override
+    public void close() {
+        sampler.shutdownNow();
+    }
+
+    private synchronized void sample() {
+        int active = executor.getActiveCount();
+        int queued = executor.getQueue().size();
+        sampleCount++;
+        activeSum += active;
+        queuedSum += queued;
+        maxActive = Math.max(maxActive, active);
+        maxQueued = Math.max(maxQueued, queued);
+        if (active >= executor.getMaximumPoolSize()) {
+            saturatedCount++;
+        }
+    }
+}
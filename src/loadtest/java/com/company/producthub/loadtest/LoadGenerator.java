@@ -0,0 +1,227 @@
+package com.company.producthub.loadtest;
+
+import com.company.producthub.entities.ProductRequest;
+import com.company.producthub.utils.HttpUtils;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Represents the generator of product requests arriving at the product hub
+ * at a fixed rate (open model). Each product request is sent at its intended
+ * time regardless of the responses pending, and its latency is measured from
+ * its intended time rather than the time it was actually sent, so that
+ * the latency is not hidden by a generator falling behind (coordinated
+ * omission).
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+final class LoadGenerator {
+
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final WebClient client;
+    private final String productHubUrl;
+    private final Scenario scenario;
+    private final AtomicLong requestIds = new AtomicLong();
+
+    /**
+     * Creates a load generator
+     *
+     * @param productHubUrl the url of the products endpoint of the product hub
+     * @param scenario the load test scenario
+     */
+    LoadGenerator(String productHubUrl, Scenario scenario) {
+        this.productHubUrl = productHubUrl;
+        this.scenario = scenario;
+        this.client = WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(
+                        HttpClient.create(ConnectionProvider.elastic("loadtest"))))
+                .build();
+    }
+
+    /**
+     * Sends product requests at the arrival rate of the scenario for the
+     * given duration and waits for their responses
+     *
+     * @param duration the duration of the load
+     *
+     * @return the result of the load
+     *
+     * @throws InterruptedException if interrupted while waiting for responses
+     */
+    Result run(Duration duration) throws InterruptedException {
+        long periodNanos = (long) (TimeUnit.SECONDS.toNanos(1) / scenario.getArrivalRatePerSecond());
+        long requestCount = Math.max(1, duration.toNanos() / periodNanos);
+        Duration clientTimeout = Duration.ofMillis(scenario.getRequestTimeoutMillis() + 5000);
+        Result result = new Result();
+        CountDownLatch pending = new CountDownLatch((int) requestCount);
+
+        long startNanos = System.nanoTime();
+        for (long i = 0; i < requestCount; i++) {
+            long intendedNanos = startNanos + i * periodNanos;
+            long waitNanos = intendedNanos - System.nanoTime();
+            if (waitNanos > 0) {
+                LockSupport.parkNanos(waitNanos);
+            } else {
+                result.maxDispatchLagNanos.accumulateAndGet(-waitNanos, Math::max);
+            }
+            client.post()
+                    .uri(productHubUrl)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header(HttpUtils.HEADER_REQUEST_TIMEOUT, String.valueOf(scenario.getRequestTimeoutMillis()))
+                    .syncBody(buildProductRequest())
+                    .exchange()
+                    .flatMap(response -> response.bodyToMono(byte[].class)
+                            .then(Mono.just(response)))
+                    .timeout(clientTimeout)
+                    .subscribe(
+                            response -> result.record(response, intendedNanos),
+                            ex -> {
+                                result.recordFailure(intendedNanos);
+                                pending.countDown();
+                            },
+                            pending::countDown);
+        }
+        result.sentNanos = System.nanoTime() - startNanos;
+        pending.await(clientTimeout.toMillis() + 1000, TimeUnit.MILLISECONDS);
+        result.elapsedNanos = System.nanoTime() - startNanos;
+
+        return result;
+    }
+
+    private ProductRequest buildProductRequest() {
+        List<String> searchTerms = scenario.getSearchTerms();
+        ProductRequest request = new ProductRequest();
+        request.setId(String.valueOf(requestIds.incrementAndGet()));
+        request.setSearchTerm(searchTerms.get(ThreadLocalRandom.current().nextInt(searchTerms.size())));
+        request.setMinPrice(0);
+        request.setMaxPrice(Double.MAX_VALUE);
+
+        return request;
+    }
+
+    /**
+     * Represents the result of a load, i.e. the latency histogram of the
+     * product requests and the count of their outcomes
+     */
+    static final class Result {
+
+        private final Recorder latencies = new Recorder(MAX_LATENCY_NANOS, 3);
+        private final AtomicLong okCount = new AtomicLong();
+        private final AtomicLong noContentCount = new AtomicLong();
+        private final AtomicLong errorCount = new AtomicLong();
+        private final AtomicLong failureCount = new AtomicLong();
+        private final AtomicLong merchantsAnswered = new AtomicLong();
+        private final AtomicLong merchantsFailed = new AtomicLong();
+        private final AtomicLong merchantsTimedOut = new AtomicLong();
+        private final AtomicLong merchantsCancelled = new AtomicLong();
+        private final AtomicLong maxDispatchLagNanos = new AtomicLong();
+        private long sentNanos;
+        private long elapsedNanos;
+        private Histogram histogram;
+
+        private void record(ClientResponse response, long intendedNanos) {
+            latencies.recordValue(Math.min(MAX_LATENCY_NANOS, System.nanoTime() - intendedNanos));
+            int status = response.statusCode().value();
+            if (status == 200) {
+                okCount.incrementAndGet();
+            } else if (status == 204) {
+                noContentCount.incrementAndGet();
+            } else {
+                errorCount.incrementAndGet();
+            }
+            HttpHeaders headers = response.headers().asHttpHeaders();
+            merchantsAnswered.addAndGet(headerValue(headers, HttpUtils.HEADER_MERCHANTS_ANSWERED));
+            merchantsFailed.addAndGet(headerValue(headers, HttpUtils.HEADER_MERCHANTS_FAILED));
+            merchantsTimedOut.addAndGet(headerValue(headers, HttpUtils.HEADER_MERCHANTS_TIMED_OUT));
+            merchantsCancelled.addAndGet(headerValue(headers, HttpUtils.HEADER_MERCHANTS_CANCELLED));
+        }
+
+        private void recordFailure(long intendedNanos) {
+            latencies.recordValue(Math.min(MAX_LATENCY_NANOS, System.nanoTime() - intendedNanos));
+            failureCount.incrementAndGet();
+        }
+
+        private static long headerValue(HttpHeaders headers, String name) {
+            String value = headers.getFirst(name);
+
+            return value == null ? 0 : Long.parseLong(value);
+        }
+
+        /**
+         * Gets the latency histogram in nanoseconds
+         *
+         * @return the histogram
+         */
+        synchronized Histogram getHistogram() {
+            if (histogram == null) {
+                histogram = latencies.getIntervalHistogram();
+            }
+
+            return histogram;
+        }
+
+        long getRequestCount() {
+            return okCount.get() + noContentCount.get() + errorCount.get() + failureCount.get();
+        }
+
+        long getOkCount() {
+            return okCount.get();
+        }
+
+        long getNoContentCount() {
+            return noContentCount.get();
+        }
+
+        long getErrorCount() {
+            return errorCount.get();
+        }
+
+        long getFailureCount() {
+            return failureCount.get();
+        }
+
+        long getMerchantsAnswered() {
+            return merchantsAnswered.get();
+        }
+
+        long getMerchantsFailed() {
+            return merchantsFailed.get();
+        }
+
+        long getMerchantsTimedOut() {
+            return merchantsTimedOut.get();
+        }
+
+        long getMerchantsCancelled() {
+            return merchantsCancelled.get();
+        }
+
+        long getMaxDispatchLagNanos() {
+            return maxDispatchLagNanos.get();
+        }
+
+        long getSentNanos() {
+            return sentNanos;
+        }
+
+        long getElapsedNanos() {
+            return elapsedNanos;
+        }
+    }
+}
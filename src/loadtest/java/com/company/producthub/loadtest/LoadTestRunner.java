@@ -0,0 +1,242 @@
+package com.company.producthub.loadtest;
+
+import com.company.producthub.App;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+/**
+ * Represents the runner of a load test scenario against the product hub.
+ *
+ * It starts the stub merchants of the scenario, starts the product hub with
+ * the properties of the scenario and a merchant registry of the stub
+ * merchants, warms it up and drives the products endpoint at the arrival
+ * rate of the scenario. The report of the load test is printed and written
+ * to target/loadtest as json, along with the latency percentile
+ * distribution in the HdrHistogram format. A scenario having variants is run
+ * once per variant, each against a fresh product hub, and the throughput and
+ * latency percentiles of the variants are printed side by side.
+ *
+ * Usage: LoadTestRunner &lt;scenario file&gt;
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+public final class LoadTestRunner {
+
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9, 99.99};
+    private static final Path REPORT_DIR = Paths.get("target", "loadtest");
+
+    private LoadTestRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length != 1) {
+            System.err.println("Usage: LoadTestRunner <scenario file>");
+            System.exit(2);
+        }
+        Scenario scenario = Scenario.read(Paths.get(args[0]));
+        Map<String, Map<String, String>> variants = scenario.getVariants().isEmpty()
+                ? Collections.singletonMap("", Collections.emptyMap()) : scenario.getVariants();
+        Map<String, Map<String, Object>> reports = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, String>> variant : variants.entrySet()) {
+            String reportName = variant.getKey().isEmpty()
+                    ? scenario.getName() : scenario.getName() + "-" + variant.getKey();
+            Map<String, Object> report = run(scenario, reportName, variant.getValue());
+            Files.createDirectories(REPORT_DIR);
+            new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT)
+                    .writeValue(REPORT_DIR.resolve(reportName + "-report.json").toFile(), report);
+            reports.put(reportName, report);
+        }
+        if (reports.size() > 1) {
+            printComparison(System.out, reports);
+        }
+        System.exit(0);
+    }
+
+    private static Map<String, Object> run(Scenario scenario, String reportName,
+            Map<String, String> variantProperties) throws IOException, InterruptedException {
+        ObjectMapper mapper = new ObjectMapper();
+        ExecutorService stubExecutor = Executors.newCachedThreadPool();
+        ScheduledExecutorService stubScheduler = Executors.newScheduledThreadPool(4);
+        List<StubMerchant> stubMerchants = new ArrayList<>();
+        Path registryFile = Files.createTempFile("merchants", ".json");
+        // disables Nagle's algorithm of the stub merchants' http server
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        try {
+            for (Scenario.MerchantGroup group : scenario.getMerchants()) {
+                for (int i = 0; i < group.getCount(); i++) {
+                    stubMerchants.add(new StubMerchant(group.getName() + "-" + i, group,
+                            stubExecutor, stubScheduler, mapper));
+                }
+            }
+            writeRegistry(registryFile, stubMerchants, mapper);
+
+            try (ConfigurableApplicationContext context = startProductHub(scenario, variantProperties,
+                    registryFile);
+                    ExecutorSaturationSampler executorSampler = new ExecutorSaturationSampler(
+                            context.getBean("taskExecutor", ThreadPoolTaskExecutor.class).getThreadPoolExecutor())) {
+                String productHubUrl = "http://127.0.0.1:"
+                        + context.getEnvironment().getProperty("local.server.port") + "/products";
+                LoadGenerator generator = new LoadGenerator(productHubUrl, scenario);
+
+                System.out.printf("Warming up %s for %d s%n", reportName, scenario.getWarmupSeconds());
+                generator.run(Duration.ofSeconds(scenario.getWarmupSeconds()));
+
+                System.out.printf("Running %s at %.0f requests/s for %d s%n", reportName,
+                        scenario.getArrivalRatePerSecond(), scenario.getDurationSeconds());
+                executorSampler.start();
+                LoadGenerator.Result result = generator.run(Duration.ofSeconds(scenario.getDurationSeconds()));
+                executorSampler.stop();
+
+                writeLatencyDistribution(reportName, result.getHistogram());
+                Map<String, Object> report = buildReport(scenario, reportName, result, executorSampler);
+                printReport(System.out, report);
+
+                return report;
+            }
+        } finally {
+            stubMerchants.forEach(StubMerchant::close);
+            stubExecutor.shutdownNow();
+            stubScheduler.shutdownNow();
+            Files.deleteIfExists(registryFile);
+        }
+    }
+
+    private static void writeRegistry(Path registryFile, List<StubMerchant> stubMerchants, ObjectMapper mapper)
+            throws IOException {
+        List<Map<String, Object>> merchants = new ArrayList<>();
+        for (StubMerchant stubMerchant : stubMerchants) {
+            Map<String, Object> merchant = new LinkedHashMap<>();
+            merchant.put("id", stubMerchant.getId());
+            merchant.put("name", stubMerchant.getId());
+            merchant.put("apiUrl", stubMerchant.getApiUrl());
+            merchant.put("categories", stubMerchant.getGroup().getCategories());
+            merchants.add(merchant);
+        }
+        Files.write(registryFile, mapper.writeValueAsBytes(merchants));
+    }
+
+    private static ConfigurableApplicationContext startProductHub(Scenario scenario,
+            Map<String, String> variantProperties, Path registryFile) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("server.port", "0");
+        properties.put("logging.level.root", "WARN");
+        properties.put("merchant.pool.warmup.connections", "0");
+        properties.putAll(scenario.getHubProperties());
+        properties.putAll(variantProperties);
+        properties.put("merchant.registry.location", registryFile.toUri().toString());
+
+        return SpringApplication.run(App.class, properties.entrySet()
+                .stream()
+                .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                .toArray(String[]::new));
+    }
+
+    private static void writeLatencyDistribution(String reportName, Histogram histogram) throws IOException {
+        Files.createDirectories(REPORT_DIR);
+        try (PrintStream output = new PrintStream(
+                REPORT_DIR.resolve(reportName + "-latency.hgrm").toFile(), "UTF-8")) {
+            histogram.outputPercentileDistribution(output, 1e6);
+        }
+    }
+
+    private static Map<String, Object> buildReport(Scenario scenario, String reportName,
+            LoadGenerator.Result result, ExecutorSaturationSampler executorSampler) {
+        Histogram histogram = result.getHistogram();
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("scenario", reportName);
+        report.put("arrivalRatePerSecond", scenario.getArrivalRatePerSecond());
+        report.put("durationSeconds", scenario.getDurationSeconds());
+        report.put("requests", result.getRequestCount());
+        report.put("throughputPerSecond",
+                result.getRequestCount() / (result.getSentNanos() / (double) TimeUnit.SECONDS.toNanos(1)));
+        report.put("maxDispatchLagMillis", result.getMaxDispatchLagNanos() / 1e6);
+
+        Map<String, Object> outcomes = new LinkedHashMap<>();
+        outcomes.put("ok", result.getOkCount());
+        outcomes.put("noContent", result.getNoContentCount());
+        outcomes.put("error", result.getErrorCount());
+        outcomes.put("failed", result.getFailureCount());
+        report.put("outcomes", outcomes);
+
+        Map<String, Object> latencyMillis = new LinkedHashMap<>();
+        latencyMillis.put("mean", histogram.getMean() / 1e6);
+        for (double percentile : PERCENTILES) {
+            latencyMillis.put("p" + formatPercentile(percentile), histogram.getValueAtPercentile(percentile) / 1e6);
+        }
+        latencyMillis.put("max", histogram.getMaxValue() / 1e6);
+        report.put("latencyMillis", latencyMillis);
+
+        Map<String, Object> merchants = new LinkedHashMap<>();
+        merchants.put("answered", result.getMerchantsAnswered());
+        merchants.put("failed", result.getMerchantsFailed());
+        merchants.put("timedOut", result.getMerchantsTimedOut());
+        merchants.put("cancelled", result.getMerchantsCancelled());
+        report.put("merchants", merchants);
+
+        Map<String, Object> executor = new LinkedHashMap<>();
+        executor.put("maxPoolSize", executorSampler.getMaxPoolSize());
+        executor.put("maxActive", executorSampler.getMaxActive());
+        executor.put("averageActive", executorSampler.getAverageActive());
+        executor.put("maxQueued", executorSampler.getMaxQueued());
+        executor.put("averageQueued", executorSampler.getAverageQueued());
+        executor.put("saturatedRatio", executorSampler.getSaturatedRatio());
+        report.put("executor", executor);
+
+        return report;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void printReport(PrintStream output, Map<String, Object> report) {
+        output.println();
+        report.forEach((key, value) -> {
+            if (value instanceof Map) {
+                output.printf("%s%n", key);
+                ((Map<String, Object>) value).forEach((subKey, subValue) ->
+                        output.printf("  %-22s %s%n", subKey, format(subValue)));
+            } else {
+                output.printf("%-24s %s%n", key, format(value));
+            }
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void printComparison(PrintStream output, Map<String, Map<String, Object>> reports) {
+        output.println();
+        output.printf("%-40s %12s %10s %10s %10s%n", "variant", "throughput/s", "p50 ms", "p99 ms", "p99.9 ms");
+        reports.forEach((reportName, report) -> {
+            Map<String, Object> latencyMillis = (Map<String, Object>) report.get("latencyMillis");
+            output.printf("%-40s %12s %10s %10s %10s%n", reportName, format(report.get("throughputPerSecond")),
+                    format(latencyMillis.get("p50")), format(latencyMillis.get("p99")),
+                    format(latencyMillis.get("p99_9")));
+        });
+    }
+
+    private static String format(Object value) {
+        return value instanceof Double ? String.format(Locale.ROOT, "%.2f", (Double) value) : String.valueOf(value);
+    }
+
+    private static String formatPercentile(double percentile) {
+        return percentile == Math.rint(percentile)
+                ? String.valueOf((long) percentile) : String.valueOf(percentile).replace('.', '_');
+    }
+}
@@ -0,0 +1,159 @@
+package com.company.producthub.loadtest;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect.Visibility;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Represents a load test scenario read from a json file. A scenario defines
+ * the stub merchants, the properties of the product hub and the fixed rate
+ * at which product requests arrive at the product hub. A scenario may define
+ * variants, each one overriding some properties of the product hub, in order
+ * to compare the product hub between modes under the same load.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+public class Scenario {
+
+    private String name;
+    private String description;
+    private double arrivalRatePerSecond = 50;
+    private int warmupSeconds = 5;
+    private int durationSeconds = 30;
+    private long requestTimeoutMillis = 2000;
+    private List<String> searchTerms = Collections.singletonList("car");
+    private Map<String, String> hubProperties = Collections.emptyMap();
+    private List<MerchantGroup> merchants = Collections.emptyList();
+    private LinkedHashMap<String, Map<String, String>> variants = new LinkedHashMap<>();
+
+    /**
+     * Reads a scenario from the given json file
+     *
+     * @param file the scenario file
+     *
+     * @return the scenario
+     *
+     * @throws IOException if the file cannot be read
+     */
+    public static Scenario read(Path file) throws IOException {
+        ObjectMapper mapper = new ObjectMapper()
+                .setVisibility(PropertyAccessor.FIELD, Visibility.ANY)
+                .enable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+
+        return mapper.readValue(file.toFile(), Scenario.class);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public double getArrivalRatePerSecond() {
+        return arrivalRatePerSecond;
+    }
+
+    public int getWarmupSeconds() {
+        return warmupSeconds;
+    }
+
+    public int getDurationSeconds() {
+        return durationSeconds;
+    }
+
+    public long getRequestTimeoutMillis() {
+        return requestTimeoutMillis;
+    }
+
+    public List<String> getSearchTerms() {
+        return searchTerms;
+    }
+
+    public Map<String, String> getHubProperties() {
+        return hubProperties;
+    }
+
+    public List<MerchantGroup> getMerchants() {
+        return merchants;
+    }
+
+    public Map<String, Map<String, String>> getVariants() {
+        return variants;
+    }
+
+    /**
+     * Represents a group of stub merchants behaving the same way
+     */
+    public static class MerchantGroup {
+
+        private String name = "merchant";
+        private int count = 1;
+        private List<String> categories = Collections.singletonList("car");
+        private LatencyDistribution latency = new LatencyDistribution();
+        private double errorRate;
+        private double noContentRate;
+
+        public String getName() {
+            return name;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public List<String> getCategories() {
+            return categories;
+        }
+
+        public LatencyDistribution getLatency() {
+            return latency;
+        }
+
+        public double getErrorRate() {
+            return errorRate;
+        }
+
+        public double getNoContentRate() {
+            return noContentRate;
+        }
+    }
+
+    /**
+     * Represents the latency distribution of a stub merchant. The body of the
+     * distribution is log-normal around the median, while a ratio of the
+     * responses falls into a heavy tail uniformly distributed between the
+     * tail's minimum and maximum latency.
+     */
+    public static class LatencyDistribution {
+
+        private double medianMillis = 50;
+        private double sigma = 0.25;
+        private double tailRatio;
+        private long tailMinMillis;
+        private long tailMaxMillis;
+
+        /**
+         * Samples a latency of the distribution
+         *
+         * @return the latency in milliseconds
+         */
+        public long sampleMillis() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            if (tailRatio > 0 && random.nextDouble() < tailRatio) {
+                return tailMinMillis + (long) (random.nextDouble() * (tailMaxMillis - tailMinMillis));
+            }
+
+            return Math.round(medianMillis * Math.exp(sigma * random.nextGaussian()));
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.company.producthub.loadtest;
+
+import com.company.producthub.entities.Product;
+import com.company.producthub.entities.ProductResponse;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Represents a merchant stubbed by a local http server. Each product request
+ * is answered after a latency sampled by the latency distribution of the
+ * merchant, either by an error, by no content or by a product response of a
+ * random price. Responses are scheduled rather than slept, so that a slow
+ * merchant does not need a thread per pending request.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+final class StubMerchant implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(StubMerchant.class);
+
+    private static final String API_PATH = "/api/product";
+
+    private final String id;
+    private final Scenario.MerchantGroup group;
+    private final ScheduledExecutorService scheduler;
+    private final ObjectMapper mapper;
+    private final HttpServer server;
+
+    /**
+     * Starts a stub merchant
+     *
+     * @param id the id of the merchant
+     * @param group the group defining the behaviour of the merchant
+     * @param executor the executor reading the product requests
+     * @param scheduler the scheduler answering the product requests
+     * @param mapper the object mapper
+     *
+     * @throws IOException if the http server cannot start
+     */
+    StubMerchant(String id, Scenario.MerchantGroup group, ExecutorService executor,
+            ScheduledExecutorService scheduler, ObjectMapper mapper) throws IOException {
+        this.id = id;
+        this.group = group;
+        this.scheduler = scheduler;
+        this.mapper = mapper;
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 4096);
+        server.createContext(API_PATH, this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Gets the id of the merchant
+     *
+     * @return the id
+     */
+    String getId() {
+        return id;
+    }
+
+    /**
+     * Gets the group of the merchant
+     *
+     * @return the merchant group
+     */
+    Scenario.MerchantGroup getGroup() {
+        return group;
+    }
+
+    /**
+     * Gets the api url of the merchant
+     *
+     * @return the api url
+     */
+    String getApiUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + API_PATH;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        JsonNode request;
+        try (InputStream input = exchange.getRequestBody()) {
+            request = mapper.readTree(input);
+        }
+        long latencyMillis = group.getLatency().sampleMillis();
+        scheduler.schedule(() -> answer(exchange, request.path("id").asText()), latencyMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void answer(HttpExchange exchange, String requestId) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double outcome = random.nextDouble();
+        try (OutputStream output = exchange.getResponseBody()) {
+            if (outcome < group.getErrorRate()) {
+                exchange.sendResponseHeaders(500, -1);
+            } else if (outcome < group.getErrorRate() + group.getNoContentRate()) {
+                exchange.sendResponseHeaders(204, -1);
+            } else {
+                Product product = new Product();
+                product.setId(id + "-" + requestId);
+                product.setName(group.getName());
+                product.setPrice(10000 + random.nextInt(10000));
+                ProductResponse prodResp = new ProductResponse();
+                prodResp.setId(requestId);
+                prodResp.setProduct(product);
+                byte[] body = mapper.writeValueAsBytes(prodResp);
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                output.write(body);
+            }
+        } catch (IOException ex) {
+            log.debug("Stub merchant {} failed to answer, the product hub gave up", id, ex);
+        }
+    }
+}
@@ -1,14 +1,24 @@
 package com.company.producthub;
 
-import java.util.concurrent.Executor;
+import com.company.producthub.services.MerchantHealthTracker;
+import com.company.producthub.transport.MerchantCompression;
+import com.company.producthub.transport.MerchantCompressionInterceptor;
+import com.company.producthub.transport.MerchantResponseDecoder;
+import com.company.producthub.transport.MerchantTimeoutRequestFactory;
+import com.company.producthub.transport.ProductResponseHttpMessageConverter;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.scheduling.annotation.EnableAsync;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.reactive.function.client.WebClient;
 
 /**
  * Represents application's main gateway and configuration class.
@@ -17,6 +27,7 @@ import org.springframework.web.client.RestTemplate;
  */
 @SpringBootApplication
 @EnableAsync
+@EnableScheduling
 public class App {
     
     @Value("${executor.threadpool.size.core}")
@@ -28,6 +39,18 @@ public class App {
     @Value("${executor.queue.capacity}")
     private int executorQueueCapacity;
     
+    @Value("${product.cache.revalidation.threads}")
+    private int revalidationThreads;
+    
+    @Value("${product.cache.revalidation.queue.capacity}")
+    private int revalidationQueueCapacity;
+    
+    @Value("${merchant.connect.timeout.millis}")
+    private int merchantConnectTimeoutMillis;
+    
+    @Value("${merchant.pool.acquire.timeout.millis}")
+    private int merchantPoolAcquireTimeoutMillis;
+    
     public static void main(String[] args) {
         SpringApplication.run(App.class, args);
     }
@@ -35,14 +58,64 @@ public class App {
     /**
      * Creates a RestTemplate bean by using 
      * auto-configured RestTemplateBuilder and makes it
-     * available in application's context
+     * available in application's context.
+     * Calls are sent over the pooled connections of
+     * the merchant http client and the read timeout
+     * of each call is the adaptive timeout of the
+     * merchant being called.
+     * 
+     * Product responses are read by the streaming
+     * decoder of merchant responses, and bodies are
+     * compressed per merchant.
      * 
      * @param builder the RestTemplate builder
+     * @param merchantHttpClient the merchant http client
+     * @param merchantHealthTracker the tracker of merchants' health
+     * @param merchantResponseDecoder the decoder of merchant responses
+     * @param merchantCompression the compression of merchant traffic
      * @return the RestTemplate
      */
     @Bean
-    public RestTemplate restTemplate(RestTemplateBuilder builder) {
-        return builder.build();
+    public RestTemplate restTemplate(RestTemplateBuilder builder, CloseableHttpClient merchantHttpClient,
+            MerchantHealthTracker merchantHealthTracker, MerchantResponseDecoder merchantResponseDecoder,
+            MerchantCompression merchantCompression) {
+        RestTemplate template = builder
+                .requestFactory(() -> new MerchantTimeoutRequestFactory(merchantHttpClient, merchantHealthTracker,
+                        merchantConnectTimeoutMillis, merchantPoolAcquireTimeoutMillis))
+                .additionalInterceptors(new MerchantCompressionInterceptor(merchantCompression))
+                .build();
+        template.getMessageConverters().add(0, new ProductResponseHttpMessageConverter(merchantResponseDecoder));
+        
+        return template;
+    }
+    
+    /**
+     * Creates a WebClient bean by using 
+     * auto-configured WebClient.Builder and makes it
+     * available in application's context.
+     * The WebClient performs non-blocking http calls
+     * over the pooled reactor netty connector.
+     * 
+     * @param builder the WebClient builder
+     * @param merchantHttpConnector the merchant http connector
+     * @return the WebClient
+     */
+    @Bean
+    public WebClient webClient(WebClient.Builder builder, ReactorClientHttpConnector merchantHttpConnector) {
+        return builder.clientConnector(merchantHttpConnector).build();
+    }
+    
+    /**
+     * Creates the Afterburner module of Jackson,
+     * registered to the auto-configured ObjectMapper,
+     * so that json properties are bound by generated
+     * accessors instead of reflection.
+     * 
+     * @return the AfterburnerModule
+     */
+    @Bean
+    public AfterburnerModule afterburnerModule() {
+        return new AfterburnerModule();
     }
     
     /**
@@ -52,10 +125,10 @@ public class App {
      * core and maximum size as well as queue's capacity.
      * Makes it available in application's context.
      * 
-     * @return the Executor
+     * @return the ThreadPoolTaskExecutor
      */
     @Bean
-    public Executor taskExecutor() {
+    public ThreadPoolTaskExecutor taskExecutor() {
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(executorPoolSizeCore);
         executor.setMaxPoolSize(executorPoolSizeMax);
@@ -64,4 +137,27 @@ public class App {
         
         return executor;
     }
+    
+    /**
+     * Creates an Executor bean to be used by the
+     * background revalidation of stale cached winners,
+     * apart from the task executor of the merchant calls,
+     * so that revalidations waiting for merchants do not
+     * hold the threads of the merchant calls of clients.
+     * Revalidations beyond its queue's capacity are
+     * rejected and the stale winner is served as is.
+     * 
+     * @return the ThreadPoolTaskExecutor
+     */
+    @Bean
+    public ThreadPoolTaskExecutor revalidationExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(revalidationThreads);
+        executor.setMaxPoolSize(revalidationThreads);
+        executor.setQueueCapacity(revalidationQueueCapacity);
+        executor.setThreadNamePrefix("revalidation-");
+        executor.initialize();
+        
+        return executor;
+    }
 }
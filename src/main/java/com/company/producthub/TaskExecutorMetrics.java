@@ -0,0 +1,58 @@
+package com.company.producthub;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Represents the metrics of application's task executor, tagged by
+ * name=taskExecutor. Apart from the executor metrics of micrometer (active
+ * threads, pool size, queued and completed tasks), it exposes the maximum
+ * pool size, the remaining capacity of the queue and the number of tasks
+ * rejected because both the pool and the queue are full.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+@Component
+public class TaskExecutorMetrics implements MeterBinder {
+
+    private static final Iterable<Tag> TAGS = Tags.of("name", "taskExecutor");
+
+    @Autowired
+    @Qualifier("taskExecutor")
+    private ThreadPoolTaskExecutor taskExecutor;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        ThreadPoolExecutor executor = taskExecutor.getThreadPoolExecutor();
+        new ExecutorServiceMetrics(executor, "taskExecutor", TAGS).bindTo(registry);
+        Gauge.builder("executor.pool.max", executor, ThreadPoolExecutor::getMaximumPoolSize)
+                .description("The maximum number of threads of the pool")
+                .tags(TAGS)
+                .register(registry);
+        Gauge.builder("executor.queue.remaining", executor, pool -> pool.getQueue().remainingCapacity())
+                .description("The remaining capacity of the queue of tasks")
+                .tags(TAGS)
+                .register(registry);
+
+        Counter rejectedCounter = Counter.builder("executor.rejected")
+                .description("The number of tasks rejected by the executor")
+                .tags(TAGS)
+                .register(registry);
+        RejectedExecutionHandler rejectedHandler = executor.getRejectedExecutionHandler();
+        executor.setRejectedExecutionHandler((task, pool) -> {
+            rejectedCounter.increment();
+            rejectedHandler.rejectedExecution(task, pool);
+        });
+    }
+}
@@ -0,0 +1,113 @@
+package com.company.producthub;
+
+import com.company.producthub.utils.VirtualThreads;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.apache.coyote.AbstractProtocol;
+import org.apache.coyote.ProtocolHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.scheduling.annotation.AsyncConfigurer;
+
+/**
+ * Represents the opt-in execution on virtual threads (jdk 21 or later).
+ *
+ * When enabled, the asynchronous merchant calls run each on its own virtual
+ * thread instead of the threads of the task executor, so that blocking
+ * merchant I/O does not hold a platform thread and concurrent calls are not
+ * bounded by the size of the pool. Optionally, tomcat handles each http
+ * request on its own virtual thread too. If the jdk does not support virtual
+ * threads, a warning is logged and the task executor, as well as the threads
+ * of tomcat, are used as usual.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+@Configuration
+public class VirtualThreadConfiguration implements AsyncConfigurer {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadConfiguration.class);
+
+    @Value("${executor.virtual-threads.enabled}")
+    private boolean enabled;
+
+    @Value("${executor.virtual-threads.tomcat.enabled}")
+    private boolean tomcatEnabled;
+
+    private ExecutorService asyncExecutor;
+    private ExecutorService tomcatExecutor;
+
+    /**
+     * Creates the virtual thread executors of the enabled modes
+     */
+    @PostConstruct
+    public void init() {
+        asyncExecutor = enabled ? newVirtualThreadPerTaskExecutor("taskExecutor-virtual-") : null;
+        tomcatExecutor = tomcatEnabled ? newVirtualThreadPerTaskExecutor("http-virtual-") : null;
+    }
+
+    /**
+     * Shuts down the virtual thread executors
+     */
+    @PreDestroy
+    public void destroy() {
+        if (asyncExecutor != null) {
+            asyncExecutor.shutdown();
+        }
+        if (tomcatExecutor != null) {
+            tomcatExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Gets the executor of the asynchronous merchant calls
+     *
+     * @return the virtual thread executor, otherwise null in order for the
+     * task executor to be used
+     */
+    @Override
+    public Executor getAsyncExecutor() {
+        return asyncExecutor == null ? null : new TaskExecutorAdapter(asyncExecutor);
+    }
+
+    /**
+     * Creates a customizer of tomcat handling http requests on virtual
+     * threads, if enabled and supported
+     *
+     * @return the customizer of the tomcat web server factory
+     */
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> virtualThreadTomcatCustomizer() {
+        return factory -> {
+            if (tomcatExecutor == null) {
+                return;
+            }
+            factory.addConnectorCustomizers(connector -> {
+                ProtocolHandler protocolHandler = connector.getProtocolHandler();
+                if (protocolHandler instanceof AbstractProtocol) {
+                    ((AbstractProtocol<?>) protocolHandler).setExecutor(tomcatExecutor);
+                }
+            });
+        };
+    }
+
+    private ExecutorService newVirtualThreadPerTaskExecutor(String namePrefix) {
+        try {
+            ExecutorService executor = VirtualThreads.newVirtualThreadPerTaskExecutor(namePrefix);
+            log.info("Virtual threads enabled for {}", namePrefix);
+
+            return executor;
+        } catch (UnsupportedOperationException ex) {
+            log.warn("{}, falling back to platform threads for {}", ex.getMessage(), namePrefix);
+
+            return null;
+        }
+    }
+}
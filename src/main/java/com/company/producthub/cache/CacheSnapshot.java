@@ -0,0 +1,392 @@
+package com.company.producthub.cache;
+
+import com.company.producthub.entities.SearchCriteria;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Represents a snapshot file of the winner product responses cached and the
+ * offers indexed, so that a restarted product hub serves them warm.
+ *
+ * A snapshot is read through a read-only memory mapping of its file. Only its
+ * checksum is verified when it is opened; an entry is read from the mapping,
+ * and copied to the heap, when it is looked up. The file is laid out as:
+ * <pre>
+ * header   magic (int), version (int), created epoch millis (long)
+ * records  winners: term length (short), term (utf-8), min price (double),
+ *          max price (double), created epoch millis (long), body length
+ *          (int, -1 without body), body
+ *          terms: term length (short), term (utf-8), offers of the term
+ *          (see {@link TermOffers})
+ * tables   winners then terms: hash of the key (int), offset of the record
+ *          (int), sorted by hash
+ * trailer  winner table offset (int), winner count (int), term table
+ *          offset (int), term count (int), crc32 of header, records and
+ *          tables (long), magic (int)
+ * </pre>
+ * All numbers are big-endian. Entries whose search term exceeds 65535 bytes
+ * in utf-8 are not written. A snapshot is written to a temporary file and
+ * moved over the previous one, so a mapped snapshot is never modified.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+public final class CacheSnapshot {
+
+    /**
+     * The magic number of a snapshot file, "PHSN"
+     */
+    public static final int MAGIC = 0x5048534E;
+
+    /**
+     * The version of the layout of snapshot files written
+     */
+    public static final int VERSION = 1;
+
+    private static final int HEADER_BYTES = 4 + 4 + 8;
+    private static final int TRAILER_BYTES = 4 + 4 + 4 + 4 + 8 + 4;
+    private static final int TABLE_ENTRY_BYTES = 4 + 4;
+    private static final int MAX_TERM_BYTES = 0xFFFF;
+
+    private final ByteBuffer buffer;
+    private final long createdMillis;
+    private final int winnerTableOffset;
+    private final int winnerCount;
+    private final int termTableOffset;
+    private final int termCount;
+    private final LongAdder restoredCount = new LongAdder();
+
+    private CacheSnapshot(ByteBuffer buffer, long createdMillis, int winnerTableOffset, int winnerCount,
+            int termTableOffset, int termCount) {
+        this.buffer = buffer;
+        this.createdMillis = createdMillis;
+        this.winnerTableOffset = winnerTableOffset;
+        this.winnerCount = winnerCount;
+        this.termTableOffset = termTableOffset;
+        this.termCount = termCount;
+    }
+
+    /**
+     * Writes a snapshot of the given winners and offers to the given file,
+     * replacing it atomically
+     *
+     * @param file the snapshot file
+     * @param winners the cached winner product responses by search criteria
+     * @param offers the indexed offers by normalized search term
+     * @param createdMillis the epoch milliseconds of the snapshot
+     *
+     * @return the size of the snapshot in bytes
+     *
+     * @throws IOException if the file cannot be written
+     */
+    public static long write(@NotNull Path file, @NotNull Map<SearchCriteria, CachedProductResponse> winners,
+            @NotNull Map<String, TermOffers> offers, long createdMillis) throws IOException {
+        Files.createDirectories(file.toAbsolutePath().getParent());
+        Path tmpFile = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(),
+                ".tmp");
+        long size;
+        try {
+            size = writeFile(tmpFile, winners, offers, createdMillis);
+            Files.move(tmpFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmpFile);
+        }
+
+        return size;
+    }
+
+    private static long writeFile(Path tmpFile, Map<SearchCriteria, CachedProductResponse> winners,
+            Map<String, TermOffers> offers, long createdMillis) throws IOException {
+        CRC32 crc = new CRC32();
+        try (OutputStream fileOut = Files.newOutputStream(tmpFile)) {
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(new BufferedOutputStream(fileOut),
+                    crc));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(createdMillis);
+
+            long[] winnerTable = new long[winners.size()];
+            int winnerCount = 0;
+            for (Map.Entry<SearchCriteria, CachedProductResponse> winner : winners.entrySet()) {
+                SearchCriteria criteria = winner.getKey();
+                byte[] term = criteria.getSearchTerm().getBytes(StandardCharsets.UTF_8);
+                if (term.length > MAX_TERM_BYTES) {
+                    continue;
+                }
+                if (winnerCount == winnerTable.length) {
+                    // the maps may be concurrent and grow while being written
+                    winnerTable = Arrays.copyOf(winnerTable, 2 * winnerCount + 1);
+                }
+                winnerTable[winnerCount++] = tableEntry(hash(criteria), out.size());
+                writeTerm(out, term);
+                out.writeDouble(criteria.getMinPrice());
+                out.writeDouble(criteria.getMaxPrice());
+                out.writeLong(winner.getValue().getCreatedMillis());
+                byte[] body = winner.getValue().getBody();
+                out.writeInt(body == null ? -1 : body.length);
+                if (body != null) {
+                    out.write(body);
+                }
+            }
+            long[] termTable = new long[offers.size()];
+            int termCount = 0;
+            for (Map.Entry<String, TermOffers> termOffers : offers.entrySet()) {
+                byte[] term = termOffers.getKey().getBytes(StandardCharsets.UTF_8);
+                if (term.length > MAX_TERM_BYTES) {
+                    continue;
+                }
+                if (termCount == termTable.length) {
+                    termTable = Arrays.copyOf(termTable, 2 * termCount + 1);
+                }
+                termTable[termCount++] = tableEntry(termOffers.getKey().hashCode(), out.size());
+                writeTerm(out, term);
+                termOffers.getValue().writeTo(out);
+            }
+
+            int winnerTableOffset = out.size();
+            writeTable(out, winnerTable, winnerCount);
+            int termTableOffset = out.size();
+            writeTable(out, termTable, termCount);
+            // the size saturates at Integer.MAX_VALUE, so offsets are exact if the total is below it
+            if (out.size() > Integer.MAX_VALUE - TRAILER_BYTES) {
+                throw new IOException("Snapshot exceeds the maximum size of " + Integer.MAX_VALUE + " bytes");
+            }
+
+            out.flush();
+            DataOutputStream trailer = new DataOutputStream(fileOut);
+            trailer.writeInt(winnerTableOffset);
+            trailer.writeInt(winnerCount);
+            trailer.writeInt(termTableOffset);
+            trailer.writeInt(termCount);
+            trailer.writeLong(crc.getValue());
+            trailer.writeInt(MAGIC);
+            trailer.flush();
+
+            return out.size() + TRAILER_BYTES;
+        }
+    }
+
+    /**
+     * Opens the snapshot of the given file by mapping it to memory and
+     * verifying its version and checksum
+     *
+     * @param file the snapshot file
+     *
+     * @return the snapshot
+     *
+     * @throws IOException if the file cannot be mapped, is of another version
+     * or is corrupted
+     */
+    public static CacheSnapshot open(@NotNull Path file) throws IOException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES + TRAILER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot " + file + " has an invalid size of " + size + " bytes");
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(buffer.limit() - 4) != MAGIC) {
+            throw new IOException("File " + file + " is not a snapshot");
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Snapshot " + file + " is of version " + version + " instead of " + VERSION);
+        }
+        int trailerOffset = buffer.limit() - TRAILER_BYTES;
+        int winnerTableOffset = buffer.getInt(trailerOffset);
+        int winnerCount = buffer.getInt(trailerOffset + 4);
+        int termTableOffset = buffer.getInt(trailerOffset + 8);
+        int termCount = buffer.getInt(trailerOffset + 12);
+        if (winnerTableOffset < HEADER_BYTES || winnerCount < 0 || termCount < 0
+                || (long) winnerTableOffset + (long) winnerCount * TABLE_ENTRY_BYTES != termTableOffset
+                || (long) termTableOffset + (long) termCount * TABLE_ENTRY_BYTES != trailerOffset) {
+            throw new IOException("Snapshot " + file + " has an invalid trailer");
+        }
+        CRC32 crc = new CRC32();
+        ByteBuffer checked = buffer.duplicate();
+        checked.limit(trailerOffset);
+        crc.update(checked);
+        if (crc.getValue() != buffer.getLong(trailerOffset + 16)) {
+            throw new IOException("Snapshot " + file + " is corrupted, its checksum does not match");
+        }
+
+        return new CacheSnapshot(buffer, buffer.getLong(8), winnerTableOffset, winnerCount, termTableOffset,
+                termCount);
+    }
+
+    /**
+     * Finds the cached winner product response of the given search criteria
+     *
+     * @param criteria the search criteria
+     *
+     * @return the cached winner product response, otherwise null if not
+     * present
+     */
+    public CachedProductResponse findWinner(@NotNull SearchCriteria criteria) {
+        ByteBuffer in = buffer.duplicate();
+        byte[] term = criteria.getSearchTerm().getBytes(StandardCharsets.UTF_8);
+        int hash = hash(criteria);
+        for (int index = lowerBound(winnerTableOffset, winnerCount, hash);
+                index < winnerCount && tableHash(winnerTableOffset, index) == hash; index++) {
+            in.position(tableOffset(winnerTableOffset, index));
+            if (!readTermEquals(in, term) || in.getDouble() != criteria.getMinPrice()
+                    || in.getDouble() != criteria.getMaxPrice()) {
+                continue;
+            }
+            long winnerCreatedMillis = in.getLong();
+            int bodyLength = in.getInt();
+            byte[] body = null;
+            if (bodyLength >= 0) {
+                body = new byte[bodyLength];
+                in.get(body);
+            }
+            restoredCount.increment();
+
+            return new CachedProductResponse(body, winnerCreatedMillis);
+        }
+
+        return null;
+    }
+
+    /**
+     * Finds the indexed offers of the given normalized search term
+     *
+     * @param searchTerm the normalized search term
+     *
+     * @return the term offers, otherwise null if not present
+     */
+    public TermOffers findOffers(@NotNull String searchTerm) {
+        ByteBuffer in = buffer.duplicate();
+        byte[] term = searchTerm.getBytes(StandardCharsets.UTF_8);
+        int hash = searchTerm.hashCode();
+        for (int index = lowerBound(termTableOffset, termCount, hash);
+                index < termCount && tableHash(termTableOffset, index) == hash; index++) {
+            in.position(tableOffset(termTableOffset, index));
+            if (readTermEquals(in, term)) {
+                restoredCount.increment();
+                return TermOffers.readFrom(in);
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Gets the epoch milliseconds the snapshot was created
+     *
+     * @return the epoch milliseconds
+     */
+    public long getCreatedMillis() {
+        return createdMillis;
+    }
+
+    /**
+     * Gets the number of winners in the snapshot
+     *
+     * @return the number of winners
+     */
+    public int getWinnerCount() {
+        return winnerCount;
+    }
+
+    /**
+     * Gets the number of search terms of offers in the snapshot
+     *
+     * @return the number of search terms
+     */
+    public int getTermCount() {
+        return termCount;
+    }
+
+    /**
+     * Gets the number of winners and search terms restored from the snapshot
+     *
+     * @return the number of entries restored
+     */
+    public long getRestoredCount() {
+        return restoredCount.sum();
+    }
+
+    private static int hash(SearchCriteria criteria) {
+        int hash = criteria.getSearchTerm().hashCode();
+        hash = 31 * hash + Double.hashCode(criteria.getMinPrice());
+
+        return 31 * hash + Double.hashCode(criteria.getMaxPrice());
+    }
+
+    private static long tableEntry(int hash, int offset) {
+        return ((long) hash << 32) | (offset & 0xFFFFFFFFL);
+    }
+
+    private static void writeTerm(DataOutputStream out, byte[] term) throws IOException {
+        out.writeShort(term.length);
+        out.write(term);
+    }
+
+    private static void writeTable(DataOutputStream out, long[] table, int count) throws IOException {
+        long[] sorted = Arrays.copyOf(table, count);
+        Arrays.sort(sorted);
+        for (long entry : sorted) {
+            out.writeInt((int) (entry >> 32));
+            out.writeInt((int) entry);
+        }
+    }
+
+    private static boolean readTermEquals(ByteBuffer in, byte[] term) {
+        int length = in.getShort() & 0xFFFF;
+        if (length != term.length) {
+            in.position(in.position() + length);
+            return false;
+        }
+        boolean equal = true;
+        for (byte b : term) {
+            equal &= in.get() == b;
+        }
+
+        return equal;
+    }
+
+    private int tableHash(int tableOffset, int index) {
+        return buffer.getInt(tableOffset + index * TABLE_ENTRY_BYTES);
+    }
+
+    private int tableOffset(int tableOffset, int index) {
+        return buffer.getInt(tableOffset + index * TABLE_ENTRY_BYTES + 4);
+    }
+
+    private int lowerBound(int tableOffset, int count, int hash) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (tableHash(tableOffset, mid) < hash) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+
+        return low;
+    }
+
+    @Override
+    public String toString() {
+        return "CacheSnapshot{" + "createdMillis=" + createdMillis + ", winners=" + winnerCount
+                + ", terms=" + termCount + '}';
+    }
+}
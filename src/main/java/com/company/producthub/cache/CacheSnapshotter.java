@@ -0,0 +1,137 @@
+package com.company.producthub.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Represents the snapshots of the product response cache and the offer index,
+ * see {@link CacheSnapshot}, so that a restarted product hub does not start
+ * cold and fan out every hot search term to every merchant at once.
+ *
+ * A snapshot is written at the configured interval and when the product hub
+ * shuts down, and it is restored when the product hub starts. Entries keep
+ * the time they were created, so a restored winner is served fresh or stale
+ * by its age and restored offers answer product requests only while fresh.
+ * A snapshot that cannot be restored is ignored with a warning. Snapshots are
+ * opt-in and require an explicit path, so that no node restores the winners
+ * of another one.
+ *
+ * The duration of writing a snapshot is exposed by the timer
+ * products.snapshot.write, its size by the gauge products.snapshot.bytes and
+ * the entries restored by the counter products.snapshot.restored.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+@Component
+public class CacheSnapshotter {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheSnapshotter.class);
+
+    @Value("${product.snapshot.enabled}")
+    private boolean enabled;
+
+    @Value("${product.snapshot.path}")
+    private String path;
+
+    @Autowired
+    private ProductResponseCache productResponseCache;
+
+    @Autowired
+    private OfferIndex offerIndex;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Timer writeTimer;
+    private final AtomicLong snapshotBytes = new AtomicLong();
+
+    /**
+     * Registers the metrics of snapshots and restores the last snapshot
+     */
+    @PostConstruct
+    public void init() {
+        writeTimer = Timer.builder("products.snapshot.write")
+                .description("The duration of writing a snapshot of the cache and the offer index")
+                .register(meterRegistry);
+        Gauge.builder("products.snapshot.bytes", snapshotBytes, AtomicLong::get)
+                .description("The size of the last snapshot written")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        if (enabled && path.trim().isEmpty()) {
+            log.warn("Snapshots disabled, since product.snapshot.path is not set");
+            enabled = false;
+        }
+        if (enabled) {
+            restore();
+        }
+    }
+
+    /**
+     * Writes a snapshot at the configured interval
+     */
+    @Scheduled(initialDelayString = "${product.snapshot.interval.millis}",
+            fixedDelayString = "${product.snapshot.interval.millis}")
+    public void writeSnapshot() {
+        if (enabled) {
+            write();
+        }
+    }
+
+    /**
+     * Writes a snapshot when the product hub shuts down
+     */
+    @PreDestroy
+    public void close() {
+        writeSnapshot();
+    }
+
+    private void restore() {
+        Path file = Paths.get(path);
+        if (!Files.exists(file)) {
+            log.info("No snapshot to restore at {}", file);
+            return;
+        }
+        try {
+            CacheSnapshot snapshot = CacheSnapshot.open(file);
+            productResponseCache.restore(snapshot);
+            offerIndex.restore(snapshot);
+            FunctionCounter.builder("products.snapshot.restored", snapshot, CacheSnapshot::getRestoredCount)
+                    .description("The winners and search terms of offers restored from the snapshot")
+                    .register(meterRegistry);
+            log.info("{} restored from {}, {} millis old", snapshot, file,
+                    System.currentTimeMillis() - snapshot.getCreatedMillis());
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Failed to restore snapshot from {}, starting cold", file, ex);
+        }
+    }
+
+    private void write() {
+        Path file = Paths.get(path);
+        long startNanos = System.nanoTime();
+        try {
+            snapshotBytes.set(CacheSnapshot.write(file, productResponseCache.asMap(), offerIndex.asMap(),
+                    System.currentTimeMillis()));
+            log.debug("Snapshot of {} bytes written to {}", snapshotBytes.get(), file);
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Failed to write snapshot to {}", file, ex);
+        } finally {
+            writeTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+}
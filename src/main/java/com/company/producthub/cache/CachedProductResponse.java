@@ -0,0 +1,54 @@
+package com.company.producthub.cache;
+
+/**
+ * Represents a winner product response kept by the product response cache.
+ * The winner is kept already serialized, so that a cache hit is written
+ * to a client as is. A cached product response without a body represents
+ * a product request for which no merchant had an available product.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+public final class CachedProductResponse {
+
+    private final byte[] body;
+    private final long createdMillis;
+
+    /**
+     * Creates a cached product response
+     *
+     * @param body the serialized winner product response, null if not found
+     * @param createdMillis the epoch milliseconds the winner was found
+     */
+    public CachedProductResponse(byte[] body, long createdMillis) {
+        this.body = body;
+        this.createdMillis = createdMillis;
+    }
+
+    /**
+     * Gets the serialized winner product response.
+     * The returned array should not be modified.
+     *
+     * @return the serialized winner, otherwise null if not found
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    /**
+     * Gets the epoch milliseconds the winner was found
+     *
+     * @return the epoch milliseconds
+     */
+    public long getCreatedMillis() {
+        return createdMillis;
+    }
+
+    /**
+     * Gets the milliseconds elapsed since the winner was found
+     *
+     * @return the age in milliseconds
+     */
+    public long ageMillis() {
+        return System.currentTimeMillis() - createdMillis;
+    }
+}
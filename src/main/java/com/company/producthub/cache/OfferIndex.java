@@ -0,0 +1,221 @@
+package com.company.producthub.cache;
+
+import com.company.producthub.entities.Merchant;
+import com.company.producthub.entities.ProductRequest;
+import com.company.producthub.entities.ProductResponse;
+import com.company.producthub.entities.ProductSearchContext;
+import com.company.producthub.entities.SearchCriteria;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.validation.constraints.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Represents the in-memory index of the offers received from merchants,
+ * keyed by the normalized search term of product requests.
+ *
+ * Every answer of a merchant to a product request is indexed, see
+ * {@link TermOffers}. A product request is then answered by the index,
+ * without being sent to its merchants, when every merchant has answered
+ * freshly a product request of the same search term covering its price
+ * range. Otherwise it is sent to its merchants as usual.
+ *
+ * The index is bounded by the estimated size in bytes of its offers and
+ * evicts search terms by the W-TinyLFU policy. The lookups answered and not
+ * answered are exposed by the counter products.offer-index.lookups tagged by
+ * outcome, the size of the index by the gauge products.offer-index.bytes and
+ * its evictions as cache metrics named products.offer-index.
+ *
+ * An index restored from a snapshot, see {@link CacheSnapshot}, reads the
+ * offers of a search term missing from the snapshot the first time they are
+ * looked up or answered.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+@Component
+public class OfferIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(OfferIndex.class);
+
+    private static final String CACHE_NAME = "products.offer-index";
+
+    @Value("${product.offer-index.enabled}")
+    private boolean enabled;
+
+    @Value("${product.offer-index.ttl.millis}")
+    private long ttlMillis;
+
+    @Value("${product.offer-index.max.bytes}")
+    private long maxBytes;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Cache<String, TermOffers> index;
+    private Counter answeredCounter;
+    private Counter notAnsweredCounter;
+    private volatile CacheSnapshot snapshot;
+
+    /**
+     * Initializes the index and registers its metrics. A search term is
+     * retained for the freshness of its offers.
+     */
+    @PostConstruct
+    public void init() {
+        index = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .<String, TermOffers>weigher((searchTerm, offers) -> 2 * searchTerm.length() + offers.weight())
+                .expireAfterWrite(ttlMillis, TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, index, CACHE_NAME);
+        Gauge.builder(CACHE_NAME + ".bytes", index,
+                cache -> cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0)).orElse(0L))
+                .description("The estimated size of the offers indexed")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        answeredCounter = meterRegistry.counter(CACHE_NAME + ".lookups", "outcome", "answered");
+        notAnsweredCounter = meterRegistry.counter(CACHE_NAME + ".lookups", "outcome", "not-answered");
+        log.info("Offer index enabled={}, maxBytes={}, ttlMillis={}", enabled, maxBytes, ttlMillis);
+    }
+
+    /**
+     * Indexes the answer of the given merchant to the product request of the
+     * given search. An offer out of the price range of the product request is
+     * not indexed.
+     *
+     * @param search the search of the product request answered
+     * @param merchantUrl the api url of the merchant
+     * @param prodResp the product response, null if the merchant has no
+     * available product
+     */
+    public void index(@NotNull ProductSearchContext search, @NotNull String merchantUrl, ProductResponse prodResp) {
+        if (!enabled) {
+            return;
+        }
+        ProductRequest request = search.getRequest();
+        double minPrice = request.getMinPrice();
+        double maxPrice = request.getMaxPrice();
+        double price = Double.NaN;
+        byte[] body = null;
+        if (prodResp != null && prodResp.getProduct() != null) {
+            price = prodResp.getProduct().getPrice();
+            if (price < minPrice || (maxPrice > 0 && price > maxPrice)) {
+                return;
+            }
+            body = toJsonBytes(prodResp);
+        } else if (search.getOfferCeiling() < Double.POSITIVE_INFINITY) {
+            // an offer above the ceiling is dropped while being decoded, so only the range below is known empty
+            double ceiling = search.getOfferCeiling();
+            if (ceiling <= 0) {
+                return;
+            }
+            maxPrice = maxPrice <= 0 ? ceiling : Math.min(maxPrice, ceiling);
+        }
+        double answeredMaxPrice = maxPrice;
+        double answeredPrice = price;
+        byte[] answeredBody = body;
+        long nowMillis = System.currentTimeMillis();
+        index.asMap().compute(SearchCriteria.normalizeSearchTerm(request.getSearchTerm()),
+                (searchTerm, offers) -> {
+                    TermOffers current = offers == null ? restored(searchTerm) : offers;
+                    return (current == null ? TermOffers.empty() : current).answer(merchantUrl, minPrice,
+                            answeredMaxPrice, answeredPrice, answeredBody, nowMillis, ttlMillis);
+                });
+    }
+
+    /**
+     * Finds the winner product response of the given product request among
+     * the offers indexed from its merchants
+     *
+     * @param request the product request having its merchants set
+     *
+     * @return the cached winner product response, without a body if no
+     * merchant has an offer, otherwise null if the index cannot answer the
+     * product request
+     */
+    public CachedProductResponse findWinner(@NotNull ProductRequest request) {
+        if (!enabled) {
+            return null;
+        }
+        String searchTerm = SearchCriteria.normalizeSearchTerm(request.getSearchTerm());
+        TermOffers offers = index.getIfPresent(searchTerm);
+        if (offers == null && snapshot != null) {
+            offers = index.asMap().computeIfAbsent(searchTerm, this::restored);
+        }
+        CachedProductResponse winner = null;
+        if (offers != null) {
+            List<String> merchantUrls = new ArrayList<>(request.getMerchants().size());
+            for (Merchant merchant : request.getMerchants()) {
+                merchantUrls.add(merchant.getApiUrl());
+            }
+            winner = offers.findCheapest(merchantUrls, request.getMinPrice(), request.getMaxPrice(),
+                    System.currentTimeMillis(), ttlMillis);
+        }
+        (winner == null ? notAnsweredCounter : answeredCounter).increment();
+
+        return winner;
+    }
+
+    /**
+     * Restores the indexed offers from the given snapshot, reading the offers
+     * of each search term when first needed
+     *
+     * @param snapshot the snapshot
+     */
+    public void restore(@NotNull CacheSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Gets a view of the indexed offers, not including the ones of a restored
+     * snapshot not needed yet
+     *
+     * @return the unmodifiable map of offers by normalized search term
+     */
+    public Map<String, TermOffers> asMap() {
+        return Collections.unmodifiableMap(index.asMap());
+    }
+
+    /**
+     * Invalidates all indexed offers, including the ones of a restored
+     * snapshot
+     */
+    public void invalidateAll() {
+        snapshot = null;
+        index.invalidateAll();
+    }
+
+    private TermOffers restored(String searchTerm) {
+        CacheSnapshot restoredSnapshot = snapshot;
+
+        return restoredSnapshot == null ? null : restoredSnapshot.findOffers(searchTerm);
+    }
+
+    private byte[] toJsonBytes(ProductResponse prodResp) {
+        try {
+            return mapper.writeValueAsBytes(prodResp);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Failed to serialize " + prodResp, ex);
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.company.producthub.cache;
+
+import com.company.producthub.entities.SearchCriteria;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import javax.annotation.PostConstruct;
+import javax.validation.constraints.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Represents the in-process cache of winner product responses keyed by the
+ * normalized search criteria of product requests.
+ *
+ * The cache is bounded by size and evicts entries by the W-TinyLFU policy,
+ * so that hot search terms are retained. An entry is fresh until its time
+ * to live expires. After that, it can still be served while it is being
+ * revalidated in the background (stale-while-revalidate) or when a new
+ * winner cannot be found because no merchant answered (stale-if-error).
+ * Revalidations run on their own small executor, so that they never take
+ * the threads of the task executor running the merchant calls of clients.
+ *
+ * Hits, misses and evictions are exposed as cache metrics named
+ * products.winner, along with counters of stale entries served.
+ *
+ * A cache restored from a snapshot, see {@link CacheSnapshot}, reads an entry
+ * missing from the snapshot the first time it is requested.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+@Component
+public class ProductResponseCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductResponseCache.class);
+
+    private static final String CACHE_NAME = "products.winner";
+
+    @Value("${product.cache.enabled}")
+    private boolean enabled;
+
+    @Value("${product.cache.maximum.size}")
+    private long maximumSize;
+
+    @Value("${product.cache.ttl.millis}")
+    private long ttlMillis;
+
+    @Value("${product.cache.stale-while-revalidate.millis}")
+    private long staleWhileRevalidateMillis;
+
+    @Value("${product.cache.stale-if-error.millis}")
+    private long staleIfErrorMillis;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    @Qualifier("revalidationExecutor")
+    private Executor revalidationExecutor;
+
+    private Cache<SearchCriteria, CachedProductResponse> cache;
+    private final Set<SearchCriteria> revalidatingKeys = ConcurrentHashMap.newKeySet();
+    private volatile CacheSnapshot snapshot;
+    private Counter staleWhileRevalidateCounter;
+    private Counter staleIfErrorCounter;
+
+    /**
+     * Initializes the cache and registers its metrics. Entries are retained
+     * for their time to live plus the longest stale window.
+     */
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(retentionMillis(), TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        staleWhileRevalidateCounter = meterRegistry.counter(CACHE_NAME + ".stale", "mode", "while-revalidate");
+        staleIfErrorCounter = meterRegistry.counter(CACHE_NAME + ".stale", "mode", "if-error");
+        log.info("Product response cache enabled={}, maximumSize={}, ttlMillis={}", enabled, maximumSize, ttlMillis);
+    }
+
+    /**
+     * Gets the cached product response of the given search criteria
+     *
+     * @param criteria the search criteria
+     *
+     * @return the cached product response, otherwise null if not present or
+     * the cache is disabled
+     */
+    public CachedProductResponse get(@NotNull SearchCriteria criteria) {
+        if (!enabled) {
+            return null;
+        }
+        CachedProductResponse cached = cache.getIfPresent(criteria);
+        CacheSnapshot restoredSnapshot = snapshot;
+        if (cached == null && restoredSnapshot != null) {
+            cached = restoredSnapshot.findWinner(criteria);
+            if (cached == null || cached.ageMillis() >= retentionMillis()) {
+                return null;
+            }
+            cached = cache.asMap().merge(criteria, cached, (current, restored) -> current);
+        }
+
+        return cached;
+    }
+
+    /**
+     * Puts the given serialized winner product response to the cache
+     *
+     * @param criteria the search criteria
+     * @param body the serialized winner, null if not found
+     */
+    public void put(@NotNull SearchCriteria criteria, byte[] body) {
+        if (enabled) {
+            cache.put(criteria, new CachedProductResponse(body, System.currentTimeMillis()));
+        }
+    }
+
+    /**
+     * Puts the given cached product response to the cache, keeping the time
+     * its winner was found
+     *
+     * @param criteria the search criteria
+     * @param cached the cached product response
+     */
+    public void put(@NotNull SearchCriteria criteria, @NotNull CachedProductResponse cached) {
+        if (enabled) {
+            cache.put(criteria, cached);
+        }
+    }
+
+    /**
+     * Checks whether the given cached product response is fresh
+     *
+     * @param cached the cached product response
+     *
+     * @return true if its time to live has not expired, otherwise false
+     */
+    public boolean isFresh(@NotNull CachedProductResponse cached) {
+        return cached.ageMillis() < ttlMillis;
+    }
+
+    /**
+     * Serves the given stale product response while it is being revalidated
+     * in the background by the given search. Only one revalidation per search
+     * criteria is running at any time.
+     *
+     * @param criteria the search criteria
+     * @param cached the stale cached product response
+     * @param search the search producing the serialized winner, it returns
+     * null if the winner could not be found due to an error
+     *
+     * @return true if the stale product response can be served, otherwise
+     * false if its stale window has expired
+     */
+    public boolean serveWhileRevalidating(@NotNull SearchCriteria criteria, @NotNull CachedProductResponse cached,
+            @NotNull Supplier<CachedProductResponse> search) {
+        if (cached.ageMillis() >= ttlMillis + staleWhileRevalidateMillis) {
+            return false;
+        }
+        staleWhileRevalidateCounter.increment();
+        if (revalidatingKeys.add(criteria)) {
+            log.debug("Revalidating {} in the background", criteria);
+            try {
+                revalidationExecutor.execute(() -> {
+                    try {
+                        CachedProductResponse revalidated = search.get();
+                        if (revalidated != null) {
+                            cache.put(criteria, revalidated);
+                        }
+                    } finally {
+                        revalidatingKeys.remove(criteria);
+                    }
+                });
+            } catch (RuntimeException ex) {
+                revalidatingKeys.remove(criteria);
+                log.warn("Failed to revalidate {}", criteria, ex);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Checks whether the given stale product response can be served because
+     * a new winner could not be found due to an error
+     *
+     * @param cached the stale cached product response, it can be null
+     *
+     * @return true if it can be served, otherwise false
+     */
+    public boolean serveIfError(CachedProductResponse cached) {
+        if (cached == null || cached.ageMillis() >= ttlMillis + staleIfErrorMillis) {
+            return false;
+        }
+        staleIfErrorCounter.increment();
+
+        return true;
+    }
+
+    /**
+     * Restores the cached product responses from the given snapshot, reading
+     * each one when it is first requested
+     *
+     * @param snapshot the snapshot
+     */
+    public void restore(@NotNull CacheSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    /**
+     * Gets a view of the cached product responses, not including the ones
+     * of a restored snapshot not requested yet
+     *
+     * @return the unmodifiable map of cached product responses by search
+     * criteria
+     */
+    public Map<SearchCriteria, CachedProductResponse> asMap() {
+        return Collections.unmodifiableMap(cache.asMap());
+    }
+
+    /**
+     * Invalidates all cached product responses, including the ones of a
+     * restored snapshot
+     */
+    public void invalidateAll() {
+        snapshot = null;
+        cache.invalidateAll();
+    }
+
+    private long retentionMillis() {
+        return ttlMillis + Math.max(staleWhileRevalidateMillis, staleIfErrorMillis);
+    }
+}
@@ -0,0 +1,339 @@
+package com.company.producthub.cache;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Represents the offers received from merchants for a normalized search term,
+ * kept by the offer index.
+ *
+ * Each merchant is kept with the price range of the last product request it
+ * answered, the epoch milliseconds it answered and the price of its offer, if
+ * any. A merchant is expected to answer its cheapest offer within the price
+ * range of a product request, so that its answer tells whether it has an
+ * offer within any narrower price range. The offers are kept in primitive
+ * arrays sorted by price, with the serialized product responses kept aside,
+ * so that the cheapest offer within a price range is found by a binary
+ * search.
+ *
+ * Instances are immutable, an answer creates a new instance.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+public final class TermOffers {
+
+    private static final TermOffers EMPTY = new TermOffers(new String[0], new double[0], new double[0],
+            new long[0], new double[0], new double[0], new int[0], new long[0], new byte[0][]);
+
+    private static final int OBJECT_OVERHEAD_BYTES = 16;
+    private static final int MERCHANT_OVERHEAD_BYTES = 5 * 8 + OBJECT_OVERHEAD_BYTES;
+    private static final int OFFER_OVERHEAD_BYTES = 8 + 4 + 8 + 8 + OBJECT_OVERHEAD_BYTES;
+
+    // the merchants by slot
+    private final String[] merchantUrls;
+    private final double[] coveredMinPrices;
+    private final double[] coveredMaxPrices;
+    private final long[] answeredMillis;
+    private final double[] offerPrices;
+
+    // the offers sorted by price
+    private final double[] prices;
+    private final int[] merchantSlots;
+    private final long[] observedMillis;
+    private final byte[][] bodies;
+
+    private final int weight;
+
+    private TermOffers(String[] merchantUrls, double[] coveredMinPrices, double[] coveredMaxPrices,
+            long[] answeredMillis, double[] offerPrices, double[] prices, int[] merchantSlots,
+            long[] observedMillis, byte[][] bodies) {
+        this.merchantUrls = merchantUrls;
+        this.coveredMinPrices = coveredMinPrices;
+        this.coveredMaxPrices = coveredMaxPrices;
+        this.answeredMillis = answeredMillis;
+        this.offerPrices = offerPrices;
+        this.prices = prices;
+        this.merchantSlots = merchantSlots;
+        this.observedMillis = observedMillis;
+        this.bodies = bodies;
+        int bytes = OBJECT_OVERHEAD_BYTES;
+        for (String merchantUrl : merchantUrls) {
+            bytes += MERCHANT_OVERHEAD_BYTES + 2 * merchantUrl.length();
+        }
+        for (byte[] body : bodies) {
+            bytes += OFFER_OVERHEAD_BYTES + body.length;
+        }
+        this.weight = bytes;
+    }
+
+    /**
+     * Gets the term offers without any merchant
+     *
+     * @return the empty term offers
+     */
+    public static TermOffers empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Creates the term offers of the given answer of a merchant, replacing
+     * its previous answer. The answers older than the given freshness are
+     * dropped.
+     *
+     * @param merchantUrl the api url of the merchant
+     * @param minPrice the minimum price of the product request answered
+     * @param maxPrice the maximum price of the product request answered, zero
+     * or negative if unbounded
+     * @param price the price of the offer, NaN if the merchant has no offer
+     * within the price range
+     * @param body the serialized product response, null if there is no offer
+     * @param nowMillis the epoch milliseconds of the answer
+     * @param ttlMillis the milliseconds an answer is fresh
+     *
+     * @return the new term offers
+     */
+    public TermOffers answer(@NotNull String merchantUrl, double minPrice, double maxPrice, double price,
+            byte[] body, long nowMillis, long ttlMillis) {
+        int merchantCount = 0;
+        int[] newSlots = new int[merchantUrls.length];
+        for (int slot = 0; slot < merchantUrls.length; slot++) {
+            boolean kept = !merchantUrl.equals(merchantUrls[slot]) && nowMillis - answeredMillis[slot] < ttlMillis;
+            newSlots[slot] = kept ? merchantCount++ : -1;
+        }
+        int answeringSlot = merchantCount++;
+
+        String[] newMerchantUrls = new String[merchantCount];
+        double[] newCoveredMinPrices = new double[merchantCount];
+        double[] newCoveredMaxPrices = new double[merchantCount];
+        long[] newAnsweredMillis = new long[merchantCount];
+        double[] newOfferPrices = new double[merchantCount];
+        for (int slot = 0; slot < merchantUrls.length; slot++) {
+            int newSlot = newSlots[slot];
+            if (newSlot >= 0) {
+                newMerchantUrls[newSlot] = merchantUrls[slot];
+                newCoveredMinPrices[newSlot] = coveredMinPrices[slot];
+                newCoveredMaxPrices[newSlot] = coveredMaxPrices[slot];
+                newAnsweredMillis[newSlot] = answeredMillis[slot];
+                newOfferPrices[newSlot] = offerPrices[slot];
+            }
+        }
+        newMerchantUrls[answeringSlot] = merchantUrl;
+        newCoveredMinPrices[answeringSlot] = minPrice;
+        newCoveredMaxPrices[answeringSlot] = maxPrice;
+        newAnsweredMillis[answeringSlot] = nowMillis;
+        newOfferPrices[answeringSlot] = body == null ? Double.NaN : price;
+
+        int offerCount = body == null ? 0 : 1;
+        for (int merchantSlot : merchantSlots) {
+            if (newSlots[merchantSlot] >= 0) {
+                offerCount++;
+            }
+        }
+        double[] newPrices = new double[offerCount];
+        int[] newMerchantSlots = new int[offerCount];
+        long[] newObservedMillis = new long[offerCount];
+        byte[][] newBodies = new byte[offerCount][];
+        int offer = 0;
+        boolean inserted = body == null;
+        for (int i = 0; i < prices.length; i++) {
+            if (newSlots[merchantSlots[i]] < 0) {
+                continue;
+            }
+            if (!inserted && price < prices[i]) {
+                newPrices[offer] = price;
+                newMerchantSlots[offer] = answeringSlot;
+                newObservedMillis[offer] = nowMillis;
+                newBodies[offer++] = body;
+                inserted = true;
+            }
+            newPrices[offer] = prices[i];
+            newMerchantSlots[offer] = newSlots[merchantSlots[i]];
+            newObservedMillis[offer] = observedMillis[i];
+            newBodies[offer++] = bodies[i];
+        }
+        if (!inserted) {
+            newPrices[offer] = price;
+            newMerchantSlots[offer] = answeringSlot;
+            newObservedMillis[offer] = nowMillis;
+            newBodies[offer] = body;
+        }
+
+        return new TermOffers(newMerchantUrls, newCoveredMinPrices, newCoveredMaxPrices, newAnsweredMillis,
+                newOfferPrices, newPrices, newMerchantSlots, newObservedMillis, newBodies);
+    }
+
+    /**
+     * Finds the cheapest offer of the given merchants within the given price
+     * range. It is found only if every merchant has answered, within the
+     * given freshness, a product request whose price range includes the given
+     * one without an offer cheaper than the given minimum price.
+     *
+     * @param merchantUrls the api urls of the merchants
+     * @param minPrice the minimum price
+     * @param maxPrice the maximum price, zero or negative if unbounded
+     * @param nowMillis the current epoch milliseconds
+     * @param ttlMillis the milliseconds an answer is fresh
+     *
+     * @return the cached product response of the cheapest offer, without a
+     * body if no merchant has an offer within the price range, created when
+     * the oldest answer was received. Otherwise null if the merchants are not
+     * covered by fresh answers.
+     */
+    public CachedProductResponse findCheapest(@NotNull Collection<String> merchantUrls, double minPrice,
+            double maxPrice, long nowMillis, long ttlMillis) {
+        if (merchantUrls.isEmpty()) {
+            return null;
+        }
+        boolean[] relevant = new boolean[this.merchantUrls.length];
+        long oldestMillis = nowMillis;
+        for (String merchantUrl : merchantUrls) {
+            int slot = slotOf(merchantUrl);
+            if (slot < 0 || !covers(slot, minPrice, maxPrice, nowMillis, ttlMillis)) {
+                return null;
+            }
+            relevant[slot] = true;
+            oldestMillis = Math.min(oldestMillis, answeredMillis[slot]);
+        }
+
+        for (int i = lowerBound(minPrice); i < prices.length && (maxPrice <= 0 || prices[i] <= maxPrice); i++) {
+            if (relevant[merchantSlots[i]]) {
+                return new CachedProductResponse(bodies[i], oldestMillis);
+            }
+        }
+
+        return new CachedProductResponse(null, oldestMillis);
+    }
+
+    /**
+     * Gets the estimated size of the term offers in memory
+     *
+     * @return the size in bytes
+     */
+    public int weight() {
+        return weight;
+    }
+
+    /**
+     * Gets the number of offers
+     *
+     * @return the number of offers
+     */
+    public int size() {
+        return prices.length;
+    }
+
+    private boolean covers(int slot, double minPrice, double maxPrice, long nowMillis, long ttlMillis) {
+        if (nowMillis - answeredMillis[slot] >= ttlMillis || coveredMinPrices[slot] > minPrice) {
+            return false;
+        }
+        double coveredMaxPrice = coveredMaxPrices[slot];
+        if (coveredMaxPrice > 0 && (maxPrice <= 0 || maxPrice > coveredMaxPrice)) {
+            return false;
+        }
+
+        // an offer cheaper than the minimum price may hide a more expensive one within the range
+        return Double.isNaN(offerPrices[slot]) || offerPrices[slot] >= minPrice;
+    }
+
+    /**
+     * Writes the term offers to the given output, see {@link CacheSnapshot}
+     *
+     * @param out the output
+     *
+     * @throws IOException if the output fails
+     */
+    void writeTo(DataOutput out) throws IOException {
+        out.writeInt(merchantUrls.length);
+        for (int slot = 0; slot < merchantUrls.length; slot++) {
+            byte[] merchantUrl = merchantUrls[slot].getBytes(StandardCharsets.UTF_8);
+            out.writeShort(merchantUrl.length);
+            out.write(merchantUrl);
+            out.writeDouble(coveredMinPrices[slot]);
+            out.writeDouble(coveredMaxPrices[slot]);
+            out.writeLong(answeredMillis[slot]);
+            out.writeDouble(offerPrices[slot]);
+        }
+        out.writeInt(prices.length);
+        for (int i = 0; i < prices.length; i++) {
+            out.writeDouble(prices[i]);
+            out.writeInt(merchantSlots[i]);
+            out.writeLong(observedMillis[i]);
+            out.writeInt(bodies[i].length);
+            out.write(bodies[i]);
+        }
+    }
+
+    /**
+     * Reads the term offers written by {@link #writeTo} from the given buffer
+     * at its position
+     *
+     * @param in the buffer
+     *
+     * @return the term offers
+     */
+    static TermOffers readFrom(ByteBuffer in) {
+        int merchantCount = in.getInt();
+        String[] merchantUrls = new String[merchantCount];
+        double[] coveredMinPrices = new double[merchantCount];
+        double[] coveredMaxPrices = new double[merchantCount];
+        long[] answeredMillis = new long[merchantCount];
+        double[] offerPrices = new double[merchantCount];
+        for (int slot = 0; slot < merchantCount; slot++) {
+            byte[] merchantUrl = new byte[in.getShort() & 0xFFFF];
+            in.get(merchantUrl);
+            merchantUrls[slot] = new String(merchantUrl, StandardCharsets.UTF_8);
+            coveredMinPrices[slot] = in.getDouble();
+            coveredMaxPrices[slot] = in.getDouble();
+            answeredMillis[slot] = in.getLong();
+            offerPrices[slot] = in.getDouble();
+        }
+        int offerCount = in.getInt();
+        double[] prices = new double[offerCount];
+        int[] merchantSlots = new int[offerCount];
+        long[] observedMillis = new long[offerCount];
+        byte[][] bodies = new byte[offerCount][];
+        for (int i = 0; i < offerCount; i++) {
+            prices[i] = in.getDouble();
+            merchantSlots[i] = in.getInt();
+            observedMillis[i] = in.getLong();
+            bodies[i] = new byte[in.getInt()];
+            in.get(bodies[i]);
+        }
+
+        return new TermOffers(merchantUrls, coveredMinPrices, coveredMaxPrices, answeredMillis, offerPrices,
+                prices, merchantSlots, observedMillis, bodies);
+    }
+
+    private int slotOf(String merchantUrl) {
+        for (int slot = 0; slot < merchantUrls.length; slot++) {
+            if (merchantUrls[slot].equals(merchantUrl)) {
+                return slot;
+            }
+        }
+
+        return -1;
+    }
+
+    private int lowerBound(double minPrice) {
+        int index = Arrays.binarySearch(prices, minPrice);
+        if (index < 0) {
+            return -index - 1;
+        }
+        while (index > 0 && prices[index - 1] == minPrice) {
+            index--;
+        }
+
+        return index;
+    }
+
+    @Override
+    public String toString() {
+        return "TermOffers{" + "merchants=" + merchantUrls.length + ", offers=" + prices.length
+                + ", weight=" + weight + '}';
+    }
+}
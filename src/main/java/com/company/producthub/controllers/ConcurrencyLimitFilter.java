@@ -0,0 +1,196 @@
+package com.company.producthub.controllers;
+
+import com.company.producthub.services.AdaptiveConcurrencyLimiter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.PostConstruct;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+/**
+ * Represents the adaptive concurrency limit of the product requests received
+ * from clients. A product request beyond the limit is rejected at once with
+ * an http status 503 and the http header Retry-After, instead of being queued
+ * behind the merchant calls of the requests in flight.
+ *
+ * Each product endpoint (POST /products, /products/top, /products/stream and
+ * /products/batch) has its own limit, discovered from the latency of the
+ * requests it served, see {@link AdaptiveConcurrencyLimiter}, so that the
+ * latency of a batch or a stream is not compared with the latency of a
+ * single fan-out. Requests failed with a server error are not sampled. A
+ * request served asynchronously, such as a streamed one, is in flight until
+ * its response completes. The limit, the requests in flight and the rejected
+ * requests of each endpoint are exposed by the gauges
+ * products.concurrency.limit and products.concurrency.inflight and the
+ * counter products.concurrency.rejected, tagged by endpoint.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+@Component
+@ConditionalOnWebApplication(type = Type.SERVLET)
+@ConditionalOnProperty(name = "product.concurrency.limit.enabled", havingValue = "true", matchIfMissing = true)
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    private static final Logger log = LoggerFactory.getLogger(ConcurrencyLimitFilter.class);
+
+    private static final List<String> PRODUCTS_PATHS = Arrays.asList("/products", "/products/top",
+            "/products/stream", "/products/batch");
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${product.concurrency.limit.initial}")
+    private int initialLimit;
+
+    @Value("${product.concurrency.limit.min}")
+    private int minLimit;
+
+    @Value("${product.concurrency.limit.max}")
+    private int maxLimit;
+
+    @Value("${product.concurrency.limit.smoothing}")
+    private double smoothing;
+
+    @Value("${product.concurrency.limit.rtt.tolerance}")
+    private double rttTolerance;
+
+    @Value("${product.concurrency.limit.rtt.window}")
+    private int rttWindow;
+
+    @Value("${product.concurrency.limit.retry-after.seconds}")
+    private int retryAfterSeconds;
+
+    private final Map<String, AdaptiveConcurrencyLimiter> limiters = new HashMap<>();
+    private final Map<String, Counter> rejectedCounters = new HashMap<>();
+
+    /**
+     * Creates the limiter of each product endpoint and registers its metrics
+     */
+    @PostConstruct
+    public void init() {
+        for (String path : PRODUCTS_PATHS) {
+            AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit,
+                    smoothing, rttTolerance, rttWindow);
+            limiters.put(path, limiter);
+            rejectedCounters.put(path, Counter.builder("products.concurrency.rejected")
+                    .description("The product requests rejected by the concurrency limit")
+                    .tag("endpoint", path)
+                    .register(meterRegistry));
+            Gauge.builder("products.concurrency.limit", limiter, AdaptiveConcurrencyLimiter::getLimit)
+                    .description("The concurrency limit of product requests")
+                    .tag("endpoint", path)
+                    .register(meterRegistry);
+            Gauge.builder("products.concurrency.inflight", limiter, AdaptiveConcurrencyLimiter::getInFlight)
+                    .description("The product requests in flight")
+                    .tag("endpoint", path)
+                    .register(meterRegistry);
+        }
+        log.info("Concurrency limit of product requests per endpoint initial={}, min={}, max={}",
+                initialLimit, minLimit, maxLimit);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.POST.matches(request.getMethod()) || !limiters.containsKey(request.getRequestURI());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+            FilterChain filterChain) throws ServletException, IOException {
+        String path = request.getRequestURI();
+        AdaptiveConcurrencyLimiter limiter = limiters.get(path);
+        if (!limiter.tryAcquire()) {
+            rejectedCounters.get(path).increment();
+            log.debug("Product request to {} rejected by the concurrency limit {}", path, limiter.getLimit());
+            response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value());
+            return;
+        }
+
+        long startNanos = System.nanoTime();
+        boolean sampled = false;
+        boolean async = false;
+        try {
+            filterChain.doFilter(request, response);
+            async = request.isAsyncStarted();
+            if (async) {
+                request.getAsyncContext().addListener(new AsyncReleaseListener(limiter, response, startNanos));
+            }
+            sampled = response.getStatus() < HttpStatus.INTERNAL_SERVER_ERROR.value();
+        } finally {
+            if (!async) {
+                limiter.release(System.nanoTime() - startNanos, sampled);
+            }
+        }
+    }
+
+    /**
+     * Releases the limiter once an asynchronous request completes, times out
+     * or fails. Only completed requests without a server error are sampled.
+     * The response is kept since the async context no longer gives it once
+     * completed.
+     */
+    private static final class AsyncReleaseListener implements AsyncListener {
+
+        private final AdaptiveConcurrencyLimiter limiter;
+        private final HttpServletResponse response;
+        private final long startNanos;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private AsyncReleaseListener(AdaptiveConcurrencyLimiter limiter, HttpServletResponse response,
+                long startNanos) {
+            this.limiter = limiter;
+            this.response = response;
+            this.startNanos = startNanos;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            release(response.getStatus() < HttpStatus.INTERNAL_SERVER_ERROR.value());
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            release(false);
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            release(false);
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+            event.getAsyncContext().addListener(this);
+        }
+
+        private void release(boolean sampled) {
+            if (released.compareAndSet(false, true)) {
+                limiter.release(System.nanoTime() - startNanos, sampled);
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.company.producthub.controllers;
+
+import com.company.producthub.services.MerchantHealth;
+import com.company.producthub.services.MerchantHealthTracker;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Represents the management endpoint exposing the health of merchants,
+ * i.e. the state of their circuit breaker, their adaptive timeout and
+ * the latency percentiles and failure rate of their rolling window.
+ *
+ * It is available at /actuator/merchants.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+@Component
+@Endpoint(id = "merchants")
+public class MerchantHealthEndpoint {
+
+    @Autowired
+    private MerchantHealthTracker merchantHealthTracker;
+
+    /**
+     * Gets the health of all merchants called so far keyed by their api url
+     *
+     * @return the merchant healths
+     */
+    @ReadOperation
+    public Map<String, Map<String, Object>> merchants() {
+        long nowMillis = System.currentTimeMillis();
+        Map<String, Map<String, Object>> merchants = new TreeMap<>();
+        merchantHealthTracker.getHealths().forEach((merchantUrl, health) -> {
+            Map<String, Object> merchant = new LinkedHashMap<>();
+            merchant.put("circuitState", health.getCircuitState());
+            merchant.put("timeoutMillis", merchantHealthTracker.timeoutMillis(merchantUrl));
+            merchant.put("calls", health.callCount(nowMillis));
+            merchant.put("failureRate", health.failureRate(nowMillis));
+            merchant.put("p50Millis", health.percentileMillis(0.50, nowMillis));
+            merchant.put("p95Millis", health.percentileMillis(0.95, nowMillis));
+            merchant.put("p99Millis", health.percentileMillis(0.99, nowMillis));
+            merchants.put(merchantUrl, merchant);
+        });
+
+        return merchants;
+    }
+}
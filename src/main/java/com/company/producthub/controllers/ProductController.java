@@ -1,21 +1,51 @@
 package com.company.producthub.controllers;
 
+import com.company.producthub.cache.CachedProductResponse;
+import com.company.producthub.cache.ProductResponseCache;
+import com.company.producthub.entities.ProductOfferEvent;
 import com.company.producthub.entities.ProductRequest;
 import com.company.producthub.entities.ProductResponse;
+import com.company.producthub.entities.ProductSearchContext;
+import com.company.producthub.entities.ProductSearchResult;
+import com.company.producthub.entities.SearchCriteria;
+import com.company.producthub.entities.WireFormat;
+import com.company.producthub.services.ProductBatchService;
 import com.company.producthub.services.ProductService;
+import com.company.producthub.services.ProductServingService;
+import com.company.producthub.services.ProductStreamService;
+import com.company.producthub.transport.WireFormatMappers;
+import com.company.producthub.utils.Deadline;
+import com.company.producthub.utils.HttpUtils;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.concurrent.CompletableFuture;
-import javax.validation.constraints.NotNull;
+import java.util.Map;
+import java.util.Set;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
 
 /**
  * Represents the controller of a product request received from a client.
@@ -23,6 +53,7 @@ import org.springframework.web.bind.annotation.RestController;
  * @author Petros Kolontis <petros.kolontis@gmail.com>
  */
 @RestController
+@ConditionalOnWebApplication(type = Type.SERVLET)
 public class ProductController {
 
     private static final Logger log = LoggerFactory.getLogger(ProductController.class);
@@ -30,58 +61,323 @@ public class ProductController {
     @Autowired
     private ProductService productService;
 
+    @Autowired
+    private ProductServingService productServingService;
+
+    @Autowired
+    private ProductResponseCache productResponseCache;
+
+    @Autowired
+    private ProductBatchService productBatchService;
+
+    @Autowired
+    private ProductStreamService productStreamService;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Autowired
+    private WireFormatMappers wireFormatMappers;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${product.batch.max.size}")
+    private int batchMaxSize;
+
+    @Value("${product.top.k.default}")
+    private int topDefaultK;
+
+    @Value("${product.top.k.max}")
+    private int topMaxK;
+
     /**
      * Serves a product request for a product.
      *
-     * It consumes a product request submitted by a client. Populates merchants
-     * of the request, posts them the product request and waiting for their
-     * product response.
+     * It consumes a product request submitted by a client. A fresh winner
+     * product response cached for the search criteria of the request is served
+     * as is. Otherwise, it populates merchants of the request and serves the
+     * winner from the offer index if fresh offers of all merchants cover the
+     * price range of the request. Otherwise, it posts them the product
+     * request and waiting for their product response until the deadline of
+     * the request expires. Concurrent product requests having
+     * equal search criteria share the same merchant calls. A stale winner is
+     * served while it is being revalidated or when no merchant answered.
      *
      * Produces a winner product response that will be sent to the client. The
-     * winner is the product containing the minimum price.
+     * winner is the product containing the minimum price among the product
+     * responses received before the deadline. The number of merchants answered,
+     * failed, timed out and cancelled due to early termination are reported by
+     * the http headers X-Merchants-Answered, X-Merchants-Failed,
+     * X-Merchants-Timed-Out and X-Merchants-Cancelled respectively. The http
+     * header X-Cache reports whether the winner was served from the cache. The
+     * duration of serving is exposed by the timer products.requests tagged by
+     * cache and status.
+     *
+     * A client may submit the product request and ask for the winner in the
+     * binary wire formats Smile or CBOR instead of json. The winner, cached
+     * as json, is then transcoded to the binary format asked.
+     *
+     * @see ProductServingService
      *
      * @param prodRequest the product request to be served
+     * @param timeoutMillis the milliseconds within which the request should be
+     * served, otherwise the configured default if not present
+     * @param accept the media types accepted by the client, json if not
+     * present
      * @return the winner product response along with an http status 200 if it
      * is present Otherwise, an http status 204 without a product response
      */
-    @PostMapping(path = "/products", consumes = MediaType.APPLICATION_JSON_UTF8_VALUE,
-            produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
-    public ResponseEntity<ProductResponse> serve(@RequestBody ProductRequest prodRequest) {
+    @PostMapping(path = "/products",
+            consumes = {MediaType.APPLICATION_JSON_UTF8_VALUE, WireFormat.APPLICATION_SMILE_VALUE,
+                WireFormat.APPLICATION_CBOR_VALUE},
+            produces = {MediaType.APPLICATION_JSON_UTF8_VALUE, WireFormat.APPLICATION_SMILE_VALUE,
+                WireFormat.APPLICATION_CBOR_VALUE})
+    public ResponseEntity<byte[]> serve(@RequestBody ProductRequest prodRequest,
+            @RequestHeader(name = HttpUtils.HEADER_REQUEST_TIMEOUT, required = false) Long timeoutMillis,
+            @RequestHeader(name = HttpHeaders.ACCEPT, required = false) String accept) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        ResponseEntity<byte[]> responseEntity = toWireFormat(
+                productServingService.serve(prodRequest, productServingService.buildDeadline(timeoutMillis)),
+                negotiateWireFormat(accept));
+        sample.stop(meterRegistry.timer("products.requests",
+                "cache", responseEntity.getHeaders().getFirst(HttpUtils.HEADER_CACHE),
+                "status", String.valueOf(responseEntity.getStatusCodeValue())));
 
-        log.debug("{} received from a client", prodRequest);
+        return responseEntity;
+    }
+
+    /**
+     * Serves a product request for the k cheapest products.
+     *
+     * It posts the product request to its merchants the same way as serve and
+     * keeps the k cheapest product responses received before the deadline,
+     * so that a single fan-out serves a comparison of offers. Offers of equal
+     * price are ordered by merchant id and product id. The number of merchants
+     * answered, failed, timed out and cancelled are reported by the same http
+     * headers as serve. The duration of serving is exposed by the timer
+     * products.top.requests.
+     *
+     * @param prodRequest the product request to be served
+     * @param k the number of cheapest products, otherwise the configured
+     * default if not present
+     * @param timeoutMillis the milliseconds within which the request should be
+     * served, otherwise the configured default if not present
+     * @return the k cheapest product responses in ascending order of price
+     * along with an http status 200, otherwise an http status 400 if k is out
+     * of range
+     */
+    @PostMapping(path = "/products/top", consumes = MediaType.APPLICATION_JSON_UTF8_VALUE,
+            produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<List<ProductResponse>> serveTop(@RequestBody ProductRequest prodRequest,
+            @RequestParam(name = "k", required = false) Integer k,
+            @RequestHeader(name = HttpUtils.HEADER_REQUEST_TIMEOUT, required = false) Long timeoutMillis) {
+        int topK = k == null ? topDefaultK : k;
+        if (topK < 1 || topK > topMaxK) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "k should be between 1 and " + topMaxK);
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        log.debug("{} received from a client for the {} cheapest products", prodRequest, topK);
+        Deadline deadline = productServingService.buildDeadline(timeoutMillis);
         productService.setMerchantsToProductRequest(prodRequest);
-        ProductResponse winnerProductResp = productService.
-                searchWinnerProduct(asyncRequestToMerchants(prodRequest));
-
-        ResponseEntity<ProductResponse> responseEntity;
-        if (winnerProductResp == null) {
-            responseEntity = new ResponseEntity<>(HttpStatus.NO_CONTENT);
-        } else {
-            responseEntity = ResponseEntity.ok(winnerProductResp);
+        ProductSearchContext search = new ProductSearchContext(prodRequest);
+        ProductSearchResult searchResult = productService.searchTopProducts(search,
+                productServingService.asyncRequestToMerchants(search, deadline), topK, deadline);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpUtils.HEADER_MERCHANTS_ANSWERED, String.valueOf(searchResult.getAnsweredCount()));
+        headers.set(HttpUtils.HEADER_MERCHANTS_FAILED, String.valueOf(searchResult.getFailedCount()));
+        headers.set(HttpUtils.HEADER_MERCHANTS_TIMED_OUT, String.valueOf(searchResult.getTimedOutCount()));
+        headers.set(HttpUtils.HEADER_MERCHANTS_CANCELLED, String.valueOf(searchResult.getCancelledCount()));
+        ResponseEntity<List<ProductResponse>> responseEntity = new ResponseEntity<>(searchResult.getOffers(),
+                headers, HttpStatus.OK);
+        sample.stop(meterRegistry.timer("products.top.requests"));
+        log.debug("{} successfully processed with {} offers", prodRequest, searchResult.getOffers().size());
+
+        return responseEntity;
+    }
+
+    /**
+     * Streams the offers of a product request as the merchants answer.
+     *
+     * Each product response received is sent to the client at once as an
+     * offer event, marking whether it is the best offer so far, and the
+     * stream finishes with a winner event carrying the winner product
+     * response and the number of merchants answered, failed, timed out and
+     * cancelled. The events are sent as server-sent events or as json lines
+     * (application/stream+json), according to the http header Accept.
+     *
+     * @see ProductStreamService
+     *
+     * @param prodRequest the product request to be served
+     * @param timeoutMillis the milliseconds within which the request should be
+     * served, otherwise the configured default if not present
+     * @return the offer events and the winner event
+     */
+    @PostMapping(path = "/products/stream", consumes = MediaType.APPLICATION_JSON_UTF8_VALUE,
+            produces = {MediaType.TEXT_EVENT_STREAM_VALUE, MediaType.APPLICATION_STREAM_JSON_VALUE})
+    public Flux<ProductOfferEvent> stream(@RequestBody ProductRequest prodRequest,
+            @RequestHeader(name = HttpUtils.HEADER_REQUEST_TIMEOUT, required = false) Long timeoutMillis) {
+        return productStreamService.stream(prodRequest, productServingService.buildDeadline(timeoutMillis));
+    }
+
+    /**
+     * Serves a batch of product requests.
+     *
+     * A fresh winner product response cached for the search criteria of a
+     * request is served as is. The rest of requests are grouped by merchant,
+     * so that a merchant having a batch api gets a single call for all of
+     * them, and the rest of merchants get a call per request with a bounded
+     * concurrency, see {@link ProductBatchService}. A stale winner is served
+     * for a request no merchant answered. Merchant calls of a batch are not
+     * hedged nor shared with concurrent product requests.
+     *
+     * Produces a json object mapping the id of each product request to its
+     * winner product response, or null if there is none. The duration of
+     * serving is exposed by the timer products.batch.requests.
+     *
+     * @param prodRequests the product requests to be served, having unique ids
+     * @param timeoutMillis the milliseconds within which the batch should be
+     * served, otherwise the configured default if not present
+     * @return the winner product responses by product request id along with
+     * an http status 200, otherwise an http status 400 if the batch is empty,
+     * too large or the ids are missing or not unique
+     */
+    @PostMapping(path = "/products/batch", consumes = MediaType.APPLICATION_JSON_UTF8_VALUE,
+            produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<byte[]> serveBatch(@RequestBody List<ProductRequest> prodRequests,
+            @RequestHeader(name = HttpUtils.HEADER_REQUEST_TIMEOUT, required = false) Long timeoutMillis) {
+        validateBatch(prodRequests);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        Deadline deadline = productServingService.buildDeadline(timeoutMillis);
+
+        Map<String, byte[]> winners = new LinkedHashMap<>();
+        Map<ProductRequest, CachedProductResponse> missed = new LinkedHashMap<>();
+        prodRequests.forEach(prodRequest -> {
+            CachedProductResponse cached = productResponseCache.get(SearchCriteria.of(prodRequest));
+            if (cached != null && productResponseCache.isFresh(cached)) {
+                winners.put(prodRequest.getId(), cached.getBody());
+            } else {
+                missed.put(prodRequest, cached);
+                winners.put(prodRequest.getId(), null);
+            }
+        });
+
+        if (!missed.isEmpty()) {
+            List<ProductRequest> searchedRequests = new ArrayList<>(missed.keySet());
+            List<ProductSearchResult> searchResults = productBatchService.searchWinnerProducts(searchedRequests,
+                    deadline);
+            for (int i = 0; i < searchedRequests.size(); i++) {
+                ProductRequest prodRequest = searchedRequests.get(i);
+                ProductSearchResult searchResult = searchResults.get(i);
+                CachedProductResponse cached = missed.get(prodRequest);
+                if (searchResult.isFailed() && productResponseCache.serveIfError(cached)) {
+                    winners.put(prodRequest.getId(), cached.getBody());
+                    continue;
+                }
+                byte[] body = productServingService.toJsonBytes(searchResult.getWinner());
+                if (searchResult.isComplete()) {
+                    productResponseCache.put(SearchCriteria.of(prodRequest), body);
+                }
+                winners.put(prodRequest.getId(), body);
+            }
         }
-        log.debug("{} successfully processed with response {}", prodRequest, responseEntity);
+        log.debug("Batch of {} ProductRequests served, {} from cache", prodRequests.size(),
+                prodRequests.size() - missed.size());
+
+        ResponseEntity<byte[]> responseEntity = new ResponseEntity<>(toJsonObjectBytes(winners), HttpStatus.OK);
+        sample.stop(meterRegistry.timer("products.batch.requests"));
 
         return responseEntity;
     }
 
     /**
-     * Sends a product request to all merchants of the given product request and
-     * returns a list of product responses that will be completed in the future.
+     * Validates a batch of product requests
      *
-     * @param request the product request to be sent
+     * @param prodRequests the product requests of a batch
      *
-     * @return a list of CompletableFuture<ProductResponse>
+     * @throws ResponseStatusException with an http status 400 if the batch is
+     * empty, too large or the ids are missing or not unique
      */
-    private List<CompletableFuture<ProductResponse>> asyncRequestToMerchants(@NotNull ProductRequest request) {
-        List<CompletableFuture<ProductResponse>> futureProdResps = new ArrayList<>();
+    private void validateBatch(List<ProductRequest> prodRequests) {
+        if (prodRequests == null || prodRequests.isEmpty() || prodRequests.size() > batchMaxSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "A batch should contain 1 to " + batchMaxSize + " product requests");
+        }
+        Set<String> ids = new HashSet<>();
+        prodRequests.forEach(prodRequest -> {
+            if (prodRequest == null || prodRequest.getId() == null || !ids.add(prodRequest.getId())) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Product requests of a batch should have unique ids");
+            }
+        });
+    }
 
-        request.getMerchants()
-                .stream()
-                .map(merchant -> merchant.getApiUrl())
-                .forEach(merchantUrl -> {
-                    futureProdResps.add(productService.asyncRequestToMerchant(request, merchantUrl));
-                });
+    /**
+     * Serializes the given winner product responses to a json object keyed by
+     * product request id. The winners are already serialized, so they are
+     * written as they are.
+     *
+     * @param winners the json bytes of winners by product request id, null
+     * if there is no winner
+     *
+     * @return the json bytes
+     */
+    private byte[] toJsonObjectBytes(Map<String, byte[]> winners) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(out)) {
+            generator.writeStartObject();
+            for (Map.Entry<String, byte[]> winner : winners.entrySet()) {
+                generator.writeFieldName(winner.getKey());
+                if (winner.getValue() == null) {
+                    generator.writeNull();
+                } else {
+                    generator.writeRawValue(new String(winner.getValue(), StandardCharsets.UTF_8));
+                }
+            }
+            generator.writeEndObject();
+        } catch (IOException ex) {
+            throw new IllegalStateException("Failed to serialize a batch of " + winners.size() + " winners", ex);
+        }
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Negotiates the wire format of the given http header accept
+     *
+     * @param accept the media types accepted by the client, it can be null
+     *
+     * @return the binary wire format accepted, otherwise JSON
+     */
+    private static WireFormat negotiateWireFormat(String accept) {
+        if (accept == null) {
+            return WireFormat.JSON;
+        }
+        List<MediaType> acceptedMediaTypes = MediaType.parseMediaTypes(accept);
+        MediaType.sortBySpecificityAndQuality(acceptedMediaTypes);
+
+        return WireFormat.negotiate(acceptedMediaTypes);
+    }
+
+    /**
+     * Converts the json body of the given response entity to the given wire
+     * format
+     *
+     * @param responseEntity the response entity having a json body
+     * @param format the wire format
+     *
+     * @return the response entity in the wire format
+     */
+    private ResponseEntity<byte[]> toWireFormat(ResponseEntity<byte[]> responseEntity, WireFormat format) {
+        if (!format.isBinary() || responseEntity.getBody() == null) {
+            return responseEntity;
+        }
+        HttpHeaders headers = new HttpHeaders();
+        headers.putAll(responseEntity.getHeaders());
+        headers.setContentType(format.getMediaType());
 
-        return futureProdResps;
+        return new ResponseEntity<>(wireFormatMappers.transcode(responseEntity.getBody(), format), headers,
+                responseEntity.getStatusCode());
     }
 }
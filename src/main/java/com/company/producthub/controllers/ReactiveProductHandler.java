@@ -0,0 +1,127 @@
+package com.company.producthub.controllers;
+
+import com.company.producthub.entities.ProductOfferEvent;
+import com.company.producthub.entities.ProductRequest;
+import com.company.producthub.services.ProductServingService;
+import com.company.producthub.services.ProductStreamService;
+import com.company.producthub.utils.HttpUtils;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ServerWebInputException;
+import reactor.core.publisher.Mono;
+
+/**
+ * Represents the reactive handler of a product request received from a
+ * client. It serves a product request the same way as ProductController,
+ * with the same http headers and metrics, see {@link ProductServingService},
+ * but no thread is blocked while waiting for the merchants or an in-flight
+ * search: the product responses are merged as they arrive and the winner is
+ * emitted as a Mono.
+ *
+ * Active when the application runs on the reactive web stack (property
+ * spring.main.web-application-type set to reactive). Merchant calls are
+ * non-blocking only if the property product.service.type is set to
+ * nonblocking.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+@Component
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveProductHandler {
+
+    @Autowired
+    private ProductServingService productServingService;
+
+    @Autowired
+    private ProductStreamService productStreamService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    /**
+     * Serves a product request for a product.
+     *
+     * @see ProductController#serve
+     *
+     * @param serverRequest the server request of a product request
+     *
+     * @return the winner product response along with an http status 200 if it
+     * is present Otherwise, an http status 204 without a product response
+     */
+    public Mono<ServerResponse> serve(ServerRequest serverRequest) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            Long timeoutMillis = parseTimeoutMillis(serverRequest);
+
+            return serverRequest.bodyToMono(ProductRequest.class)
+                    .flatMap(prodRequest -> productServingService.serveReactive(prodRequest,
+                            productServingService.buildDeadline(timeoutMillis)))
+                    .doOnNext(responseEntity -> sample.stop(meterRegistry.timer("products.requests",
+                            "cache", responseEntity.getHeaders().getFirst(HttpUtils.HEADER_CACHE),
+                            "status", String.valueOf(responseEntity.getStatusCodeValue()))))
+                    .flatMap(this::toServerResponse);
+        });
+    }
+
+    /**
+     * Streams the offers of a product request as the merchants answer, as
+     * server-sent events or json lines according to the http header Accept.
+     *
+     * @see ProductController#stream
+     *
+     * @param serverRequest the server request of a product request
+     *
+     * @return the offer events and the winner event
+     */
+    public Mono<ServerResponse> stream(ServerRequest serverRequest) {
+        return Mono.defer(() -> {
+            Long timeoutMillis = parseTimeoutMillis(serverRequest);
+            MediaType mediaType = serverRequest.headers().accept().stream()
+                    .anyMatch(MediaType.TEXT_EVENT_STREAM::isCompatibleWith)
+                    ? MediaType.TEXT_EVENT_STREAM : MediaType.APPLICATION_STREAM_JSON;
+
+            return serverRequest.bodyToMono(ProductRequest.class)
+                    .flatMap(prodRequest -> ServerResponse.ok().contentType(mediaType).body(
+                            productStreamService.stream(prodRequest,
+                                    productServingService.buildDeadline(timeoutMillis)),
+                            ProductOfferEvent.class));
+        });
+    }
+
+    /**
+     * Parses the timeout requested by a client
+     *
+     * @param serverRequest the server request
+     *
+     * @return the timeout in milliseconds, null if absent
+     */
+    private Long parseTimeoutMillis(ServerRequest serverRequest) {
+        String timeoutHeader = serverRequest.headers().asHttpHeaders().getFirst(HttpUtils.HEADER_REQUEST_TIMEOUT);
+        if (timeoutHeader == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(timeoutHeader);
+        } catch (NumberFormatException ex) {
+            throw new ServerWebInputException("Invalid header " + HttpUtils.HEADER_REQUEST_TIMEOUT);
+        }
+    }
+
+    private Mono<ServerResponse> toServerResponse(ResponseEntity<byte[]> responseEntity) {
+        ServerResponse.BodyBuilder builder = ServerResponse.status(responseEntity.getStatusCode())
+                .headers(headers -> headers.addAll(responseEntity.getHeaders()));
+        if (responseEntity.getBody() == null) {
+            return builder.build();
+        }
+
+        return builder.contentType(MediaType.APPLICATION_JSON_UTF8).syncBody(responseEntity.getBody());
+    }
+}
@@ -0,0 +1,56 @@
+package com.company.producthub.controllers;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import static org.springframework.web.reactive.function.server.RequestPredicates.POST;
+import static org.springframework.web.reactive.function.server.RequestPredicates.accept;
+import static org.springframework.web.reactive.function.server.RequestPredicates.contentType;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+/**
+ * Represents the configuration of the reactive web stack, active when the
+ * property spring.main.web-application-type is set to reactive. Product
+ * requests are served by netty, even though tomcat is on the classpath for
+ * the servlet web stack.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+@Configuration
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+public class ReactiveWebConfiguration {
+
+    /**
+     * Creates the netty web server factory, taking precedence over the
+     * reactive tomcat web server factory
+     *
+     * @return the NettyReactiveWebServerFactory
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    /**
+     * Creates the routes of product requests and streamed product requests
+     * to the reactive product handler
+     *
+     * @param handler the reactive product handler
+     *
+     * @return the RouterFunction
+     */
+    @Bean
+    public RouterFunction<ServerResponse> productRoutes(ReactiveProductHandler handler) {
+        return RouterFunctions.route(POST("/products")
+                .and(contentType(MediaType.APPLICATION_JSON))
+                .and(accept(MediaType.APPLICATION_JSON)), handler::serve)
+                .andRoute(POST("/products/stream")
+                        .and(contentType(MediaType.APPLICATION_JSON))
+                        .and(accept(MediaType.TEXT_EVENT_STREAM, MediaType.APPLICATION_STREAM_JSON)), handler::stream);
+    }
+}
@@ -0,0 +1,55 @@
+package com.company.producthub.controllers;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Represents the configuration of the servlet web stack, active when the
+ * property spring.main.web-application-type is set to servlet.
+ *
+ * Events of streamed product requests are written to clients by the stream
+ * executor. Without it, spring mvc would write them by a thread per event,
+ * since the task executor of the merchant calls takes the place of the
+ * executor auto-configured for spring mvc.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+@Configuration
+@ConditionalOnWebApplication(type = Type.SERVLET)
+public class ServletWebConfiguration implements WebMvcConfigurer {
+
+    @Value("${product.stream.executor.threads}")
+    private int streamExecutorThreads;
+
+    @Value("${product.stream.executor.queue.capacity}")
+    private int streamExecutorQueueCapacity;
+
+    /**
+     * Creates the executor writing the events of streamed product requests,
+     * bounded by its threads and the capacity of its queue
+     *
+     * @return the ThreadPoolTaskExecutor
+     */
+    @Bean
+    public ThreadPoolTaskExecutor streamExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(streamExecutorThreads);
+        executor.setMaxPoolSize(streamExecutorThreads);
+        executor.setQueueCapacity(streamExecutorQueueCapacity);
+        executor.setThreadNamePrefix("stream-");
+        executor.initialize();
+
+        return executor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(streamExecutor());
+    }
+}
@@ -0,0 +1,76 @@
+package com.company.producthub.entities;
+
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+
+/**
+ * Represents the product request sent to a merchant. It is the lean
+ * projection of a product request received from a client, carrying only the
+ * search criteria a merchant needs, without the merchants being recipients
+ * of the product request.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+@JsonPropertyOrder({"id", "searchTerm", "minPrice", "maxPrice"})
+public final class MerchantProductRequest {
+
+    private final String id;
+    private final String searchTerm;
+    private final double minPrice;
+    private final double maxPrice;
+
+    private MerchantProductRequest(String id, String searchTerm, double minPrice, double maxPrice) {
+        this.id = id;
+        this.searchTerm = searchTerm;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+    }
+
+    /**
+     * Creates the product request sent to a merchant of the given product
+     * request
+     *
+     * @param request the product request received from a client
+     *
+     * @return the product request sent to a merchant
+     */
+    public static MerchantProductRequest of(ProductRequest request) {
+        return new MerchantProductRequest(request.getId(), request.getSearchTerm(), request.getMinPrice(),
+                request.getMaxPrice());
+    }
+
+    /**
+     * Gets the id of the product request
+     *
+     * @return the id
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Gets the search term of the product request
+     *
+     * @return the search term
+     */
+    public String getSearchTerm() {
+        return searchTerm;
+    }
+
+    /**
+     * Gets the minimum price of the product request
+     *
+     * @return the minimum price
+     */
+    public double getMinPrice() {
+        return minPrice;
+    }
+
+    /**
+     * Gets the maximum price of the product request
+     *
+     * @return the maximum price
+     */
+    public double getMaxPrice() {
+        return maxPrice;
+    }
+}
@@ -0,0 +1,90 @@
+package com.company.producthub.entities;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Represents the band of prices of the products a merchant sells in a
+ * category, either declared in the merchant registry or observed from the
+ * offers of the merchant. A price band is immutable.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+public final class PriceBand {
+
+    private final double minPrice;
+    private final double maxPrice;
+
+    /**
+     * Creates a price band
+     *
+     * @param minPrice the minimum price
+     * @param maxPrice the maximum price
+     */
+    @JsonCreator
+    public PriceBand(@JsonProperty("min") double minPrice, @JsonProperty("max") double maxPrice) {
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+    }
+
+    /**
+     * Gets the minimum price of a price band
+     *
+     * @return the minimum price
+     */
+    @JsonProperty("min")
+    public double getMinPrice() {
+        return minPrice;
+    }
+
+    /**
+     * Gets the maximum price of a price band
+     *
+     * @return the maximum price
+     */
+    @JsonProperty("max")
+    public double getMaxPrice() {
+        return maxPrice;
+    }
+
+    /**
+     * Checks whether a price band overlaps the given price range of a product
+     * request
+     *
+     * @param minPrice the minimum price of the range
+     * @param maxPrice the maximum price of the range, zero or negative if
+     * unbounded
+     *
+     * @return true if any price of the band is within the range, otherwise
+     * false
+     */
+    public boolean overlaps(double minPrice, double maxPrice) {
+        return this.maxPrice >= minPrice && (maxPrice <= 0 || this.minPrice <= maxPrice);
+    }
+
+    /**
+     * Widens a price band to the given price
+     *
+     * @param price the price
+     *
+     * @return the widened price band, otherwise this one if it already
+     * contains the price
+     */
+    public PriceBand widen(double price) {
+        if (price >= minPrice && price <= maxPrice) {
+            return this;
+        }
+
+        return new PriceBand(Math.min(minPrice, price), Math.max(maxPrice, price));
+    }
+
+    /**
+     * A string representation of a price band used for logging
+     *
+     * @return the string representation
+     */
+    @Override
+    public String toString() {
+        return "PriceBand{min=" + minPrice + ", max=" + maxPrice + "}";
+    }
+}
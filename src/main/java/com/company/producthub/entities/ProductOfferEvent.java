@@ -0,0 +1,174 @@
+package com.company.producthub.entities;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Represents an event of a streamed product request. An offer event carries
+ * the product response of a merchant as soon as it arrives, marking whether
+ * it is the best offer received so far. A winner event finishes the stream
+ * carrying the winner product response, if any, and the number of merchants
+ * answered, failed, timed out and cancelled.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProductOfferEvent {
+
+    /**
+     * The types of events
+     */
+    public enum Type {
+        OFFER, WINNER
+    }
+
+    private final Type type;
+    private final ProductResponse productResponse;
+    private final Boolean best;
+    private final Integer answeredCount;
+    private final Integer failedCount;
+    private final Integer timedOutCount;
+    private final Integer cancelledCount;
+    private final ProductSearchResult searchResult;
+
+    private ProductOfferEvent(Type type, ProductResponse productResponse, Boolean best,
+            ProductSearchResult searchResult, Integer answeredCount, Integer failedCount, Integer timedOutCount,
+            Integer cancelledCount) {
+        this.type = type;
+        this.productResponse = productResponse;
+        this.best = best;
+        this.answeredCount = answeredCount;
+        this.failedCount = failedCount;
+        this.timedOutCount = timedOutCount;
+        this.cancelledCount = cancelledCount;
+        this.searchResult = searchResult;
+    }
+
+    /**
+     * Creates an offer event
+     *
+     * @param prodResp the product response of a merchant
+     * @param best whether the product response is the best offer so far
+     *
+     * @return the offer event
+     */
+    public static ProductOfferEvent offer(ProductResponse prodResp, boolean best) {
+        return new ProductOfferEvent(Type.OFFER, prodResp, best, null, null, null, null, null);
+    }
+
+    /**
+     * Creates a winner event of the given product search result
+     *
+     * @param searchResult the product search result
+     *
+     * @return the winner event
+     */
+    public static ProductOfferEvent winner(ProductSearchResult searchResult) {
+        return new ProductOfferEvent(Type.WINNER, searchResult.getWinner(), null, searchResult,
+                searchResult.getAnsweredCount(), searchResult.getFailedCount(), searchResult.getTimedOutCount(),
+                searchResult.getCancelledCount());
+    }
+
+    /**
+     * Creates a winner event of a winner product response served from the
+     * cache, without merchant counts
+     *
+     * @param winner the cached winner product response, null if there is none
+     *
+     * @return the winner event
+     */
+    public static ProductOfferEvent cachedWinner(ProductResponse winner) {
+        return new ProductOfferEvent(Type.WINNER, winner, null, null, null, null, null, null);
+    }
+
+    /**
+     * Gets the type of an event
+     *
+     * @return the type
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Gets the product response of an event
+     *
+     * @return the offer of a merchant or the winner, null if there is no
+     * winner
+     */
+    public ProductResponse getProductResponse() {
+        return productResponse;
+    }
+
+    /**
+     * Gets whether the offer of an offer event is the best offer so far
+     *
+     * @return true if best, false if not, null for a winner event
+     */
+    public Boolean getBest() {
+        return best;
+    }
+
+    /**
+     * Gets the number of merchants answered, reported by a winner event
+     *
+     * @return the number of merchants answered, null for an offer event
+     */
+    public Integer getAnsweredCount() {
+        return answeredCount;
+    }
+
+    /**
+     * Gets the number of merchants failed, reported by a winner event
+     *
+     * @return the number of merchants failed, null for an offer event
+     */
+    public Integer getFailedCount() {
+        return failedCount;
+    }
+
+    /**
+     * Gets the number of merchants timed out, reported by a winner event
+     *
+     * @return the number of merchants timed out, null for an offer event
+     */
+    public Integer getTimedOutCount() {
+        return timedOutCount;
+    }
+
+    /**
+     * Gets the number of merchants cancelled, reported by a winner event
+     *
+     * @return the number of merchants cancelled, null for an offer event
+     */
+    public Integer getCancelledCount() {
+        return cancelledCount;
+    }
+
+    /**
+     * Gets the product search result of a winner event, not sent to clients
+     *
+     * @return the product search result, null for an offer event or a winner
+     * served from the cache
+     */
+    @JsonIgnore
+    public ProductSearchResult getSearchResult() {
+        return searchResult;
+    }
+
+    /**
+     * A string representation of an event used for logging
+     *
+     * @return the string representation
+     */
+    @Override
+    public String toString() {
+        StringBuilder eventStrBuilder = new StringBuilder("ProductOfferEvent{");
+        eventStrBuilder.append("type=").append(type);
+        eventStrBuilder.append(", productResponse=").append(productResponse);
+        eventStrBuilder.append(", best=").append(best);
+        eventStrBuilder.append("}");
+
+        return eventStrBuilder.toString();
+    }
+}
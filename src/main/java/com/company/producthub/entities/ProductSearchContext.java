@@ -0,0 +1,100 @@
+package com.company.producthub.entities;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Represents the state of a single search of a product request, shared by
+ * its merchant calls and the search of its winner. A product request
+ * submitted by a client is only read, so that searches of the same product
+ * request, such as a revalidation, do not share their state.
+ *
+ * It holds the encoded bodies of the product request sent to merchants,
+ * encoded once per wire format, and the price above which an offer of a
+ * merchant cannot be kept by the search.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+public class ProductSearchContext {
+
+    private final ProductRequest request;
+    private final AtomicReferenceArray<byte[]> merchantRequestBodies =
+            new AtomicReferenceArray<>(WireFormat.values().length);
+    private volatile double offerCeiling = Double.POSITIVE_INFINITY;
+
+    /**
+     * Creates the context of a search of the given product request
+     *
+     * @param request the product request searched
+     */
+    public ProductSearchContext(@NotNull ProductRequest request) {
+        this.request = request;
+    }
+
+    /**
+     * Gets the product request searched
+     *
+     * @return the product request
+     */
+    public ProductRequest getRequest() {
+        return request;
+    }
+
+    /**
+     * Gets the encoded body of the product request sent to merchants in the
+     * given wire format, shared by all merchant calls of the search in that
+     * format. The bytes must not be modified.
+     *
+     * @param format the wire format
+     *
+     * @return the encoded body, otherwise null if not encoded yet
+     */
+    public byte[] getMerchantRequestBody(@NotNull WireFormat format) {
+        return merchantRequestBodies.get(format.ordinal());
+    }
+
+    /**
+     * Sets the encoded body of the product request sent to merchants in the
+     * given wire format
+     *
+     * @param format the wire format
+     * @param merchantRequestBody the encoded body to set
+     */
+    public void setMerchantRequestBody(@NotNull WireFormat format, byte[] merchantRequestBody) {
+        merchantRequestBodies.set(format.ordinal(), merchantRequestBody);
+    }
+
+    /**
+     * Gets the price above which an offer of a merchant cannot be kept by the
+     * search
+     *
+     * @return the offer ceiling, infinite if every offer can be kept
+     */
+    public double getOfferCeiling() {
+        return offerCeiling;
+    }
+
+    /**
+     * Sets the price above which an offer of a merchant cannot be kept
+     *
+     * @param offerCeiling the offer ceiling to set
+     */
+    public void setOfferCeiling(double offerCeiling) {
+        this.offerCeiling = offerCeiling;
+    }
+
+    /**
+     * A string representation of a search used for logging
+     *
+     * @return the string representation
+     */
+    @Override
+    public String toString() {
+        StringBuilder searchStrBuilder = new StringBuilder("ProductSearchContext{");
+        searchStrBuilder.append("request=").append(request);
+        searchStrBuilder.append(", offerCeiling=").append(offerCeiling);
+        searchStrBuilder.append("}");
+
+        return searchStrBuilder.toString();
+    }
+}
@@ -0,0 +1,157 @@
+package com.company.producthub.entities;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Represents the result of searching the winner product response among
+ * the product responses of the merchants being recipients of a product request.
+ * Apart from the winner, it reports how many merchants answered before
+ * the deadline of the request, how many failed to answer, how many timed out
+ * and how many were cancelled because the search finished early. The
+ * cheapest offers searched along with the winner are reported too.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+public class ProductSearchResult {
+
+    private final ProductResponse winner;
+    private final List<ProductResponse> offers;
+    private final int answeredCount;
+    private final int failedCount;
+    private final int timedOutCount;
+    private final int cancelledCount;
+
+    /**
+     * Creates a product search result
+     *
+     * @param winner the winner product response, null if not found
+     * @param answeredCount the number of merchants answered
+     * @param failedCount the number of merchants failed
+     * @param timedOutCount the number of merchants timed out
+     * @param cancelledCount the number of merchants cancelled
+     */
+    public ProductSearchResult(ProductResponse winner, int answeredCount, int failedCount, int timedOutCount,
+            int cancelledCount) {
+        this(winner, winner == null ? Collections.emptyList() : Collections.singletonList(winner), answeredCount,
+                failedCount, timedOutCount, cancelledCount);
+    }
+
+    /**
+     * Creates a product search result along with the cheapest offers
+     *
+     * @param winner the winner product response, null if not found
+     * @param offers the cheapest product responses in ascending order of
+     * price, starting with the winner
+     * @param answeredCount the number of merchants answered
+     * @param failedCount the number of merchants failed
+     * @param timedOutCount the number of merchants timed out
+     * @param cancelledCount the number of merchants cancelled
+     */
+    public ProductSearchResult(ProductResponse winner, List<ProductResponse> offers, int answeredCount,
+            int failedCount, int timedOutCount, int cancelledCount) {
+        this.winner = winner;
+        this.offers = Collections.unmodifiableList(offers);
+        this.answeredCount = answeredCount;
+        this.failedCount = failedCount;
+        this.timedOutCount = timedOutCount;
+        this.cancelledCount = cancelledCount;
+    }
+
+    /**
+     * Gets the winner product response
+     *
+     * @return the winner product response, otherwise null if not found
+     */
+    public ProductResponse getWinner() {
+        return winner;
+    }
+
+    /**
+     * Gets the cheapest offers searched along with the winner
+     *
+     * @return the product responses in ascending order of price, starting
+     * with the winner, empty if not found
+     */
+    public List<ProductResponse> getOffers() {
+        return offers;
+    }
+
+    /**
+     * Gets the number of merchants that answered before the deadline
+     *
+     * @return the number of merchants answered
+     */
+    public int getAnsweredCount() {
+        return answeredCount;
+    }
+
+    /**
+     * Gets the number of merchants that failed to answer or were skipped
+     * because they are unavailable
+     *
+     * @return the number of merchants failed
+     */
+    public int getFailedCount() {
+        return failedCount;
+    }
+
+    /**
+     * Gets the number of merchants that did not answer before the deadline
+     *
+     * @return the number of merchants timed out
+     */
+    public int getTimedOutCount() {
+        return timedOutCount;
+    }
+
+    /**
+     * Gets the number of merchants that were cancelled because the search
+     * finished early before they answered
+     *
+     * @return the number of merchants cancelled
+     */
+    public int getCancelledCount() {
+        return cancelledCount;
+    }
+
+    /**
+     * Checks whether the search failed because no merchant answered before
+     * the deadline although there were merchants to answer
+     *
+     * @return true if failed, otherwise false
+     */
+    public boolean isFailed() {
+        return answeredCount == 0 && failedCount + timedOutCount > 0;
+    }
+
+    /**
+     * Checks whether the search is complete because no merchant timed out
+     * or was cancelled, so that its winner can be cached. A winner found
+     * after merchants were cut off by the deadline of a single client or by
+     * the quorum may not be the cheapest one, so it is served but not cached.
+     *
+     * @return true if complete, otherwise false
+     */
+    public boolean isComplete() {
+        return !isFailed() && timedOutCount == 0 && cancelledCount == 0;
+    }
+
+    /**
+     * A string representation of a product search result used for logging
+     *
+     * @return the string representation
+     */
+    @Override
+    public String toString() {
+        StringBuilder resultStrBuilder = new StringBuilder("ProductSearchResult{");
+        resultStrBuilder.append("winner=").append(winner);
+        resultStrBuilder.append(", answeredCount=").append(answeredCount);
+        resultStrBuilder.append(", failedCount=").append(failedCount);
+        resultStrBuilder.append(", timedOutCount=").append(timedOutCount);
+        resultStrBuilder.append(", cancelledCount=").append(cancelledCount);
+        resultStrBuilder.append("}");
+
+        return resultStrBuilder.toString();
+    }
+}
@@ -0,0 +1,242 @@
+package com.company.producthub.entities;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Represents a merchant registered to the merchant registry of the product
+ * hub along with the categories of products it sells. A merchant may also
+ * advertise a batch api url accepting many product requests in a single call,
+ * a binary wire format it understands besides json, the size from which
+ * the bodies sent to it are compressed and the price bands of the products it
+ * sells per category.
+ *
+ * A registered merchant is immutable and its hash is computed once, since it
+ * is shared by all product requests being sent to the merchant. Setters throw
+ * UnsupportedOperationException.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+public final class RegisteredMerchant extends Merchant {
+
+    private final Set<String> categories;
+    private final String batchApiUrl;
+    private final WireFormat wireFormat;
+    private final Integer compressionMinBytes;
+    private final Map<String, PriceBand> priceBands;
+    private final int hash;
+
+    /**
+     * Creates a registered merchant without a batch api
+     *
+     * @param id the unique id of the merchant
+     * @param name the name of the merchant
+     * @param apiUrl the api url of the merchant
+     * @param categories the normalized categories of products the merchant sells
+     */
+    public RegisteredMerchant(String id, String name, String apiUrl, Set<String> categories) {
+        this(id, name, apiUrl, null, categories);
+    }
+
+    /**
+     * Creates a registered merchant speaking json
+     *
+     * @param id the unique id of the merchant
+     * @param name the name of the merchant
+     * @param apiUrl the api url of the merchant
+     * @param batchApiUrl the batch api url of the merchant, null if it has no
+     * batch api
+     * @param categories the normalized categories of products the merchant sells
+     */
+    public RegisteredMerchant(String id, String name, String apiUrl, String batchApiUrl, Set<String> categories) {
+        this(id, name, apiUrl, batchApiUrl, null, categories);
+    }
+
+    /**
+     * Creates a registered merchant
+     *
+     * @param id the unique id of the merchant
+     * @param name the name of the merchant
+     * @param apiUrl the api url of the merchant
+     * @param batchApiUrl the batch api url of the merchant, null if it has no
+     * batch api
+     * @param wireFormat the wire format of the merchant, null for json
+     * @param categories the normalized categories of products the merchant sells
+     */
+    public RegisteredMerchant(String id, String name, String apiUrl, String batchApiUrl, WireFormat wireFormat,
+            Set<String> categories) {
+        this(id, name, apiUrl, batchApiUrl, wireFormat, null, categories, null);
+    }
+
+    /**
+     * Creates a registered merchant without declared price bands
+     *
+     * @param id the unique id of the merchant
+     * @param name the name of the merchant
+     * @param apiUrl the api url of the merchant
+     * @param batchApiUrl the batch api url of the merchant, null if it has no
+     * batch api
+     * @param wireFormat the wire format of the merchant, null for json
+     * @param compressionMinBytes the size in bytes from which bodies sent to
+     * the merchant are compressed, negative to never compress, null for the
+     * default size
+     * @param categories the normalized categories of products the merchant sells
+     */
+    public RegisteredMerchant(String id, String name, String apiUrl, String batchApiUrl, WireFormat wireFormat,
+            Integer compressionMinBytes, Set<String> categories) {
+        this(id, name, apiUrl, batchApiUrl, wireFormat, compressionMinBytes, categories, null);
+    }
+
+    /**
+     * Creates a registered merchant
+     *
+     * @param id the unique id of the merchant
+     * @param name the name of the merchant
+     * @param apiUrl the api url of the merchant
+     * @param batchApiUrl the batch api url of the merchant, null if it has no
+     * batch api
+     * @param wireFormat the wire format of the merchant, null for json
+     * @param compressionMinBytes the size in bytes from which bodies sent to
+     * the merchant are compressed, negative to never compress, null for the
+     * default size
+     * @param categories the normalized categories of products the merchant sells
+     * @param priceBands the price bands of the products the merchant sells by
+     * category, null if the merchant declares none
+     */
+    @JsonCreator
+    public RegisteredMerchant(@JsonProperty("id") String id, @JsonProperty("name") String name,
+            @JsonProperty("apiUrl") String apiUrl, @JsonProperty("batchApiUrl") String batchApiUrl,
+            @JsonProperty("wireFormat") WireFormat wireFormat,
+            @JsonProperty("compressionMinBytes") Integer compressionMinBytes,
+            @JsonProperty("categories") Set<String> categories,
+            @JsonProperty("priceBands") Map<String, PriceBand> priceBands) {
+        super.setId(id);
+        super.setName(name);
+        super.setApiUrl(apiUrl);
+        this.batchApiUrl = batchApiUrl;
+        this.wireFormat = wireFormat == null ? WireFormat.JSON : wireFormat;
+        this.compressionMinBytes = compressionMinBytes;
+        Set<String> normalizedCategories = new LinkedHashSet<>();
+        if (categories != null) {
+            categories.forEach(category -> normalizedCategories.add(SearchCriteria.normalizeSearchTerm(category)));
+        }
+        this.categories = Collections.unmodifiableSet(normalizedCategories);
+        Map<String, PriceBand> normalizedPriceBands = new HashMap<>();
+        if (priceBands != null) {
+            priceBands.forEach((category, priceBand) ->
+                    normalizedPriceBands.put(SearchCriteria.normalizeSearchTerm(category), priceBand));
+        }
+        this.priceBands = Collections.unmodifiableMap(normalizedPriceBands);
+        this.hash = super.hashCode();
+    }
+
+    /**
+     * Gets the normalized categories of products a merchant sells
+     *
+     * @return the unmodifiable set of categories
+     */
+    @JsonIgnore
+    public Set<String> getCategories() {
+        return categories;
+    }
+
+    /**
+     * Gets the batch api url of a merchant. A batch call posts a json array
+     * of product requests and the merchant answers with a json array of
+     * product responses in the same order, having null for a product request
+     * without available product.
+     *
+     * @return the batch api url, null if the merchant has no batch api
+     */
+    @JsonIgnore
+    public String getBatchApiUrl() {
+        return batchApiUrl;
+    }
+
+    /**
+     * Gets the wire format of product requests sent to a merchant and asked
+     * for its product responses. A merchant answering in json anyway is still
+     * understood.
+     *
+     * @return the wire format, JSON if the merchant declares none
+     */
+    @JsonIgnore
+    public WireFormat getWireFormat() {
+        return wireFormat;
+    }
+
+    /**
+     * Gets the size from which the bodies sent to a merchant are compressed.
+     * A merchant never compressed is not asked for compressed responses
+     * either.
+     *
+     * @return the size in bytes, negative to never compress, otherwise null
+     * if the merchant declares none
+     */
+    @JsonIgnore
+    public Integer getCompressionMinBytes() {
+        return compressionMinBytes;
+    }
+
+    /**
+     * Gets the price bands declared by a merchant by normalized category
+     *
+     * @return the unmodifiable map of price bands, empty if none declared
+     */
+    @JsonIgnore
+    public Map<String, PriceBand> getPriceBands() {
+        return priceBands;
+    }
+
+    @Override
+    public void setId(String id) {
+        throw new UnsupportedOperationException("A registered merchant is immutable");
+    }
+
+    @Override
+    public void setName(String name) {
+        throw new UnsupportedOperationException("A registered merchant is immutable");
+    }
+
+    @Override
+    public void setApiUrl(String apiUrl) {
+        throw new UnsupportedOperationException("A registered merchant is immutable");
+    }
+
+    /**
+     * A string representation of a registered merchant used for logging
+     *
+     * @return the string representation
+     */
+    @Override
+    public String toString() {
+        StringBuilder merchantStrBuilder = new StringBuilder("RegisteredMerchant{");
+        merchantStrBuilder.append("id=").append(getId());
+        merchantStrBuilder.append(", apiUrl=").append(getApiUrl());
+        merchantStrBuilder.append("}");
+
+        return merchantStrBuilder.toString();
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || obj.hashCode() != hash) {
+            return false;
+        }
+        return super.equals(obj);
+    }
+}
@@ -0,0 +1,153 @@
+package com.company.producthub.entities;
+
+import java.util.Locale;
+import java.util.Objects;
+import java.util.regex.Pattern;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Represents the normalized search criteria of a product request.
+ * Product requests having equal search criteria are expected to have the
+ * same winner product response, regardless of their id and the way their
+ * search term is written by a client.
+ *
+ * The search term is normalized by trimming it, collapsing its whitespace
+ * and converting it to lower case. Search criteria are immutable and their
+ * hash is computed once, so they are suitable as keys of hash based maps.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+public final class SearchCriteria {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final String searchTerm;
+    private final double minPrice;
+    private final double maxPrice;
+    private final int hash;
+
+    /**
+     * Creates search criteria
+     *
+     * @param searchTerm the normalized search term
+     * @param minPrice the minimum price
+     * @param maxPrice the maximum price
+     */
+    public SearchCriteria(String searchTerm, double minPrice, double maxPrice) {
+        this.searchTerm = searchTerm;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        this.hash = computeHash();
+    }
+
+    /**
+     * Creates the normalized search criteria of the given product request
+     *
+     * @param request the product request
+     *
+     * @return the search criteria
+     */
+    public static SearchCriteria of(@NotNull ProductRequest request) {
+        return new SearchCriteria(normalizeSearchTerm(request.getSearchTerm()),
+                request.getMinPrice(), request.getMaxPrice());
+    }
+
+    /**
+     * Normalizes the given search term by trimming it, collapsing its
+     * whitespace and converting it to lower case
+     *
+     * @param searchTerm the search term, it can be null
+     *
+     * @return the normalized search term, an empty string if null
+     */
+    public static String normalizeSearchTerm(String searchTerm) {
+        if (searchTerm == null) {
+            return "";
+        }
+
+        return WHITESPACE.matcher(searchTerm.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Gets the normalized search term
+     *
+     * @return the search term
+     */
+    public String getSearchTerm() {
+        return searchTerm;
+    }
+
+    /**
+     * Gets the minimum price
+     *
+     * @return the minimum price
+     */
+    public double getMinPrice() {
+        return minPrice;
+    }
+
+    /**
+     * Gets the maximum price
+     *
+     * @return the maximum price
+     */
+    public double getMaxPrice() {
+        return maxPrice;
+    }
+
+    /**
+     * A string representation of search criteria used for logging
+     *
+     * @return the string representation
+     */
+    @Override
+    public String toString() {
+        StringBuilder criteriaStrBuilder = new StringBuilder("SearchCriteria{");
+        criteriaStrBuilder.append("searchTerm=").append(searchTerm);
+        criteriaStrBuilder.append(", minPrice=").append(minPrice);
+        criteriaStrBuilder.append(", maxPrice=").append(maxPrice);
+        criteriaStrBuilder.append("}");
+
+        return criteriaStrBuilder.toString();
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null) {
+            return false;
+        }
+        if (getClass() != obj.getClass()) {
+            return false;
+        }
+        final SearchCriteria other = (SearchCriteria) obj;
+        if (this.hash != other.hash) {
+            return false;
+        }
+        if (!Objects.equals(this.searchTerm, other.searchTerm)) {
+            return false;
+        }
+        if (Double.doubleToLongBits(this.minPrice) != Double.doubleToLongBits(other.minPrice)) {
+            return false;
+        }
+        if (Double.doubleToLongBits(this.maxPrice) != Double.doubleToLongBits(other.maxPrice)) {
+            return false;
+        }
+        return true;
+    }
+
+    private int computeHash() {
+        int hash = 3;
+        hash = 59 * hash + Objects.hashCode(this.searchTerm);
+        hash = 59 * hash + (int) (Double.doubleToLongBits(this.minPrice) ^ (Double.doubleToLongBits(this.minPrice) >>> 32));
+        hash = 59 * hash + (int) (Double.doubleToLongBits(this.maxPrice) ^ (Double.doubleToLongBits(this.maxPrice) >>> 32));
+        return hash;
+    }
+}
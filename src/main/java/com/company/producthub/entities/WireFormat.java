@@ -0,0 +1,120 @@
+package com.company.producthub.entities;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonValue;
+import java.util.List;
+import java.util.Locale;
+import org.springframework.http.MediaType;
+
+/**
+ * Represents the wire formats of product requests and product responses
+ * exchanged with merchants and clients. Json is understood by everyone, while
+ * the binary formats Smile and CBOR are used only with the merchants
+ * declaring them in the merchant registry and the clients asking for them.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+public enum WireFormat {
+
+    JSON(MediaType.APPLICATION_JSON),
+    SMILE(MediaType.valueOf(WireFormat.APPLICATION_SMILE_VALUE)),
+    CBOR(MediaType.valueOf(WireFormat.APPLICATION_CBOR_VALUE));
+
+    /**
+     * The media type of Smile
+     */
+    public static final String APPLICATION_SMILE_VALUE = "application/x-jackson-smile";
+
+    /**
+     * The media type of CBOR
+     */
+    public static final String APPLICATION_CBOR_VALUE = "application/cbor";
+
+    private final MediaType mediaType;
+
+    WireFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    /**
+     * Gets the media type of a wire format
+     *
+     * @return the media type
+     */
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Checks whether a wire format is binary
+     *
+     * @return true if binary, otherwise false
+     */
+    public boolean isBinary() {
+        return this != JSON;
+    }
+
+    /**
+     * Gets the wire format of the given content type
+     *
+     * @param contentType the content type, it can be null
+     *
+     * @return the binary wire format of the content type, otherwise JSON
+     */
+    public static WireFormat of(MediaType contentType) {
+        if (contentType != null) {
+            for (WireFormat format : values()) {
+                if (format.isBinary() && format.mediaType.isCompatibleWith(contentType)) {
+                    return format;
+                }
+            }
+        }
+
+        return JSON;
+    }
+
+    /**
+     * Negotiates the wire format of the given accepted media types. A binary
+     * format is selected only when it is accepted explicitly, not by a
+     * wildcard.
+     *
+     * @param acceptedMediaTypes the accepted media types sorted by quality
+     *
+     * @return the first accepted binary wire format, otherwise JSON
+     */
+    public static WireFormat negotiate(List<MediaType> acceptedMediaTypes) {
+        for (MediaType accepted : acceptedMediaTypes) {
+            if (accepted.isWildcardSubtype() || accepted.getQualityValue() == 0) {
+                continue;
+            }
+            WireFormat format = of(accepted);
+            if (format.isBinary() || MediaType.APPLICATION_JSON.isCompatibleWith(accepted)) {
+                return format;
+            }
+        }
+
+        return JSON;
+    }
+
+    /**
+     * Gets the wire format of the given name of the merchant registry
+     *
+     * @param value the case insensitive name, null for JSON
+     *
+     * @return the wire format
+     */
+    @JsonCreator
+    public static WireFormat fromValue(String value) {
+        return value == null ? JSON : valueOf(value.toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Gets the name of a wire format in the merchant registry
+     *
+     * @return the lower case name
+     */
+    @JsonValue
+    public String toValue() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
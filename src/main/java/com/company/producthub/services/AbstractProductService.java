@@ -0,0 +1,599 @@
+package com.company.producthub.services;
+
+import com.company.producthub.cache.OfferIndex;
+import com.company.producthub.entities.Merchant;
+import com.company.producthub.entities.MerchantProductRequest;
+import com.company.producthub.entities.ProductOfferEvent;
+import com.company.producthub.entities.ProductRequest;
+import com.company.producthub.entities.ProductResponse;
+import com.company.producthub.entities.ProductSearchContext;
+import com.company.producthub.entities.ProductSearchResult;
+import com.company.producthub.entities.RegisteredMerchant;
+import com.company.producthub.entities.WireFormat;
+import com.company.producthub.services.MerchantCallMetrics.Outcome;
+import com.company.producthub.transport.WireFormatMappers;
+import com.company.producthub.utils.Deadline;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PostConstruct;
+import javax.validation.constraints.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Represents the base implementation of ProductService containing the logic
+ * shared by all implementations. Implementations differ only in the way a
+ * product request is sent to a merchant.
+ *
+ * The number of merchants a product request is sent to is exposed by the
+ * distribution summary products.search.fanout, and the duration of the
+ * search for the winner by the timer products.search.winner. The product
+ * request sent to merchants is encoded once per product request and wire
+ * format, and its size is exposed by the distribution summary
+ * products.merchant.request.bytes tagged by format.
+ *
+ * A product request is not sent to the merchants whose price bands in the
+ * categories of its search term do not overlap its price range, see
+ * {@link MerchantPriceBands}, and the calls saved are counted by the counter
+ * products.merchant.calls.saved. An offer out of the price range of the
+ * product request is dropped before the winner is selected and counted by
+ * the counter products.merchant.responses.rejected tagged by reason
+ * out_of_range.
+ *
+ * Every answer of a merchant is indexed by the offer index, see
+ * {@link OfferIndex}.
+ *
+ * @see ProductService
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+public abstract class AbstractProductService implements ProductService {
+
+    private static final Logger log = LoggerFactory.getLogger(AbstractProductService.class);
+
+    @Autowired
+    private MerchantRegistry merchantRegistry;
+
+    @Autowired
+    private MerchantHealthTracker merchantHealthTracker;
+
+    @Autowired
+    private MerchantCallMetrics merchantCallMetrics;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private WireFormatMappers wireFormatMappers;
+
+    @Autowired
+    private OfferIndex offerIndex;
+
+    @Value("${product.search.quorum.ratio}")
+    private double quorumRatio;
+
+    @Value("${product.search.quorum.grace.millis}")
+    private long quorumGraceMillis;
+
+    @Value("${merchant.price-band.enabled}")
+    private boolean priceBandsEnabled;
+
+    @Value("${merchant.price-band.min.observations}")
+    private int priceBandMinObservations;
+
+    @Value("${merchant.price-band.probe.ratio}")
+    private double priceBandProbeRatio;
+
+    private MerchantPriceBands priceBands;
+    private Counter savedCallCounter;
+    private Counter outOfRangeCounter;
+
+    private DistributionSummary fanoutSummary;
+    private Timer winnerTimer;
+    private final Map<WireFormat, DistributionSummary> merchantRequestBytesSummaries =
+            new EnumMap<>(WireFormat.class);
+
+    /**
+     * Registers the metrics of the search for the winner
+     */
+    @PostConstruct
+    public void init() {
+        fanoutSummary = DistributionSummary.builder("products.search.fanout")
+                .description("The number of merchants a product request is sent to")
+                .register(meterRegistry);
+        winnerTimer = Timer.builder("products.search.winner")
+                .description("The duration of the search for the winner product response")
+                .register(meterRegistry);
+        priceBands = new MerchantPriceBands(merchantRegistry, priceBandMinObservations, priceBandProbeRatio);
+        savedCallCounter = Counter.builder("products.merchant.calls.saved")
+                .description("The merchant calls saved because the price band of the merchant is out of range")
+                .register(meterRegistry);
+        outOfRangeCounter = meterRegistry.counter("products.merchant.responses.rejected", "reason", "out_of_range");
+        for (WireFormat format : WireFormat.values()) {
+            merchantRequestBytesSummaries.put(format, DistributionSummary
+                    .builder("products.merchant.request.bytes")
+                    .description("The size of the encoded product request sent to merchants")
+                    .baseUnit("bytes")
+                    .tag("format", format.toValue())
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * @see ProductService
+     *
+     * The winner is updated incrementally as each product response arrives.
+     * The search finishes early when an offer at or below request's minimum
+     * price is received or when the rest of merchants do not answer within
+     * the grace window after a quorum of merchants has answered.
+     *
+     * @param search the search of the product request
+     * @param prodResps the list of CompletableFuture<ProductResponse>
+     * @param deadline the deadline of the product request
+     */
+    @Override
+    public ProductSearchResult searchWinnerProduct(@NotNull ProductSearchContext search,
+            @NotNull List<CompletableFuture<ProductResponse>> prodResps, @NotNull Deadline deadline) {
+        return searchTopProducts(search, prodResps, 1, deadline);
+    }
+
+    /**
+     * @see ProductService
+     *
+     * The k cheapest offers are updated incrementally in a bounded heap as
+     * each product response arrives, finishing the same way as
+     * searchWinnerProduct. The price of the k-th cheapest offer is set as the
+     * offer ceiling of the search, so that merchant responses priced above it
+     * are rejected while being decoded. The offer ceiling is kept when the
+     * search finishes.
+     *
+     * @param search the search of the product request
+     * @param prodResps the list of CompletableFuture<ProductResponse>
+     * @param k the number of cheapest offers
+     * @param deadline the deadline of the product request
+     */
+    @Override
+    public ProductSearchResult searchTopProducts(@NotNull ProductSearchContext search,
+            @NotNull List<CompletableFuture<ProductResponse>> prodResps, int k, @NotNull Deadline deadline) {
+        long startNanos = System.nanoTime();
+        ProductRequest request = search.getRequest();
+        WinnerAggregator aggregator = newAggregator(request, prodResps.size(), k);
+        // the ceiling is kept once the search finishes, so that late answers are indexed below it
+        aggregator.onCeiling(ceiling -> {
+            if (ceiling < Double.POSITIVE_INFINITY) {
+                search.setOfferCeiling(ceiling);
+            }
+        });
+        prodResps.forEach(futureProdResp -> futureProdResp.whenComplete((prodResp, ex) -> {
+            if (ex == null) {
+                aggregator.accept(inPriceRange(request, prodResp));
+            } else {
+                aggregator.acceptFailure();
+            }
+        }));
+
+        log.debug("Searching for Winner ProductResponse...");
+        aggregator.await(deadline, quorumGraceMillis);
+        ProductSearchResult searchResult = aggregator.finish(deadline);
+        prodResps.forEach(futureProdResp -> futureProdResp.cancel(true));
+        winnerTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+        log.debug("Search for Winner ProductResponse successfully completed with {}", searchResult);
+
+        return searchResult;
+    }
+
+    /**
+     * @see ProductService
+     *
+     * The product responses are merged as a Flux reduced by the same
+     * aggregation as searchWinnerProduct. The search finishes when the
+     * aggregation completes, the grace window after a quorum elapses or the
+     * deadline expires, whichever comes first, with timers instead of
+     * waiting threads.
+     *
+     * @param search the search of the product request
+     * @param prodResps the list of CompletableFuture<ProductResponse>
+     * @param deadline the deadline of the product request
+     */
+    @Override
+    public Mono<ProductSearchResult> searchWinnerProductReactive(@NotNull ProductSearchContext search,
+            @NotNull List<CompletableFuture<ProductResponse>> prodResps, @NotNull Deadline deadline) {
+        return Mono.defer(() -> {
+            long startNanos = System.nanoTime();
+            ProductRequest request = search.getRequest();
+            WinnerAggregator aggregator = newAggregator(request, prodResps.size(), 1);
+
+            return Flux.fromIterable(prodResps)
+                    .flatMap(futureProdResp -> Mono.fromFuture(futureProdResp)
+                            .doOnSuccess(prodResp -> aggregator.accept(inPriceRange(request, prodResp)))
+                            .onErrorResume(ex -> {
+                                aggregator.acceptFailure();
+                                return Mono.empty();
+                            }))
+                    .takeUntilOther(whenFinished(aggregator, deadline))
+                    .then(Mono.fromCallable(() -> aggregator.finish(deadline)))
+                    .doOnNext(searchResult -> log.debug(
+                            "Search for Winner ProductResponse successfully completed with {}", searchResult))
+                    .doFinally(signal -> {
+                        prodResps.forEach(futureProdResp -> futureProdResp.cancel(true));
+                        winnerTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+                    });
+        });
+    }
+
+    /**
+     * @see ProductService
+     *
+     * The stream finishes the same way as searchWinnerProductReactive, with
+     * the winner event emitted once the search finishes. The offers accepted
+     * until the aggregation completes are all streamed before the winner,
+     * even if they are emitted out of order by concurrent merchant calls.
+     *
+     * @param search the search of the product request
+     * @param prodResps the list of CompletableFuture<ProductResponse>
+     * @param deadline the deadline of the product request
+     */
+    @Override
+    public Flux<ProductOfferEvent> streamProductOffers(@NotNull ProductSearchContext search,
+            @NotNull List<CompletableFuture<ProductResponse>> prodResps, @NotNull Deadline deadline) {
+        return Flux.defer(() -> {
+            long startNanos = System.nanoTime();
+            ProductRequest request = search.getRequest();
+            WinnerAggregator aggregator = newAggregator(request, prodResps.size(), 1);
+            AtomicInteger pendingOffers = new AtomicInteger();
+
+            return Flux.fromIterable(prodResps)
+                    .flatMap(futureProdResp -> Mono.fromFuture(futureProdResp)
+                            .map(Optional::of)
+                            .defaultIfEmpty(Optional.empty())
+                            .flatMap(prodResp -> acceptOffer(aggregator,
+                                    inPriceRange(request, prodResp.orElse(null)), pendingOffers))
+                            .onErrorResume(ex -> {
+                                aggregator.acceptFailure();
+                                return Mono.empty();
+                            }))
+                    .takeUntil(event -> pendingOffers.decrementAndGet() == 0 && aggregator.isCompleted())
+                    .takeUntilOther(whenQuorumGraceOrDeadline(aggregator, deadline))
+                    .concatWith(Mono.fromCallable(() -> ProductOfferEvent.winner(aggregator.finish(deadline))))
+                    .doFinally(signal -> {
+                        prodResps.forEach(futureProdResp -> futureProdResp.cancel(true));
+                        winnerTimer.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+                    });
+        });
+    }
+
+    /**
+     * @see ProductService
+     *
+     * The merchants are the registered merchants selling products of
+     * request's search term, except the ones whose price bands do not overlap
+     * request's price range.
+     *
+     * @param request the request
+     */
+    @Override
+    public void setMerchantsToProductRequest(@NotNull ProductRequest request) {
+        merchantRegistry.findBySearchTerm(request.getSearchTerm()).forEach(merchant -> {
+            if (!priceBandsEnabled || priceBands.mayOffer(merchant, request.getSearchTerm(), request.getMinPrice(),
+                    request.getMaxPrice())) {
+                request.addMerchant(merchant);
+            } else {
+                savedCallCounter.increment();
+                log.debug("{} skipped for being out of the price range of {}", merchant, request);
+            }
+        });
+    }
+
+    /**
+     * Checks whether the offer of the given product response is within the
+     * price range of the given product request. An offer out of the range
+     * is dropped the same way as a merchant without an available product.
+     *
+     * @param request the product request
+     * @param prodResp the product response, null if the merchant has no
+     * available product
+     *
+     * @return the product response, otherwise null if its offer is out of the
+     * price range
+     */
+    private ProductResponse inPriceRange(ProductRequest request, ProductResponse prodResp) {
+        if (prodResp == null || prodResp.getProduct() == null) {
+            return prodResp;
+        }
+        double price = prodResp.getProduct().getPrice();
+        if (price < request.getMinPrice() || (request.getMaxPrice() > 0 && price > request.getMaxPrice())) {
+            outOfRangeCounter.increment();
+            log.debug("{} dropped for being out of the price range of {}", prodResp, request);
+            return null;
+        }
+
+        return prodResp;
+    }
+
+    /**
+     * Creates the aggregator of the product responses of the given product
+     * request and records the fan-out width
+     *
+     * @param request the product request
+     * @param merchantCount the number of merchants the request is sent to
+     * @param k the number of cheapest offers to keep
+     *
+     * @return the aggregator
+     */
+    private WinnerAggregator newAggregator(ProductRequest request, int merchantCount, int k) {
+        fanoutSummary.record(merchantCount);
+        int quorumCount = (int) Math.ceil(quorumRatio * merchantCount);
+
+        return new WinnerAggregator(merchantCount, quorumCount, request.getMinPrice(), k);
+    }
+
+    /**
+     * Accepts the answer of a merchant to the given aggregator
+     *
+     * @param aggregator the aggregator of the search
+     * @param prodResp the product response, null if the merchant has no
+     * available product
+     * @param pendingOffers the number of offers accepted but not streamed yet,
+     * counted before accepting so that it is up to date once the aggregation
+     * is seen completed
+     *
+     * @return a Mono emitting the offer event, empty if there is no product
+     */
+    private Mono<ProductOfferEvent> acceptOffer(WinnerAggregator aggregator, ProductResponse prodResp,
+            AtomicInteger pendingOffers) {
+        if (prodResp == null || prodResp.getProduct() == null) {
+            aggregator.accept(prodResp);
+            return Mono.empty();
+        }
+        pendingOffers.incrementAndGet();
+        boolean best = aggregator.accept(prodResp);
+
+        return Mono.just(ProductOfferEvent.offer(prodResp, best));
+    }
+
+    /**
+     * Creates a Mono emitting when the search of the given aggregator should
+     * finish: when the aggregation completes, the grace window after a quorum
+     * elapses or the deadline expires, whichever comes first
+     *
+     * @param aggregator the aggregator of the search
+     * @param deadline the deadline of the product request
+     *
+     * @return the Mono<Long>
+     */
+    private Mono<Long> whenFinished(WinnerAggregator aggregator, Deadline deadline) {
+        return Mono.first(
+                Mono.fromFuture(aggregator.whenCompleted()).then(Mono.just(0L)),
+                whenQuorumGraceOrDeadline(aggregator, deadline));
+    }
+
+    /**
+     * Creates a Mono emitting when the grace window after a quorum of the
+     * given aggregator elapses or the deadline expires, whichever comes first
+     *
+     * @param aggregator the aggregator of the search
+     * @param deadline the deadline of the product request
+     *
+     * @return the Mono<Long>
+     */
+    private Mono<Long> whenQuorumGraceOrDeadline(WinnerAggregator aggregator, Deadline deadline) {
+        return Mono.first(
+                Mono.fromFuture(aggregator.whenQuorumReached())
+                        .then(Mono.delay(Duration.ofMillis(quorumGraceMillis))),
+                Mono.delay(Duration.ofMillis(deadline.remainingMillis())));
+    }
+
+    /**
+     * Gets the encoded body of the product request of the given search sent
+     * to merchants in the given wire format. The lean projection of the
+     * product request is encoded once per wire format, on the first merchant
+     * call of the search, and the bytes are shared by the rest of merchant
+     * calls of the search in that format.
+     *
+     * @param search the search of the product request
+     * @param format the wire format of the merchant
+     *
+     * @return the encoded body
+     */
+    protected byte[] merchantRequestBody(ProductSearchContext search, WireFormat format) {
+        byte[] body = search.getMerchantRequestBody(format);
+        if (body == null) {
+            try {
+                body = wireFormatMappers.get(format)
+                        .writeValueAsBytes(MerchantProductRequest.of(search.getRequest()));
+            } catch (JsonProcessingException ex) {
+                throw new IllegalStateException("Failed to serialize " + search.getRequest(), ex);
+            }
+            merchantRequestBytesSummaries.get(format).record(body.length);
+            search.setMerchantRequestBody(format, body);
+        }
+
+        return body;
+    }
+
+    /**
+     * Gets the wire format of the given merchant, as declared in the merchant
+     * registry
+     *
+     * @param merchantUrl the api url of the merchant
+     *
+     * @return the wire format, JSON if the merchant is not registered
+     */
+    protected WireFormat merchantWireFormat(String merchantUrl) {
+        RegisteredMerchant merchant = merchantRegistry.findByApiUrl(merchantUrl);
+
+        return merchant == null ? WireFormat.JSON : merchant.getWireFormat();
+    }
+
+    /**
+     * Gets the product requests sent to a merchant of the given product
+     * requests of a batch
+     *
+     * @param requests the product requests
+     *
+     * @return the lean projections of the product requests
+     */
+    protected static List<MerchantProductRequest> merchantRequests(List<ProductRequest> requests) {
+        List<MerchantProductRequest> merchantRequests = new ArrayList<>(requests.size());
+        requests.forEach(request -> merchantRequests.add(MerchantProductRequest.of(request)));
+
+        return merchantRequests;
+    }
+
+    /**
+     * Acquires the permission to send a call to the given merchant. A call
+     * not permitted because the circuit of the merchant is open is recorded
+     * as rejected.
+     *
+     * @param merchantUrl the api url of the merchant
+     *
+     * @return true if the call can be sent, otherwise false
+     */
+    protected boolean tryAcquireMerchant(String merchantUrl) {
+        if (merchantHealthTracker.tryAcquire(merchantUrl)) {
+            return true;
+        }
+        merchantCallMetrics.record(merchantUrl, Outcome.REJECTED, 0);
+
+        return false;
+    }
+
+    /**
+     * Gets the adaptive timeout of a call to the given merchant
+     *
+     * @param merchantUrl the api url of the merchant
+     *
+     * @return the timeout in milliseconds
+     */
+    protected long merchantTimeoutMillis(String merchantUrl) {
+        return merchantHealthTracker.timeoutMillis(merchantUrl);
+    }
+
+    /**
+     * Records a call answered by the given merchant, observing the price of
+     * its offer in the price bands of the merchant and indexing its answer
+     *
+     * @param search the search of the product request sent
+     * @param merchantUrl the api url of the merchant
+     * @param startNanos the nano time the call was sent
+     * @param prodResp the product response, null if the merchant has no
+     * available product
+     */
+    protected void recordMerchantAnswer(ProductSearchContext search, String merchantUrl, long startNanos,
+            ProductResponse prodResp) {
+        recordMerchantAnswer(merchantUrl, startNanos, prodResp == null ? Outcome.NO_CONTENT : Outcome.SUCCESS);
+        observePrice(merchantRegistry.findByApiUrl(merchantUrl), search.getRequest(), prodResp);
+        offerIndex.index(search, merchantUrl, prodResp);
+    }
+
+    /**
+     * Records a batch call answered by the given merchant, observing the
+     * prices of its offers in the price bands of the merchant and indexing
+     * its answers
+     *
+     * @param requests the product requests sent
+     * @param batchUrl the batch api url of the merchant
+     * @param startNanos the nano time the call was sent
+     * @param prodResps the product responses, null if the merchant answered
+     * without a body
+     */
+    protected void recordMerchantBatchAnswer(List<ProductRequest> requests, String batchUrl, long startNanos,
+            List<ProductResponse> prodResps) {
+        boolean answered = prodResps != null && prodResps.stream().anyMatch(Objects::nonNull);
+        recordMerchantAnswer(batchUrl, startNanos, answered ? Outcome.SUCCESS : Outcome.NO_CONTENT);
+        if (prodResps == null) {
+            return;
+        }
+        for (int i = 0; i < Math.min(requests.size(), prodResps.size()); i++) {
+            ProductRequest request = requests.get(i);
+            for (Merchant merchant : request.getMerchants()) {
+                if (merchant instanceof RegisteredMerchant
+                        && batchUrl.equals(((RegisteredMerchant) merchant).getBatchApiUrl())) {
+                    observePrice((RegisteredMerchant) merchant, request, prodResps.get(i));
+                    offerIndex.index(new ProductSearchContext(request), merchant.getApiUrl(), prodResps.get(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Records a call answered by the given merchant with an offer rejected
+     * while being decoded. The offer is neither observed in the price bands
+     * of the merchant nor indexed, since it was not read.
+     *
+     * @param merchantUrl the api url of the merchant
+     * @param startNanos the nano time the call was sent
+     */
+    protected void recordMerchantRejectedOffer(String merchantUrl, long startNanos) {
+        recordMerchantAnswer(merchantUrl, startNanos, Outcome.REJECTED_OFFER);
+    }
+
+    private void observePrice(RegisteredMerchant merchant, ProductRequest request, ProductResponse prodResp) {
+        if (merchant != null && prodResp != null && prodResp.getProduct() != null) {
+            priceBands.observe(merchant, request.getSearchTerm(), prodResp.getProduct().getPrice());
+        }
+    }
+
+    private void recordMerchantAnswer(String merchantUrl, long startNanos, Outcome outcome) {
+        long latencyNanos = System.nanoTime() - startNanos;
+        merchantHealthTracker.recordSuccess(merchantUrl, TimeUnit.NANOSECONDS.toMillis(latencyNanos));
+        merchantCallMetrics.record(merchantUrl, outcome, latencyNanos);
+    }
+
+    /**
+     * Records a call the given merchant failed to answer
+     *
+     * @param merchantUrl the api url of the merchant
+     * @param startNanos the nano time the call was sent
+     * @param ex the exception of the call
+     */
+    protected void recordMerchantFailure(String merchantUrl, long startNanos, Throwable ex) {
+        long latencyNanos = System.nanoTime() - startNanos;
+        merchantHealthTracker.recordFailure(merchantUrl, TimeUnit.NANOSECONDS.toMillis(latencyNanos));
+        merchantCallMetrics.record(merchantUrl, MerchantCallMetrics.outcomeOf(ex), latencyNanos);
+    }
+
+    /**
+     * Records a call to the given merchant cancelled before the merchant
+     * answered
+     *
+     * @param merchantUrl the api url of the merchant
+     * @param startNanos the nano time the call was sent
+     */
+    protected void recordMerchantCancel(String merchantUrl, long startNanos) {
+        merchantHealthTracker.release(merchantUrl);
+        merchantCallMetrics.record(merchantUrl, Outcome.CANCELLED, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Creates a future completed exceptionally
+     *
+     * @param <T> the type of the future's result
+     * @param ex the exception completing the future
+     *
+     * @return the CompletableFuture<T>
+     */
+    protected static <T> CompletableFuture<T> failedFuture(Throwable ex) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        future.completeExceptionally(ex);
+
+        return future;
+    }
+}
@@ -0,0 +1,132 @@
+package com.company.producthub.services;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Represents an adaptive limit of the requests in flight, discovered from
+ * the observed latency by a gradient algorithm.
+ *
+ * The limiter keeps a long-term and a short-term exponential moving average
+ * of the latency. Their ratio, i.e. the gradient, tells whether requests are
+ * queueing up. When the short-term latency exceeds the long-term latency
+ * multiplied by the tolerance, the limit shrinks in proportion, otherwise it
+ * grows by the square root of the limit. The limit only grows while at least
+ * half of it is used, so that an idle limiter does not grow without bound.
+ * When the latency drops well below the long-term average, the long-term
+ * average decays, so that the limiter recovers after an incident.
+ *
+ * A limiter is thread-safe.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final int SHORT_WINDOW = 10;
+    private static final double MIN_GRADIENT = 0.5;
+    private static final double RECOVERY_RATIO = 2;
+    private static final double RECOVERY_DECAY = 0.95;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double smoothing;
+    private final double rttTolerance;
+    private final int longWindow;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile double limit;
+    private long sampleCount;
+    private double longRttNanos;
+    private double shortRttNanos;
+
+    /**
+     * Creates a limiter
+     *
+     * @param initialLimit the initial limit
+     * @param minLimit the minimum limit
+     * @param maxLimit the maximum limit
+     * @param smoothing the weight of a new limit between 0 and 1
+     * @param rttTolerance the ratio of the short-term to the long-term
+     * latency tolerated before the limit shrinks
+     * @param longWindow the number of samples of the long-term latency
+     */
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double smoothing,
+            double rttTolerance, int longWindow) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.smoothing = smoothing;
+        this.rttTolerance = rttTolerance;
+        this.longWindow = longWindow;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Acquires a slot for a request
+     *
+     * @return true if the request can proceed, otherwise false if the limit
+     * is reached
+     */
+    public boolean tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= (int) limit) {
+                return false;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+
+        return true;
+    }
+
+    /**
+     * Releases the slot of a request and samples its latency
+     *
+     * @param rttNanos the latency of the request in nanoseconds
+     * @param sampled false if the latency should not be sampled, e.g.
+     * because the request failed
+     */
+    public void release(long rttNanos, boolean sampled) {
+        int inFlightBefore = inFlight.getAndDecrement();
+        if (sampled) {
+            update(rttNanos, inFlightBefore);
+        }
+    }
+
+    /**
+     * Gets the current limit
+     *
+     * @return the limit
+     */
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Gets the number of requests in flight
+     *
+     * @return the requests in flight
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    private synchronized void update(long rttNanos, int inFlightBefore) {
+        sampleCount++;
+        longRttNanos = average(longRttNanos, rttNanos, Math.min(longWindow, sampleCount));
+        shortRttNanos = average(shortRttNanos, rttNanos, Math.min(SHORT_WINDOW, sampleCount));
+        if (longRttNanos / shortRttNanos > RECOVERY_RATIO) {
+            longRttNanos *= RECOVERY_DECAY;
+        }
+        if (inFlightBefore < limit / 2) {
+            return;
+        }
+
+        double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, rttTolerance * longRttNanos / shortRttNanos));
+        double newLimit = limit * gradient + Math.sqrt(limit);
+        newLimit = limit * (1 - smoothing) + newLimit * smoothing;
+        limit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+    }
+
+    private static double average(double average, long sample, long window) {
+        return average + (sample - average) * 2 / (window + 1);
+    }
+}
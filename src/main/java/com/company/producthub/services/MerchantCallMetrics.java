@@ -0,0 +1,127 @@
+package com.company.producthub.services;
+
+import com.company.producthub.entities.RegisteredMerchant;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import javax.validation.constraints.NotNull;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Represents the metrics of the calls sent to merchants. The latency of the
+ * calls is exposed by the timer products.merchant.calls tagged by merchant
+ * and outcome, with a histogram of fixed latency buckets.
+ *
+ * The merchant tag is the id of a registered merchant. In order to keep the
+ * number of time series bounded as the number of merchants grows, only the
+ * first merchants up to the configured maximum get their own tag, while the
+ * rest of merchants share the tag "other".
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+@Component
+public class MerchantCallMetrics {
+
+    /**
+     * Represents the outcomes of a merchant call. A call answered by an offer
+     * rejected while being decoded is REJECTED_OFFER, whereas a call not sent
+     * because the circuit of the merchant is open is REJECTED.
+     */
+    public enum Outcome {
+        SUCCESS, NO_CONTENT, REJECTED_OFFER, ERROR, TIMEOUT, REJECTED, CANCELLED;
+
+        private final String tag = name().toLowerCase(Locale.ROOT);
+    }
+
+    private static final String OTHER_MERCHANTS = "other";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private MerchantRegistry merchantRegistry;
+
+    @Value("${metrics.merchant.tags.max}")
+    private int maxMerchantTags;
+
+    @Value("${metrics.merchant.latency.buckets.millis}")
+    private long[] latencyBucketsMillis;
+
+    private final ConcurrentMap<String, Timer[]> merchantTimers = new ConcurrentHashMap<>();
+    private final Set<String> merchantTags = new HashSet<>();
+
+    /**
+     * Records a call to the given merchant
+     *
+     * @param merchantUrl the api url of the merchant
+     * @param outcome the outcome of the call
+     * @param latencyNanos the latency of the call in nanoseconds
+     */
+    public void record(@NotNull String merchantUrl, @NotNull Outcome outcome, long latencyNanos) {
+        merchantTimers.computeIfAbsent(merchantUrl, this::buildTimers)[outcome.ordinal()]
+                .record(latencyNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Gets the outcome of a merchant call failed with the given exception
+     *
+     * @param ex the exception
+     *
+     * @return the outcome TIMEOUT if the call timed out, otherwise ERROR
+     */
+    public static Outcome outcomeOf(@NotNull Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SocketTimeoutException || cause instanceof TimeoutException) {
+                return Outcome.TIMEOUT;
+            }
+            if (cause instanceof MerchantUnavailableException) {
+                return Outcome.REJECTED;
+            }
+        }
+
+        return Outcome.ERROR;
+    }
+
+    private Timer[] buildTimers(String merchantUrl) {
+        String merchantTag = merchantTag(merchantUrl);
+        Duration[] latencyBuckets = Arrays.stream(latencyBucketsMillis)
+                .mapToObj(Duration::ofMillis)
+                .toArray(Duration[]::new);
+        Outcome[] outcomes = Outcome.values();
+        Timer[] timers = new Timer[outcomes.length];
+        for (Outcome outcome : outcomes) {
+            timers[outcome.ordinal()] = Timer.builder("products.merchant.calls")
+                    .description("The latency of the calls sent to merchants")
+                    .tag("merchant", merchantTag)
+                    .tag("outcome", outcome.tag)
+                    .sla(latencyBuckets)
+                    .register(meterRegistry);
+        }
+
+        return timers;
+    }
+
+    private synchronized String merchantTag(String merchantUrl) {
+        RegisteredMerchant merchant = merchantRegistry.findByApiUrl(merchantUrl);
+        if (merchant == null) {
+            return OTHER_MERCHANTS;
+        }
+        if (merchantTags.contains(merchant.getId()) || merchantTags.size() < maxMerchantTags) {
+            merchantTags.add(merchant.getId());
+            return merchant.getId();
+        }
+
+        return OTHER_MERCHANTS;
+    }
+}
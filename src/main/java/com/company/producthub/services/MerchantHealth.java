@@ -0,0 +1,276 @@
+package com.company.producthub.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Represents the health of a merchant as observed by the product hub.
+ *
+ * It keeps a rolling window of the latency and outcome of the calls sent to
+ * the merchant. The window is split into time slices, and the slice older
+ * than the window is reset as soon as a new slice starts. Latencies are
+ * counted in log-scaled buckets, so that percentiles are computed with
+ * bounded memory and a relative error of about 25%.
+ *
+ * A merchant health also holds the circuit breaker of the merchant. The
+ * circuit opens when the failure rate of the window exceeds the threshold,
+ * so that calls to the merchant are skipped. After the open duration, the
+ * circuit becomes half-open and allows a number of trial calls. It closes
+ * when all trial calls succeed, otherwise it opens again. A closed circuit
+ * forgets the outcomes of the calls before it closed, so that it does not
+ * open again by the failures that opened it, while the latencies are kept.
+ *
+ * A merchant health is thread-safe.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+public class MerchantHealth {
+
+    /**
+     * Represents the states of the circuit breaker of a merchant
+     */
+    public enum CircuitState {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final long[] BUCKET_BOUNDS_MILLIS = buildBucketBounds(60000);
+
+    private final long sliceMillis;
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final long openMillis;
+    private final int trialCalls;
+
+    private final long[] sliceEpochs;
+    private final long[][] sliceLatencyCounts;
+    private final long[] sliceSuccessCounts;
+    private final long[] sliceFailureCounts;
+
+    private CircuitState circuitState = CircuitState.CLOSED;
+    private long circuitChangedMillis;
+    private int trialPermits;
+    private int trialSuccesses;
+
+    /**
+     * Creates the health of a merchant
+     *
+     * @param windowMillis the milliseconds of the rolling window
+     * @param slices the number of slices of the rolling window
+     * @param failureRateThreshold the failure rate opening the circuit
+     * @param minimumCalls the minimum calls of the window before the failure
+     * rate or the latency percentiles are considered
+     * @param openMillis the milliseconds the circuit stays open
+     * @param trialCalls the number of trial calls allowed by a half-open circuit
+     */
+    public MerchantHealth(long windowMillis, int slices, double failureRateThreshold, int minimumCalls,
+            long openMillis, int trialCalls) {
+        this.sliceMillis = Math.max(1, windowMillis / slices);
+        this.failureRateThreshold = failureRateThreshold;
+        this.minimumCalls = minimumCalls;
+        this.openMillis = openMillis;
+        this.trialCalls = Math.max(1, trialCalls);
+        this.sliceEpochs = new long[slices];
+        this.sliceLatencyCounts = new long[slices][BUCKET_BOUNDS_MILLIS.length];
+        this.sliceSuccessCounts = new long[slices];
+        this.sliceFailureCounts = new long[slices];
+        Arrays.fill(sliceEpochs, -1);
+    }
+
+    /**
+     * Acquires the permission to send a call to the merchant
+     *
+     * @param nowMillis the current epoch milliseconds
+     *
+     * @return true if the call can be sent, otherwise false if the circuit is
+     * open or there are no trial calls left
+     */
+    public synchronized boolean tryAcquire(long nowMillis) {
+        if (circuitState == CircuitState.OPEN && nowMillis - circuitChangedMillis >= openMillis) {
+            changeCircuitState(CircuitState.HALF_OPEN, nowMillis);
+        }
+        if (circuitState == CircuitState.HALF_OPEN) {
+            if (trialPermits == 0 && nowMillis - circuitChangedMillis >= openMillis) {
+                changeCircuitState(CircuitState.HALF_OPEN, nowMillis);
+            }
+            if (trialPermits == 0) {
+                return false;
+            }
+            trialPermits--;
+        }
+
+        return circuitState != CircuitState.OPEN;
+    }
+
+    /**
+     * Releases the permission of a call that was cancelled before the merchant
+     * answered, so that a half-open circuit can send another trial call
+     */
+    public synchronized void release() {
+        if (circuitState == CircuitState.HALF_OPEN && trialPermits < trialCalls) {
+            trialPermits++;
+        }
+    }
+
+    /**
+     * Records a call answered by the merchant
+     *
+     * @param latencyMillis the latency of the call
+     * @param nowMillis the current epoch milliseconds
+     */
+    public synchronized void recordSuccess(long latencyMillis, long nowMillis) {
+        int slice = currentSlice(nowMillis);
+        sliceSuccessCounts[slice]++;
+        sliceLatencyCounts[slice][bucketOf(latencyMillis)]++;
+        if (circuitState == CircuitState.HALF_OPEN && ++trialSuccesses >= trialCalls) {
+            changeCircuitState(CircuitState.CLOSED, nowMillis);
+        }
+    }
+
+    /**
+     * Records a call the merchant failed to answer
+     *
+     * @param latencyMillis the latency of the call
+     * @param nowMillis the current epoch milliseconds
+     */
+    public synchronized void recordFailure(long latencyMillis, long nowMillis) {
+        int slice = currentSlice(nowMillis);
+        sliceFailureCounts[slice]++;
+        sliceLatencyCounts[slice][bucketOf(latencyMillis)]++;
+        if (circuitState == CircuitState.HALF_OPEN) {
+            changeCircuitState(CircuitState.OPEN, nowMillis);
+        } else if (circuitState == CircuitState.CLOSED) {
+            long failureCount = sum(sliceFailureCounts, nowMillis);
+            long callCount = failureCount + sum(sliceSuccessCounts, nowMillis);
+            if (callCount >= minimumCalls && failureCount >= failureRateThreshold * callCount) {
+                changeCircuitState(CircuitState.OPEN, nowMillis);
+            }
+        }
+    }
+
+    /**
+     * Gets the given percentile of the latencies of the window
+     *
+     * @param percentile the percentile between 0 and 1
+     * @param nowMillis the current epoch milliseconds
+     *
+     * @return the upper bound of the percentile in milliseconds, otherwise -1
+     * if the window has fewer calls than the minimum calls
+     */
+    public synchronized long percentileMillis(double percentile, long nowMillis) {
+        long[] latencyCounts = new long[BUCKET_BOUNDS_MILLIS.length];
+        long callCount = 0;
+        for (int slice = 0; slice < sliceEpochs.length; slice++) {
+            if (isSliceInWindow(slice, nowMillis)) {
+                for (int bucket = 0; bucket < latencyCounts.length; bucket++) {
+                    latencyCounts[bucket] += sliceLatencyCounts[slice][bucket];
+                    callCount += sliceLatencyCounts[slice][bucket];
+                }
+            }
+        }
+        if (callCount == 0 || callCount < minimumCalls) {
+            return -1;
+        }
+        long rank = (long) Math.ceil(percentile * callCount);
+        long cumulativeCount = 0;
+        for (int bucket = 0; bucket < latencyCounts.length; bucket++) {
+            cumulativeCount += latencyCounts[bucket];
+            if (cumulativeCount >= rank) {
+                return BUCKET_BOUNDS_MILLIS[bucket];
+            }
+        }
+
+        return BUCKET_BOUNDS_MILLIS[BUCKET_BOUNDS_MILLIS.length - 1];
+    }
+
+    /**
+     * Gets the number of calls of the window
+     *
+     * @param nowMillis the current epoch milliseconds
+     *
+     * @return the number of calls
+     */
+    public synchronized long callCount(long nowMillis) {
+        return sum(sliceSuccessCounts, nowMillis) + sum(sliceFailureCounts, nowMillis);
+    }
+
+    /**
+     * Gets the failure rate of the window
+     *
+     * @param nowMillis the current epoch milliseconds
+     *
+     * @return the failure rate between 0 and 1
+     */
+    public synchronized double failureRate(long nowMillis) {
+        long failureCount = sum(sliceFailureCounts, nowMillis);
+        long callCount = failureCount + sum(sliceSuccessCounts, nowMillis);
+
+        return callCount == 0 ? 0 : (double) failureCount / callCount;
+    }
+
+    /**
+     * Gets the state of the circuit breaker
+     *
+     * @return the circuit state
+     */
+    public synchronized CircuitState getCircuitState() {
+        return circuitState;
+    }
+
+    private void changeCircuitState(CircuitState newState, long nowMillis) {
+        circuitState = newState;
+        circuitChangedMillis = nowMillis;
+        trialPermits = newState == CircuitState.HALF_OPEN ? trialCalls : 0;
+        trialSuccesses = 0;
+        if (newState == CircuitState.CLOSED) {
+            Arrays.fill(sliceSuccessCounts, 0);
+            Arrays.fill(sliceFailureCounts, 0);
+        }
+    }
+
+    private int currentSlice(long nowMillis) {
+        long epoch = nowMillis / sliceMillis;
+        int slice = (int) (epoch % sliceEpochs.length);
+        if (sliceEpochs[slice] != epoch) {
+            sliceEpochs[slice] = epoch;
+            sliceSuccessCounts[slice] = 0;
+            sliceFailureCounts[slice] = 0;
+            Arrays.fill(sliceLatencyCounts[slice], 0);
+        }
+
+        return slice;
+    }
+
+    private boolean isSliceInWindow(int slice, long nowMillis) {
+        long epoch = nowMillis / sliceMillis;
+
+        return sliceEpochs[slice] > epoch - sliceEpochs.length && sliceEpochs[slice] <= epoch;
+    }
+
+    private long sum(long[] sliceCounts, long nowMillis) {
+        long count = 0;
+        for (int slice = 0; slice < sliceCounts.length; slice++) {
+            if (isSliceInWindow(slice, nowMillis)) {
+                count += sliceCounts[slice];
+            }
+        }
+
+        return count;
+    }
+
+    private static int bucketOf(long latencyMillis) {
+        int bucket = Arrays.binarySearch(BUCKET_BOUNDS_MILLIS, latencyMillis);
+
+        return bucket >= 0 ? bucket : Math.min(-bucket - 1, BUCKET_BOUNDS_MILLIS.length - 1);
+    }
+
+    private static long[] buildBucketBounds(long maxMillis) {
+        List<Long> bounds = new ArrayList<>();
+        for (long bound = 1; bound < maxMillis; bound = Math.max(bound + 1, Math.round(bound * 1.25))) {
+            bounds.add(bound);
+        }
+        bounds.add(maxMillis);
+
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+}
@@ -0,0 +1,161 @@
+package com.company.producthub.services;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import javax.validation.constraints.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Represents the tracker of the health of merchants keyed by their api url.
+ *
+ * Calls to a merchant whose circuit is open are skipped. The timeout of a
+ * call to a merchant is adapted to the observed p99 latency of the merchant
+ * multiplied by a factor and bounded by the configured minimum and maximum
+ * timeout. The maximum timeout is used until enough calls are observed.
+ *
+ * @see MerchantHealth
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+@Component
+public class MerchantHealthTracker {
+
+    private static final Logger log = LoggerFactory.getLogger(MerchantHealthTracker.class);
+
+    private static final double TIMEOUT_PERCENTILE = 0.99;
+
+    @Value("${merchant.health.window.millis}")
+    private long windowMillis;
+
+    @Value("${merchant.health.window.slices}")
+    private int windowSlices;
+
+    @Value("${merchant.circuit.failure-rate.threshold}")
+    private double failureRateThreshold;
+
+    @Value("${merchant.circuit.minimum.calls}")
+    private int minimumCalls;
+
+    @Value("${merchant.circuit.open.millis}")
+    private long openMillis;
+
+    @Value("${merchant.circuit.half-open.trial.calls}")
+    private int trialCalls;
+
+    @Value("${merchant.timeout.multiplier}")
+    private double timeoutMultiplier;
+
+    @Value("${merchant.timeout.min.millis}")
+    private long minTimeoutMillis;
+
+    @Value("${merchant.timeout.max.millis}")
+    private long maxTimeoutMillis;
+
+    private final ConcurrentMap<String, MerchantHealth> merchantHealths = new ConcurrentHashMap<>();
+
+    /**
+     * Acquires the permission to send a call to the given merchant
+     *
+     * @param merchantUrl the api url of the merchant
+     *
+     * @return true if the call can be sent, otherwise false if the circuit of
+     * the merchant is open
+     */
+    public boolean tryAcquire(@NotNull String merchantUrl) {
+        boolean acquired = getHealth(merchantUrl).tryAcquire(System.currentTimeMillis());
+        if (!acquired) {
+            log.debug("Skipping merchant {} since its circuit is open", merchantUrl);
+        }
+
+        return acquired;
+    }
+
+    /**
+     * Releases the permission of a call to the given merchant that was
+     * cancelled before the merchant answered
+     *
+     * @param merchantUrl the api url of the merchant
+     */
+    public void release(@NotNull String merchantUrl) {
+        getHealth(merchantUrl).release();
+    }
+
+    /**
+     * Records a call answered by the given merchant
+     *
+     * @param merchantUrl the api url of the merchant
+     * @param latencyMillis the latency of the call
+     */
+    public void recordSuccess(@NotNull String merchantUrl, long latencyMillis) {
+        getHealth(merchantUrl).recordSuccess(latencyMillis, System.currentTimeMillis());
+    }
+
+    /**
+     * Records a call the given merchant failed to answer
+     *
+     * @param merchantUrl the api url of the merchant
+     * @param latencyMillis the latency of the call
+     */
+    public void recordFailure(@NotNull String merchantUrl, long latencyMillis) {
+        MerchantHealth health = getHealth(merchantUrl);
+        health.recordFailure(latencyMillis, System.currentTimeMillis());
+        if (health.getCircuitState() == MerchantHealth.CircuitState.OPEN) {
+            log.debug("Circuit of merchant {} is open", merchantUrl);
+        }
+    }
+
+    /**
+     * Gets the timeout of a call to the given merchant
+     *
+     * @param merchantUrl the api url of the merchant
+     *
+     * @return the timeout in milliseconds
+     */
+    public long timeoutMillis(@NotNull String merchantUrl) {
+        long p99Millis = percentileMillis(merchantUrl, TIMEOUT_PERCENTILE);
+        if (p99Millis < 0) {
+            return maxTimeoutMillis;
+        }
+
+        return Math.max(minTimeoutMillis, Math.min(maxTimeoutMillis, (long) (p99Millis * timeoutMultiplier)));
+    }
+
+    /**
+     * Gets the given latency percentile of the given merchant
+     *
+     * @param merchantUrl the api url of the merchant
+     * @param percentile the percentile between 0 and 1
+     *
+     * @return the percentile in milliseconds, otherwise -1 if there are not
+     * enough calls observed
+     */
+    public long percentileMillis(@NotNull String merchantUrl, double percentile) {
+        return getHealth(merchantUrl).percentileMillis(percentile, System.currentTimeMillis());
+    }
+
+    /**
+     * Gets the health of the given merchant
+     *
+     * @param merchantUrl the api url of the merchant
+     *
+     * @return the merchant health
+     */
+    public MerchantHealth getHealth(@NotNull String merchantUrl) {
+        return merchantHealths.computeIfAbsent(merchantUrl, url -> new MerchantHealth(windowMillis, windowSlices,
+                failureRateThreshold, minimumCalls, openMillis, trialCalls));
+    }
+
+    /**
+     * Gets the health of all merchants called so far keyed by their api url
+     *
+     * @return the unmodifiable map of merchant healths
+     */
+    public Map<String, MerchantHealth> getHealths() {
+        return Collections.unmodifiableMap(merchantHealths);
+    }
+}
@@ -0,0 +1,209 @@
+package com.company.producthub.services;
+
+import com.company.producthub.entities.ProductResponse;
+import com.company.producthub.utils.Deadline;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.validation.constraints.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+/**
+ * Represents the hedging of merchant calls against the latency tail of
+ * merchants. If a merchant has not answered within its observed latency
+ * percentile, a second identical call is sent to the merchant and the first
+ * answer of the two calls wins, while the other call is cancelled.
+ *
+ * Hedges are limited by a global budget of tokens. Each call sent deposits a
+ * fraction of a token up to a maximum burst, and each hedge withdraws a whole
+ * token, so that hedges stay below the configured ratio of calls and do not
+ * amplify the load of merchants during an incident. Merchants without enough
+ * observed calls are not hedged, and no hedge is scheduled while the budget
+ * is exhausted.
+ *
+ * Hedges are scheduled by a dedicated scheduler, created only if hedging is
+ * enabled, so that they are not delayed by the scheduled tasks of the
+ * application. A hedge cancelled because its call answered in time is
+ * removed from the scheduler at once, instead of being kept until its delay
+ * elapses.
+ *
+ * Hedges issued, won and throttled by the budget are exposed by the counter
+ * products.merchant.hedges tagged by outcome, along with the gauge
+ * products.merchant.hedge.budget reporting the tokens available.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+@Component
+public class MerchantHedger {
+
+    private static final Logger log = LoggerFactory.getLogger(MerchantHedger.class);
+
+    private static final long MILLI_TOKENS = 1000;
+
+    @Autowired
+    private MerchantHealthTracker merchantHealthTracker;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${merchant.hedge.enabled}")
+    private boolean enabled;
+
+    @Value("${merchant.hedge.percentile}")
+    private double percentile;
+
+    @Value("${merchant.hedge.budget.ratio}")
+    private double budgetRatio;
+
+    @Value("${merchant.hedge.budget.burst}")
+    private int budgetBurst;
+
+    private final AtomicLong budgetMilliTokens = new AtomicLong();
+    private ScheduledThreadPoolExecutor scheduler;
+    private Counter issuedCounter;
+    private Counter wonCounter;
+    private Counter throttledCounter;
+
+    /**
+     * Registers the metrics of hedges, fills the budget and creates the
+     * scheduler of hedges if hedging is enabled
+     */
+    @PostConstruct
+    public void init() {
+        if (enabled) {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("hedge-");
+            threadFactory.setDaemon(true);
+            scheduler = new ScheduledThreadPoolExecutor(1, threadFactory);
+            scheduler.setRemoveOnCancelPolicy(true);
+        }
+        budgetMilliTokens.set(budgetBurst * MILLI_TOKENS);
+        issuedCounter = meterRegistry.counter("products.merchant.hedges", "outcome", "issued");
+        wonCounter = meterRegistry.counter("products.merchant.hedges", "outcome", "won");
+        throttledCounter = meterRegistry.counter("products.merchant.hedges", "outcome", "throttled");
+        Gauge.builder("products.merchant.hedge.budget", budgetMilliTokens,
+                tokens -> tokens.get() / (double) MILLI_TOKENS)
+                .description("The hedges allowed by the hedge budget")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Shuts down the scheduler of hedges, dropping the hedges not sent yet
+     */
+    @PreDestroy
+    public void destroy() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    /**
+     * Sends the given call to the given merchant and hedges it with a second
+     * call if the merchant has not answered within its latency percentile.
+     *
+     * @param merchantUrl the api url of the merchant
+     * @param deadline the deadline of the product request
+     * @param call the call to the merchant
+     *
+     * @return the product response of the call answered first. It is completed
+     * exceptionally if both calls fail. Cancelling it cancels both calls.
+     */
+    public CompletableFuture<ProductResponse> hedge(@NotNull String merchantUrl, @NotNull Deadline deadline,
+            @NotNull Supplier<CompletableFuture<ProductResponse>> call) {
+        depositToBudget();
+        CompletableFuture<ProductResponse> primary = call.get();
+        if (!enabled) {
+            return primary;
+        }
+        long hedgeDelayMillis = merchantHealthTracker.percentileMillis(merchantUrl, percentile);
+        if (hedgeDelayMillis < 0 || hedgeDelayMillis >= deadline.remainingMillis()) {
+            return primary;
+        }
+        if (budgetMilliTokens.get() < MILLI_TOKENS) {
+            throttledCounter.increment();
+            log.debug("Hedge budget exhausted, not hedging merchant {}", merchantUrl);
+            return primary;
+        }
+
+        CompletableFuture<ProductResponse> winner = new CompletableFuture<>();
+        AtomicReference<CompletableFuture<ProductResponse>> hedgedRef = new AtomicReference<>();
+        AtomicInteger pendingCalls = new AtomicInteger(1);
+        ScheduledFuture<?> hedgeTask = scheduler.schedule(() -> {
+            if (winner.isDone()) {
+                return;
+            }
+            if (!withdrawFromBudget()) {
+                // the budget was withdrawn by other hedges during the delay
+                throttledCounter.increment();
+                log.debug("Hedge budget exhausted, not hedging merchant {}", merchantUrl);
+                return;
+            }
+            pendingCalls.incrementAndGet();
+            issuedCounter.increment();
+            log.debug("Hedging merchant {} after {} ms", merchantUrl, hedgeDelayMillis);
+            CompletableFuture<ProductResponse> hedged = call.get();
+            hedgedRef.set(hedged);
+            hedged.whenComplete((prodResp, ex) -> settle(winner, pendingCalls, prodResp, ex, true));
+            if (winner.isDone()) {
+                // the primary call answered while the hedge was being sent
+                hedged.cancel(true);
+            }
+        }, hedgeDelayMillis, TimeUnit.MILLISECONDS);
+
+        primary.whenComplete((prodResp, ex) -> settle(winner, pendingCalls, prodResp, ex, false));
+        winner.whenComplete((prodResp, ex) -> {
+            hedgeTask.cancel(false);
+            primary.cancel(true);
+            CompletableFuture<ProductResponse> hedged = hedgedRef.get();
+            if (hedged != null) {
+                hedged.cancel(true);
+            }
+        });
+
+        return winner;
+    }
+
+    private void settle(CompletableFuture<ProductResponse> winner, AtomicInteger pendingCalls,
+            ProductResponse prodResp, Throwable ex, boolean hedged) {
+        if (ex == null) {
+            if (winner.complete(prodResp) && hedged) {
+                wonCounter.increment();
+            }
+        } else if (pendingCalls.decrementAndGet() == 0) {
+            winner.completeExceptionally(ex);
+        }
+    }
+
+    private void depositToBudget() {
+        long depositMilliTokens = (long) (budgetRatio * MILLI_TOKENS);
+        long maxMilliTokens = budgetBurst * MILLI_TOKENS;
+        budgetMilliTokens.accumulateAndGet(depositMilliTokens,
+                (tokens, deposit) -> Math.min(maxMilliTokens, tokens + deposit));
+    }
+
+    private boolean withdrawFromBudget() {
+        long tokens;
+        do {
+            tokens = budgetMilliTokens.get();
+            if (tokens < MILLI_TOKENS) {
+                return false;
+            }
+        } while (!budgetMilliTokens.compareAndSet(tokens, tokens - MILLI_TOKENS));
+
+        return true;
+    }
+}
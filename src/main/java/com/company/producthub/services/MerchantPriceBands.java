@@ -0,0 +1,127 @@
+package com.company.producthub.services;
+
+import com.company.producthub.entities.PriceBand;
+import com.company.producthub.entities.RegisteredMerchant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Represents the price bands of the products merchants sell per category,
+ * used to skip the merchants that cannot have an offer in the price range of
+ * a product request.
+ *
+ * The price band of a merchant in a category is the one declared in the
+ * merchant registry, widened by the prices of the offers observed from the
+ * merchant. A band only observed is trusted once the minimum number of
+ * offers has been observed, and a merchant in a category without a trusted
+ * band is always called. Since offers are observed only from the merchants
+ * called, a merchant skipped is still called at the probe ratio, so that a
+ * band too narrow is widened by the offers it misses.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+public class MerchantPriceBands {
+
+    private final MerchantRegistry merchantRegistry;
+    private final int minObservations;
+    private final double probeRatio;
+    private final Map<String, ObservedBand> observedBands = new ConcurrentHashMap<>();
+
+    /**
+     * Creates the price bands of merchants
+     *
+     * @param merchantRegistry the registry of merchants
+     * @param minObservations the number of offers observed from which an
+     * observed price band is trusted
+     * @param probeRatio the ratio of skipped merchants called anyway
+     */
+    public MerchantPriceBands(MerchantRegistry merchantRegistry, int minObservations, double probeRatio) {
+        this.merchantRegistry = merchantRegistry;
+        this.minObservations = minObservations;
+        this.probeRatio = probeRatio;
+    }
+
+    /**
+     * Checks whether the given merchant may have an offer for the given
+     * search term in the given price range
+     *
+     * @param merchant the registered merchant
+     * @param searchTerm the search term of the product request
+     * @param minPrice the minimum price of the product request
+     * @param maxPrice the maximum price of the product request, zero or
+     * negative if unbounded
+     *
+     * @return true if the merchant should be called, otherwise false
+     */
+    public boolean mayOffer(@NotNull RegisteredMerchant merchant, String searchTerm, double minPrice,
+            double maxPrice) {
+        for (String category : merchantRegistry.findCategories(merchant, searchTerm)) {
+            PriceBand priceBand = priceBand(merchant, category);
+            if (priceBand == null || priceBand.overlaps(minPrice, maxPrice)) {
+                return true;
+            }
+        }
+
+        return probeRatio > 0 && ThreadLocalRandom.current().nextDouble() < probeRatio;
+    }
+
+    /**
+     * Observes the price of an offer of the given merchant for the given
+     * search term, widening the price bands of the categories matching the
+     * search term
+     *
+     * @param merchant the registered merchant
+     * @param searchTerm the search term of the product request
+     * @param price the price of the offer
+     */
+    public void observe(@NotNull RegisteredMerchant merchant, String searchTerm, double price) {
+        for (String category : merchantRegistry.findCategories(merchant, searchTerm)) {
+            observedBands.computeIfAbsent(key(merchant, category), key -> new ObservedBand()).observe(price);
+        }
+    }
+
+    /**
+     * Gets the trusted price band of the given merchant in the given category
+     *
+     * @param merchant the registered merchant
+     * @param category the normalized category
+     *
+     * @return the price band, otherwise null if there is no trusted one
+     */
+    public PriceBand priceBand(@NotNull RegisteredMerchant merchant, String category) {
+        PriceBand declared = merchant.getPriceBands().get(category);
+        ObservedBand observed = observedBands.get(key(merchant, category));
+
+        return observed == null ? declared : observed.widen(declared, minObservations);
+    }
+
+    private static String key(RegisteredMerchant merchant, String category) {
+        return merchant.getApiUrl() + ' ' + category;
+    }
+
+    /**
+     * Represents the price band observed from the offers of a merchant in a
+     * category
+     */
+    private static final class ObservedBand {
+
+        private PriceBand priceBand;
+        private long count;
+
+        private synchronized void observe(double price) {
+            priceBand = priceBand == null ? new PriceBand(price, price) : priceBand.widen(price);
+            count++;
+        }
+
+        private synchronized PriceBand widen(PriceBand declared, int minObservations) {
+            if (declared != null) {
+                return declared.widen(priceBand.getMinPrice()).widen(priceBand.getMaxPrice());
+            }
+
+            return count >= minObservations ? priceBand : null;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.company.producthub.services;
+
+import com.company.producthub.entities.RegisteredMerchant;
+import com.company.producthub.entities.SearchCriteria;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.PostConstruct;
+import javax.validation.constraints.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Represents the registry of merchants selling products through the product
+ * hub. Merchants are loaded from the json file given by the property
+ * merchant.registry.location, each one having the categories of products it
+ * sells.
+ *
+ * The registry keeps an inverted index from normalized category tokens to
+ * registered merchants, so that the merchants of a search term are found by
+ * a hash lookup per token regardless of the number of registered merchants.
+ * The registry is immutable between reloads. A reload builds a new snapshot
+ * and publishes it atomically, so that lookups never take a lock.
+ *
+ * A registry loaded from the file system is reloaded when its file changes.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+@Component
+public class MerchantRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(MerchantRegistry.class);
+
+    @Value("${merchant.registry.location}")
+    private String location;
+
+    @Autowired
+    private ResourceLoader resourceLoader;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    private volatile Snapshot snapshot = new Snapshot(Collections.emptyList(), -1);
+
+    /**
+     * Loads the registered merchants from the configured location
+     *
+     * @throws IOException if the registry cannot be loaded
+     */
+    @PostConstruct
+    public void init() throws IOException {
+        Resource resource = resourceLoader.getResource(location);
+        update(readMerchants(resource), lastModified(resource));
+    }
+
+    /**
+     * Reloads the registered merchants if the file of the registry has
+     * changed since it was last loaded. The current merchants are kept if
+     * the file cannot be loaded.
+     */
+    @Scheduled(fixedDelayString = "${merchant.registry.reload.interval.millis}")
+    public void reloadIfModified() {
+        Resource resource = resourceLoader.getResource(location);
+        long lastModified = lastModified(resource);
+        if (lastModified <= 0 || lastModified == snapshot.lastModified) {
+            return;
+        }
+        try {
+            update(readMerchants(resource), lastModified);
+        } catch (IOException | RuntimeException ex) {
+            log.error("Failed to reload merchant registry from {}", location, ex);
+        }
+    }
+
+    /**
+     * Replaces the registered merchants with the given merchants
+     *
+     * @param merchants the merchants to register
+     */
+    public void update(@NotNull Collection<RegisteredMerchant> merchants) {
+        update(merchants, -1);
+    }
+
+    /**
+     * Finds the registered merchants selling products of the given search term.
+     * A merchant is found if any of its category tokens is equal to any token
+     * of the normalized search term.
+     *
+     * @param searchTerm the search term
+     *
+     * @return the unmodifiable collection of merchants, empty if not found
+     */
+    public Collection<RegisteredMerchant> findBySearchTerm(String searchTerm) {
+        Map<String, List<RegisteredMerchant>> index = snapshot.index;
+        String[] tokens = tokenize(SearchCriteria.normalizeSearchTerm(searchTerm));
+        if (tokens.length == 1) {
+            return index.getOrDefault(tokens[0], Collections.emptyList());
+        }
+        Set<RegisteredMerchant> merchants = new LinkedHashSet<>();
+        for (String token : tokens) {
+            merchants.addAll(index.getOrDefault(token, Collections.emptyList()));
+        }
+
+        return Collections.unmodifiableSet(merchants);
+    }
+
+    /**
+     * Finds the categories of the given merchant matching the given search
+     * term, the same way as findBySearchTerm
+     *
+     * @param merchant the registered merchant
+     * @param searchTerm the search term
+     *
+     * @return the normalized categories, empty if none matches
+     */
+    public List<String> findCategories(@NotNull RegisteredMerchant merchant, String searchTerm) {
+        List<String> tokens = Arrays.asList(tokenize(SearchCriteria.normalizeSearchTerm(searchTerm)));
+        List<String> categories = new ArrayList<>(1);
+        for (String category : merchant.getCategories()) {
+            for (String categoryToken : tokenize(category)) {
+                if (tokens.contains(categoryToken)) {
+                    categories.add(category);
+                    break;
+                }
+            }
+        }
+
+        return categories;
+    }
+
+    /**
+     * Finds the registered merchant of the given api url or batch api url
+     *
+     * @param apiUrl the api url or batch api url
+     *
+     * @return the merchant, otherwise null if not found
+     */
+    public RegisteredMerchant findByApiUrl(String apiUrl) {
+        return snapshot.byApiUrl.get(apiUrl);
+    }
+
+    /**
+     * Gets all registered merchants
+     *
+     * @return the unmodifiable list of merchants
+     */
+    public List<RegisteredMerchant> getMerchants() {
+        return snapshot.merchants;
+    }
+
+    private void update(Collection<RegisteredMerchant> merchants, long lastModified) {
+        snapshot = new Snapshot(merchants, lastModified);
+        log.info("Merchant registry loaded with {} merchants and {} tokens",
+                snapshot.merchants.size(), snapshot.index.size());
+    }
+
+    private List<RegisteredMerchant> readMerchants(Resource resource) throws IOException {
+        try (InputStream input = resource.getInputStream()) {
+            return mapper.readValue(input, new TypeReference<List<RegisteredMerchant>>() {
+            });
+        }
+    }
+
+    private long lastModified(Resource resource) {
+        try {
+            return resource.isFile() ? resource.lastModified() : -1;
+        } catch (IOException ex) {
+            return -1;
+        }
+    }
+
+    private static String[] tokenize(String normalizedTerm) {
+        return normalizedTerm.isEmpty() ? new String[0] : normalizedTerm.split(" ");
+    }
+
+    /**
+     * Represents an immutable snapshot of the registry along with its
+     * inverted index
+     */
+    private static final class Snapshot {
+
+        private final List<RegisteredMerchant> merchants;
+        private final Map<String, List<RegisteredMerchant>> index;
+        private final Map<String, RegisteredMerchant> byApiUrl;
+        private final long lastModified;
+
+        private Snapshot(Collection<RegisteredMerchant> merchants, long lastModified) {
+            Map<String, Set<RegisteredMerchant>> tokenMerchants = new HashMap<>();
+            merchants.forEach(merchant -> merchant.getCategories().forEach(category -> {
+                for (String token : tokenize(category)) {
+                    tokenMerchants.computeIfAbsent(token, key -> new LinkedHashSet<>()).add(merchant);
+                }
+            }));
+            Map<String, List<RegisteredMerchant>> index = new HashMap<>(tokenMerchants.size() * 2);
+            tokenMerchants.forEach((token, tokenMerchantSet) -> index.put(token,
+                    Collections.unmodifiableList(Arrays.asList(
+                            tokenMerchantSet.toArray(new RegisteredMerchant[tokenMerchantSet.size()])))));
+
+            this.merchants = Collections.unmodifiableList(new ArrayList<>(merchants));
+            this.index = index;
+            this.byApiUrl = new HashMap<>(merchants.size() * 2);
+            merchants.forEach(merchant -> {
+                byApiUrl.put(merchant.getApiUrl(), merchant);
+                if (merchant.getBatchApiUrl() != null) {
+                    byApiUrl.put(merchant.getBatchApiUrl(), merchant);
+                }
+            });
+            this.lastModified = lastModified;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.company.producthub.services;
+
+/**
+ * Represents the failure of a call to a merchant that was not sent because
+ * the merchant is considered unavailable, for example when its circuit is open.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+public class MerchantUnavailableException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates the exception for the given merchant
+     *
+     * @param merchantUrl the api url of the merchant
+     */
+    public MerchantUnavailableException(String merchantUrl) {
+        super("Merchant " + merchantUrl + " is unavailable");
+    }
+}
@@ -0,0 +1,194 @@
+package com.company.producthub.services;
+
+import com.company.producthub.entities.Merchant;
+import com.company.producthub.entities.ProductRequest;
+import com.company.producthub.entities.ProductResponse;
+import com.company.producthub.entities.ProductSearchContext;
+import com.company.producthub.entities.ProductSearchResult;
+import com.company.producthub.entities.RegisteredMerchant;
+import com.company.producthub.utils.Deadline;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import javax.annotation.PostConstruct;
+import javax.validation.constraints.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+/**
+ * Represents the search of the winners of a batch of product requests.
+ *
+ * The product requests are grouped by the merchants they are sent to. A
+ * merchant advertising a batch api gets a single call carrying all product
+ * requests sent to it, while the rest of merchants get a call per product
+ * request, sent with a bounded concurrency per batch so that a large batch
+ * does not flood the task executor or the merchants. The winner of each
+ * product request is then searched among its product responses, the same
+ * way as the winner of a single product request.
+ *
+ * The number of product requests per batch is exposed by the distribution
+ * summary products.batch.size and the merchant calls sent by the counter
+ * products.batch.merchant.calls tagged by mode (batch or single).
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+@Service
+public class ProductBatchService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductBatchService.class);
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${product.batch.concurrency}")
+    private int concurrency;
+
+    private DistributionSummary batchSizeSummary;
+    private Counter batchCallCounter;
+    private Counter singleCallCounter;
+
+    /**
+     * Registers the metrics of batches
+     */
+    @PostConstruct
+    public void init() {
+        batchSizeSummary = DistributionSummary.builder("products.batch.size")
+                .description("The number of product requests of a batch")
+                .register(meterRegistry);
+        batchCallCounter = meterRegistry.counter("products.batch.merchant.calls", "mode", "batch");
+        singleCallCounter = meterRegistry.counter("products.batch.merchant.calls", "mode", "single");
+    }
+
+    /**
+     * Searches the winner product responses of the given product requests
+     *
+     * @param requests the product requests
+     * @param deadline the deadline of the product requests
+     *
+     * @return the product search results in the order of the product requests
+     */
+    public List<ProductSearchResult> searchWinnerProducts(@NotNull List<ProductRequest> requests,
+            @NotNull Deadline deadline) {
+        batchSizeSummary.record(requests.size());
+        Map<Merchant, List<ProductRequest>> merchantRequests = new LinkedHashMap<>();
+        Map<ProductRequest, List<CompletableFuture<ProductResponse>>> futureProdResps = new IdentityHashMap<>();
+        Map<ProductRequest, ProductSearchContext> searches = new IdentityHashMap<>();
+        requests.forEach(request -> {
+            productService.setMerchantsToProductRequest(request);
+            request.getMerchants().forEach(merchant ->
+                    merchantRequests.computeIfAbsent(merchant, key -> new ArrayList<>()).add(request));
+            futureProdResps.put(request, new ArrayList<>());
+            searches.put(request, new ProductSearchContext(request));
+        });
+
+        List<CompletableFuture<List<ProductResponse>>> batchCalls = new ArrayList<>();
+        BoundedCalls singleCalls = new BoundedCalls(concurrency);
+        merchantRequests.forEach((merchant, sentRequests) -> {
+            String batchUrl = merchant instanceof RegisteredMerchant
+                    ? ((RegisteredMerchant) merchant).getBatchApiUrl() : null;
+            if (batchUrl != null && sentRequests.size() > 1) {
+                CompletableFuture<List<ProductResponse>> batchCall = productService
+                        .asyncBatchRequestToMerchant(sentRequests, batchUrl, deadline);
+                batchCalls.add(batchCall);
+                batchCallCounter.increment();
+                for (int i = 0; i < sentRequests.size(); i++) {
+                    int index = i;
+                    futureProdResps.get(sentRequests.get(i)).add(batchCall.thenApply(prodResps ->
+                            index < prodResps.size() ? prodResps.get(index) : null));
+                }
+            } else {
+                sentRequests.forEach(request -> futureProdResps.get(request).add(singleCalls.submit(() ->
+                        productService.asyncRequestToMerchant(searches.get(request), merchant.getApiUrl(), deadline))));
+                singleCallCounter.increment(sentRequests.size());
+            }
+        });
+        log.debug("Batch of {} ProductRequests sent to {} merchants by {} batch calls", requests.size(),
+                merchantRequests.size(), batchCalls.size());
+
+        List<ProductSearchResult> searchResults = new ArrayList<>(requests.size());
+        requests.forEach(request -> searchResults.add(
+                productService.searchWinnerProduct(searches.get(request), futureProdResps.get(request), deadline)));
+        batchCalls.forEach(batchCall -> batchCall.cancel(true));
+
+        return searchResults;
+    }
+
+    /**
+     * Represents calls sent with a bounded concurrency. A call is sent as
+     * soon as a previous call completes, without holding a thread while
+     * waiting. A call cancelled before being sent is not sent at all.
+     */
+    private static final class BoundedCalls {
+
+        private final Queue<Runnable> pendingCalls = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger permits;
+        private final AtomicInteger wip = new AtomicInteger();
+
+        private BoundedCalls(int concurrency) {
+            this.permits = new AtomicInteger(concurrency);
+        }
+
+        private CompletableFuture<ProductResponse> submit(Supplier<CompletableFuture<ProductResponse>> call) {
+            CompletableFuture<ProductResponse> futureProdResp = new CompletableFuture<>();
+            pendingCalls.add(() -> {
+                if (futureProdResp.isDone()) {
+                    release();
+                    return;
+                }
+                CompletableFuture<ProductResponse> sentCall = call.get();
+                futureProdResp.whenComplete((prodResp, ex) -> sentCall.cancel(true));
+                sentCall.whenComplete((prodResp, ex) -> {
+                    if (ex == null) {
+                        futureProdResp.complete(prodResp);
+                    } else {
+                        futureProdResp.completeExceptionally(ex);
+                    }
+                    release();
+                });
+            });
+            sendPendingCalls();
+
+            return futureProdResp;
+        }
+
+        private void release() {
+            permits.incrementAndGet();
+            sendPendingCalls();
+        }
+
+        private void sendPendingCalls() {
+            // a single thread sends pending calls at a time, the rest only signal it to check again
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            int missed = 1;
+            do {
+                while (permits.get() > 0) {
+                    Runnable pendingCall = pendingCalls.poll();
+                    if (pendingCall == null) {
+                        break;
+                    }
+                    permits.decrementAndGet();
+                    pendingCall.run();
+                }
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+    }
+}
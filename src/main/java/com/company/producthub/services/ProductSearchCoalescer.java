@@ -0,0 +1,201 @@
+package com.company.producthub.services;
+
+import com.company.producthub.entities.ProductSearchResult;
+import com.company.producthub.entities.SearchCriteria;
+import com.company.producthub.utils.Deadline;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import javax.annotation.PostConstruct;
+import javax.validation.constraints.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Represents the coalescing of concurrent searches having equal search
+ * criteria into a single search (single-flight). The first request of some
+ * search criteria leads the search by posting the product request to the
+ * merchants, while the requests arriving before the search finishes follow
+ * it and share its result. The result is never modified once the search
+ * finishes, so all followers get the same result, as all clients of the same
+ * search criteria get the same cached winner.
+ *
+ * A request only follows an in-flight search whose deadline does not expire
+ * before its own by more than the tolerance of the property
+ * product.search.coalescing.tolerance.millis, so that its result is not cut
+ * short by the deadline of the leader. Otherwise, it leads a new search,
+ * which the requests arriving later follow instead.
+ *
+ * In-flight searches are kept in a lock-free map. The number of leading and
+ * following requests is exposed by the counter products.search.flights
+ * tagged by role, along with the gauge products.search.coalescing.ratio.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+@Component
+public class ProductSearchCoalescer {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSearchCoalescer.class);
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${product.search.coalescing.tolerance.millis}")
+    private long toleranceMillis;
+
+    private final ConcurrentMap<SearchCriteria, Flight> inFlightSearches = new ConcurrentHashMap<>();
+    private Counter leaderCounter;
+    private Counter followerCounter;
+
+    /**
+     * Registers the metrics of coalesced searches
+     */
+    @PostConstruct
+    public void init() {
+        leaderCounter = meterRegistry.counter("products.search.flights", "role", "leader");
+        followerCounter = meterRegistry.counter("products.search.flights", "role", "follower");
+        Gauge.builder("products.search.coalescing.ratio", this, ProductSearchCoalescer::coalescingRatio)
+                .description("The ratio of searches served by following an in-flight search")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Searches the winner of the given search criteria, unless an equal
+     * search not expiring before the given deadline, within the tolerance, is
+     * in flight. In that case, it waits for the in-flight search until the
+     * given deadline expires and returns its result.
+     *
+     * @param criteria the search criteria
+     * @param merchantCount the number of merchants being recipients of the
+     * product request, reported as timed out if the deadline expires
+     * @param deadline the deadline of the product request
+     * @param search the search to run if there is no equal search in flight
+     *
+     * @return the product search result
+     */
+    public ProductSearchResult search(@NotNull SearchCriteria criteria, int merchantCount,
+            @NotNull Deadline deadline, @NotNull Supplier<ProductSearchResult> search) {
+        Flight flight = new Flight(deadline);
+        Flight inFlight = join(criteria, flight);
+        if (inFlight == flight) {
+            leaderCounter.increment();
+            try {
+                ProductSearchResult searchResult = search.get();
+                flight.result.complete(searchResult);
+                return searchResult;
+            } catch (RuntimeException ex) {
+                flight.result.completeExceptionally(ex);
+                throw ex;
+            } finally {
+                inFlightSearches.remove(criteria, flight);
+            }
+        }
+
+        followerCounter.increment();
+        log.debug("Following in-flight search of {}", criteria);
+        try {
+            return inFlight.result.get(deadline.remainingMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            log.debug("{} expired before in-flight search of {} finished", deadline, criteria);
+            return new ProductSearchResult(null, 0, 0, merchantCount, 0);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return new ProductSearchResult(null, 0, 0, merchantCount, 0);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("In-flight search of " + criteria + " failed", ex.getCause());
+        }
+    }
+
+    /**
+     * Searches the winner of the given search criteria the same way as
+     * search, but without blocking the calling thread while following an
+     * in-flight search.
+     *
+     * @param criteria the search criteria
+     * @param merchantCount the number of merchants being recipients of the
+     * product request, reported as timed out if the deadline expires
+     * @param deadline the deadline of the product request
+     * @param search the search to run if there is no equal search in flight
+     *
+     * @return a Mono<ProductSearchResult> emitting the product search result
+     */
+    public Mono<ProductSearchResult> searchReactive(@NotNull SearchCriteria criteria, int merchantCount,
+            @NotNull Deadline deadline, @NotNull Supplier<Mono<ProductSearchResult>> search) {
+        return Mono.defer(() -> {
+            Flight flight = new Flight(deadline);
+            Flight inFlight = join(criteria, flight);
+            if (inFlight == flight) {
+                leaderCounter.increment();
+                return search.get()
+                        .doOnSuccess(flight.result::complete)
+                        .doOnError(flight.result::completeExceptionally)
+                        .doFinally(signal -> {
+                            // followers of a cancelled search do not wait until their deadline
+                            flight.result.cancel(false);
+                            inFlightSearches.remove(criteria, flight);
+                        });
+            }
+
+            followerCounter.increment();
+            log.debug("Following in-flight search of {}", criteria);
+            // a dependent future, so that a timed out follower does not cancel the in-flight search
+            return Mono.fromFuture(inFlight.result.thenApply(Function.identity()))
+                    .timeout(Duration.ofMillis(deadline.remainingMillis()), Mono.fromCallable(() -> {
+                        log.debug("{} expired before in-flight search of {} finished", deadline, criteria);
+                        return new ProductSearchResult(null, 0, 0, merchantCount, 0);
+                    }))
+                    .onErrorMap(ex -> new IllegalStateException("In-flight search of " + criteria + " failed",
+                            ex instanceof CompletionException ? ex.getCause() : ex));
+        });
+    }
+
+    /**
+     * Joins the in-flight search of the given search criteria if it does not
+     * expire before the given flight by more than the tolerance, otherwise
+     * puts the given flight in its place
+     *
+     * @param criteria the search criteria
+     * @param flight the flight to lead if there is no search to join
+     *
+     * @return the in-flight search joined, otherwise the given flight
+     */
+    private Flight join(SearchCriteria criteria, Flight flight) {
+        return inFlightSearches.compute(criteria, (key, inFlight) ->
+                inFlight != null && inFlight.deadline.remainingMillis() + toleranceMillis
+                >= flight.deadline.remainingMillis() ? inFlight : flight);
+    }
+
+    private double coalescingRatio() {
+        double followerCount = followerCounter.count();
+        double totalCount = leaderCounter.count() + followerCount;
+
+        return totalCount == 0 ? 0 : followerCount / totalCount;
+    }
+
+    /**
+     * Represents an in-flight search along with the deadline of its leader
+     */
+    private static final class Flight {
+
+        private final Deadline deadline;
+        private final CompletableFuture<ProductSearchResult> result = new CompletableFuture<>();
+
+        private Flight(Deadline deadline) {
+            this.deadline = deadline;
+        }
+    }
+}
@@ -1,10 +1,16 @@
 package com.company.producthub.services;
 
+import com.company.producthub.entities.ProductOfferEvent;
 import com.company.producthub.entities.ProductRequest;
 import com.company.producthub.entities.ProductResponse;
+import com.company.producthub.entities.ProductSearchContext;
+import com.company.producthub.entities.ProductSearchResult;
+import com.company.producthub.utils.Deadline;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import javax.validation.constraints.NotNull;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 /**
  * Represents a product service interface that performs operations related to
@@ -15,34 +21,121 @@ import javax.validation.constraints.NotNull;
 public interface ProductService {
 
     /**
-     * Sends a product request to the given merchant url and returns a product
-     * response that will be completed in the future.
+     * Sends the product request of the given search to the given merchant url
+     * and returns a product response that will be completed in the future. The time remaining until
+     * the given deadline is sent to the merchant so that it can give up early.
+     * The future is completed with null if the merchant has no available
+     * product or its offer is rejected while being decoded, or exceptionally if the merchant fails to answer or is skipped
+     * because it is unavailable.
      *
-     * @param request the product request to be sent
+     * @param search the search of the product request to be sent
      * @param merchantUrl the api url of a merchant
+     * @param deadline the deadline of the product request
      *
      * @return a CompletableFuture<ProductResponse>
      *
      * Note: This method will be asynchronously executed
      */
-    public CompletableFuture<ProductResponse> asyncRequestToMerchant(@NotNull ProductRequest request,
-            @NotNull String merchantUrl);
+    public CompletableFuture<ProductResponse> asyncRequestToMerchant(@NotNull ProductSearchContext search,
+            @NotNull String merchantUrl, @NotNull Deadline deadline);
 
     /**
-     * Searches winner product response based on a given list of product
-     * responses that will be completed in the future. The search process will
-     * be started when all future responses are completed.
+     * Sends the given product requests to the given batch api url of a
+     * merchant in a single call and returns the product responses that will
+     * be completed in the future, in the order of the product requests. A
+     * product response is null if the merchant has no available product for
+     * its product request. The future is completed exceptionally if the
+     * merchant fails to answer or is skipped because it is unavailable.
      *
-     * Returns the product response containing the product with the minimum
-     * price among all available product responses. Returns null if there are no
-     * available product responses.
+     * @param requests the product requests to be sent
+     * @param batchUrl the batch api url of a merchant
+     * @param deadline the deadline of the product requests
      *
+     * @return a CompletableFuture<List<ProductResponse>>
+     *
+     * Note: This method will be asynchronously executed
+     */
+    public CompletableFuture<List<ProductResponse>> asyncBatchRequestToMerchant(
+            @NotNull List<ProductRequest> requests, @NotNull String batchUrl, @NotNull Deadline deadline);
+
+    /**
+     * Searches winner product response of the product request of the given
+     * search based on a given list of product responses that will be
+     * completed in the future. The search process finishes when all future
+     * responses are completed, the winner cannot be beaten by any other
+     * product response or the given deadline expires, whichever comes first.
+     * Future responses not completed when the search finishes are cancelled.
+     *
+     * Returns a search result having the product response containing the
+     * product with the minimum price among all available product responses.
+     * The winner of the result is null if there are no available product
+     * responses.
+     *
+     * @param search the search of the product request sent to merchants
      * @param prodResps the list of CompletableFuture<ProductResponse> to search
      * for
+     * @param deadline the deadline of the product request
+     *
+     * @return the product search result
+     */
+    public ProductSearchResult searchWinnerProduct(@NotNull ProductSearchContext search,
+            @NotNull List<CompletableFuture<ProductResponse>> prodResps, @NotNull Deadline deadline);
+
+    /**
+     * Searches the k cheapest product responses of the product request of the
+     * given search the same way as searchWinnerProduct. The search finishes
+     * early only when k offers cannot be beaten by any other product
+     * response.
+     *
+     * Returns a search result having the winner and the k cheapest product
+     * responses in ascending order of price, offers of equal price ordered
+     * deterministically.
+     *
+     * @param search the search of the product request sent to merchants
+     * @param prodResps the list of CompletableFuture<ProductResponse> to search
+     * for
+     * @param k the number of cheapest product responses to search for
+     * @param deadline the deadline of the product request
+     *
+     * @return the product search result
+     */
+    public ProductSearchResult searchTopProducts(@NotNull ProductSearchContext search,
+            @NotNull List<CompletableFuture<ProductResponse>> prodResps, int k, @NotNull Deadline deadline);
+
+    /**
+     * Searches winner product response of the product request of the given
+     * search the same way as searchWinnerProduct, but without blocking the
+     * calling thread. The product responses are merged as they arrive and the
+     * search result is emitted when the search finishes.
+     *
+     * @param search the search of the product request sent to merchants
+     * @param prodResps the list of CompletableFuture<ProductResponse> to search
+     * for
+     * @param deadline the deadline of the product request
+     *
+     * @return a Mono<ProductSearchResult> emitting the product search result
+     */
+    public Mono<ProductSearchResult> searchWinnerProductReactive(@NotNull ProductSearchContext search,
+            @NotNull List<CompletableFuture<ProductResponse>> prodResps, @NotNull Deadline deadline);
+
+    /**
+     * Streams the product responses of the product request of the given
+     * search as they arrive, finishing the same way as searchWinnerProduct.
+     * An offer event is emitted for each product response containing a
+     * product, marking whether it is the best offer so far, and a winner
+     * event is emitted last with the product search result. Only the best offer so far is
+     * kept while streaming.
+     *
+     * @param search the search of the product request sent to merchants
+     * @param prodResps the list of CompletableFuture<ProductResponse> to
+     * stream
+     * @param deadline the deadline of the product request
      *
-     * @return the winner product response, otherwise null if not found
+     * @return a Flux<ProductOfferEvent> emitting the offer events and the
+     * winner event
      */
-    public ProductResponse searchWinnerProduct(@NotNull List<CompletableFuture<ProductResponse>> prodResps);
+    public Flux<ProductOfferEvent> streamProductOffers(@NotNull ProductSearchContext search,
+            @NotNull List<CompletableFuture<ProductResponse>> prodResps, @NotNull Deadline deadline);
 
     /**
      * Sets merchants to the given product request based on request's data.
@@ -1,18 +1,23 @@
 package com.company.producthub.services;
 
-import com.company.producthub.entities.Merchant;
+import com.company.producthub.entities.MerchantProductRequest;
 import com.company.producthub.entities.ProductRequest;
 import com.company.producthub.entities.ProductResponse;
+import com.company.producthub.entities.ProductSearchContext;
+import com.company.producthub.entities.WireFormat;
+import com.company.producthub.transport.MerchantOfferRejectedException;
+import com.company.producthub.transport.MerchantResponseDecoder;
+import com.company.producthub.utils.Deadline;
 import com.company.producthub.utils.HttpUtils;
-import java.util.Comparator;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
-import java.util.stream.Collectors;
 import javax.validation.constraints.NotNull;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.ResponseEntity;
 import org.springframework.scheduling.annotation.Async;
@@ -20,14 +25,30 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.client.RestTemplate;
 
 /**
- * Represents the default implementation of ProductService
+ * Represents the default implementation of ProductService.
+ * A product request is sent to a merchant by a blocking RestTemplate call
+ * executed by a thread of application's task executor.
+ *
+ * A call still waiting for a thread when the deadline of the product request
+ * expires is not sent at all. Calls to merchants whose circuit is open are
+ * skipped, and the read timeout of a call is the adaptive timeout of the
+ * merchant set by the request factory of the RestTemplate, capped to the
+ * deadline, so that a call cancelled when the deadline expires does not hold
+ * its thread and connection any longer. The product
+ * request is sent in the wire format of the merchant, and the product
+ * response is decoded in the wire format it is answered in, against the
+ * product request sent, so that an offer that cannot be accepted is dropped
+ * as soon as its price is read.
+ *
+ * Active when the property product.service.type is set to default or missing.
  *
  * @see ProductService
  *
  * @author Petros Kolontis <petros.kolontis@gmail.com>
  */
 @Service
-public class ProductServiceDefaultImpl implements ProductService {
+@ConditionalOnProperty(name = "product.service.type", havingValue = "default", matchIfMissing = true)
+public class ProductServiceDefaultImpl extends AbstractProductService {
 
     private static final Logger log = LoggerFactory.getLogger(ProductServiceDefaultImpl.class);
 
@@ -37,64 +58,80 @@ public class ProductServiceDefaultImpl implements ProductService {
     /**
      * @see ProductService
      *
-     * @param request the request to be sent
+     * @param search the search of the request to be sent
      * @param merchantUrl the merchant url
+     * @param deadline the deadline of the request
      *
      */
     @Override
     @Async
-    public CompletableFuture<ProductResponse> asyncRequestToMerchant(@NotNull ProductRequest request,
-            @NotNull String merchantUrl) {
+    public CompletableFuture<ProductResponse> asyncRequestToMerchant(@NotNull ProductSearchContext search,
+            @NotNull String merchantUrl, @NotNull Deadline deadline) {
+        if (deadline.isExpired()) {
+            log.debug("{} expired before sending ProductRequest to merchant {}", deadline, merchantUrl);
+            return CompletableFuture.completedFuture(null);
+        }
+        if (!tryAcquireMerchant(merchantUrl)) {
+            return failedFuture(new MerchantUnavailableException(merchantUrl));
+        }
         log.debug("Sending ProductRequest to merchant {}", merchantUrl);
-        ProductResponse prodResp = null;
+        long startNanos = System.nanoTime();
         try {
-            HttpEntity<ProductRequest> httpEntity = HttpUtils.buildHttpEntityAppJson(request);
-            ResponseEntity<ProductResponse> prodRespEnt = template
-                    .postForEntity(merchantUrl, httpEntity, ProductResponse.class);
-            prodResp = prodRespEnt.getBody();
+            WireFormat format = merchantWireFormat(merchantUrl);
+            HttpEntity<byte[]> httpEntity = HttpUtils.buildHttpEntity(merchantRequestBody(search, format), format,
+                    deadline);
+            ResponseEntity<ProductResponse> prodRespEnt = MerchantResponseDecoder.decodeFor(search, () -> template
+                    .postForEntity(merchantUrl, httpEntity, ProductResponse.class));
+            recordMerchantAnswer(search, merchantUrl, startNanos, prodRespEnt.getBody());
             log.debug("{} successfully received from merchant {}", prodRespEnt, merchantUrl);
+            return CompletableFuture.completedFuture(prodRespEnt.getBody());
         } catch (Exception ex) {
+            if (MerchantOfferRejectedException.isCauseOf(ex)) {
+                recordMerchantRejectedOffer(merchantUrl, startNanos);
+                log.debug("Offer of merchant {} rejected", merchantUrl);
+                return CompletableFuture.completedFuture(null);
+            }
+            recordMerchantFailure(merchantUrl, startNanos, ex);
             log.warn("Failed to receive ProductResponse from merchant {}", merchantUrl, ex);
+            return failedFuture(ex);
         }
-
-        return CompletableFuture.completedFuture(prodResp);
-    }
-
-    /**
-     * @see ProductService
-     *
-     * @param prodResps the list of CompletableFuture<ProductResponse>
-     */
-    @Override
-    public ProductResponse searchWinnerProduct(@NotNull List<CompletableFuture<ProductResponse>> prodResps) {
-        CompletableFuture.allOf(prodResps.toArray(new CompletableFuture[prodResps.size()])).join();
-
-        log.debug("Searching for Winner ProductResponse...");
-        ProductResponse winnerResp = prodResps.stream()
-                .map(futureProductResp -> {
-                    return futureProductResp.getNow(null);
-                }).collect(Collectors.toList())
-                .stream()
-                .filter(Objects::nonNull)
-                .min(Comparator.comparing(productResponse -> productResponse.getProduct().getPrice()))
-                .orElse(null);
-        log.debug("Search for Winner ProductResponse successfully completed");
-
-        return winnerResp;
     }
 
     /**
      * @see ProductService
      *
-     * @param request the request
+     * @param requests the requests to be sent
+     * @param batchUrl the batch url of the merchant
+     * @param deadline the deadline of the requests
      */
     @Override
-    public void setMerchantsToProductRequest(@NotNull ProductRequest request) {
-        // TODO: Replace hard-coded merchants with the 
-        // implemented logic of business requirements so that 
-        // merchants' set can be populated according to request's searchTerm
-        request.addMerchant(new Merchant("http://merchant-1.com/api/product"));
-        request.addMerchant(new Merchant("http://merchant-2.com/api/product"));
-        request.addMerchant(new Merchant("http://merchant-3.com/api/product"));
+    @Async
+    public CompletableFuture<List<ProductResponse>> asyncBatchRequestToMerchant(
+            @NotNull List<ProductRequest> requests, @NotNull String batchUrl, @NotNull Deadline deadline) {
+        if (deadline.isExpired()) {
+            log.debug("{} expired before sending {} ProductRequests to merchant {}", deadline, requests.size(),
+                    batchUrl);
+            return CompletableFuture.completedFuture(Collections.emptyList());
+        }
+        if (!tryAcquireMerchant(batchUrl)) {
+            return failedFuture(new MerchantUnavailableException(batchUrl));
+        }
+        log.debug("Sending {} ProductRequests to merchant {}", requests.size(), batchUrl);
+        long startNanos = System.nanoTime();
+        try {
+            HttpEntity<List<MerchantProductRequest>> httpEntity = HttpUtils
+                    .buildBatchHttpEntityAppJson(merchantRequests(requests), deadline);
+            ResponseEntity<ProductResponse[]> prodRespsEnt = template
+                    .postForEntity(batchUrl, httpEntity, ProductResponse[].class);
+            List<ProductResponse> prodResps = prodRespsEnt.getBody() == null
+                    ? Collections.emptyList() : Arrays.asList(prodRespsEnt.getBody());
+            recordMerchantBatchAnswer(requests, batchUrl, startNanos, prodResps);
+            log.debug("{} ProductResponses successfully received from merchant {}", prodResps.size(), batchUrl);
+            return CompletableFuture.completedFuture(prodResps);
+        } catch (Exception ex) {
+            recordMerchantFailure(batchUrl, startNanos, ex);
+            log.warn("Failed to receive ProductResponses from merchant {}", batchUrl, ex);
+            return failedFuture(ex);
+        }
     }
 }
@@ -0,0 +1,198 @@
+package com.company.producthub.services;
+
+import com.company.producthub.entities.ProductRequest;
+import com.company.producthub.entities.ProductResponse;
+import com.company.producthub.entities.ProductSearchContext;
+import com.company.producthub.entities.WireFormat;
+import com.company.producthub.transport.MerchantCompression;
+import com.company.producthub.transport.MerchantOfferRejectedException;
+import com.company.producthub.transport.MerchantResponseDecoder;
+import com.company.producthub.utils.Deadline;
+import com.company.producthub.utils.HttpUtils;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import javax.validation.constraints.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.publisher.Mono;
+
+/**
+ * Represents the non-blocking implementation of ProductService.
+ * A product request is sent to a merchant by a WebClient call over
+ * non-blocking NIO sockets. No thread is held while a merchant is
+ * preparing its product response, so the number of concurrent merchant
+ * calls is bounded by sockets instead of task executor's threads.
+ *
+ * Calls to merchants whose circuit is open are skipped, and the timeout of a
+ * call is the adaptive timeout of the merchant bounded by the deadline. The
+ * product request is sent in the wire format of the merchant. The body of a
+ * product response is read up to the maximum size of merchant responses and
+ * decoded in the wire format it is answered in, against the product request
+ * sent, as it arrives, so that the rest of the body of an offer that cannot
+ * be accepted is cancelled as soon as its price is read. Bodies are
+ * compressed per merchant, see MerchantCompression.
+ *
+ * Active when the property product.service.type is set to nonblocking.
+ *
+ * @see ProductService
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+@Service
+@ConditionalOnProperty(name = "product.service.type", havingValue = "nonblocking")
+public class ProductServiceNonBlockingImpl extends AbstractProductService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductServiceNonBlockingImpl.class);
+
+    @Autowired
+    private WebClient webClient;
+
+    @Autowired
+    private MerchantResponseDecoder responseDecoder;
+
+    @Autowired
+    private MerchantCompression compression;
+
+    /**
+     * @see ProductService
+     *
+     * The returned future is completed by the I/O thread that receives
+     * merchant's response. It is completed with null if the merchant
+     * responds without a product response or with a rejected offer, or
+     * exceptionally if it fails to
+     * respond before its timeout. Cancelling the future releases the
+     * connection of the call.
+     *
+     * @param search the search of the request to be sent
+     * @param merchantUrl the merchant url
+     * @param deadline the deadline of the request
+     */
+    @Override
+    public CompletableFuture<ProductResponse> asyncRequestToMerchant(@NotNull ProductSearchContext search,
+            @NotNull String merchantUrl, @NotNull Deadline deadline) {
+        if (!tryAcquireMerchant(merchantUrl)) {
+            return failedFuture(new MerchantUnavailableException(merchantUrl));
+        }
+        log.debug("Sending ProductRequest to merchant {}", merchantUrl);
+        long timeoutMillis = Math.min(deadline.remainingMillis(), merchantTimeoutMillis(merchantUrl));
+        long startNanos = System.nanoTime();
+
+        WireFormat format = merchantWireFormat(merchantUrl);
+        byte[] body = merchantRequestBody(search, format);
+        byte[] compressedBody = compression.compress(merchantUrl, body);
+
+        return webClient.post()
+                .uri(merchantUrl)
+                .contentType(format.getMediaType())
+                .accept(HttpUtils.acceptedMediaTypes(format).toArray(new MediaType[0]))
+                .header(HttpUtils.HEADER_REQUEST_TIMEOUT, String.valueOf(timeoutMillis))
+                .headers(headers -> {
+                    if (compression.isEnabled(merchantUrl)) {
+                        headers.set(HttpHeaders.ACCEPT_ENCODING, MerchantCompression.GZIP);
+                    }
+                    if (compressedBody != null) {
+                        headers.set(HttpHeaders.CONTENT_ENCODING, MerchantCompression.GZIP);
+                    }
+                })
+                .syncBody(compressedBody == null ? body : compressedBody)
+                .exchange()
+                .flatMap(response -> decodeProductResponse(response, search))
+                .timeout(Duration.ofMillis(timeoutMillis))
+                .doOnSuccess(prodResp -> {
+                    recordMerchantAnswer(search, merchantUrl, startNanos, prodResp);
+                    log.debug("{} successfully received from merchant {}", prodResp, merchantUrl);
+                })
+                .doOnError(ex -> !(ex instanceof MerchantOfferRejectedException), ex -> {
+                    recordMerchantFailure(merchantUrl, startNanos, ex);
+                    log.warn("Failed to receive ProductResponse from merchant {}", merchantUrl, ex);
+                })
+                .onErrorResume(MerchantOfferRejectedException.class, ex -> {
+                    recordMerchantRejectedOffer(merchantUrl, startNanos);
+                    log.debug("Offer of merchant {} rejected", merchantUrl);
+                    return Mono.empty();
+                })
+                .doOnCancel(() -> recordMerchantCancel(merchantUrl, startNanos))
+                .toFuture();
+    }
+
+    /**
+     * Decodes the product response of the given merchant response in the wire
+     * format of its content type, decompressing it if compressed. A merchant response with an error status
+     * fails the same way as a retrieved one.
+     *
+     * @param response the merchant response
+     * @param search the search of the product request sent
+     *
+     * @return a Mono emitting the product response, otherwise empty if there
+     * is no product response, or failing if the offer was rejected
+     */
+    private Mono<ProductResponse> decodeProductResponse(ClientResponse response, ProductSearchContext search) {
+        if (response.statusCode().isError()) {
+            return response.bodyToMono(byte[].class)
+                    .defaultIfEmpty(new byte[0])
+                    .flatMap(body -> Mono.error(WebClientResponseException.create(response.rawStatusCode(),
+                            response.statusCode().getReasonPhrase(), response.headers().asHttpHeaders(), body,
+                            null)));
+        }
+        WireFormat format = WireFormat.of(response.headers().contentType().orElse(null));
+        String contentEncoding = response.headers().asHttpHeaders().getFirst(HttpHeaders.CONTENT_ENCODING);
+
+        return responseDecoder.decode(response.bodyToFlux(DataBuffer.class), search, format, contentEncoding);
+    }
+
+    /**
+     * @see ProductService
+     *
+     * The returned future is completed by the I/O thread that receives
+     * merchant's response. Cancelling the future releases the connection of
+     * the call.
+     *
+     * @param requests the requests to be sent
+     * @param batchUrl the batch url of the merchant
+     * @param deadline the deadline of the requests
+     */
+    @Override
+    public CompletableFuture<List<ProductResponse>> asyncBatchRequestToMerchant(
+            @NotNull List<ProductRequest> requests, @NotNull String batchUrl, @NotNull Deadline deadline) {
+        if (!tryAcquireMerchant(batchUrl)) {
+            return failedFuture(new MerchantUnavailableException(batchUrl));
+        }
+        log.debug("Sending {} ProductRequests to merchant {}", requests.size(), batchUrl);
+        long timeoutMillis = Math.min(deadline.remainingMillis(), merchantTimeoutMillis(batchUrl));
+        long startNanos = System.nanoTime();
+
+        return webClient.post()
+                .uri(batchUrl)
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpUtils.HEADER_REQUEST_TIMEOUT, String.valueOf(timeoutMillis))
+                .syncBody(merchantRequests(requests))
+                .retrieve()
+                .bodyToMono(ProductResponse[].class)
+                .map(Arrays::asList)
+                .defaultIfEmpty(Collections.emptyList())
+                .timeout(Duration.ofMillis(timeoutMillis))
+                .doOnSuccess(prodResps -> {
+                    recordMerchantBatchAnswer(requests, batchUrl, startNanos, prodResps);
+                    log.debug("{} ProductResponses successfully received from merchant {}", prodResps.size(),
+                            batchUrl);
+                })
+                .doOnError(ex -> {
+                    recordMerchantFailure(batchUrl, startNanos, ex);
+                    log.warn("Failed to receive ProductResponses from merchant {}", batchUrl, ex);
+                })
+                .doOnCancel(() -> recordMerchantCancel(batchUrl, startNanos))
+                .toFuture();
+    }
+}
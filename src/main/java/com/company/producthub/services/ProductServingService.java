@@ -0,0 +1,335 @@
+package com.company.producthub.services;
+
+import com.company.producthub.cache.CachedProductResponse;
+import com.company.producthub.cache.OfferIndex;
+import com.company.producthub.cache.ProductResponseCache;
+import com.company.producthub.entities.ProductRequest;
+import com.company.producthub.entities.ProductResponse;
+import com.company.producthub.entities.ProductSearchContext;
+import com.company.producthub.entities.ProductSearchResult;
+import com.company.producthub.entities.SearchCriteria;
+import com.company.producthub.utils.Deadline;
+import com.company.producthub.utils.HttpUtils;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import javax.validation.constraints.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+/**
+ * Represents the serving of a product request for its winner product
+ * response, shared by both web stacks.
+ *
+ * A fresh winner product response cached for the search criteria of the
+ * request is served as is. Otherwise, the merchants of the request are
+ * populated and the winner is served from the offer index if fresh offers of
+ * all merchants cover the price range of the request. Otherwise, a stale
+ * cached winner is served while it is being revalidated in the background,
+ * or the product request is posted to its merchants, with hedged calls,
+ * until its deadline expires. Concurrent product requests having equal
+ * search criteria share the same merchant calls. A stale winner is served
+ * when no merchant answered.
+ *
+ * The servlet stack waits for the search of the winner, while the reactive
+ * stack gets it as a Mono without blocking a thread.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+@Service
+public class ProductServingService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductServingService.class);
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductResponseCache productResponseCache;
+
+    @Autowired
+    private OfferIndex offerIndex;
+
+    @Autowired
+    private ProductSearchCoalescer productSearchCoalescer;
+
+    @Autowired
+    private MerchantHedger merchantHedger;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Value("${product.request.timeout.millis}")
+    private long requestTimeoutMillis;
+
+    @Value("${product.request.timeout.max.millis}")
+    private long requestTimeoutMaxMillis;
+
+    /**
+     * Serves a product request either from the cache or by searching its
+     * winner product response, waiting for the search
+     *
+     * @param request the product request
+     * @param deadline the deadline of the product request
+     *
+     * @return the winner product response along with an http status 200 if it
+     * is present Otherwise, an http status 204 without a product response
+     */
+    public ResponseEntity<byte[]> serve(@NotNull ProductRequest request, @NotNull Deadline deadline) {
+        log.debug("{} received from a client", request);
+        CachedProductResponse cached = productResponseCache.get(SearchCriteria.of(request));
+        ResponseEntity<byte[]> cachedResponseEntity = serveFromCache(request, cached);
+        if (cachedResponseEntity != null) {
+            return cachedResponseEntity;
+        }
+
+        return buildSearchedResponseEntity(request, cached, searchWinnerProduct(request, deadline));
+    }
+
+    /**
+     * Serves a product request the same way as serve, but without blocking
+     * the calling thread while searching its winner product response
+     *
+     * @param request the product request
+     * @param deadline the deadline of the product request
+     *
+     * @return a Mono emitting the response entity
+     */
+    public Mono<ResponseEntity<byte[]>> serveReactive(@NotNull ProductRequest request,
+            @NotNull Deadline deadline) {
+        log.debug("{} received from a client", request);
+        CachedProductResponse cached = productResponseCache.get(SearchCriteria.of(request));
+        ResponseEntity<byte[]> cachedResponseEntity = serveFromCache(request, cached);
+        if (cachedResponseEntity != null) {
+            return Mono.just(cachedResponseEntity);
+        }
+
+        return searchWinnerProductReactive(request, deadline)
+                .map(searchResult -> buildSearchedResponseEntity(request, cached, searchResult));
+    }
+
+    /**
+     * Sends the product request of the given search to all its merchants and
+     * returns a list of product responses that will be completed in the future.
+     * The call to each merchant is hedged against the latency tail of the
+     * merchant.
+     *
+     * @param search the search of the product request to be sent, having its
+     * merchants set
+     * @param deadline the deadline of the product request
+     *
+     * @return a list of CompletableFuture<ProductResponse>
+     */
+    public List<CompletableFuture<ProductResponse>> asyncRequestToMerchants(@NotNull ProductSearchContext search,
+            @NotNull Deadline deadline) {
+        List<CompletableFuture<ProductResponse>> futureProdResps = new ArrayList<>();
+        search.getRequest().getMerchants().forEach(merchant -> futureProdResps.add(merchantHedger.hedge(
+                merchant.getApiUrl(), deadline,
+                () -> productService.asyncRequestToMerchant(search, merchant.getApiUrl(), deadline))));
+
+        return futureProdResps;
+    }
+
+    /**
+     * Builds the deadline of a product request. The timeout requested by a
+     * client is capped to the configured maximum timeout.
+     *
+     * @param timeoutMillis the timeout requested by a client, null if absent
+     *
+     * @return the deadline
+     */
+    public Deadline buildDeadline(Long timeoutMillis) {
+        if (timeoutMillis == null || timeoutMillis <= 0) {
+            return Deadline.after(requestTimeoutMillis);
+        }
+
+        return Deadline.after(Math.min(timeoutMillis, requestTimeoutMaxMillis));
+    }
+
+    /**
+     * Serializes the given winner product response to json
+     *
+     * @param winner the winner product response, it can be null
+     *
+     * @return the json bytes, otherwise null if there is no winner
+     */
+    public byte[] toJsonBytes(ProductResponse winner) {
+        if (winner == null) {
+            return null;
+        }
+        try {
+            return mapper.writeValueAsBytes(winner);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Failed to serialize " + winner, ex);
+        }
+    }
+
+    /**
+     * Deserializes the given json of a cached winner product response
+     *
+     * @param body the json bytes, it can be null
+     *
+     * @return the winner product response, otherwise null if there is no
+     * winner
+     */
+    public ProductResponse fromJsonBytes(byte[] body) {
+        if (body == null) {
+            return null;
+        }
+        try {
+            return mapper.readValue(body, ProductResponse.class);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Failed to deserialize a cached winner", ex);
+        }
+    }
+
+    /**
+     * Serves a product request from the cache, the offer index or a stale
+     * cached winner being revalidated. The merchants of the request are set
+     * unless a fresh cached winner is served.
+     *
+     * @param request the product request
+     * @param cached the winner cached for the search criteria of the request,
+     * null if absent
+     *
+     * @return the response entity, otherwise null if the winner should be
+     * searched
+     */
+    private ResponseEntity<byte[]> serveFromCache(ProductRequest request, CachedProductResponse cached) {
+        SearchCriteria criteria = SearchCriteria.of(request);
+        if (cached != null && productResponseCache.isFresh(cached)) {
+            return buildCachedResponseEntity(request, cached, HttpUtils.CACHE_HIT);
+        }
+        productService.setMerchantsToProductRequest(request);
+        CachedProductResponse indexed = offerIndex.findWinner(request);
+        if (indexed != null) {
+            productResponseCache.put(criteria, indexed);
+            return buildCachedResponseEntity(request, indexed, HttpUtils.CACHE_INDEX);
+        }
+        if (cached != null && productResponseCache.serveWhileRevalidating(criteria, cached,
+                () -> revalidate(request))) {
+            return buildCachedResponseEntity(request, cached, HttpUtils.CACHE_STALE);
+        }
+
+        return null;
+    }
+
+    /**
+     * Searches the winner product response of a product request by posting it
+     * to its merchants. Concurrent product requests having equal search
+     * criteria share a single search, with its own search context.
+     *
+     * @param request the product request having its merchants set
+     * @param deadline the deadline of the product request
+     *
+     * @return the product search result
+     */
+    private ProductSearchResult searchWinnerProduct(@NotNull ProductRequest request, @NotNull Deadline deadline) {
+        return productSearchCoalescer.search(SearchCriteria.of(request), request.getMerchants().size(), deadline,
+                () -> {
+                    ProductSearchContext search = new ProductSearchContext(request);
+                    return productService.searchWinnerProduct(search, asyncRequestToMerchants(search, deadline),
+                            deadline);
+                });
+    }
+
+    /**
+     * Searches the winner product response of a product request the same way
+     * as searchWinnerProduct, without blocking the calling thread.
+     *
+     * @param request the product request having its merchants set
+     * @param deadline the deadline of the product request
+     *
+     * @return a Mono emitting the product search result
+     */
+    private Mono<ProductSearchResult> searchWinnerProductReactive(@NotNull ProductRequest request,
+            @NotNull Deadline deadline) {
+        return productSearchCoalescer.searchReactive(SearchCriteria.of(request), request.getMerchants().size(),
+                deadline, () -> {
+                    ProductSearchContext search = new ProductSearchContext(request);
+                    return productService.searchWinnerProductReactive(search, asyncRequestToMerchants(search, deadline),
+                            deadline);
+                });
+    }
+
+    /**
+     * Revalidates the cached winner product response of a product request by
+     * searching it again within the default timeout. It runs in the
+     * background, off the path of the product request.
+     *
+     * @param request the product request having its merchants set
+     *
+     * @return the revalidated product response, otherwise null if the search
+     * is not complete
+     */
+    private CachedProductResponse revalidate(@NotNull ProductRequest request) {
+        ProductSearchResult searchResult = searchWinnerProduct(request, Deadline.after(requestTimeoutMillis));
+        if (!searchResult.isComplete()) {
+            return null;
+        }
+
+        return new CachedProductResponse(toJsonBytes(searchResult.getWinner()), System.currentTimeMillis());
+    }
+
+    /**
+     * Builds the response entity of a searched product request. The winner is
+     * cached if the search is complete, or replaced by the stale cached winner
+     * if no merchant answered.
+     *
+     * @param request the product request
+     * @param cached the winner cached for the search criteria of the request,
+     * null if absent
+     * @param searchResult the product search result
+     *
+     * @return the response entity
+     */
+    private ResponseEntity<byte[]> buildSearchedResponseEntity(ProductRequest request, CachedProductResponse cached,
+            ProductSearchResult searchResult) {
+        if (searchResult.isFailed() && productResponseCache.serveIfError(cached)) {
+            return buildCachedResponseEntity(request, cached, HttpUtils.CACHE_STALE);
+        }
+        byte[] body = toJsonBytes(searchResult.getWinner());
+        if (searchResult.isComplete()) {
+            productResponseCache.put(SearchCriteria.of(request), body);
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpUtils.HEADER_CACHE, HttpUtils.CACHE_MISS);
+        headers.set(HttpUtils.HEADER_MERCHANTS_ANSWERED, String.valueOf(searchResult.getAnsweredCount()));
+        headers.set(HttpUtils.HEADER_MERCHANTS_FAILED, String.valueOf(searchResult.getFailedCount()));
+        headers.set(HttpUtils.HEADER_MERCHANTS_TIMED_OUT, String.valueOf(searchResult.getTimedOutCount()));
+        headers.set(HttpUtils.HEADER_MERCHANTS_CANCELLED, String.valueOf(searchResult.getCancelledCount()));
+        ResponseEntity<byte[]> responseEntity = buildResponseEntity(body, headers);
+        log.debug("{} successfully processed with response {}", request, responseEntity);
+
+        return responseEntity;
+    }
+
+    private ResponseEntity<byte[]> buildCachedResponseEntity(ProductRequest request, CachedProductResponse cached,
+            String cacheStatus) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpUtils.HEADER_CACHE, cacheStatus);
+        ResponseEntity<byte[]> responseEntity = buildResponseEntity(cached.getBody(), headers);
+        log.debug("{} successfully served from cache with response {}", request, responseEntity);
+
+        return responseEntity;
+    }
+
+    private ResponseEntity<byte[]> buildResponseEntity(byte[] body, HttpHeaders headers) {
+        if (body == null) {
+            return new ResponseEntity<>(headers, HttpStatus.NO_CONTENT);
+        }
+
+        return new ResponseEntity<>(body, headers, HttpStatus.OK);
+    }
+}
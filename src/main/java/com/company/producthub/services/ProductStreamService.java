@@ -0,0 +1,130 @@
+package com.company.producthub.services;
+
+import com.company.producthub.cache.CachedProductResponse;
+import com.company.producthub.cache.ProductResponseCache;
+import com.company.producthub.entities.ProductOfferEvent;
+import com.company.producthub.entities.ProductRequest;
+import com.company.producthub.entities.ProductSearchContext;
+import com.company.producthub.entities.ProductSearchResult;
+import com.company.producthub.entities.SearchCriteria;
+import com.company.producthub.utils.Deadline;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.annotation.PostConstruct;
+import javax.validation.constraints.NotNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+
+/**
+ * Represents the streaming of the offers of a product request as the
+ * merchants answer, shared by both web stacks.
+ *
+ * A fresh winner product response cached for the search criteria of the
+ * request is streamed as a single winner event. Otherwise, the product
+ * request is posted to its merchants, with hedged calls, see
+ * {@link ProductServingService}, and each offer is
+ * streamed as soon as it arrives, followed by the winner event. The winner
+ * is cached as usual, and a stale cached winner is streamed when no merchant
+ * answered. Streamed product requests do not share searches with concurrent
+ * product requests, since each one streams its own offers.
+ *
+ * The time from receiving a product request until its first offer is
+ * streamed is exposed by the timer products.stream.first.offer.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+@Service
+public class ProductStreamService {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductStreamService.class);
+
+    @Autowired
+    private ProductService productService;
+
+    @Autowired
+    private ProductResponseCache productResponseCache;
+
+    @Autowired
+    private ProductServingService productServingService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Timer firstOfferTimer;
+
+    /**
+     * Registers the metrics of streamed product requests
+     */
+    @PostConstruct
+    public void init() {
+        firstOfferTimer = Timer.builder("products.stream.first.offer")
+                .description("The duration until the first offer of a product request is streamed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Streams the offers of the given product request and its winner
+     *
+     * @param request the product request
+     * @param deadline the deadline of the product request
+     *
+     * @return a Flux<ProductOfferEvent> emitting the offer events and the
+     * winner event last
+     */
+    public Flux<ProductOfferEvent> stream(@NotNull ProductRequest request, @NotNull Deadline deadline) {
+        return Flux.defer(() -> {
+            log.debug("{} received from a client for streaming", request);
+            SearchCriteria criteria = SearchCriteria.of(request);
+            CachedProductResponse cached = productResponseCache.get(criteria);
+            if (cached != null && productResponseCache.isFresh(cached)) {
+                return Flux.just(ProductOfferEvent.cachedWinner(
+                        productServingService.fromJsonBytes(cached.getBody())));
+            }
+
+            productService.setMerchantsToProductRequest(request);
+            Timer.Sample sample = Timer.start(meterRegistry);
+            AtomicBoolean firstOffer = new AtomicBoolean(true);
+            ProductSearchContext search = new ProductSearchContext(request);
+
+            return productService.streamProductOffers(search,
+                    productServingService.asyncRequestToMerchants(search, deadline), deadline)
+                    .doOnNext(event -> {
+                        if (event.getType() == ProductOfferEvent.Type.OFFER && firstOffer.getAndSet(false)) {
+                            sample.stop(firstOfferTimer);
+                        }
+                    })
+                    .map(event -> event.getType() == ProductOfferEvent.Type.WINNER
+                            ? finishWinner(criteria, cached, event) : event);
+        });
+    }
+
+    /**
+     * Caches the winner of a winner event if its search is complete, or
+     * replaces it by the stale cached winner if no merchant answered
+     *
+     * @param criteria the search criteria of the product request
+     * @param cached the cached winner, null if absent
+     * @param event the winner event
+     *
+     * @return the winner event to be streamed
+     */
+    private ProductOfferEvent finishWinner(SearchCriteria criteria, CachedProductResponse cached,
+            ProductOfferEvent event) {
+        ProductSearchResult searchResult = event.getSearchResult();
+        if (searchResult.isFailed()) {
+            return productResponseCache.serveIfError(cached)
+                    ? ProductOfferEvent.cachedWinner(productServingService.fromJsonBytes(cached.getBody()))
+                    : event;
+        }
+        if (searchResult.isComplete()) {
+            productResponseCache.put(criteria, productServingService.toJsonBytes(searchResult.getWinner()));
+        }
+        log.debug("Streaming of {} successfully completed with {}", criteria, searchResult);
+
+        return event;
+    }
+}
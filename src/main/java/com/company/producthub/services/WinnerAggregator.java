@@ -0,0 +1,252 @@
+package com.company.producthub.services;
+
+import com.company.producthub.entities.ProductResponse;
+import com.company.producthub.entities.ProductSearchResult;
+import com.company.producthub.utils.Deadline;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.DoubleConsumer;
+import java.util.function.Function;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Represents the incremental aggregation of the product responses sent by
+ * the merchants of a product request. The winner is updated as soon as each
+ * product response arrives, so there is no need to keep all product
+ * responses until the last merchant answers. Apart from the winner, the k
+ * cheapest offers are kept in a bounded heap, the most expensive of them on
+ * top so that it is replaced by a cheaper offer in O(log k). Offers of equal
+ * price are ordered by merchant id, product id and product response id, so
+ * that the winner and the top offers do not depend on the order of arrival.
+ *
+ * The aggregation is completed when all merchants have answered or failed,
+ * or k offers at or below the stop price have been received, since no other
+ * offer can win against them. A quorum of merchants having answered is reported so that
+ * the aggregation can be finished after a grace window instead of waiting
+ * for the slowest merchants.
+ *
+ * The price ceiling of the offers that can still be kept is reported as it
+ * drops, so that more expensive offers can be rejected while being decoded.
+ *
+ * An aggregator is thread-safe and it is used for a single product request.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+public class WinnerAggregator {
+
+    /**
+     * The order of offers by price, ties broken by merchant id, product id
+     * and product response id, missing ids last. Offers are product responses
+     * having a product.
+     */
+    public static final Comparator<ProductResponse> OFFER_ORDER = Comparator
+            .comparingDouble((ProductResponse prodResp) -> prodResp.getProduct().getPrice())
+            .thenComparing(prodResp -> prodResp.getProduct().getMerchant() == null
+                    ? null : prodResp.getProduct().getMerchant().getId(),
+                    Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(prodResp -> prodResp.getProduct().getId(), Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(ProductResponse::getId, Comparator.nullsLast(Comparator.naturalOrder()));
+
+    private final int merchantCount;
+    private final int quorumCount;
+    private final double stopPrice;
+    private final int k;
+    private final PriorityQueue<ProductResponse> topOffers;
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+    private final CompletableFuture<Void> quorumReached = new CompletableFuture<>();
+
+    private DoubleConsumer ceilingListener = ceiling -> { };
+    private ProductResponse winner;
+    private int answeredCount;
+    private int failedCount;
+    private boolean finished;
+
+    /**
+     * Creates an aggregator for the given number of merchants
+     *
+     * @param merchantCount the number of merchants being recipients of the
+     * product request
+     * @param quorumCount the number of merchants considered as quorum
+     * @param stopPrice the price at or below which an offer completes the
+     * aggregation
+     */
+    public WinnerAggregator(int merchantCount, int quorumCount, double stopPrice) {
+        this(merchantCount, quorumCount, stopPrice, 1);
+    }
+
+    /**
+     * Creates an aggregator for the given number of merchants keeping the k
+     * cheapest offers
+     *
+     * @param merchantCount the number of merchants being recipients of the
+     * product request
+     * @param quorumCount the number of merchants considered as quorum
+     * @param stopPrice the price at or below which k offers complete the
+     * aggregation
+     * @param k the number of cheapest offers to keep, at least 1
+     */
+    public WinnerAggregator(int merchantCount, int quorumCount, double stopPrice, int k) {
+        this.merchantCount = merchantCount;
+        this.quorumCount = Math.max(1, Math.min(quorumCount, merchantCount));
+        this.stopPrice = stopPrice;
+        this.k = Math.max(1, k);
+        this.topOffers = new PriorityQueue<>(Math.min(this.k, Math.max(1, merchantCount)),
+                OFFER_ORDER.reversed());
+        if (merchantCount == 0) {
+            completion.complete(null);
+            quorumReached.complete(null);
+        }
+    }
+
+    /**
+     * Accepts the answer of a merchant and updates the winner if the given
+     * product response contains a lower price, as well as the k cheapest
+     * offers. Answers accepted after the aggregation is finished are ignored.
+     *
+     * @param prodResp the product response, null if the merchant did not send
+     * a product response or failed to respond
+     *
+     * @return true if the given product response became the winner, otherwise
+     * false
+     */
+    public synchronized boolean accept(ProductResponse prodResp) {
+        if (finished) {
+            return false;
+        }
+        answeredCount++;
+        boolean offered = prodResp != null && prodResp.getProduct() != null;
+        boolean won = offered && (winner == null || OFFER_ORDER.compare(prodResp, winner) < 0);
+        if (won) {
+            winner = prodResp;
+        }
+        if (offered && topOffers.size() < k) {
+            topOffers.add(prodResp);
+            if (topOffers.size() == k) {
+                ceilingListener.accept(topOffers.peek().getProduct().getPrice());
+            }
+        } else if (offered && OFFER_ORDER.compare(prodResp, topOffers.peek()) < 0) {
+            topOffers.poll();
+            topOffers.add(prodResp);
+            ceilingListener.accept(topOffers.peek().getProduct().getPrice());
+        }
+        if (answeredCount >= quorumCount) {
+            quorumReached.complete(null);
+        }
+        if (answeredCount + failedCount >= merchantCount
+                || (topOffers.size() >= k && topOffers.peek().getProduct().getPrice() <= stopPrice)) {
+            completion.complete(null);
+        }
+
+        return won;
+    }
+
+    /**
+     * Reports to the given listener the price ceiling of the offers that can
+     * still be kept, that is the price of the most expensive of the k
+     * cheapest offers, each time it drops. An offer priced above the ceiling
+     * can be dropped before being accepted. The ceiling is reported as
+     * infinite once the aggregation is finished.
+     *
+     * @param listener the listener of the price ceiling
+     */
+    public synchronized void onCeiling(@NotNull DoubleConsumer listener) {
+        this.ceilingListener = listener;
+        if (topOffers.size() >= k) {
+            listener.accept(topOffers.peek().getProduct().getPrice());
+        }
+    }
+
+    /**
+     * Accepts the failure of a merchant to answer. Failures accepted after the
+     * aggregation is finished are ignored.
+     */
+    public synchronized void acceptFailure() {
+        if (finished) {
+            return;
+        }
+        failedCount++;
+        if (answeredCount + failedCount >= merchantCount) {
+            completion.complete(null);
+        }
+    }
+
+    /**
+     * Waits for the aggregation to be completed until the given deadline
+     * expires. When a quorum of merchants has answered, the waiting lasts at
+     * most the given grace window.
+     *
+     * @param deadline the deadline of the product request
+     * @param graceMillis the milliseconds to wait for the rest of merchants
+     * after a quorum has answered
+     */
+    public void await(@NotNull Deadline deadline, long graceMillis) {
+        try {
+            CompletableFuture.anyOf(completion, quorumReached)
+                    .get(deadline.remainingMillis(), TimeUnit.MILLISECONDS);
+            completion.get(Math.min(graceMillis, deadline.remainingMillis()), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            // finished by the deadline or the grace window
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ex) {
+            // never completed exceptionally
+        }
+    }
+
+    /**
+     * Checks whether the aggregation is completed
+     *
+     * @return true if completed, otherwise false
+     */
+    public boolean isCompleted() {
+        return completion.isDone();
+    }
+
+    /**
+     * Gets a future completed when the aggregation is completed, for waiting
+     * without blocking a thread
+     *
+     * @return the CompletableFuture<Void>
+     */
+    public CompletableFuture<Void> whenCompleted() {
+        return completion.thenApply(Function.identity());
+    }
+
+    /**
+     * Gets a future completed when a quorum of merchants has answered, for
+     * waiting without blocking a thread
+     *
+     * @return the CompletableFuture<Void>
+     */
+    public CompletableFuture<Void> whenQuorumReached() {
+        return quorumReached.thenApply(Function.identity());
+    }
+
+    /**
+     * Finishes the aggregation and returns its result. Merchants that have
+     * not answered are reported as timed out if the given deadline has
+     * expired, otherwise as cancelled since the aggregation finished early.
+     *
+     * @param deadline the deadline of the product request
+     *
+     * @return the product search result
+     */
+    public synchronized ProductSearchResult finish(@NotNull Deadline deadline) {
+        finished = true;
+        ceilingListener.accept(Double.POSITIVE_INFINITY);
+        int unansweredCount = merchantCount - answeredCount - failedCount;
+        boolean timedOut = !completion.isDone() && deadline.isExpired();
+
+        List<ProductResponse> offers = new ArrayList<>(topOffers);
+        offers.sort(OFFER_ORDER);
+
+        return new ProductSearchResult(winner, offers, answeredCount, failedCount,
+                timedOut ? unansweredCount : 0, timedOut ? 0 : unansweredCount);
+    }
+}
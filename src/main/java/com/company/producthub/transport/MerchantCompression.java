@@ -0,0 +1,275 @@
+package com.company.producthub.transport;
+
+import com.company.producthub.entities.RegisteredMerchant;
+import com.company.producthub.services.MerchantRegistry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Represents the gzip compression of the traffic with merchants.
+ *
+ * A body sent to a merchant is compressed only from the compression size of
+ * the merchant, declared in the merchant registry or the default one, since
+ * compressing a small body costs more cpu than the bandwidth it saves.
+ * Merchants are asked for compressed responses unless they are never
+ * compressed, and compressed responses are decompressed as they are read.
+ *
+ * The ratio of compressed to original size and the cpu time spent by the
+ * compressing or decompressing thread are exposed by the distribution summary
+ * products.merchant.compression.ratio and the timer
+ * products.merchant.compression.cpu, both tagged by direction (request or
+ * response). Bodies sent uncompressed because they are below the compression
+ * size are counted by the counter products.merchant.compression.skipped.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+public class MerchantCompression {
+
+    /**
+     * The content coding of compressed bodies
+     */
+    public static final String GZIP = "gzip";
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final MerchantRegistry merchantRegistry;
+    private final boolean enabled;
+    private final int defaultMinBytes;
+    private final DistributionSummary requestRatioSummary;
+    private final DistributionSummary responseRatioSummary;
+    private final Timer requestCpuTimer;
+    private final Timer responseCpuTimer;
+    private final Counter skippedCounter;
+
+    /**
+     * Creates the compression of the traffic with merchants
+     *
+     * @param merchantRegistry the registry of merchants
+     * @param meterRegistry the meter registry of the compression metrics
+     * @param enabled whether the traffic with merchants is compressed at all
+     * @param defaultMinBytes the compression size of merchants declaring none
+     */
+    public MerchantCompression(MerchantRegistry merchantRegistry, MeterRegistry meterRegistry, boolean enabled,
+            int defaultMinBytes) {
+        this.merchantRegistry = merchantRegistry;
+        this.enabled = enabled;
+        this.defaultMinBytes = defaultMinBytes;
+        this.requestRatioSummary = ratioSummary(meterRegistry, "request");
+        this.responseRatioSummary = ratioSummary(meterRegistry, "response");
+        this.requestCpuTimer = cpuTimer(meterRegistry, "request");
+        this.responseCpuTimer = cpuTimer(meterRegistry, "response");
+        this.skippedCounter = Counter.builder("products.merchant.compression.skipped")
+                .description("The bodies sent to merchants uncompressed, being below the compression size")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Checks whether the given merchant is asked for compressed responses
+     *
+     * @param merchantUrl the api url of the merchant
+     *
+     * @return true if compressed, otherwise false
+     */
+    public boolean isEnabled(String merchantUrl) {
+        return minBytes(merchantUrl) >= 0;
+    }
+
+    /**
+     * Compresses the given body sent to the given merchant if it reaches the
+     * compression size of the merchant
+     *
+     * @param merchantUrl the api url of the merchant
+     * @param body the body
+     *
+     * @return the compressed body, otherwise null if it is sent uncompressed
+     */
+    public byte[] compress(String merchantUrl, @NotNull byte[] body) {
+        int minBytes = minBytes(merchantUrl);
+        if (minBytes < 0) {
+            return null;
+        }
+        if (body.length < minBytes) {
+            skippedCounter.increment();
+            return null;
+        }
+        long startCpuNanos = cpuNanos();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(32, body.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Failed to compress a body of " + body.length + " bytes", ex);
+        }
+        requestCpuTimer.record(cpuNanos() - startCpuNanos, TimeUnit.NANOSECONDS);
+        requestRatioSummary.record(body.length == 0 ? 1 : (double) out.size() / body.length);
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Decompresses the given response body of a merchant as it is read, if
+     * it is compressed
+     *
+     * @param body the response body
+     * @param contentEncoding the content coding of the response, it can be
+     * null
+     *
+     * @return the decompressed body, otherwise the given one if it is not
+     * compressed
+     *
+     * @throws IOException if the gzip header is malformed
+     */
+    public InputStream decompress(@NotNull InputStream body, String contentEncoding) throws IOException {
+        if (!isCompressed(contentEncoding)) {
+            return body;
+        }
+
+        return new DecompressingInputStream(body);
+    }
+
+    /**
+     * Checks whether a response body of the given content coding is
+     * compressed
+     *
+     * @param contentEncoding the content coding of the response, it can be
+     * null
+     *
+     * @return true if the body is compressed, otherwise false
+     */
+    public boolean isCompressed(String contentEncoding) {
+        return GZIP.equalsIgnoreCase(contentEncoding);
+    }
+
+    private int minBytes(String merchantUrl) {
+        if (!enabled) {
+            return -1;
+        }
+        RegisteredMerchant merchant = merchantRegistry.findByApiUrl(merchantUrl);
+
+        return merchant == null || merchant.getCompressionMinBytes() == null
+                ? defaultMinBytes : merchant.getCompressionMinBytes();
+    }
+
+    private static DistributionSummary ratioSummary(MeterRegistry meterRegistry, String direction) {
+        return DistributionSummary.builder("products.merchant.compression.ratio")
+                .description("The ratio of compressed to original size of the bodies exchanged with merchants")
+                .tag("direction", direction)
+                .register(meterRegistry);
+    }
+
+    private static Timer cpuTimer(MeterRegistry meterRegistry, String direction) {
+        return Timer.builder("products.merchant.compression.cpu")
+                .description("The cpu time of compressing or decompressing the bodies exchanged with merchants")
+                .tag("direction", direction)
+                .register(meterRegistry);
+    }
+
+    private static long cpuNanos() {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+
+    /**
+     * Represents the counting of the compressed bytes read from a response
+     * body
+     */
+    private static final class CountingInputStream extends FilterInputStream {
+
+        private long count;
+
+        private CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+            }
+            return n;
+        }
+    }
+
+    /**
+     * Represents a compressed response body decompressed as it is read. The
+     * cpu time of reading and the compression ratio are recorded once the
+     * body is read to its end or closed.
+     */
+    private final class DecompressingInputStream extends InputStream {
+
+        private final CountingInputStream compressed;
+        private final GZIPInputStream gzip;
+        private long cpuNanos;
+        private long count;
+        private boolean recorded;
+
+        private DecompressingInputStream(InputStream body) throws IOException {
+            this.compressed = new CountingInputStream(body);
+            long startCpuNanos = cpuNanos();
+            this.gzip = new GZIPInputStream(compressed);
+            this.cpuNanos = cpuNanos() - startCpuNanos;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            int n = read(b, 0, 1);
+            return n < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            long startCpuNanos = cpuNanos();
+            int n = gzip.read(b, off, len);
+            cpuNanos += cpuNanos() - startCpuNanos;
+            if (n > 0) {
+                count += n;
+            } else if (n < 0) {
+                record();
+            }
+            return n;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return gzip.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            record();
+            gzip.close();
+        }
+
+        private void record() {
+            if (recorded) {
+                return;
+            }
+            recorded = true;
+            responseCpuTimer.record(cpuNanos, TimeUnit.NANOSECONDS);
+            if (count > 0) {
+                responseRatioSummary.record((double) compressed.count / count);
+            }
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.company.producthub.transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+/**
+ * Represents the interceptor of blocking merchant calls compressing the body
+ * sent to a merchant and decompressing the response of the merchant, see
+ * {@link MerchantCompression}. The automatic decompression of the merchant
+ * http client is disabled, so that the compression is decided per merchant
+ * and measured.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+public class MerchantCompressionInterceptor implements ClientHttpRequestInterceptor {
+
+    private final MerchantCompression compression;
+
+    /**
+     * Creates the interceptor
+     *
+     * @param compression the compression of the traffic with merchants
+     */
+    public MerchantCompressionInterceptor(MerchantCompression compression) {
+        this.compression = compression;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution)
+            throws IOException {
+        String merchantUrl = request.getURI().toString();
+        if (!compression.isEnabled(merchantUrl)) {
+            return execution.execute(request, body);
+        }
+        request.getHeaders().set(HttpHeaders.ACCEPT_ENCODING, MerchantCompression.GZIP);
+        byte[] compressedBody = compression.compress(merchantUrl, body);
+        if (compressedBody != null) {
+            request.getHeaders().set(HttpHeaders.CONTENT_ENCODING, MerchantCompression.GZIP);
+        }
+        ClientHttpResponse response = execution.execute(request, compressedBody == null ? body : compressedBody);
+        if (!MerchantCompression.GZIP.equalsIgnoreCase(response.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING))) {
+            return response;
+        }
+
+        return new DecompressedResponse(response);
+    }
+
+    /**
+     * Represents a compressed merchant response decompressed as its body is
+     * read. The content encoding and length are not exposed, since they are
+     * the ones of the compressed body.
+     */
+    private final class DecompressedResponse implements ClientHttpResponse {
+
+        private final ClientHttpResponse response;
+        private final HttpHeaders headers;
+        private InputStream body;
+
+        private DecompressedResponse(ClientHttpResponse response) {
+            this.response = response;
+            this.headers = new HttpHeaders();
+            this.headers.putAll(response.getHeaders());
+            this.headers.remove(HttpHeaders.CONTENT_ENCODING);
+            this.headers.remove(HttpHeaders.CONTENT_LENGTH);
+        }
+
+        @Override
+        public HttpStatus getStatusCode() throws IOException {
+            return response.getStatusCode();
+        }
+
+        @Override
+        public int getRawStatusCode() throws IOException {
+            return response.getRawStatusCode();
+        }
+
+        @Override
+        public String getStatusText() throws IOException {
+            return response.getStatusText();
+        }
+
+        @Override
+        public HttpHeaders getHeaders() {
+            return headers;
+        }
+
+        @Override
+        public InputStream getBody() throws IOException {
+            if (body == null) {
+                body = compression.decompress(response.getBody(), MerchantCompression.GZIP);
+            }
+            return body;
+        }
+
+        @Override
+        public void close() {
+            try {
+                if (body != null) {
+                    body.close();
+                }
+            } catch (IOException ex) {
+                // the connection is released by closing the response anyway
+            }
+            response.close();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.company.producthub.transport;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.function.ToDoubleFunction;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.pool.PoolStats;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Represents the metrics of the pool of connections to merchants. The
+ * connections are exposed by the gauge products.merchant.pool.connections
+ * tagged by state (leased, available or pending), along with the gauge
+ * products.merchant.pool.max reporting the maximum connections.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+@Component
+public class MerchantConnectionPoolMetrics implements MeterBinder {
+
+    @Autowired
+    private PoolingHttpClientConnectionManager merchantConnectionManager;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        registerConnections(registry, "leased", PoolStats::getLeased);
+        registerConnections(registry, "available", PoolStats::getAvailable);
+        registerConnections(registry, "pending", PoolStats::getPending);
+        Gauge.builder("products.merchant.pool.max", merchantConnectionManager,
+                connectionManager -> connectionManager.getTotalStats().getMax())
+                .description("The maximum connections to merchants")
+                .register(registry);
+    }
+
+    private void registerConnections(MeterRegistry registry, String state, ToDoubleFunction<PoolStats> connections) {
+        Gauge.builder("products.merchant.pool.connections", merchantConnectionManager,
+                connectionManager -> connections.applyAsDouble(connectionManager.getTotalStats()))
+                .description("The connections to merchants")
+                .tag("state", state)
+                .register(registry);
+    }
+}
@@ -0,0 +1,108 @@
+package com.company.producthub.transport;
+
+import com.company.producthub.entities.RegisteredMerchant;
+import com.company.producthub.services.MerchantRegistry;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.HttpClientConnection;
+import org.apache.http.HttpHost;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.conn.routing.HttpRoute;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Represents the warm-up of the pool of connections to merchants. When the
+ * application is ready, a number of connections is opened in the background
+ * to each host of the registered merchants and kept alive in the pool, so
+ * that the first merchant calls do not pay the connection setup.
+ *
+ * Active when merchants are called by the default product service.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+@Component
+@ConditionalOnProperty(name = "product.service.type", havingValue = "default", matchIfMissing = true)
+public class MerchantConnectionWarmer {
+
+    private static final Logger log = LoggerFactory.getLogger(MerchantConnectionWarmer.class);
+
+    @Autowired
+    private PoolingHttpClientConnectionManager merchantConnectionManager;
+
+    @Autowired
+    private MerchantRegistry merchantRegistry;
+
+    @Autowired
+    private Executor taskExecutor;
+
+    @Value("${merchant.pool.warmup.connections}")
+    private int warmupConnections;
+
+    @Value("${merchant.connect.timeout.millis}")
+    private int connectTimeoutMillis;
+
+    @Value("${merchant.pool.acquire.timeout.millis}")
+    private long acquireTimeoutMillis;
+
+    @Value("${merchant.pool.keep-alive.millis}")
+    private long keepAliveMillis;
+
+    /**
+     * Opens connections to the hosts of the registered merchants in the
+     * background
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (warmupConnections <= 0) {
+            return;
+        }
+        Set<HttpRoute> routes = new LinkedHashSet<>();
+        for (RegisteredMerchant merchant : merchantRegistry.getMerchants()) {
+            try {
+                URI uri = URI.create(merchant.getApiUrl());
+                routes.add(new HttpRoute(new HttpHost(uri.getHost(), uri.getPort(), uri.getScheme()),
+                        null, "https".equalsIgnoreCase(uri.getScheme())));
+            } catch (IllegalArgumentException ex) {
+                log.warn("Skipping warm-up of merchant {} with invalid url", merchant.getId(), ex);
+            }
+        }
+        routes.forEach(route -> taskExecutor.execute(() -> warmUp(route)));
+    }
+
+    private void warmUp(HttpRoute route) {
+        List<HttpClientConnection> connections = new ArrayList<>(warmupConnections);
+        try {
+            for (int i = 0; i < warmupConnections; i++) {
+                HttpClientConnection connection = merchantConnectionManager.requestConnection(route, null)
+                        .get(acquireTimeoutMillis, TimeUnit.MILLISECONDS);
+                connections.add(connection);
+                if (!connection.isOpen()) {
+                    HttpClientContext context = HttpClientContext.create();
+                    merchantConnectionManager.connect(connection, route, connectTimeoutMillis, context);
+                    merchantConnectionManager.routeComplete(connection, route, context);
+                    // binds the socket streams, so that the pool can validate the idle connection
+                    connection.flush();
+                }
+            }
+            log.debug("Opened {} connections to merchant host {}", connections.size(), route.getTargetHost());
+        } catch (Exception ex) {
+            log.warn("Failed to open connections to merchant host {}", route.getTargetHost(), ex);
+        } finally {
+            connections.forEach(connection -> merchantConnectionManager
+                    .releaseConnection(connection, null, keepAliveMillis, TimeUnit.MILLISECONDS));
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.company.producthub.transport;
+
+import com.company.producthub.utils.HttpUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpRequest;
+import org.apache.http.HttpRequestInterceptor;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.protocol.HttpContext;
+
+/**
+ * Represents the interceptor of the merchant http client bounding the
+ * timeouts of a blocking merchant call by the deadline of its product
+ * request. The connect, pool acquire and read timeouts set by
+ * {@link MerchantTimeoutRequestFactory} are capped to the milliseconds of the
+ * http header X-Request-Timeout sent to the merchant, so that a call still
+ * running when the deadline expires releases its thread and its connection
+ * instead of waiting for the adaptive timeout of the merchant.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+public class MerchantDeadlineInterceptor implements HttpRequestInterceptor {
+
+    @Override
+    public void process(HttpRequest request, HttpContext context) {
+        Header timeoutHeader = request.getFirstHeader(HttpUtils.HEADER_REQUEST_TIMEOUT);
+        if (timeoutHeader == null) {
+            return;
+        }
+        long remainingMillis;
+        try {
+            remainingMillis = Long.parseLong(timeoutHeader.getValue());
+        } catch (NumberFormatException ex) {
+            return;
+        }
+        HttpClientContext clientContext = HttpClientContext.adapt(context);
+        RequestConfig config = clientContext.getRequestConfig();
+        clientContext.setRequestConfig(RequestConfig.copy(config)
+                .setConnectTimeout(cap(config.getConnectTimeout(), remainingMillis))
+                .setConnectionRequestTimeout(cap(config.getConnectionRequestTimeout(), remainingMillis))
+                .setSocketTimeout(cap(config.getSocketTimeout(), remainingMillis))
+                .build());
+    }
+
+    private static int cap(int timeoutMillis, long remainingMillis) {
+        // a timeout of zero waits forever, so an expired deadline times out at once instead
+        int cappedMillis = (int) Math.max(1, Math.min(Integer.MAX_VALUE, remainingMillis));
+
+        return timeoutMillis <= 0 ? cappedMillis : Math.min(timeoutMillis, cappedMillis);
+    }
+}
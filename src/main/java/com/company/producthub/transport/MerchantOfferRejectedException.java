@@ -0,0 +1,53 @@
+package com.company.producthub.transport;
+
+import java.io.IOException;
+
+/**
+ * Represents an offer of a merchant rejected while being decoded, because
+ * its price is out of the price range of the product request or above the
+ * offer ceiling of its search. The merchant answered, so the call is not a
+ * failure of the merchant.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+public class MerchantOfferRejectedException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates the exception of an offer of the given price rejected
+     *
+     * @param price the price of the offer
+     */
+    public MerchantOfferRejectedException(double price) {
+        super("Merchant offer of price " + price + " rejected");
+    }
+
+    /**
+     * Rejected offers are an expected outcome of merchant calls, so no stack
+     * trace is filled in
+     *
+     * @return this exception
+     */
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+
+    /**
+     * Checks whether the given exception is caused by a rejected offer
+     *
+     * @param ex the exception
+     *
+     * @return true if the offer was rejected, otherwise false
+     */
+    public static boolean isCauseOf(Throwable ex) {
+        for (Throwable cause = ex; cause != null; cause = cause.getCause()) {
+            if (cause instanceof MerchantOfferRejectedException) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,422 @@
+package com.company.producthub.transport;
+
+import com.company.producthub.entities.ProductRequest;
+import com.company.producthub.entities.ProductResponse;
+import com.company.producthub.entities.ProductSearchContext;
+import com.company.producthub.entities.WireFormat;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.core.util.JsonParserSequence;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import javax.validation.constraints.NotNull;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Represents the streaming decoder of the product responses received from
+ * merchants.
+ *
+ * A response body is read token by token, in the wire format it is answered
+ * in (json, Smile or CBOR), up to the maximum size of merchant responses, so
+ * that a misbehaving merchant cannot make the product hub buffer a huge body.
+ * As soon as the price of the product is read, the offer is rejected without
+ * reading the rest of the body if it is out of the price range of the product
+ * request or it is above the offer ceiling of its search, failing the decoding
+ * with {@link MerchantOfferRejectedException}. Only the tokens read until the
+ * price is checked are buffered. An accepted offer is bound to a product
+ * response from these tokens followed by the rest of the body as it is read,
+ * by a reader precompiled once per wire format.
+ *
+ * A non-blocking response body is fed to a non-blocking parser buffer by
+ * buffer as it arrives, and the body is cancelled once the offer is rejected.
+ * Compressed bodies, and bodies in a wire format without a non-blocking
+ * parser (CBOR), are joined up to the maximum size and read as a stream.
+ *
+ * The search of a blocking call is bound to the calling thread by
+ * {@link #decodeFor}, only for the duration of the call, since the message
+ * converters of a RestTemplate do not see the request of a call. Rejected
+ * offers are counted by the counter products.merchant.responses.rejected
+ * tagged by reason (out_of_range, cannot_win or too_large).
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+public class MerchantResponseDecoder {
+
+    private static final ThreadLocal<ProductSearchContext> DECODED_SEARCH = new ThreadLocal<>();
+
+    private static final String PRODUCT_FIELD = "product";
+    private static final String PRICE_FIELD = "price";
+
+    private final WireFormatMappers mappers;
+    private final MerchantCompression compression;
+    private final Map<WireFormat, ObjectReader> productResponseReaders = new EnumMap<>(WireFormat.class);
+    private final long maxBytes;
+    private final Counter outOfRangeCounter;
+    private final Counter cannotWinCounter;
+    private final Counter tooLargeCounter;
+
+    /**
+     * Creates a decoder of merchant responses
+     *
+     * @param mappers the object mappers of the wire formats
+     * @param meterRegistry the meter registry of the rejected offers
+     * @param maxBytes the maximum size of a response body in bytes
+     */
+    public MerchantResponseDecoder(WireFormatMappers mappers, MeterRegistry meterRegistry, long maxBytes) {
+        this(mappers, meterRegistry, maxBytes, null);
+    }
+
+    /**
+     * Creates a decoder of merchant responses decompressing the compressed
+     * non-blocking response bodies
+     *
+     * @param mappers the object mappers of the wire formats
+     * @param meterRegistry the meter registry of the rejected offers
+     * @param maxBytes the maximum size of a response body in bytes, both
+     * compressed and decompressed
+     * @param compression the compression of the traffic with merchants, null
+     * if response bodies are never compressed
+     */
+    public MerchantResponseDecoder(WireFormatMappers mappers, MeterRegistry meterRegistry, long maxBytes,
+            MerchantCompression compression) {
+        this.mappers = mappers;
+        this.compression = compression;
+        for (WireFormat format : WireFormat.values()) {
+            productResponseReaders.put(format, mappers.get(format).readerFor(ProductResponse.class));
+        }
+        this.maxBytes = maxBytes;
+        this.outOfRangeCounter = meterRegistry.counter("products.merchant.responses.rejected",
+                "reason", "out_of_range");
+        this.cannotWinCounter = meterRegistry.counter("products.merchant.responses.rejected",
+                "reason", "cannot_win");
+        this.tooLargeCounter = meterRegistry.counter("products.merchant.responses.rejected",
+                "reason", "too_large");
+    }
+
+    /**
+     * Executes the given blocking merchant call of the given search, so that
+     * product responses decoded by the calling thread are checked against the
+     * search
+     *
+     * @param <T> the type of the result of the call
+     * @param search the search of the product request sent
+     * @param call the merchant call
+     *
+     * @return the result of the call
+     */
+    public static <T> T decodeFor(@NotNull ProductSearchContext search, @NotNull Supplier<T> call) {
+        DECODED_SEARCH.set(search);
+        try {
+            return call.get();
+        } finally {
+            DECODED_SEARCH.remove();
+        }
+    }
+
+    /**
+     * Gets the search of the blocking merchant call executed by the calling
+     * thread
+     *
+     * @return the search, otherwise null if not bound
+     */
+    public static ProductSearchContext currentSearch() {
+        return DECODED_SEARCH.get();
+    }
+
+    /**
+     * Decodes a product response from the given json response body
+     *
+     * @param body the response body
+     * @param contentLength the content length announced by the merchant, -1
+     * if unknown
+     * @param search the search of the product request sent, null if unknown
+     * so that no offer is rejected
+     *
+     * @return the product response, otherwise null if the body is empty
+     *
+     * @throws MerchantOfferRejectedException if the offer was rejected
+     * @throws IOException if the body is malformed or exceeds the maximum size
+     */
+    public ProductResponse decode(@NotNull InputStream body, long contentLength, ProductSearchContext search)
+            throws IOException {
+        return decode(body, contentLength, search, WireFormat.JSON);
+    }
+
+    /**
+     * Decodes a product response from the given response body in the given
+     * wire format
+     *
+     * @param body the response body
+     * @param contentLength the content length announced by the merchant, -1
+     * if unknown
+     * @param search the search of the product request sent, null if unknown
+     * so that no offer is rejected
+     * @param format the wire format of the response body
+     *
+     * @return the product response, otherwise null if the body is empty
+     *
+     * @throws MerchantOfferRejectedException if the offer was rejected
+     * @throws IOException if the body is malformed or exceeds the maximum size
+     */
+    public ProductResponse decode(@NotNull InputStream body, long contentLength, ProductSearchContext search,
+            @NotNull WireFormat format) throws IOException {
+        if (contentLength > maxBytes) {
+            tooLargeCounter.increment();
+            throw new MerchantResponseTooLargeException(maxBytes);
+        }
+        ObjectReader reader = productResponseReaders.get(format);
+        try (JsonParser parser = mappers.get(format).getFactory().createParser(new LimitedInputStream(body))) {
+            if (search == null) {
+                return parser.nextToken() == null ? null : reader.readValue(parser);
+            }
+            TokenBuffer tokens = new TokenBuffer(parser);
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                tokens.copyCurrentEvent(parser);
+                if (token.isNumeric() && isProductPrice(parser)) {
+                    checkOffer(parser.getDoubleValue(), search);
+                    // the rest of the body is bound as it is read, after the tokens buffered
+                    return reader.readValue(JsonParserSequence.createFlattened(false, tokens.asParser(), parser));
+                }
+            }
+            if (tokens.firstToken() == null) {
+                return null;
+            }
+
+            return reader.readValue(tokens.asParser());
+        } catch (MerchantResponseTooLargeException ex) {
+            tooLargeCounter.increment();
+            throw ex;
+        }
+    }
+
+    /**
+     * Decodes a product response from the given non-blocking response body.
+     * The data buffers received, up to the maximum size, are fed to a
+     * non-blocking parser as they arrive and released at once, unless the
+     * body is compressed or the wire format has no non-blocking parser.
+     *
+     * @param body the data buffers of the response body
+     * @param search the search of the product request sent
+     * @param format the wire format of the response body
+     * @param contentEncoding the content coding of the response body, null
+     * if not compressed
+     *
+     * @return a Mono emitting the product response, otherwise empty if the
+     * body is empty, or failing with {@link MerchantOfferRejectedException},
+     * cancelling the body, if the offer was rejected
+     */
+    public Mono<ProductResponse> decode(@NotNull Flux<DataBuffer> body, @NotNull ProductSearchContext search,
+            @NotNull WireFormat format, String contentEncoding) {
+        JsonFactory factory = mappers.get(format).getFactory();
+        if (!factory.canParseAsync() || (compression != null && compression.isCompressed(contentEncoding))) {
+            return decodeJoined(body, search, format, contentEncoding);
+        }
+
+        return Mono.defer(() -> {
+            NonBlockingDecoding decoding;
+            try {
+                decoding = new NonBlockingDecoding(factory.createNonBlockingByteArrayParser(), search, format);
+            } catch (IOException ex) {
+                return Mono.error(ex);
+            }
+            return limit(body).<ProductResponse>handle((buffer, sink) -> {
+                try {
+                    decoding.feed(buffer);
+                } catch (IOException ex) {
+                    sink.error(ex);
+                } finally {
+                    DataBufferUtils.release(buffer);
+                }
+            }).then(Mono.fromCallable(decoding::finish)).doFinally(signal -> decoding.close());
+        });
+    }
+
+    /**
+     * Decodes a product response from the given non-blocking response body
+     * joined, without being copied to an intermediate array, and read as a
+     * stream, which releases the data buffers once decoded
+     */
+    private Mono<ProductResponse> decodeJoined(Flux<DataBuffer> body, ProductSearchContext search,
+            WireFormat format, String contentEncoding) {
+        return DataBufferUtils.join(limit(body)).flatMap(joined -> {
+            try (InputStream raw = joined.asInputStream(true)) {
+                InputStream in = compression == null ? raw : compression.decompress(raw, contentEncoding);
+                return Mono.justOrEmpty(decode(in, -1, search, format));
+            } catch (IOException ex) {
+                return Mono.error(ex);
+            }
+        });
+    }
+
+    /**
+     * Limits the given non-blocking response body to the maximum size. The
+     * data buffer exceeding it is released and the body fails.
+     */
+    private Flux<DataBuffer> limit(Flux<DataBuffer> body) {
+        return Flux.defer(() -> {
+            AtomicLong count = new AtomicLong();
+            return body.handle((buffer, sink) -> {
+                if (count.addAndGet(buffer.readableByteCount()) > maxBytes) {
+                    DataBufferUtils.release(buffer);
+                    tooLargeCounter.increment();
+                    sink.error(new MerchantResponseTooLargeException(maxBytes));
+                } else {
+                    sink.next(buffer);
+                }
+            });
+        });
+    }
+
+    /**
+     * Checks whether the current numeric token is the price of the product of
+     * a product response
+     */
+    private static boolean isProductPrice(JsonParser parser) throws IOException {
+        JsonStreamContext context = parser.getParsingContext();
+        JsonStreamContext productContext = context.getParent();
+
+        return PRICE_FIELD.equals(parser.getCurrentName()) && context.inObject()
+                && productContext != null && PRODUCT_FIELD.equals(productContext.getCurrentName())
+                && productContext.getParent() != null && productContext.getParent().inRoot();
+    }
+
+    private void checkOffer(double price, ProductSearchContext search) throws MerchantOfferRejectedException {
+        ProductRequest request = search.getRequest();
+        if (price < request.getMinPrice() || (request.getMaxPrice() > 0 && price > request.getMaxPrice())) {
+            outOfRangeCounter.increment();
+            throw new MerchantOfferRejectedException(price);
+        }
+        if (price > search.getOfferCeiling()) {
+            cannotWinCounter.increment();
+            throw new MerchantOfferRejectedException(price);
+        }
+    }
+
+    /**
+     * Represents the decoding of a non-blocking response body by a
+     * non-blocking parser. The tokens of the body are buffered as they are
+     * parsed and bound to a product response once the body is complete. The
+     * offer is checked as soon as its price is parsed.
+     */
+    private final class NonBlockingDecoding {
+
+        private final JsonParser parser;
+        private final ByteArrayFeeder feeder;
+        private final ProductSearchContext search;
+        private final WireFormat format;
+        private final TokenBuffer tokens;
+        private byte[] input = new byte[0];
+        private boolean offerChecked;
+
+        private NonBlockingDecoding(JsonParser parser, ProductSearchContext search, WireFormat format) {
+            this.parser = parser;
+            this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+            this.search = search;
+            this.format = format;
+            this.tokens = new TokenBuffer(parser);
+        }
+
+        /**
+         * Feeds the given data buffer to the parser and buffers the tokens
+         * parsed. The bytes are copied to an input array reused across data
+         * buffers, since the parser has consumed them once no more tokens are
+         * available.
+         */
+        private void feed(DataBuffer buffer) throws IOException {
+            int length = buffer.readableByteCount();
+            if (input.length < length) {
+                input = new byte[length];
+            }
+            buffer.read(input, 0, length);
+            feeder.feedInput(input, 0, length);
+            parseAvailableTokens();
+        }
+
+        /**
+         * Parses the rest of the tokens once the body is complete and binds
+         * them to a product response
+         */
+        private ProductResponse finish() throws IOException {
+            feeder.endOfInput();
+            parseAvailableTokens();
+            if (tokens.firstToken() == null) {
+                return null;
+            }
+
+            return productResponseReaders.get(format).readValue(tokens.asParser());
+        }
+
+        private void parseAvailableTokens() throws IOException {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+                tokens.copyCurrentEvent(parser);
+                if (!offerChecked && token.isNumeric() && isProductPrice(parser)) {
+                    offerChecked = true;
+                    checkOffer(parser.getDoubleValue(), search);
+                }
+            }
+        }
+
+        private void close() {
+            try {
+                parser.close();
+            } catch (IOException ex) {
+                // nothing is left to release after the parser is closed
+            }
+        }
+    }
+
+    /**
+     * Represents a response body failing once more than the maximum size has
+     * been read
+     */
+    private final class LimitedInputStream extends FilterInputStream {
+
+        private long count;
+
+        private LimitedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        private void count(int n) throws MerchantResponseTooLargeException {
+            count += n;
+            if (count > maxBytes) {
+                throw new MerchantResponseTooLargeException(maxBytes);
+            }
+        }
+    }
+}
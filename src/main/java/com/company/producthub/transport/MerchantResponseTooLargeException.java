@@ -0,0 +1,24 @@
+package com.company.producthub.transport;
+
+import java.io.IOException;
+
+/**
+ * Represents the failure of a merchant call whose response body exceeds the
+ * maximum size of merchant responses.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+public class MerchantResponseTooLargeException extends IOException {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Creates the exception of a response body exceeding the given maximum
+     * size
+     *
+     * @param maxBytes the maximum size of merchant responses in bytes
+     */
+    public MerchantResponseTooLargeException(long maxBytes) {
+        super("Merchant response exceeds " + maxBytes + " bytes");
+    }
+}
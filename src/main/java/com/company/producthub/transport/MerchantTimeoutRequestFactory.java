@@ -0,0 +1,57 @@
+package com.company.producthub.transport;
+
+import com.company.producthub.services.MerchantHealthTracker;
+import java.net.URI;
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.protocol.HttpContext;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+/**
+ * Represents the request factory of the RestTemplate calling merchants over
+ * the pooled connections of the merchant http client. The read timeout of
+ * each call is set to the adaptive timeout of the merchant being called,
+ * instead of a single global value, and is capped to the deadline of the call
+ * by the {@link MerchantDeadlineInterceptor} of the http client.
+ *
+ * @see MerchantHealthTracker
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+public class MerchantTimeoutRequestFactory extends HttpComponentsClientHttpRequestFactory {
+
+    private final MerchantHealthTracker merchantHealthTracker;
+    private final int connectTimeoutMillis;
+    private final int poolAcquireTimeoutMillis;
+
+    /**
+     * Creates the request factory
+     *
+     * @param httpClient the merchant http client
+     * @param merchantHealthTracker the tracker of merchants' health
+     * @param connectTimeoutMillis the connect timeout in milliseconds
+     * @param poolAcquireTimeoutMillis the timeout of acquiring a pooled
+     * connection in milliseconds
+     */
+    public MerchantTimeoutRequestFactory(HttpClient httpClient, MerchantHealthTracker merchantHealthTracker,
+            int connectTimeoutMillis, int poolAcquireTimeoutMillis) {
+        super(httpClient);
+        this.merchantHealthTracker = merchantHealthTracker;
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.poolAcquireTimeoutMillis = poolAcquireTimeoutMillis;
+    }
+
+    @Override
+    protected HttpContext createHttpContext(HttpMethod httpMethod, URI uri) {
+        HttpClientContext context = HttpClientContext.create();
+        context.setRequestConfig(RequestConfig.custom()
+                .setConnectTimeout(connectTimeoutMillis)
+                .setConnectionRequestTimeout(poolAcquireTimeoutMillis)
+                .setSocketTimeout((int) merchantHealthTracker.timeoutMillis(uri.toString()))
+                .build());
+
+        return context;
+    }
+}
@@ -0,0 +1,173 @@
+package com.company.producthub.transport;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.company.producthub.services.MerchantRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+/**
+ * Represents the configuration of the transport of merchant calls.
+ *
+ * Blocking calls are sent over a pool of keep-alive connections limited per
+ * merchant host. Idle and expired connections are evicted in the background,
+ * and the keep-alive duration announced by a merchant is capped. Non-blocking
+ * calls are sent over a fixed reactor netty pool per merchant host. The
+ * product responses of both are decoded by a streaming decoder limiting the
+ * size of a response body, in the wire format negotiated with the merchant.
+ * Bodies exchanged with merchants are gzip compressed from the compression
+ * size of each merchant.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+@Configuration
+public class MerchantTransportConfiguration {
+
+    @Value("${merchant.connect.timeout.millis}")
+    private int connectTimeoutMillis;
+
+    @Value("${merchant.pool.max.connections}")
+    private int maxConnections;
+
+    @Value("${merchant.pool.max.connections.per.host}")
+    private int maxConnectionsPerHost;
+
+    @Value("${merchant.pool.acquire.timeout.millis}")
+    private int acquireTimeoutMillis;
+
+    @Value("${merchant.pool.keep-alive.millis}")
+    private long keepAliveMillis;
+
+    @Value("${merchant.pool.idle.eviction.millis}")
+    private long idleEvictionMillis;
+
+    @Value("${merchant.pool.validate-after-inactivity.millis}")
+    private int validateAfterInactivityMillis;
+
+    @Value("${merchant.response.max.bytes}")
+    private long maxResponseBytes;
+
+    @Value("${merchant.compression.enabled}")
+    private boolean compressionEnabled;
+
+    @Value("${merchant.compression.min.bytes}")
+    private int compressionMinBytes;
+
+    /**
+     * Creates the pool of keep-alive connections to merchants
+     *
+     * @return the connection manager
+     */
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager merchantConnectionManager() {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnectionsPerHost);
+        connectionManager.setValidateAfterInactivity(validateAfterInactivityMillis);
+
+        return connectionManager;
+    }
+
+    /**
+     * Creates the http client of blocking merchant calls. Responses are not
+     * decompressed by the http client, see {@link MerchantCompression}, and
+     * the timeouts of a call are capped to its deadline, see
+     * {@link MerchantDeadlineInterceptor}.
+     *
+     * @param connectionManager the pool of connections to merchants
+     *
+     * @return the http client
+     */
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient merchantHttpClient(PoolingHttpClientConnectionManager connectionManager) {
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setKeepAliveStrategy((response, context) -> {
+                    long keepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE
+                            .getKeepAliveDuration(response, context);
+                    return keepAlive < 0 ? keepAliveMillis : Math.min(keepAlive, keepAliveMillis);
+                })
+                .disableContentCompression()
+                .addInterceptorLast(new MerchantDeadlineInterceptor())
+                .evictExpiredConnections()
+                .evictIdleConnections(idleEvictionMillis, TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    /**
+     * Creates the pools of non-blocking connections to merchants
+     *
+     * @return the connection provider
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider merchantConnectionProvider() {
+        return ConnectionProvider.fixed("merchants", maxConnectionsPerHost, acquireTimeoutMillis);
+    }
+
+    /**
+     * Creates the connector of non-blocking merchant calls
+     *
+     * @param connectionProvider the pools of connections to merchants
+     *
+     * @return the connector
+     */
+    @Bean
+    public ReactorClientHttpConnector merchantHttpConnector(ConnectionProvider connectionProvider) {
+        return new ReactorClientHttpConnector(HttpClient.create(connectionProvider)
+                .tcpConfiguration(tcpClient -> tcpClient
+                        .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMillis)));
+    }
+
+    /**
+     * Creates the object mappers of the wire formats exchanged with merchants
+     * and clients
+     *
+     * @param mapper the object mapper of the application
+     * @param builder the auto-configured builder of object mappers
+     *
+     * @return the object mappers
+     */
+    @Bean
+    public WireFormatMappers wireFormatMappers(ObjectMapper mapper, Jackson2ObjectMapperBuilder builder) {
+        return new WireFormatMappers(mapper, builder);
+    }
+
+    /**
+     * Creates the compression of the traffic with merchants
+     *
+     * @param merchantRegistry the registry of merchants
+     * @param meterRegistry the meter registry of the compression metrics
+     *
+     * @return the compression
+     */
+    @Bean
+    public MerchantCompression merchantCompression(MerchantRegistry merchantRegistry, MeterRegistry meterRegistry) {
+        return new MerchantCompression(merchantRegistry, meterRegistry, compressionEnabled, compressionMinBytes);
+    }
+
+    /**
+     * Creates the decoder of the product responses received from merchants
+     *
+     * @param wireFormatMappers the object mappers of the wire formats
+     * @param meterRegistry the meter registry of the rejected offers
+     * @param merchantCompression the compression of the traffic with merchants
+     *
+     * @return the decoder
+     */
+    @Bean
+    public MerchantResponseDecoder merchantResponseDecoder(WireFormatMappers wireFormatMappers,
+            MeterRegistry meterRegistry, MerchantCompression merchantCompression) {
+        return new MerchantResponseDecoder(wireFormatMappers, meterRegistry, maxResponseBytes, merchantCompression);
+    }
+}
@@ -0,0 +1,65 @@
+package com.company.producthub.transport;
+
+import com.company.producthub.entities.ProductResponse;
+import com.company.producthub.entities.WireFormat;
+import java.io.IOException;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+/**
+ * Represents the message converter reading the product responses of blocking
+ * merchant calls by the streaming decoder of merchant responses. The search
+ * of the product request of a call is the one bound to the calling thread, see
+ * {@link MerchantResponseDecoder#decodeFor}, and the wire format is the one of
+ * the content type of the response. The converter only reads, so
+ * requests are still written by the default converters.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+public class ProductResponseHttpMessageConverter extends AbstractHttpMessageConverter<ProductResponse> {
+
+    private final MerchantResponseDecoder decoder;
+
+    /**
+     * Creates a converter reading product responses by the given decoder
+     *
+     * @param decoder the decoder of merchant responses
+     */
+    public ProductResponseHttpMessageConverter(MerchantResponseDecoder decoder) {
+        super(MediaType.APPLICATION_JSON, new MediaType("application", "*+json"), WireFormat.SMILE.getMediaType(),
+                WireFormat.CBOR.getMediaType());
+        this.decoder = decoder;
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return ProductResponse.class == clazz;
+    }
+
+    @Override
+    protected boolean canWrite(MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected ProductResponse readInternal(Class<? extends ProductResponse> clazz, HttpInputMessage inputMessage)
+            throws IOException {
+        try {
+            return decoder.decode(inputMessage.getBody(), inputMessage.getHeaders().getContentLength(),
+                    MerchantResponseDecoder.currentSearch(), WireFormat.of(inputMessage.getHeaders().getContentType()));
+        } catch (MerchantResponseTooLargeException | MerchantOfferRejectedException ex) {
+            throw ex;
+        } catch (IOException ex) {
+            throw new HttpMessageNotReadableException("Malformed ProductResponse: " + ex.getMessage(), ex,
+                    inputMessage);
+        }
+    }
+
+    @Override
+    protected void writeInternal(ProductResponse prodResp, HttpOutputMessage outputMessage) {
+        throw new UnsupportedOperationException("ProductResponses are not written to merchants");
+    }
+}
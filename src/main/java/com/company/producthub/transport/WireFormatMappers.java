@@ -0,0 +1,76 @@
+package com.company.producthub.transport;
+
+import com.company.producthub.entities.WireFormat;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.Map;
+import javax.validation.constraints.NotNull;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+/**
+ * Represents the object mappers of the wire formats, the binary ones being
+ * configured the same way as the json one of the application, along with the
+ * transcoding of json bytes to a binary wire format token by token without
+ * binding them.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+public class WireFormatMappers {
+
+    private final Map<WireFormat, ObjectMapper> mappers = new EnumMap<>(WireFormat.class);
+
+    /**
+     * Creates the object mappers of the wire formats
+     *
+     * @param jsonMapper the object mapper of the application
+     * @param builder the builder of the object mappers of the binary formats,
+     * configured as the one of the application
+     */
+    public WireFormatMappers(ObjectMapper jsonMapper, Jackson2ObjectMapperBuilder builder) {
+        mappers.put(WireFormat.JSON, jsonMapper);
+        mappers.put(WireFormat.SMILE, builder.factory(new SmileFactory()).build());
+        mappers.put(WireFormat.CBOR, builder.factory(new CBORFactory()).build());
+    }
+
+    /**
+     * Gets the object mapper of the given wire format
+     *
+     * @param format the wire format
+     *
+     * @return the object mapper
+     */
+    public ObjectMapper get(@NotNull WireFormat format) {
+        return mappers.get(format);
+    }
+
+    /**
+     * Transcodes the given json bytes to the given wire format
+     *
+     * @param json the json bytes
+     * @param format the wire format
+     *
+     * @return the bytes in the wire format, the given ones if JSON
+     */
+    public byte[] transcode(@NotNull byte[] json, @NotNull WireFormat format) {
+        if (!format.isBinary()) {
+            return json;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(json.length);
+        try (JsonParser parser = mappers.get(WireFormat.JSON).getFactory().createParser(json);
+                JsonGenerator generator = mappers.get(format).getFactory().createGenerator(out)) {
+            while (parser.nextToken() != null) {
+                generator.copyCurrentStructure(parser);
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException("Failed to transcode json to " + format, ex);
+        }
+
+        return out.toByteArray();
+    }
+}
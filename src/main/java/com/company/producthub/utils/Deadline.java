@@ -0,0 +1,69 @@
+package com.company.producthub.utils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Represents the point in time until which a product request should be
+ * served. A deadline is immutable and is based on the monotonic clock of
+ * the jvm so that it is not affected by wall clock adjustments.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+public final class Deadline {
+
+    private final long deadlineNanos;
+
+    private Deadline(long deadlineNanos) {
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * Creates a deadline expiring after the given amount of milliseconds
+     * from now.
+     *
+     * @param timeoutMillis the milliseconds until the deadline expires
+     *
+     * @return the deadline
+     */
+    public static Deadline after(long timeoutMillis) {
+        return new Deadline(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis));
+    }
+
+    /**
+     * Gets the milliseconds remaining until the deadline expires, rounded up
+     * so that waiting for them never returns before the deadline expires
+     *
+     * @return the remaining milliseconds, otherwise 0 if expired
+     */
+    public long remainingMillis() {
+        long remainingNanos = deadlineNanos - System.nanoTime();
+        if (remainingNanos <= 0) {
+            return 0;
+        }
+
+        return TimeUnit.NANOSECONDS.toMillis(remainingNanos + TimeUnit.MILLISECONDS.toNanos(1) - 1);
+    }
+
+    /**
+     * Checks whether the deadline has expired
+     *
+     * @return true if expired, otherwise false
+     */
+    public boolean isExpired() {
+        return deadlineNanos - System.nanoTime() <= 0;
+    }
+
+    /**
+     * A string representation of a deadline used for logging
+     *
+     * @return the string representation
+     */
+    @Override
+    public String toString() {
+        StringBuilder deadlineStrBuilder = new StringBuilder("Deadline{");
+        deadlineStrBuilder.append("remainingMillis=").append(remainingMillis());
+        deadlineStrBuilder.append("}");
+
+        return deadlineStrBuilder.toString();
+    }
+}
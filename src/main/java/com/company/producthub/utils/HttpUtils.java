@@ -1,6 +1,11 @@
 package com.company.producthub.utils;
 
+import com.company.producthub.entities.MerchantProductRequest;
 import com.company.producthub.entities.ProductRequest;
+import com.company.producthub.entities.WireFormat;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import javax.validation.constraints.NotNull;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
@@ -13,6 +18,48 @@ import org.springframework.http.MediaType;
  */
 public class HttpUtils {
 
+    /**
+     * The http header carrying the milliseconds within which a product
+     * request should be served. It is optionally sent by a client and
+     * it is always sent to merchants with the remaining milliseconds.
+     */
+    public static final String HEADER_REQUEST_TIMEOUT = "X-Request-Timeout";
+
+    /**
+     * The http header reporting the number of merchants answered
+     */
+    public static final String HEADER_MERCHANTS_ANSWERED = "X-Merchants-Answered";
+
+    /**
+     * The http header reporting the number of merchants failed to answer
+     */
+    public static final String HEADER_MERCHANTS_FAILED = "X-Merchants-Failed";
+
+    /**
+     * The http header reporting the number of merchants timed out
+     */
+    public static final String HEADER_MERCHANTS_TIMED_OUT = "X-Merchants-Timed-Out";
+
+    /**
+     * The http header reporting the number of merchants cancelled because
+     * the search of the winner finished early
+     */
+    public static final String HEADER_MERCHANTS_CANCELLED = "X-Merchants-Cancelled";
+
+    /**
+     * The http header reporting whether a product response was served from
+     * the cache or the offer index of the product hub
+     */
+    public static final String HEADER_CACHE = "X-Cache";
+
+    /**
+     * The values of the http header X-Cache
+     */
+    public static final String CACHE_HIT = "HIT";
+    public static final String CACHE_STALE = "STALE";
+    public static final String CACHE_MISS = "MISS";
+    public static final String CACHE_INDEX = "INDEX";
+
     /**
      * Builds an http entity for the given request. The http header contentType
      * will be set to APPLICATION_JSON.
@@ -25,6 +72,66 @@ public class HttpUtils {
         return buildHttpEntityWithContentType(request, MediaType.APPLICATION_JSON);
     }
 
+    /**
+     * Builds an http entity for the given encoded body of a request sent to a
+     * merchant in the given wire format. The http header contentType will be
+     * set to the media type of the wire format, the http header accept to the
+     * media types of the product responses understood from the merchant (see
+     * {@link #acceptedMediaTypes}) and the http header X-Request-Timeout to
+     * the milliseconds remaining until the given deadline. The body is sent
+     * as is, without being serialized again.
+     *
+     * @param body the encoded body of the product request
+     * @param format the wire format of the merchant
+     * @param deadline the deadline of the product request
+     *
+     * @return the HttpEntity of an encoded product request
+     */
+    public static HttpEntity<byte[]> buildHttpEntity(@NotNull byte[] body, @NotNull WireFormat format,
+            @NotNull Deadline deadline) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(format.getMediaType());
+        headers.setAccept(acceptedMediaTypes(format));
+        headers.set(HEADER_REQUEST_TIMEOUT, String.valueOf(deadline.remainingMillis()));
+
+        return new HttpEntity<>(body, headers);
+    }
+
+    /**
+     * Gets the media types of the product responses understood from a
+     * merchant of the given wire format. A merchant of a binary wire format
+     * may still answer in json.
+     *
+     * @param format the wire format of the merchant
+     *
+     * @return the media types in order of preference
+     */
+    public static List<MediaType> acceptedMediaTypes(@NotNull WireFormat format) {
+        return format.isBinary()
+                ? Arrays.asList(format.getMediaType(), MediaType.APPLICATION_JSON)
+                : Collections.singletonList(MediaType.APPLICATION_JSON);
+    }
+
+    /**
+     * Builds an http entity for the given batch of requests. The http header
+     * contentType will be set to APPLICATION_JSON and the http header
+     * X-Request-Timeout will be set to the milliseconds remaining until the
+     * given deadline.
+     *
+     * @param requests the product requests
+     * @param deadline the deadline of the product requests
+     *
+     * @return the HttpEntity of a batch of product requests
+     */
+    public static HttpEntity<List<MerchantProductRequest>> buildBatchHttpEntityAppJson(
+            @NotNull List<MerchantProductRequest> requests, @NotNull Deadline deadline) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set(HEADER_REQUEST_TIMEOUT, String.valueOf(deadline.remainingMillis()));
+
+        return new HttpEntity<>(requests, headers);
+    }
+
     /**
      * Builds an http entity for the given request. The http header contentType
      * will be set to the given media type.
@@ -0,0 +1,48 @@
+package com.company.producthub.utils;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import javax.validation.constraints.NotNull;
+
+/**
+ * Represents utilities for virtual threads. Virtual threads are available
+ * on a jdk 21 or later, while the project targets java 1.8, so they are
+ * created reflectively.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+public class VirtualThreads {
+
+    /**
+     * Creates an executor starting a new virtual thread for each task. The
+     * threads are named by the given prefix followed by a sequence number.
+     *
+     * @param namePrefix the prefix of the names of the threads
+     *
+     * @return the executor
+     *
+     * @throws UnsupportedOperationException if the jdk does not support
+     * virtual threads
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor(@NotNull String namePrefix) {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, namePrefix, 0L);
+            ThreadFactory threadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+            Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor",
+                    ThreadFactory.class);
+
+            return (ExecutorService) newThreadPerTaskExecutor.invoke(null, threadFactory);
+        } catch (ClassNotFoundException | NoSuchMethodException | IllegalAccessException ex) {
+            throw new UnsupportedOperationException("Virtual threads are not supported by java "
+                    + System.getProperty("java.version"), ex);
+        } catch (InvocationTargetException ex) {
+            throw new UnsupportedOperationException("Virtual threads are not enabled on java "
+                    + System.getProperty("java.version"), ex.getCause());
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.company.producthub.test;
+
+import com.company.producthub.services.AdaptiveConcurrencyLimiter;
+import java.util.concurrent.TimeUnit;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Represents AdaptiveConcurrencyLimiter's unit Test.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+public class AdaptiveConcurrencyLimiterTest {
+
+    /**
+     * Tests the case described below:
+     * The requests in flight reach the limit.
+     * The next request should be rejected until a request is released.
+     */
+    @Test
+    public void reject_requests_beyond_limit() {
+        // GIVEN
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 1, 10, 0.2, 1.5, 100);
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+
+        // WHEN
+        boolean acquired = limiter.tryAcquire();
+
+        // THEN
+        assertFalse(acquired);
+        assertEquals(2, limiter.getInFlight());
+        limiter.release(TimeUnit.MILLISECONDS.toNanos(10), false);
+        assertTrue(limiter.tryAcquire());
+    }
+
+    /**
+     * Tests the case described below:
+     * The limit is fully used while the latency is steady, then the latency
+     * grows tenfold.
+     * The limit should grow while the latency is steady and shrink once the
+     * latency grows.
+     */
+    @Test
+    public void adapt_limit_to_latency() {
+        // GIVEN
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(10, 1, 100, 0.2, 1.5, 600);
+        saturate(limiter, 10, TimeUnit.MILLISECONDS.toNanos(10));
+        int steadyLimit = limiter.getLimit();
+
+        // WHEN
+        saturate(limiter, 10, TimeUnit.MILLISECONDS.toNanos(100));
+
+        // THEN
+        assertTrue(steadyLimit > 10);
+        assertTrue(limiter.getLimit() < steadyLimit);
+    }
+
+    private void saturate(AdaptiveConcurrencyLimiter limiter, int rounds, long rttNanos) {
+        for (int round = 0; round < rounds; round++) {
+            int acquired = 0;
+            while (limiter.tryAcquire()) {
+                acquired++;
+            }
+            for (int i = 0; i < acquired; i++) {
+                limiter.release(rttNanos, true);
+            }
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.company.producthub.test;
+
+import com.company.producthub.cache.CacheSnapshot;
+import com.company.producthub.cache.CachedProductResponse;
+import com.company.producthub.cache.TermOffers;
+import com.company.producthub.entities.SearchCriteria;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Represents CacheSnapshot's unit Test.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+public class CacheSnapshotTest {
+
+    private static final String MERCHANT_URL = "http://merchant-1.com/api/product";
+    private static final long TTL_MILLIS = 30000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path file;
+    private long nowMillis;
+    private Map<SearchCriteria, CachedProductResponse> winners;
+    private Map<String, TermOffers> offers;
+
+    @Before
+    public void setUp() throws IOException {
+        file = folder.getRoot().toPath().resolve("cache.snapshot");
+        nowMillis = System.currentTimeMillis();
+        winners = new HashMap<>();
+        winners.put(new SearchCriteria("car", 12000, 17000),
+                new CachedProductResponse(body("winner"), nowMillis - 1000));
+        winners.put(new SearchCriteria("car", 12000, 0), new CachedProductResponse(null, nowMillis - 2000));
+        offers = new HashMap<>();
+        offers.put("car", TermOffers.empty()
+                .answer(MERCHANT_URL, 12000, 17000, 15500, body("offer"), nowMillis, TTL_MILLIS));
+        CacheSnapshot.write(file, winners, offers, nowMillis);
+    }
+
+    /**
+     * Tests the case described below:
+     * A snapshot of winners and offers is written and opened.
+     * The winners and offers should be found as written, keeping the time
+     * they were created, and the missing ones should not be found.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void find_winners_and_offers_written() throws IOException {
+        // WHEN
+        CacheSnapshot snapshot = CacheSnapshot.open(file);
+
+        // THEN
+        assertEquals(nowMillis, snapshot.getCreatedMillis());
+        assertEquals(2, snapshot.getWinnerCount());
+        CachedProductResponse winner = snapshot.findWinner(new SearchCriteria("car", 12000, 17000));
+        assertArrayEquals(body("winner"), winner.getBody());
+        assertEquals(nowMillis - 1000, winner.getCreatedMillis());
+        CachedProductResponse noWinner = snapshot.findWinner(new SearchCriteria("car", 12000, 0));
+        assertNull(noWinner.getBody());
+        assertNull(snapshot.findWinner(new SearchCriteria("car", 13000, 17000)));
+        TermOffers termOffers = snapshot.findOffers("car");
+        assertNotNull(termOffers);
+        assertArrayEquals(body("offer"), termOffers.findCheapest(Arrays.asList(MERCHANT_URL), 14000, 16000,
+                nowMillis, TTL_MILLIS).getBody());
+        assertNull(snapshot.findOffers("truck"));
+        assertEquals(3, snapshot.getRestoredCount());
+    }
+
+    /**
+     * Tests the case described below:
+     * A snapshot is written having a winner and offers of a search term
+     * longer than 65535 bytes.
+     * The entries of the long search term should be skipped, while the rest
+     * should be found as written.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void skip_winners_and_offers_of_search_term_too_long() throws IOException {
+        // GIVEN
+        String longTerm = new String(new char[70000]).replace('\0', 'a');
+        SearchCriteria longCriteria = new SearchCriteria(longTerm, 12000, 17000);
+        winners.put(longCriteria, new CachedProductResponse(body("long"), nowMillis));
+        offers.put(longTerm, TermOffers.empty()
+                .answer(MERCHANT_URL, 12000, 17000, 15500, body("long"), nowMillis, TTL_MILLIS));
+        CacheSnapshot.write(file, winners, offers, nowMillis);
+
+        // WHEN
+        CacheSnapshot snapshot = CacheSnapshot.open(file);
+
+        // THEN
+        assertEquals(2, snapshot.getWinnerCount());
+        assertEquals(1, snapshot.getTermCount());
+        assertNull(snapshot.findWinner(longCriteria));
+        assertNull(snapshot.findOffers(longTerm));
+        assertArrayEquals(body("winner"),
+                snapshot.findWinner(new SearchCriteria("car", 12000, 17000)).getBody());
+        assertNotNull(snapshot.findOffers("car"));
+    }
+
+    /**
+     * Tests the case described below:
+     * A byte of a snapshot is corrupted.
+     * The snapshot should not be opened.
+     *
+     * @throws IOException
+     */
+    @Test(expected = IOException.class)
+    public void not_open_corrupted_snapshot() throws IOException {
+        // GIVEN
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[20] ^= 1;
+        Files.write(file, bytes);
+
+        // WHEN
+        CacheSnapshot.open(file);
+    }
+
+    /**
+     * Tests the case described below:
+     * A snapshot of another version is found.
+     * The snapshot should not be opened.
+     *
+     * @throws IOException
+     */
+    @Test(expected = IOException.class)
+    public void not_open_snapshot_of_other_version() throws IOException {
+        // GIVEN
+        byte[] bytes = Files.readAllBytes(file);
+        ByteBuffer.wrap(bytes).putInt(4, CacheSnapshot.VERSION + 1);
+        Files.write(file, bytes);
+
+        // WHEN
+        CacheSnapshot.open(file);
+    }
+
+    private static byte[] body(String name) {
+        return ("{\"id\":\"" + name + "\"}").getBytes(StandardCharsets.UTF_8);
+    }
+}
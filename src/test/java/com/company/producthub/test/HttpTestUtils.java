@@ -0,0 +1,39 @@
+package com.company.producthub.test;
+
+import com.company.producthub.entities.ProductRequest;
+import com.company.producthub.utils.Deadline;
+import com.company.producthub.utils.HttpUtils;
+import javax.validation.constraints.NotNull;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+
+/**
+ * Represents the http utilities shared by the tests of the product hub.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+final class HttpTestUtils {
+
+    private HttpTestUtils() {
+    }
+
+    /**
+     * Builds an http entity for the given request. The http header contentType
+     * will be set to APPLICATION_JSON and the http header X-Request-Timeout
+     * will be set to the milliseconds remaining until the given deadline.
+     *
+     * @param request the product request
+     * @param deadline the deadline of the product request
+     *
+     * @return the HttpEntity of a product request
+     */
+    static HttpEntity<ProductRequest> buildHttpEntityAppJson(@NotNull ProductRequest request,
+            @NotNull Deadline deadline) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON);
+        headers.set(HttpUtils.HEADER_REQUEST_TIMEOUT, String.valueOf(deadline.remainingMillis()));
+
+        return new HttpEntity<>(request, headers);
+    }
+}
@@ -0,0 +1,124 @@
+package com.company.producthub.test;
+
+import com.company.producthub.entities.RegisteredMerchant;
+import com.company.producthub.services.MerchantRegistry;
+import com.company.producthub.transport.MerchantCompression;
+import com.company.producthub.transport.MerchantCompressionInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.zip.GZIPOutputStream;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.client.MockRestServiceServer;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.header;
+import static org.springframework.test.web.client.match.MockRestRequestMatchers.requestTo;
+import static org.springframework.test.web.client.response.MockRestResponseCreators.withSuccess;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Represents MerchantCompression's unit Test.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+public class MerchantCompressionTest {
+
+    private static final String MERCHANT_URL = "http://merchant-1.com/api/product";
+    private static final String SMALL_MERCHANT_URL = "http://merchant-2.com/api/product";
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private RestTemplate template;
+    private MockRestServiceServer server;
+
+    @Before
+    public void setUp() {
+        MerchantRegistry merchantRegistry = new MerchantRegistry();
+        merchantRegistry.update(Arrays.asList(
+                new RegisteredMerchant("1", "merchant_1", MERCHANT_URL, null, null, 64, Collections.emptySet()),
+                new RegisteredMerchant("2", "merchant_2", SMALL_MERCHANT_URL, null, null, 4096,
+                        Collections.emptySet())));
+        template = new RestTemplate();
+        template.getInterceptors().add(new MerchantCompressionInterceptor(
+                new MerchantCompression(merchantRegistry, meterRegistry, true, 1024)));
+        server = MockRestServiceServer.bindTo(template).build();
+    }
+
+    /**
+     * Tests the case described below:
+     * A body reaching the compression size of its merchant is sent, and the
+     * merchant answers with a compressed body.
+     * The body should be sent compressed and the response should be read
+     * decompressed, recording the compression ratio of both.
+     */
+    @Test
+    public void compress_request_and_decompress_response_from_compression_size() throws IOException {
+        // GIVEN
+        String body = buildBody(512);
+        HttpHeaders responseHeaders = new HttpHeaders();
+        responseHeaders.set(HttpHeaders.CONTENT_ENCODING, MerchantCompression.GZIP);
+        server.expect(requestTo(MERCHANT_URL))
+                .andExpect(header(HttpHeaders.CONTENT_ENCODING, MerchantCompression.GZIP))
+                .andExpect(header(HttpHeaders.ACCEPT_ENCODING, MerchantCompression.GZIP))
+                .andRespond(withSuccess(gzip(body), MediaType.APPLICATION_JSON).headers(responseHeaders));
+
+        // WHEN
+        String response = template.postForObject(MERCHANT_URL, new HttpEntity<>(body), String.class);
+
+        // THEN
+        server.verify();
+        assertEquals(body, response);
+        assertEquals(1, meterRegistry.summary("products.merchant.compression.ratio",
+                "direction", "request").count());
+        assertEquals(1, meterRegistry.summary("products.merchant.compression.ratio",
+                "direction", "response").count());
+    }
+
+    /**
+     * Tests the case described below:
+     * A body below the compression size of its merchant is sent.
+     * The body should be sent uncompressed and counted as skipped.
+     */
+    @Test
+    public void skip_compression_below_compression_size() {
+        // GIVEN
+        String body = buildBody(512);
+        server.expect(requestTo(SMALL_MERCHANT_URL))
+                .andExpect(request -> assertNull(request.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING)))
+                .andRespond(withSuccess(body, MediaType.APPLICATION_JSON));
+
+        // WHEN
+        String response = template.postForObject(SMALL_MERCHANT_URL, new HttpEntity<>(body), String.class);
+
+        // THEN
+        server.verify();
+        assertEquals(body, response);
+        assertEquals(1, meterRegistry.counter("products.merchant.compression.skipped").count(), 0);
+    }
+
+    private String buildBody(int size) {
+        StringBuilder body = new StringBuilder("{\"description\":\"");
+        while (body.length() < size) {
+            body.append("Apple iPhone XS ");
+        }
+
+        return body.append("\"}").toString();
+    }
+
+    private byte[] gzip(String body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,79 @@
+package com.company.producthub.test;
+
+import com.company.producthub.services.MerchantHealth;
+import com.company.producthub.services.MerchantHealth.CircuitState;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Represents MerchantHealth's unit Test.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+public class MerchantHealthTest {
+
+    /**
+     * Tests the case described below:
+     * The failure rate of a merchant reaches the threshold.
+     * The circuit should open and skip calls, then become half-open after the
+     * open duration and close when the trial calls succeed, forgetting the
+     * outcomes of the calls but not their latencies.
+     */
+    @Test
+    public void open_and_close_circuit_by_failure_rate() {
+        // GIVEN
+        MerchantHealth health = new MerchantHealth(60000, 6, 0.5, 4, 1000, 2);
+        long nowMillis = 100000;
+        health.recordSuccess(50, nowMillis);
+        health.recordSuccess(50, nowMillis);
+        health.recordFailure(50, nowMillis);
+
+        // WHEN
+        health.recordFailure(50, nowMillis);
+
+        // THEN
+        assertEquals(CircuitState.OPEN, health.getCircuitState());
+        assertFalse(health.tryAcquire(nowMillis + 999));
+        assertTrue(health.tryAcquire(nowMillis + 1000));
+        assertTrue(health.tryAcquire(nowMillis + 1000));
+        assertFalse(health.tryAcquire(nowMillis + 1000));
+        assertEquals(CircuitState.HALF_OPEN, health.getCircuitState());
+        health.recordSuccess(50, nowMillis + 1010);
+        health.recordSuccess(50, nowMillis + 1020);
+        assertEquals(CircuitState.CLOSED, health.getCircuitState());
+        assertEquals(0, health.callCount(nowMillis + 1020));
+        assertEquals(0, health.failureRate(nowMillis + 1020), 0);
+        long p50Millis = health.percentileMillis(0.5, nowMillis + 1020);
+        assertTrue(p50Millis >= 50 && p50Millis < 63);
+    }
+
+    /**
+     * Tests the case described below:
+     * A merchant answers with steady latencies within the window.
+     * The percentiles should be close to the observed latencies and the calls
+     * older than the window should be forgotten.
+     */
+    @Test
+    public void compute_percentiles_of_rolling_window() {
+        // GIVEN
+        MerchantHealth health = new MerchantHealth(60000, 6, 0.5, 10, 1000, 2);
+        long nowMillis = 100000;
+        for (int i = 0; i < 99; i++) {
+            health.recordSuccess(100, nowMillis);
+        }
+        health.recordSuccess(2000, nowMillis);
+
+        // WHEN
+        long p50Millis = health.percentileMillis(0.5, nowMillis);
+        long p99Millis = health.percentileMillis(0.99, nowMillis);
+        long p100Millis = health.percentileMillis(1, nowMillis);
+
+        // THEN
+        assertTrue(p50Millis >= 100 && p50Millis < 125);
+        assertTrue(p99Millis >= 100 && p99Millis < 125);
+        assertTrue(p100Millis >= 2000 && p100Millis < 2500);
+        assertEquals(-1, health.percentileMillis(0.99, nowMillis + 70000));
+    }
+}
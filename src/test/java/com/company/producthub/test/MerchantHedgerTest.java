@@ -0,0 +1,207 @@
+package com.company.producthub.test;
+
+import com.company.producthub.entities.ProductResponse;
+import com.company.producthub.services.MerchantHealthTracker;
+import com.company.producthub.services.MerchantHedger;
+import com.company.producthub.utils.Deadline;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Represents MerchantHedger's unit Test.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+public class MerchantHedgerTest {
+
+    private static final String MERCHANT_URL = "http://merchant-1.com/api/product";
+    private static final long HEDGE_DELAY_MILLIS = 10;
+    private static final long WAIT_MILLIS = 5000;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final List<CompletableFuture<ProductResponse>> calls = new CopyOnWriteArrayList<>();
+    private MerchantHedger hedger;
+
+    @Before
+    public void setUp() {
+        MerchantHealthTracker merchantHealthTracker = mock(MerchantHealthTracker.class);
+        when(merchantHealthTracker.percentileMillis(eq(MERCHANT_URL), anyDouble())).thenReturn(HEDGE_DELAY_MILLIS);
+        hedger = new MerchantHedger();
+        ReflectionTestUtils.setField(hedger, "merchantHealthTracker", merchantHealthTracker);
+        ReflectionTestUtils.setField(hedger, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(hedger, "enabled", true);
+        ReflectionTestUtils.setField(hedger, "percentile", 0.95);
+        ReflectionTestUtils.setField(hedger, "budgetRatio", 0.5);
+        ReflectionTestUtils.setField(hedger, "budgetBurst", 1);
+        hedger.init();
+    }
+
+    @After
+    public void tearDown() {
+        hedger.destroy();
+    }
+
+    /**
+     * Tests the case described below:
+     * The primary call does not answer within the latency percentile of the
+     * merchant and the hedge answers first.
+     * The product response of the hedge should win and the primary call
+     * should be cancelled.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void win_with_hedge_and_cancel_primary_call() throws Exception {
+        // GIVEN
+        ProductResponse prodResp = new ProductResponse();
+        CompletableFuture<ProductResponse> winner = hedge();
+        awaitCalls(2);
+
+        // WHEN
+        calls.get(1).complete(prodResp);
+
+        // THEN
+        assertSame(prodResp, winner.get(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+        assertTrue(calls.get(0).isCancelled());
+        assertEquals(1, hedgeCount("issued"), 0);
+        assertEquals(1, hedgeCount("won"), 0);
+    }
+
+    /**
+     * Tests the case described below:
+     * The primary call answers after the hedge was sent.
+     * The product response of the primary call should win and the hedge
+     * call itself should be cancelled.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void win_with_primary_call_and_cancel_hedge_call() throws Exception {
+        // GIVEN
+        ProductResponse prodResp = new ProductResponse();
+        CompletableFuture<ProductResponse> winner = hedge();
+        awaitCalls(2);
+
+        // WHEN
+        calls.get(0).complete(prodResp);
+
+        // THEN
+        assertSame(prodResp, winner.get(WAIT_MILLIS, TimeUnit.MILLISECONDS));
+        assertTrue(calls.get(1).isCancelled());
+        assertEquals(0, hedgeCount("won"), 0);
+    }
+
+    /**
+     * Tests the case described below:
+     * Both the primary and the hedge call fail.
+     * The winner should fail only once both calls have failed.
+     *
+     * @throws Exception
+     */
+    @Test(expected = ExecutionException.class)
+    public void fail_if_both_calls_fail() throws Exception {
+        // GIVEN
+        CompletableFuture<ProductResponse> winner = hedge();
+        awaitCalls(2);
+        calls.get(0).completeExceptionally(new IllegalStateException("primary"));
+        assertFalse(winner.isDone());
+
+        // WHEN
+        calls.get(1).completeExceptionally(new IllegalStateException("hedge"));
+
+        // THEN
+        winner.get(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Tests the case described below:
+     * Three slow calls are sent to a merchant with a budget bursting to a
+     * single hedge and depositing half a token per call.
+     * The first call should withdraw the full budget, the second should be
+     * throttled, and the third should be hedged by the tokens deposited.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void hedge_within_budget_deposited_by_calls() throws Exception {
+        // WHEN
+        hedge();
+        awaitCalls(2);
+        CompletableFuture<ProductResponse> throttled = hedge();
+        hedge();
+        awaitCalls(5);
+
+        // THEN
+        assertSame(calls.get(2), throttled);
+        assertEquals(2, hedgeCount("issued"), 0);
+        assertEquals(1, hedgeCount("throttled"), 0);
+        assertEquals(0, meterRegistry.get("products.merchant.hedge.budget").gauge().value(), 0);
+    }
+
+    /**
+     * Tests the case described below:
+     * Hedging is disabled and the call does not answer within the latency
+     * percentile of the merchant.
+     * The call should be returned as is, without any hedge scheduled.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void send_single_call_if_hedging_disabled() throws Exception {
+        // GIVEN
+        hedger.destroy();
+        hedger = new MerchantHedger();
+        ReflectionTestUtils.setField(hedger, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(hedger, "enabled", false);
+        hedger.init();
+
+        // WHEN
+        CompletableFuture<ProductResponse> winner = hedge();
+        Thread.sleep(HEDGE_DELAY_MILLIS * 5);
+
+        // THEN
+        assertSame(calls.get(0), winner);
+        assertEquals(1, calls.size());
+        assertEquals(0, hedgeCount("issued"), 0);
+    }
+
+    private CompletableFuture<ProductResponse> hedge() {
+        return hedger.hedge(MERCHANT_URL, Deadline.after(WAIT_MILLIS), () -> {
+            CompletableFuture<ProductResponse> call = new CompletableFuture<>();
+            calls.add(call);
+            return call;
+        });
+    }
+
+    private double hedgeCount(String outcome) {
+        return meterRegistry.counter("products.merchant.hedges", "outcome", outcome).count();
+    }
+
+    private void awaitCalls(int count) throws InterruptedException, TimeoutException {
+        long deadlineMillis = System.currentTimeMillis() + WAIT_MILLIS;
+        while (calls.size() < count) {
+            if (System.currentTimeMillis() > deadlineMillis) {
+                throw new TimeoutException(calls.size() + " calls sent instead of " + count);
+            }
+            Thread.sleep(5);
+        }
+    }
+}
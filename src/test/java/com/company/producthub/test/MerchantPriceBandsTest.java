@@ -0,0 +1,91 @@
+package com.company.producthub.test;
+
+import com.company.producthub.entities.PriceBand;
+import com.company.producthub.entities.RegisteredMerchant;
+import com.company.producthub.services.MerchantPriceBands;
+import com.company.producthub.services.MerchantRegistry;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Represents MerchantPriceBands's unit Test.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+public class MerchantPriceBandsTest {
+
+    private RegisteredMerchant declaredMerchant;
+    private RegisteredMerchant unknownMerchant;
+    private MerchantPriceBands priceBands;
+
+    @Before
+    public void setUp() {
+        declaredMerchant = new RegisteredMerchant("1", "merchant_1", "http://merchant-1.com/api/product", null,
+                null, null, new HashSet<>(Arrays.asList("car", "truck")),
+                Collections.singletonMap("car", new PriceBand(8000, 20000)));
+        unknownMerchant = new RegisteredMerchant("2", "merchant_2", "http://merchant-2.com/api/product", null,
+                null, null, Collections.singleton("car"), null);
+        MerchantRegistry merchantRegistry = new MerchantRegistry();
+        merchantRegistry.update(Arrays.asList(declaredMerchant, unknownMerchant));
+        priceBands = new MerchantPriceBands(merchantRegistry, 3, 0);
+    }
+
+    /**
+     * Tests the case described below:
+     * A merchant declares a price band for the category of the search term.
+     * The merchant should be called only for price ranges overlapping it,
+     * with an unbounded maximum price overlapping any band above the minimum.
+     */
+    @Test
+    public void call_merchant_only_if_declared_price_band_overlaps_range() {
+        // WHEN / THEN
+        assertTrue(priceBands.mayOffer(declaredMerchant, "car", 12000, 17000));
+        assertTrue(priceBands.mayOffer(declaredMerchant, "car", 15000, 0));
+        assertFalse(priceBands.mayOffer(declaredMerchant, "car", 30000, 50000));
+        assertFalse(priceBands.mayOffer(declaredMerchant, "car", 1000, 5000));
+        assertTrue(priceBands.mayOffer(declaredMerchant, "truck", 30000, 50000));
+    }
+
+    /**
+     * Tests the case described below:
+     * A merchant without a declared price band answers offers.
+     * The merchant should be called for any price range until the minimum
+     * observations, and then only for price ranges overlapping the prices
+     * observed.
+     */
+    @Test
+    public void call_merchant_only_if_learned_price_band_overlaps_range() {
+        // GIVEN
+        priceBands.observe(unknownMerchant, "car", 15000);
+        priceBands.observe(unknownMerchant, "car", 18000);
+
+        // WHEN / THEN
+        assertTrue(priceBands.mayOffer(unknownMerchant, "car", 30000, 50000));
+
+        // GIVEN
+        priceBands.observe(unknownMerchant, "car", 16000);
+
+        // WHEN / THEN
+        assertFalse(priceBands.mayOffer(unknownMerchant, "car", 30000, 50000));
+        assertTrue(priceBands.mayOffer(unknownMerchant, "car", 17000, 30000));
+    }
+
+    /**
+     * Tests the case described below:
+     * A merchant answers an offer out of its declared price band.
+     * The declared price band should be widened at once by the offer.
+     */
+    @Test
+    public void widen_declared_price_band_by_observed_offer() {
+        // GIVEN
+        priceBands.observe(declaredMerchant, "car", 35000);
+
+        // WHEN / THEN
+        assertTrue(priceBands.mayOffer(declaredMerchant, "car", 30000, 50000));
+    }
+}
@@ -0,0 +1,160 @@
+package com.company.producthub.test;
+
+import com.company.producthub.entities.RegisteredMerchant;
+import com.company.producthub.services.MerchantRegistry;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Represents MerchantRegistry's unit Test.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+public class MerchantRegistryTest {
+
+    private static final String MERCHANT_JSON = "{\"id\":\"%1$s\",\"name\":\"merchant_%1$s\","
+            + "\"apiUrl\":\"http://merchant-%1$s.com/api/product\",\"categories\":[\"%2$s\"]}";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final RegisteredMerchant sportsCarMerchant = buildMerchant("1", null, "Sports Car", "motorbike");
+    private final RegisteredMerchant carMerchant = buildMerchant("2", "http://merchant-2.com/api/products/batch",
+            "car");
+    private final RegisteredMerchant truckMerchant = buildMerchant("3", null, "truck");
+    private MerchantRegistry registry;
+
+    @Before
+    public void setUp() {
+        registry = new MerchantRegistry();
+        ReflectionTestUtils.setField(registry, "resourceLoader", new DefaultResourceLoader());
+        ReflectionTestUtils.setField(registry, "mapper", new ObjectMapper());
+    }
+
+    /**
+     * Tests the case described below:
+     * Merchants are registered with categories of one or more tokens.
+     * A merchant should be found if any of its category tokens is equal to
+     * any token of the normalized search term, once per search term.
+     */
+    @Test
+    public void find_merchants_by_any_token_of_search_term() {
+        // GIVEN
+        registry.update(Arrays.asList(sportsCarMerchant, carMerchant, truckMerchant));
+
+        // WHEN
+        // THEN
+        assertEquals(Arrays.asList(sportsCarMerchant, carMerchant),
+                Arrays.asList(registry.findBySearchTerm("  Sports   CAR ").toArray()));
+        assertEquals(Arrays.asList(sportsCarMerchant, carMerchant),
+                Arrays.asList(registry.findBySearchTerm("car").toArray()));
+        assertEquals(Collections.singletonList(truckMerchant),
+                Arrays.asList(registry.findBySearchTerm("TRUCK").toArray()));
+        assertTrue(registry.findBySearchTerm("bicycle").isEmpty());
+        assertTrue(registry.findBySearchTerm(null).isEmpty());
+        assertEquals(Collections.singletonList("sports car"),
+                registry.findCategories(sportsCarMerchant, "red car"));
+    }
+
+    /**
+     * Tests the case described below:
+     * A merchant advertises both an api url and a batch api url.
+     * The merchant should be found by either of them and no merchant by an
+     * unknown url.
+     */
+    @Test
+    public void find_merchant_by_api_url_or_batch_api_url() {
+        // GIVEN
+        registry.update(Arrays.asList(sportsCarMerchant, carMerchant, truckMerchant));
+
+        // WHEN
+        // THEN
+        assertSame(carMerchant, registry.findByApiUrl("http://merchant-2.com/api/product"));
+        assertSame(carMerchant, registry.findByApiUrl("http://merchant-2.com/api/products/batch"));
+        assertSame(truckMerchant, registry.findByApiUrl("http://merchant-3.com/api/product"));
+        assertNull(registry.findByApiUrl("http://merchant-4.com/api/product"));
+    }
+
+    /**
+     * Tests the case described below:
+     * The file of the registry is changed after it was loaded.
+     * The merchants of the changed file should replace the loaded ones, and
+     * a file reloaded without being changed should be ignored.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void reload_merchants_when_file_changes() throws IOException {
+        // GIVEN
+        File file = writeRegistry(null, "[" + String.format(MERCHANT_JSON, "1", "car") + "]");
+        ReflectionTestUtils.setField(registry, "location", file.toURI().toString());
+        registry.init();
+        writeRegistry(file, "[" + String.format(MERCHANT_JSON, "2", "truck") + ","
+                + String.format(MERCHANT_JSON, "3", "truck") + "]");
+
+        // WHEN
+        registry.reloadIfModified();
+        registry.reloadIfModified();
+
+        // THEN
+        assertEquals(2, registry.getMerchants().size());
+        assertTrue(registry.findBySearchTerm("car").isEmpty());
+        assertEquals(2, registry.findBySearchTerm("truck").size());
+        assertNull(registry.findByApiUrl("http://merchant-1.com/api/product"));
+        assertEquals("merchant_2", registry.findByApiUrl("http://merchant-2.com/api/product").getName());
+    }
+
+    /**
+     * Tests the case described below:
+     * The file of the registry is changed to a malformed one.
+     * The merchants loaded before should be kept.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void keep_merchants_if_changed_file_is_malformed() throws IOException {
+        // GIVEN
+        File file = writeRegistry(null, "[" + String.format(MERCHANT_JSON, "1", "car") + "]");
+        ReflectionTestUtils.setField(registry, "location", file.toURI().toString());
+        registry.init();
+        writeRegistry(file, "[{\"id\":");
+
+        // WHEN
+        registry.reloadIfModified();
+
+        // THEN
+        assertEquals(1, registry.getMerchants().size());
+        assertEquals("merchant_1", registry.findBySearchTerm("car").iterator().next().getName());
+    }
+
+    private File writeRegistry(File file, String json) throws IOException {
+        File registryFile = file == null ? folder.newFile("merchants.json") : file;
+        long lastModified = registryFile.lastModified();
+        Files.write(registryFile.toPath(), json.getBytes(StandardCharsets.UTF_8));
+        // the file system may keep the modification time in seconds
+        registryFile.setLastModified(Math.max(lastModified, System.currentTimeMillis()) + 2000);
+
+        return registryFile;
+    }
+
+    private static RegisteredMerchant buildMerchant(String id, String batchApiUrl, String... categories) {
+        return new RegisteredMerchant(id, "merchant_" + id, "http://merchant-" + id + ".com/api/product",
+                batchApiUrl, new LinkedHashSet<>(Arrays.asList(categories)));
+    }
+}
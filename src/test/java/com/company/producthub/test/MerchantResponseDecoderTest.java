@@ -0,0 +1,299 @@
+package com.company.producthub.test;
+
+import com.company.producthub.entities.ProductRequest;
+import com.company.producthub.entities.ProductResponse;
+import com.company.producthub.entities.ProductSearchContext;
+import com.company.producthub.entities.WireFormat;
+import com.company.producthub.transport.MerchantOfferRejectedException;
+import com.company.producthub.transport.MerchantResponseDecoder;
+import com.company.producthub.transport.MerchantResponseTooLargeException;
+import com.company.producthub.transport.WireFormatMappers;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import reactor.core.publisher.Flux;
+
+/**
+ * Represents MerchantResponseDecoder's unit Test.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+public class MerchantResponseDecoderTest {
+
+    private static final String PROD_RESP_JSON = "{\"id\":\"1\",\"product\":{\"id\":\"p1\",\"price\":%s,"
+            + "\"description\":\"Apple iPhone XS\"}}";
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final WireFormatMappers mappers = new WireFormatMappers(new ObjectMapper(),
+            Jackson2ObjectMapperBuilder.json());
+    private final MerchantResponseDecoder decoder = new MerchantResponseDecoder(mappers, meterRegistry, 1024);
+
+    /**
+     * Tests the case described below:
+     * A merchant answers with an offer within the price range of the product
+     * request and below its offer ceiling.
+     * The product response should be decoded as a whole.
+     */
+    @Test
+    public void decode_offer_within_price_range() throws IOException {
+        // GIVEN
+        ProductSearchContext search = buildSearch(10000, 20000);
+        search.setOfferCeiling(15000);
+
+        // WHEN
+        ProductResponse prodResp = decode(String.format(PROD_RESP_JSON, "14700"), search);
+
+        // THEN
+        assertEquals("1", prodResp.getId());
+        assertEquals("p1", prodResp.getProduct().getId());
+        assertEquals(14700, prodResp.getProduct().getPrice(), 0);
+        assertEquals("Apple iPhone XS", prodResp.getProduct().getDescription());
+    }
+
+    /**
+     * Tests the case described below:
+     * A merchant answers with the price first, followed by the rest of the
+     * product and the id of the product response.
+     * The tokens read after the price should be bound along with the ones
+     * buffered before it.
+     */
+    @Test
+    public void decode_offer_read_after_price() throws IOException {
+        // GIVEN
+        ProductSearchContext search = buildSearch(10000, 20000);
+        search.setOfferCeiling(15000);
+        String body = "{\"product\":{\"price\":14700,\"id\":\"p1\",\"description\":\"Apple iPhone XS\"},"
+                + "\"id\":\"1\"}";
+
+        // WHEN
+        ProductResponse prodResp = decode(body, search);
+
+        // THEN
+        assertEquals("1", prodResp.getId());
+        assertEquals("p1", prodResp.getProduct().getId());
+        assertEquals(14700, prodResp.getProduct().getPrice(), 0);
+        assertEquals("Apple iPhone XS", prodResp.getProduct().getDescription());
+    }
+
+    /**
+     * Tests the case described below:
+     * A merchant answers in CBOR with an offer above the offer ceiling of the
+     * search.
+     * The offer should be rejected as it would be in json.
+     */
+    @Test
+    public void reject_offer_above_ceiling_in_binary_wire_format() throws IOException {
+        // GIVEN
+        ProductSearchContext search = buildSearch(10000, 20000);
+        search.setOfferCeiling(15000);
+        ProductResponse prodResp = new ObjectMapper().readValue(String.format(PROD_RESP_JSON, "15500"),
+                ProductResponse.class);
+        byte[] body = mappers.get(WireFormat.CBOR).writeValueAsBytes(prodResp);
+
+        // WHEN
+        boolean rejected = isRejected(() -> decoder.decode(new ByteArrayInputStream(body), body.length, search,
+                WireFormat.CBOR));
+        search.setOfferCeiling(Double.POSITIVE_INFINITY);
+        ProductResponse accepted = decoder.decode(new ByteArrayInputStream(body), body.length, search,
+                WireFormat.CBOR);
+
+        // THEN
+        assertTrue(rejected);
+        assertEquals(prodResp.getProduct().getPrice(), accepted.getProduct().getPrice(), 0);
+        assertEquals("Apple iPhone XS", accepted.getProduct().getDescription());
+    }
+
+    /**
+     * Tests the case described below:
+     * Merchants answer with offers out of the price range of the product
+     * request or above the offer ceiling of its search.
+     * The offers should be rejected and counted by reason.
+     */
+    @Test
+    public void reject_offer_out_of_range_or_above_ceiling() {
+        // GIVEN
+        ProductSearchContext search = buildSearch(10000, 20000);
+        search.setOfferCeiling(15000);
+
+        // WHEN
+        boolean tooCheap = isRejected(() -> decode(String.format(PROD_RESP_JSON, "9000"), search));
+        boolean tooExpensive = isRejected(() -> decode(String.format(PROD_RESP_JSON, "21000"), search));
+        boolean cannotWin = isRejected(() -> decode(String.format(PROD_RESP_JSON, "15500"), search));
+
+        // THEN
+        assertTrue(tooCheap);
+        assertTrue(tooExpensive);
+        assertTrue(cannotWin);
+        assertEquals(2, meterRegistry.counter("products.merchant.responses.rejected",
+                "reason", "out_of_range").count(), 0);
+        assertEquals(1, meterRegistry.counter("products.merchant.responses.rejected",
+                "reason", "cannot_win").count(), 0);
+    }
+
+    /**
+     * Tests the case described below:
+     * A merchant answers with a body larger than the maximum size, without
+     * announcing its content length.
+     * The decoding should fail once the maximum size has been read.
+     */
+    @Test(expected = MerchantResponseTooLargeException.class)
+    public void fail_when_response_exceeds_max_size() throws IOException {
+        // GIVEN
+        StringBuilder description = new StringBuilder();
+        for (int i = 0; i < 2048; i++) {
+            description.append('x');
+        }
+        String body = "{\"id\":\"1\",\"product\":{\"description\":\"" + description + "\",\"price\":14700}}";
+
+        // WHEN
+        decode(body, buildSearch(0, 0));
+
+        // THEN
+        // MerchantResponseTooLargeException expected
+    }
+
+    /**
+     * Tests the case described below:
+     * A merchant answers a non-blocking call with a body split across several
+     * data buffers.
+     * The offer below the offer ceiling should be decoded as a whole and the
+     * offer above it rejected.
+     */
+    @Test
+    public void decode_non_blocking_body_split_across_buffers() throws Exception {
+        // GIVEN
+        ProductSearchContext search = buildSearch(10000, 20000);
+        search.setOfferCeiling(15000);
+
+        // WHEN
+        ProductResponse prodResp = decoder.decode(split(String.format(PROD_RESP_JSON, "14700"), 3), search,
+                WireFormat.JSON, null).toFuture().get();
+        boolean cannotWin = isRejected(() -> decoder.decode(split(String.format(PROD_RESP_JSON, "15500"), 3),
+                search, WireFormat.JSON, null).toFuture().get());
+
+        // THEN
+        assertEquals(14700, prodResp.getProduct().getPrice(), 0);
+        assertEquals("Apple iPhone XS", prodResp.getProduct().getDescription());
+        assertTrue(cannotWin);
+    }
+
+    /**
+     * Tests the case described below:
+     * A merchant answers a non-blocking call in Smile with an offer above the
+     * offer ceiling, whose price arrives in the first of several data
+     * buffers.
+     * The offer should be rejected as soon as its price is parsed, and the
+     * rest of the body cancelled without being requested.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void reject_non_blocking_offer_cancelling_rest_of_body() throws Exception {
+        // GIVEN
+        ProductSearchContext search = buildSearch(10000, 20000);
+        search.setOfferCeiling(15000);
+        StringBuilder description = new StringBuilder();
+        for (int i = 0; i < 512; i++) {
+            description.append('x');
+        }
+        // a tree keeps the price before the description
+        JsonNode prodResp = new ObjectMapper().readTree("{\"id\":\"1\",\"product\":{\"id\":\"p1\","
+                + "\"price\":15500,\"description\":\"" + description + "\"}}");
+        byte[] body = mappers.get(WireFormat.SMILE).writeValueAsBytes(prodResp);
+        AtomicInteger buffersSent = new AtomicInteger();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Flux<DataBuffer> buffers = split(body, 8)
+                .doOnNext(buffer -> buffersSent.incrementAndGet())
+                .doOnCancel(() -> cancelled.set(true));
+
+        // WHEN
+        boolean rejected = isRejected(() -> decoder.decode(buffers.limitRate(1), search, WireFormat.SMILE, null)
+                .toFuture().get());
+
+        // THEN
+        assertTrue(rejected);
+        assertTrue(cancelled.get());
+        assertTrue(buffersSent.get() + " buffers sent", buffersSent.get() < 8);
+    }
+
+    /**
+     * Tests the case described below:
+     * A merchant answers a non-blocking call with data buffers larger than
+     * the maximum size in total.
+     * The decoding should fail with the body too large.
+     */
+    @Test
+    public void fail_when_non_blocking_body_exceeds_max_size() throws Exception {
+        // GIVEN
+        StringBuilder description = new StringBuilder();
+        for (int i = 0; i < 2048; i++) {
+            description.append('x');
+        }
+        String body = "{\"id\":\"1\",\"product\":{\"description\":\"" + description + "\",\"price\":14700}}";
+
+        // WHEN
+        try {
+            decoder.decode(split(body, 4), buildSearch(0, 0), WireFormat.JSON, null).toFuture().get();
+        } catch (ExecutionException ex) {
+
+            // THEN
+            assertTrue(ex.getCause() instanceof MerchantResponseTooLargeException);
+            assertEquals(1, meterRegistry.counter("products.merchant.responses.rejected",
+                    "reason", "too_large").count(), 0);
+            return;
+        }
+        throw new AssertionError("MerchantResponseTooLargeException expected");
+    }
+
+    private Flux<DataBuffer> split(String body, int count) {
+        return split(body.getBytes(StandardCharsets.UTF_8), count);
+    }
+
+    private Flux<DataBuffer> split(byte[] bytes, int count) {
+        DefaultDataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+        int size = (bytes.length + count - 1) / count;
+
+        return Flux.range(0, count).map(i -> {
+            int offset = Math.min(bytes.length, i * size);
+            DataBuffer buffer = bufferFactory.allocateBuffer(size);
+            return buffer.write(bytes, offset, Math.min(size, bytes.length - offset));
+        });
+    }
+
+    private ProductResponse decode(String body, ProductSearchContext search) throws IOException {
+        return decoder.decode(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), -1, search);
+    }
+
+    private static boolean isRejected(Callable<?> decoding) {
+        try {
+            decoding.call();
+            return false;
+        } catch (Exception ex) {
+            return MerchantOfferRejectedException.isCauseOf(ex);
+        }
+    }
+
+    private ProductSearchContext buildSearch(double minPrice, double maxPrice) {
+        ProductRequest request = new ProductRequest();
+        request.setId("1");
+        request.setSearchTerm("iPhone XS");
+        request.setMinPrice(minPrice);
+        request.setMaxPrice(maxPrice);
+
+        return new ProductSearchContext(request);
+    }
+}
@@ -0,0 +1,243 @@
+package com.company.producthub.test;
+
+import com.company.producthub.cache.OfferIndex;
+import com.company.producthub.cache.ProductResponseCache;
+import com.company.producthub.entities.ProductRequest;
+import com.company.producthub.entities.ProductResponse;
+import com.company.producthub.transport.MerchantCompression;
+import com.company.producthub.utils.Deadline;
+import com.company.producthub.utils.HttpUtils;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Represents ProductController's end-to-end Test with the non-blocking
+ * merchant engine. Stubs the exchanges of the WebClient with merchants.
+ * The stub is imported by this test only, since the test classes are on the
+ * classpath of the application run by the benchmarks and the load test.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"product.service.type=nonblocking", "merchant.compression.min.bytes=1",
+                "merchant.pool.warmup.connections=0", "product.snapshot.enabled=false"})
+@Import(ProductControllerNonBlockingTest.MerchantStubConfiguration.class)
+public class ProductControllerNonBlockingTest {
+
+    private ProductRequest prodReq;
+    private String productHubUrl;
+
+    @LocalServerPort
+    private int apiPort;
+
+    @Autowired
+    private TestRestTemplate testTemplate;
+
+    @Autowired
+    private MerchantStub merchantStub;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Autowired
+    private ProductResponseCache productResponseCache;
+
+    @Autowired
+    private OfferIndex offerIndex;
+
+    @Before
+    public void setUp() throws IOException {
+        prodReq = mapper.readValue(readResourceToString("client_request.json"), ProductRequest.class);
+        productHubUrl = "http://localhost:" + apiPort + "/products";
+        productResponseCache.invalidateAll();
+        offerIndex.invalidateAll();
+        merchantStub.reset();
+    }
+
+    /**
+     * Tests the case described below:
+     * All merchants respond with status 200 and a product response, one of
+     * them gzip compressed.
+     * The product hub should send compressed product requests accepting
+     * compressed responses, and respond with status 200 and the product
+     * response containing the product with the minimum price decompressed.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void respond_200_and_product_lowest_price_if_merchant_responds_compressed() throws IOException {
+        // GIVEN
+        merchantStub.respond("http://merchant-1.com/api/product", () -> respond200("merchant1_response.json"));
+        merchantStub.respond("http://merchant-2.com/api/product", () -> respond200Gzip("merchant2_response.json"));
+        merchantStub.respond("http://merchant-3.com/api/product", () -> respond200("merchant3_response.json"));
+
+        // WHEN
+        ResponseEntity<ProductResponse> actualProdRespEnt = testTemplate.postForEntity(productHubUrl,
+                HttpUtils.buildHttpEntityAppJson(prodReq), ProductResponse.class);
+
+        // THEN
+        assertEquals(HttpStatus.OK, actualProdRespEnt.getStatusCode());
+        assertEquals("3", actualProdRespEnt.getHeaders().getFirst(HttpUtils.HEADER_MERCHANTS_ANSWERED));
+        assertEquals(mapper.readValue(readResourceToString("winner_response.json"), ProductResponse.class),
+                actualProdRespEnt.getBody());
+        assertEquals(3, merchantStub.requests.size());
+        merchantStub.requests.forEach(request -> {
+            assertEquals(MerchantCompression.GZIP, request.headers().getFirst(HttpHeaders.ACCEPT_ENCODING));
+            assertEquals(MerchantCompression.GZIP, request.headers().getFirst(HttpHeaders.CONTENT_ENCODING));
+        });
+    }
+
+    /**
+     * Tests the case described below:
+     * A merchant does not respond before the deadline of the request.
+     * The product hub should send the remaining time of the deadline to
+     * merchants, respond with status 200 and the product response containing
+     * the product with the minimum price among product responses received
+     * before the deadline, and cancel the call still running.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void respond_200_and_cancel_call_if_any_merchant_missed_deadline() throws Exception {
+        // GIVEN
+        CountDownLatch cancelled = new CountDownLatch(1);
+        merchantStub.respond("http://merchant-1.com/api/product", () -> Mono.delay(Duration.ofMillis(3000))
+                .flatMap(tick -> respond200("merchant1_response.json"))
+                .doOnCancel(cancelled::countDown));
+        merchantStub.respond("http://merchant-2.com/api/product", () -> respond200("merchant2_response.json"));
+        merchantStub.respond("http://merchant-3.com/api/product", () -> respond200("merchant3_response.json"));
+
+        // WHEN
+        long startMillis = System.currentTimeMillis();
+        ResponseEntity<ProductResponse> actualProdRespEnt = testTemplate.postForEntity(productHubUrl,
+                HttpTestUtils.buildHttpEntityAppJson(prodReq, Deadline.after(500)), ProductResponse.class);
+        long elapsedMillis = System.currentTimeMillis() - startMillis;
+
+        // THEN
+        assertEquals(HttpStatus.OK, actualProdRespEnt.getStatusCode());
+        assertEquals("2", actualProdRespEnt.getHeaders().getFirst(HttpUtils.HEADER_MERCHANTS_ANSWERED));
+        assertEquals(mapper.readValue(readResourceToString("winner_response.json"), ProductResponse.class),
+                actualProdRespEnt.getBody());
+        assertTrue(elapsedMillis + "ms elapsed", elapsedMillis < 3000);
+        assertTrue(cancelled.await(1000, TimeUnit.MILLISECONDS));
+        merchantStub.requests.forEach(request -> assertTrue(
+                Long.parseLong(request.headers().getFirst(HttpUtils.HEADER_REQUEST_TIMEOUT)) <= 500));
+    }
+
+    private Mono<ClientResponse> respond200(String responseResource) {
+        return Mono.just(ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body(readResourceToString(responseResource))
+                .build());
+    }
+
+    private Mono<ClientResponse> respond200Gzip(String responseResource) {
+        return Mono.fromCallable(() -> {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                gzip.write(readResourceToString(responseResource).getBytes(StandardCharsets.UTF_8));
+            }
+            return ClientResponse.create(HttpStatus.OK)
+                    .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                    .header(HttpHeaders.CONTENT_ENCODING, MerchantCompression.GZIP)
+                    .body(Flux.just(new DefaultDataBufferFactory().wrap(out.toByteArray())))
+                    .build();
+        });
+    }
+
+    private String readResourceToString(String name) {
+        try {
+            URI uri = Objects.requireNonNull(this.getClass().getClassLoader().getResource(name)).toURI();
+            Path path = Paths.get(uri);
+            return Files.readAllLines(path).stream().reduce("", String::concat);
+        } catch (Exception error) {
+            throw new RuntimeException(error);
+        }
+    }
+
+    /**
+     * Represents the merchants answering the exchanges of the WebClient by
+     * their api url, recording the requests sent to them
+     */
+    static class MerchantStub implements ExchangeFunction {
+
+        private final Map<String, Supplier<Mono<ClientResponse>>> responses = new ConcurrentHashMap<>();
+        private final List<ClientRequest> requests = new CopyOnWriteArrayList<>();
+
+        @Override
+        public Mono<ClientResponse> exchange(ClientRequest request) {
+            requests.add(request);
+            Supplier<Mono<ClientResponse>> response = responses.get(request.url().toString());
+
+            return response == null ? Mono.just(ClientResponse.create(HttpStatus.NOT_FOUND).build()) : response.get();
+        }
+
+        void respond(String merchantUrl, Supplier<Mono<ClientResponse>> response) {
+            responses.put(merchantUrl, response);
+        }
+
+        void reset() {
+            responses.clear();
+            requests.clear();
+        }
+    }
+
+    /**
+     * Represents the beans of the merchant stub. It is not a configuration
+     * class, so that it is never picked up by component scanning.
+     */
+    static class MerchantStubConfiguration {
+
+        @Bean
+        public MerchantStub merchantStub() {
+            return new MerchantStub();
+        }
+
+        @Bean
+        @Primary
+        public WebClient merchantStubWebClient(WebClient.Builder builder, MerchantStub merchantStub) {
+            return builder.exchangeFunction(merchantStub).build();
+        }
+    }
+}
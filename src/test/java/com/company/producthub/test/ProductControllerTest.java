@@ -1,33 +1,63 @@
 package com.company.producthub.test;
 
+import com.company.producthub.cache.OfferIndex;
+import com.company.producthub.cache.ProductResponseCache;
+import com.company.producthub.entities.ProductOfferEvent;
 import com.company.producthub.entities.ProductRequest;
 import com.company.producthub.entities.ProductResponse;
+import com.company.producthub.entities.WireFormat;
+import com.company.producthub.transport.WireFormatMappers;
+import com.company.producthub.utils.Deadline;
 import com.company.producthub.utils.HttpUtils;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import java.io.IOException;
 import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
 import java.util.Objects;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestWatcher;
 import org.junit.runner.Description;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.web.client.RestTemplate;
@@ -39,7 +69,8 @@ import org.springframework.web.client.RestTemplate;
  * @author Petros Kolontis <petros.kolontis@gmail.com>
  */
 @RunWith(SpringRunner.class)
-@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"merchant.pool.warmup.connections=0", "product.snapshot.enabled=false"})
 public class ProductControllerTest {
  
     private static final Logger log = LoggerFactory.getLogger(ProductControllerTest.class);
@@ -59,6 +90,21 @@ public class ProductControllerTest {
     @Autowired
     private ObjectMapper mapper;
 
+    @Autowired
+    private ProductResponseCache productResponseCache;
+
+    @Autowired
+    private OfferIndex offerIndex;
+
+    @Autowired
+    private WireFormatMappers wireFormatMappers;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${product.concurrency.limit.initial}")
+    private int initialConcurrencyLimit;
+
     @Rule
     public TestWatcher watchman = new TestWatcher() {
         @Override
@@ -81,6 +127,8 @@ public class ProductControllerTest {
     public void setUp() throws IOException {
         prodReq = mapper.readValue(readResourceToString("client_request.json"), ProductRequest.class);
         productHubUrl = buildProductHubUrl();
+        productResponseCache.invalidateAll();
+        offerIndex.invalidateAll();
     }
     
     /**
@@ -190,26 +238,509 @@ public class ProductControllerTest {
         assertEquals(expectedProdResp, actualProdRespEnt.getBody());
     }
     
+    /**
+     * Tests the case described below:
+     * At least one merchant responds with a product out of the price range
+     * of the request, cheaper than the rest.
+     * The product hub should respond with status 200 and the product response
+     * containing the product with the minimum price among product responses
+     * within the price range.
+     * 
+     * @throws IOException 
+     */
+    @Test
+    public void respond_200_and_product_lowest_price_in_range_if_any_merchant_sent_product_out_of_range()
+            throws IOException {
+        // GIVEN
+        mock_request_merchant_respond_200("http://merchant-1.com/api/product", "merchant1_response.json");
+        mock_request_merchant_respond_200("http://merchant-2.com/api/product",
+                "merchant2_out_of_range_response.json");
+        mock_request_merchant_respond_200("http://merchant-3.com/api/product", "merchant3_response.json");
+
+        // WHEN
+        ResponseEntity<ProductResponse> actualProdRespEnt = requestToProductHub();
+
+        // THEN
+        assertNotNull(actualProdRespEnt);
+        assertNotNull(actualProdRespEnt.getBody());
+        assertEquals(HttpStatus.OK, actualProdRespEnt.getStatusCode());
+
+        String expectedProdRespStr = readResourceToString("merchant1_response.json");
+        ProductResponse expectedProdResp = mapper.readValue(expectedProdRespStr, ProductResponse.class);
+        assertEquals(expectedProdResp, actualProdRespEnt.getBody());
+    }
+    
+    /**
+     * Tests the case described below:
+     * At least one merchant did not respond before the deadline of the request.
+     * The product hub should respond with status 200 and the product response
+     * containing the product with the minimum price among product responses
+     * received before the deadline, reporting the merchant that timed out.
+     * 
+     * @throws IOException 
+     */
+    @Test
+    public void respond_200_and_product_lowest_price_if_any_merchant_timed_out() throws IOException {
+        // GIVEN
+        mock_request_merchant_respond_200_after("http://merchant-1.com/api/product", "merchant1_response.json", 3000);
+        mock_request_merchant_respond_200("http://merchant-2.com/api/product", "merchant2_response.json");
+        mock_request_merchant_respond_200("http://merchant-3.com/api/product", "merchant3_response.json");
+
+        // WHEN
+        ResponseEntity<ProductResponse> actualProdRespEnt = testTemplate.postForEntity(productHubUrl,
+                HttpTestUtils.buildHttpEntityAppJson(prodReq, Deadline.after(500)), ProductResponse.class);
+
+        // THEN
+        assertNotNull(actualProdRespEnt);
+        assertNotNull(actualProdRespEnt.getBody());
+        assertEquals(HttpStatus.OK, actualProdRespEnt.getStatusCode());
+        assertEquals("2", actualProdRespEnt.getHeaders().getFirst(HttpUtils.HEADER_MERCHANTS_ANSWERED));
+        assertEquals("1", actualProdRespEnt.getHeaders().getFirst(HttpUtils.HEADER_MERCHANTS_TIMED_OUT));
+
+        String expectedProdRespStr = readResourceToString("winner_response.json");
+        ProductResponse expectedProdResp = mapper.readValue(expectedProdRespStr, ProductResponse.class);
+        assertEquals(expectedProdResp, actualProdRespEnt.getBody());
+    }
+    
+    /**
+     * Tests the case described below:
+     * A client sends a product request having the same search criteria
+     * with a product request served before.
+     * The product hub should respond with status 200 and the cached product
+     * response without sending the product request to merchants again.
+     * 
+     * @throws IOException 
+     */
+    @Test
+    public void respond_200_and_cached_product_lowest_price_if_same_search_criteria() throws IOException {
+        // GIVEN
+        mock_request_merchant_respond_200("http://merchant-1.com/api/product", "merchant1_response.json");
+        mock_request_merchant_respond_200("http://merchant-2.com/api/product", "merchant2_response.json");
+        mock_request_merchant_respond_200("http://merchant-3.com/api/product", "merchant3_response.json");
+        requestToProductHub();
+        prodReq.setId("kf32342jkj223rdkfk");
+        prodReq.setSearchTerm(" CAR ");
+
+        // WHEN
+        ResponseEntity<ProductResponse> actualProdRespEnt = requestToProductHub();
+
+        // THEN
+        assertNotNull(actualProdRespEnt);
+        assertNotNull(actualProdRespEnt.getBody());
+        assertEquals(HttpStatus.OK, actualProdRespEnt.getStatusCode());
+        assertEquals(HttpUtils.CACHE_HIT, actualProdRespEnt.getHeaders().getFirst(HttpUtils.HEADER_CACHE));
+        verify(mockTemplate, times(3)).postForEntity(anyString(), any(HttpEntity.class), eq(ProductResponse.class));
+
+        String expectedProdRespStr = readResourceToString("winner_response.json");
+        ProductResponse expectedProdResp = mapper.readValue(expectedProdRespStr, ProductResponse.class);
+        assertEquals(expectedProdResp, actualProdRespEnt.getBody());
+    }
+    
+    /**
+     * Tests the case described below:
+     * A merchant did not respond before the short deadline of a product
+     * request, and then a product request having the same search criteria
+     * is received.
+     * The partial winner should not be cached, so the product hub should
+     * send the second product request to merchants again.
+     * 
+     * @throws IOException 
+     */
+    @Test
+    public void respond_200_without_caching_product_lowest_price_if_any_merchant_timed_out() throws IOException {
+        // GIVEN
+        mock_request_merchant_respond_200_after("http://merchant-1.com/api/product", "merchant1_response.json", 3000);
+        mock_request_merchant_respond_200("http://merchant-2.com/api/product", "merchant2_response.json");
+        mock_request_merchant_respond_200("http://merchant-3.com/api/product", "merchant3_response.json");
+        testTemplate.postForEntity(productHubUrl, HttpTestUtils.buildHttpEntityAppJson(prodReq, Deadline.after(300)),
+                ProductResponse.class);
+
+        // WHEN
+        ResponseEntity<ProductResponse> actualProdRespEnt = testTemplate.postForEntity(productHubUrl,
+                HttpTestUtils.buildHttpEntityAppJson(prodReq, Deadline.after(300)), ProductResponse.class);
+
+        // THEN
+        assertEquals(HttpStatus.OK, actualProdRespEnt.getStatusCode());
+        assertEquals(HttpUtils.CACHE_MISS, actualProdRespEnt.getHeaders().getFirst(HttpUtils.HEADER_CACHE));
+        assertEquals("1", actualProdRespEnt.getHeaders().getFirst(HttpUtils.HEADER_MERCHANTS_TIMED_OUT));
+        verify(mockTemplate, times(2)).postForEntity(eq("http://merchant-2.com/api/product"), any(HttpEntity.class),
+                eq(ProductResponse.class));
+    }
+    
+    /**
+     * Tests the case described below:
+     * All merchants respond with status 200 and a product response and the
+     * client submits the product request in Smile, asking for Smile.
+     * The product hub should respond with status 200 and the product response
+     * containing the product with the minimum price, encoded in Smile.
+     * 
+     * @throws IOException 
+     */
+    @Test
+    public void respond_200_and_product_lowest_price_in_binary_wire_format_if_asked() throws IOException {
+        // GIVEN
+        mock_request_merchant_respond_200("http://merchant-1.com/api/product", "merchant1_response.json");
+        mock_request_merchant_respond_200("http://merchant-2.com/api/product", "merchant2_response.json");
+        mock_request_merchant_respond_200("http://merchant-3.com/api/product", "merchant3_response.json");
+        ObjectMapper smileMapper = wireFormatMappers.get(WireFormat.SMILE);
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(WireFormat.SMILE.getMediaType());
+        headers.setAccept(Collections.singletonList(WireFormat.SMILE.getMediaType()));
+
+        // WHEN
+        ResponseEntity<byte[]> actualProdRespEnt = testTemplate.postForEntity(productHubUrl,
+                new HttpEntity<>(smileMapper.writeValueAsBytes(prodReq), headers), byte[].class);
+
+        // THEN
+        assertEquals(HttpStatus.OK, actualProdRespEnt.getStatusCode());
+        assertTrue(WireFormat.SMILE.getMediaType().isCompatibleWith(actualProdRespEnt.getHeaders().getContentType()));
+        String expectedProdRespStr = readResourceToString("winner_response.json");
+        ProductResponse expectedProdResp = mapper.readValue(expectedProdRespStr, ProductResponse.class);
+        assertEquals(expectedProdResp, smileMapper.readValue(actualProdRespEnt.getBody(), ProductResponse.class));
+    }
+    
+    /**
+     * Tests the case described below:
+     * A client sends a batch of product requests. Merchants without a batch
+     * api respond with status 204, while the merchant having a batch api
+     * answers the first product request only, in a single call.
+     * The product hub should respond with status 200 and the winner product
+     * response of each product request by id, null if there is none.
+     * 
+     * @throws IOException 
+     */
+    @Test
+    public void respond_200_and_winner_per_request_id_if_batch() throws IOException {
+        // GIVEN
+        mock_request_merchant_respond_204("http://merchant-1.com/api/product");
+        mock_request_merchant_respond_204("http://merchant-2.com/api/product");
+        ProductResponse merchant3ProdResp = mapper.readValue(readResourceToString("merchant3_response.json"),
+                ProductResponse.class);
+        when(mockTemplate.postForEntity(eq("http://merchant-3.com/api/products/batch"), any(HttpEntity.class),
+                eq(ProductResponse[].class)))
+                .thenReturn(ResponseEntity.ok(new ProductResponse[] {merchant3ProdResp, null}));
+        ProductRequest otherProdReq = mapper.readValue(readResourceToString("client_request.json"),
+                ProductRequest.class);
+        otherProdReq.setId("kf32342jkj223rdkfk");
+        otherProdReq.setMinPrice(13000);
+
+        // WHEN
+        ResponseEntity<JsonNode> actualRespEnt = testTemplate.postForEntity(productHubUrl + "/batch",
+                new HttpEntity<>(Arrays.asList(prodReq, otherProdReq),
+                        HttpUtils.buildHttpEntityAppJson(prodReq).getHeaders()), JsonNode.class);
+
+        // THEN
+        assertNotNull(actualRespEnt);
+        assertNotNull(actualRespEnt.getBody());
+        assertEquals(HttpStatus.OK, actualRespEnt.getStatusCode());
+        assertEquals(merchant3ProdResp,
+                mapper.treeToValue(actualRespEnt.getBody().get(prodReq.getId()), ProductResponse.class));
+        assertTrue(actualRespEnt.getBody().get(otherProdReq.getId()).isNull());
+        verify(mockTemplate, times(1)).postForEntity(eq("http://merchant-3.com/api/products/batch"),
+                any(HttpEntity.class), eq(ProductResponse[].class));
+        verify(mockTemplate, times(4)).postForEntity(anyString(), any(HttpEntity.class), eq(ProductResponse.class));
+    }
+    
+    /**
+     * Tests the case described below:
+     * All merchants respond with status 200 and a product response, and then
+     * a product request of the same search term with a narrower price range
+     * is received.
+     * The product hub should respond with status 200 and the product response
+     * containing the product with the minimum price within the narrower
+     * range, served from the offer index without posting it to merchants.
+     * 
+     * @throws IOException 
+     */
+    @Test
+    public void respond_200_and_product_lowest_price_from_offer_index_if_range_covered() throws IOException {
+        // GIVEN
+        mock_request_merchant_respond_200("http://merchant-1.com/api/product", "merchant1_response.json");
+        mock_request_merchant_respond_200("http://merchant-2.com/api/product", "merchant2_response.json");
+        mock_request_merchant_respond_200("http://merchant-3.com/api/product", "merchant3_response.json");
+        requestToProductHub();
+        prodReq.setMinPrice(14000);
+        prodReq.setMaxPrice(15000);
+
+        // WHEN
+        ResponseEntity<ProductResponse> actualProdRespEnt = requestToProductHub();
+
+        // THEN
+        assertNotNull(actualProdRespEnt);
+        assertEquals(HttpStatus.OK, actualProdRespEnt.getStatusCode());
+        assertEquals(HttpUtils.CACHE_INDEX, actualProdRespEnt.getHeaders().getFirst(HttpUtils.HEADER_CACHE));
+        assertEquals(mapper.readValue(readResourceToString("winner_response.json"), ProductResponse.class),
+                actualProdRespEnt.getBody());
+        verify(mockTemplate, times(3)).postForEntity(anyString(), any(HttpEntity.class), eq(ProductResponse.class));
+    }
+    
+    /**
+     * Tests the case described below:
+     * A product request is sent to all merchants.
+     * All merchants should receive the same encoded body, carrying the search
+     * criteria of the product request without its recipient merchants.
+     * 
+     * @throws IOException 
+     */
+    @Test
+    public void send_lean_request_encoded_once_to_all_merchants() throws IOException {
+        // GIVEN
+        mock_request_merchant_respond_204("http://merchant-1.com/api/product");
+        mock_request_merchant_respond_204("http://merchant-2.com/api/product");
+        mock_request_merchant_respond_204("http://merchant-3.com/api/product");
+
+        // WHEN
+        requestToProductHub();
+
+        // THEN
+        ArgumentCaptor<HttpEntity> httpEntityCaptor = ArgumentCaptor.forClass(HttpEntity.class);
+        verify(mockTemplate, times(3)).postForEntity(anyString(), httpEntityCaptor.capture(),
+                eq(ProductResponse.class));
+        List<HttpEntity> httpEntities = httpEntityCaptor.getAllValues();
+        assertSame(httpEntities.get(0).getBody(), httpEntities.get(1).getBody());
+        assertSame(httpEntities.get(0).getBody(), httpEntities.get(2).getBody());
+        String body = new String((byte[]) httpEntities.get(0).getBody(), StandardCharsets.UTF_8);
+        assertFalse(body.contains("merchants"));
+        assertEquals(prodReq, mapper.readValue(body, ProductRequest.class));
+    }
+    
+    /**
+     * Tests the case described below:
+     * All merchants respond with status 200 and a product response and the
+     * client asks for the 2 cheapest products.
+     * The product hub should respond with status 200 and the product
+     * responses of the 2 cheapest products in ascending order of price.
+     * 
+     * @throws IOException 
+     */
+    @Test
+    public void respond_200_and_k_cheapest_products() throws IOException {
+        // GIVEN
+        mock_request_merchant_respond_200("http://merchant-1.com/api/product", "merchant1_response.json");
+        mock_request_merchant_respond_200("http://merchant-2.com/api/product", "merchant2_response.json");
+        mock_request_merchant_respond_200("http://merchant-3.com/api/product", "merchant3_response.json");
+
+        // WHEN
+        ResponseEntity<ProductResponse[]> actualRespEnt = testTemplate.postForEntity(productHubUrl + "/top?k=2",
+                HttpUtils.buildHttpEntityAppJson(prodReq), ProductResponse[].class);
+
+        // THEN
+        assertNotNull(actualRespEnt);
+        assertNotNull(actualRespEnt.getBody());
+        assertEquals(HttpStatus.OK, actualRespEnt.getStatusCode());
+        assertEquals("3", actualRespEnt.getHeaders().getFirst(HttpUtils.HEADER_MERCHANTS_ANSWERED));
+        assertEquals(Arrays.asList(
+                mapper.readValue(readResourceToString("merchant2_response.json"), ProductResponse.class),
+                mapper.readValue(readResourceToString("merchant1_response.json"), ProductResponse.class)),
+                Arrays.asList(actualRespEnt.getBody()));
+    }
+    
+    /**
+     * Tests the case described below:
+     * A client streams a product request as json lines and all merchants
+     * respond with status 200 and a product response.
+     * The product hub should stream an offer event per merchant, exactly one
+     * of them being the best when it arrived, and finish with a winner event
+     * containing the product with the minimum price among product responses.
+     * 
+     * @throws IOException 
+     */
+    @Test
+    public void stream_offer_per_merchant_and_winner_last() throws IOException {
+        // GIVEN
+        mock_request_merchant_respond_200("http://merchant-1.com/api/product", "merchant1_response.json");
+        mock_request_merchant_respond_200("http://merchant-2.com/api/product", "merchant2_response.json");
+        mock_request_merchant_respond_200("http://merchant-3.com/api/product", "merchant3_response.json");
+        HttpHeaders headers = HttpUtils.buildHttpEntityAppJson(prodReq).getHeaders();
+        HttpHeaders streamHeaders = new HttpHeaders();
+        streamHeaders.putAll(headers);
+        streamHeaders.setAccept(Collections.singletonList(MediaType.APPLICATION_STREAM_JSON));
+
+        // WHEN
+        ResponseEntity<String> actualRespEnt = testTemplate.postForEntity(productHubUrl + "/stream",
+                new HttpEntity<>(prodReq, streamHeaders), String.class);
+
+        // THEN
+        assertNotNull(actualRespEnt);
+        assertNotNull(actualRespEnt.getBody());
+        assertEquals(HttpStatus.OK, actualRespEnt.getStatusCode());
+        List<JsonNode> events = Arrays.stream(actualRespEnt.getBody().split("\n"))
+                .filter(line -> !line.trim().isEmpty())
+                .map(line -> {
+                    try {
+                        return mapper.readTree(line);
+                    } catch (IOException ex) {
+                        throw new RuntimeException(ex);
+                    }
+                })
+                .collect(Collectors.toList());
+        assertEquals(4, events.size());
+        events.subList(0, 3).forEach(event ->
+                assertEquals(ProductOfferEvent.Type.OFFER.name(), event.get("type").asText()));
+        assertTrue(events.get(0).get("best").asBoolean());
+
+        JsonNode winnerEvent = events.get(3);
+        assertEquals(ProductOfferEvent.Type.WINNER.name(), winnerEvent.get("type").asText());
+        assertEquals(3, winnerEvent.get("answeredCount").asInt());
+        ProductResponse expectedProdResp = mapper.readValue(readResourceToString("winner_response.json"),
+                ProductResponse.class);
+        assertEquals(expectedProdResp, mapper.treeToValue(winnerEvent.get("productResponse"),
+                ProductResponse.class));
+    }
+    
+    /**
+     * Tests the case described below:
+     * A client streams more product requests than the initial concurrency
+     * limit, one after the other, and then sends a product request.
+     * The product hub should respond with status 200, since every streamed
+     * request released its slot of the limit once completed, leaving no
+     * request in flight.
+     *
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    @Test
+    public void respond_200_after_streaming_more_requests_than_concurrency_limit() throws IOException,
+            InterruptedException {
+        // GIVEN
+        mock_request_merchant_respond_200("http://merchant-1.com/api/product", "merchant1_response.json");
+        mock_request_merchant_respond_200("http://merchant-2.com/api/product", "merchant2_response.json");
+        mock_request_merchant_respond_200("http://merchant-3.com/api/product", "merchant3_response.json");
+        HttpHeaders streamHeaders = new HttpHeaders();
+        streamHeaders.putAll(HttpUtils.buildHttpEntityAppJson(prodReq).getHeaders());
+        streamHeaders.setAccept(Collections.singletonList(MediaType.APPLICATION_STREAM_JSON));
+        for (int i = 0; i <= initialConcurrencyLimit; i++) {
+            assertEquals(HttpStatus.OK, testTemplate.postForEntity(productHubUrl + "/stream",
+                    new HttpEntity<>(prodReq, streamHeaders), String.class).getStatusCode());
+        }
+
+        // WHEN
+        ResponseEntity<ProductResponse> actualProdRespEnt = requestToProductHub();
+
+        // THEN
+        assertEquals(HttpStatus.OK, actualProdRespEnt.getStatusCode());
+        Gauge inFlightGauge = meterRegistry.get("products.concurrency.inflight")
+                .tag("endpoint", "/products/stream").gauge();
+        for (int i = 0; i < 50 && inFlightGauge.value() > 0; i++) {
+            // an async request is released once its response completes, after the client received it
+            Thread.sleep(20);
+        }
+        assertEquals(0, inFlightGauge.value(), 0);
+    }
+
+    /**
+     * Tests the case described below:
+     * A product request is in flight while all merchants respond after a
+     * delay, and a product request of the same search criteria with a
+     * shorter timeout is received.
+     * The product hub should respond to both with status 200 and the product
+     * response containing the product with the minimum price, the second
+     * following the in-flight search without posting it to merchants again.
+     *
+     * @throws IOException
+     * @throws InterruptedException
+     * @throws ExecutionException
+     */
+    @Test
+    public void respond_200_and_follow_in_flight_search_if_same_search_criteria() throws IOException,
+            InterruptedException, ExecutionException {
+        // GIVEN
+        mock_request_merchant_respond_200_after("http://merchant-1.com/api/product", "merchant1_response.json", 500);
+        mock_request_merchant_respond_200_after("http://merchant-2.com/api/product", "merchant2_response.json", 500);
+        mock_request_merchant_respond_200_after("http://merchant-3.com/api/product", "merchant3_response.json", 500);
+        double leaderCount = flightCount("leader");
+        double followerCount = flightCount("follower");
+        CompletableFuture<ResponseEntity<ProductResponse>> leaderProdRespEnt =
+                CompletableFuture.supplyAsync(this::requestToProductHub);
+        verify(mockTemplate, timeout(1000).times(3)).postForEntity(anyString(), any(HttpEntity.class),
+                eq(ProductResponse.class));
+
+        // WHEN
+        ResponseEntity<ProductResponse> actualProdRespEnt = testTemplate.postForEntity(productHubUrl,
+                HttpTestUtils.buildHttpEntityAppJson(prodReq, Deadline.after(1000)), ProductResponse.class);
+
+        // THEN
+        ProductResponse expectedProdResp = mapper.readValue(readResourceToString("winner_response.json"),
+                ProductResponse.class);
+        assertEquals(HttpStatus.OK, actualProdRespEnt.getStatusCode());
+        assertEquals(expectedProdResp, actualProdRespEnt.getBody());
+        assertEquals(expectedProdResp, leaderProdRespEnt.get().getBody());
+        verify(mockTemplate, times(3)).postForEntity(anyString(), any(HttpEntity.class), eq(ProductResponse.class));
+        assertEquals(leaderCount + 1, flightCount("leader"), 0);
+        assertEquals(followerCount + 1, flightCount("follower"), 0);
+    }
+
+    /**
+     * Tests the case described below:
+     * A product request is in flight while all merchants respond after a
+     * delay, and a product request of the same search criteria with a longer
+     * timeout is received.
+     * The product hub should respond to both with status 200, the second
+     * leading its own search, so that its result is not bounded by the
+     * deadline of the in-flight search.
+     *
+     * @throws IOException
+     * @throws InterruptedException
+     * @throws ExecutionException
+     */
+    @Test
+    public void respond_200_and_lead_own_search_if_in_flight_search_expires_earlier() throws IOException,
+            InterruptedException, ExecutionException {
+        // GIVEN
+        mock_request_merchant_respond_200_after("http://merchant-1.com/api/product", "merchant1_response.json", 500);
+        mock_request_merchant_respond_200_after("http://merchant-2.com/api/product", "merchant2_response.json", 500);
+        mock_request_merchant_respond_200_after("http://merchant-3.com/api/product", "merchant3_response.json", 500);
+        double leaderCount = flightCount("leader");
+        double followerCount = flightCount("follower");
+        CompletableFuture<ResponseEntity<ProductResponse>> leaderProdRespEnt =
+                CompletableFuture.supplyAsync(this::requestToProductHub);
+        verify(mockTemplate, timeout(1000).times(3)).postForEntity(anyString(), any(HttpEntity.class),
+                eq(ProductResponse.class));
+
+        // WHEN
+        ResponseEntity<ProductResponse> actualProdRespEnt = testTemplate.postForEntity(productHubUrl,
+                HttpTestUtils.buildHttpEntityAppJson(prodReq, Deadline.after(5000)), ProductResponse.class);
+
+        // THEN
+        assertEquals(HttpStatus.OK, actualProdRespEnt.getStatusCode());
+        assertEquals(HttpStatus.OK, leaderProdRespEnt.get().getStatusCode());
+        verify(mockTemplate, times(6)).postForEntity(anyString(), any(HttpEntity.class), eq(ProductResponse.class));
+        assertEquals(leaderCount + 2, flightCount("leader"), 0);
+        assertEquals(followerCount, flightCount("follower"), 0);
+    }
+
     private void mock_request_merchant_respond_200(String merchantUrl, String responseResource) throws IOException {
         String prodRespStr = readResourceToString(responseResource);
         ProductResponse prodResp = mapper.readValue(prodRespStr, ProductResponse.class);
-        when(mockTemplate.postForEntity(merchantUrl, 
-                HttpUtils.buildHttpEntityAppJson(prodReq), ProductResponse.class))
+        when(mockTemplate.postForEntity(eq(merchantUrl), any(HttpEntity.class), eq(ProductResponse.class)))
                 .thenReturn(ResponseEntity.ok(prodResp));
     }
 
+    private void mock_request_merchant_respond_200_after(String merchantUrl, String responseResource,
+            long delayMillis) throws IOException {
+        String prodRespStr = readResourceToString(responseResource);
+        ProductResponse prodResp = mapper.readValue(prodRespStr, ProductResponse.class);
+        when(mockTemplate.postForEntity(eq(merchantUrl), any(HttpEntity.class), eq(ProductResponse.class)))
+                .thenAnswer(invocation -> {
+                    Thread.sleep(delayMillis);
+                    return ResponseEntity.ok(prodResp);
+                });
+    }
+
     private void mock_request_merchant_respond_204(String merchantUrl) {
-        when(mockTemplate.postForEntity(merchantUrl, 
-                HttpUtils.buildHttpEntityAppJson(prodReq), ProductResponse.class))
+        when(mockTemplate.postForEntity(eq(merchantUrl), any(HttpEntity.class), eq(ProductResponse.class)))
                 .thenReturn(new ResponseEntity<>(HttpStatus.NO_CONTENT));
     }
 
     private void mock_request_call_real_method(String merchantUrl) {
-        when(mockTemplate.postForEntity(merchantUrl, 
-                HttpUtils.buildHttpEntityAppJson(prodReq), ProductResponse.class))
+        when(mockTemplate.postForEntity(eq(merchantUrl), any(HttpEntity.class), eq(ProductResponse.class)))
                 .thenCallRealMethod();
     }
     
+    private double flightCount(String role) {
+        return meterRegistry.counter("products.search.flights", "role", role).count();
+    }
+    
     private ResponseEntity<ProductResponse> requestToProductHub() {
         return testTemplate.postForEntity(productHubUrl, 
                 HttpUtils.buildHttpEntityAppJson(prodReq), ProductResponse.class);
@@ -0,0 +1,239 @@
+package com.company.producthub.test;
+
+import com.company.producthub.cache.OfferIndex;
+import com.company.producthub.cache.ProductResponseCache;
+import com.company.producthub.entities.ProductOfferEvent;
+import com.company.producthub.entities.ProductRequest;
+import com.company.producthub.entities.ProductResponse;
+import com.company.producthub.utils.HttpUtils;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Objects;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.reactive.server.EntityExchangeResult;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Represents ReactiveProductHandler's end-to-end Test on the reactive web
+ * stack. Mocks third party api calls.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"spring.main.web-application-type=reactive", "merchant.pool.warmup.connections=0",
+                "product.snapshot.enabled=false"})
+public class ReactiveProductHandlerTest {
+
+    private ProductRequest prodReq;
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private RestTemplate mockTemplate;
+
+    @Autowired
+    private ObjectMapper mapper;
+
+    @Autowired
+    private ProductResponseCache productResponseCache;
+
+    @Autowired
+    private OfferIndex offerIndex;
+
+    @Before
+    public void setUp() throws IOException {
+        prodReq = mapper.readValue(readResourceToString("client_request.json"), ProductRequest.class);
+        productResponseCache.invalidateAll();
+        offerIndex.invalidateAll();
+    }
+
+    /**
+     * Tests the case described below:
+     * All merchants respond with status 200 and a product response.
+     * The product hub should respond with status 200 and the product response
+     * containing the product with the minimum price among product responses.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void respond_200_and_product_lowest_price() throws IOException {
+        // GIVEN
+        mock_request_merchant_respond_200("http://merchant-1.com/api/product", "merchant1_response.json", 0);
+        mock_request_merchant_respond_200("http://merchant-2.com/api/product", "merchant2_response.json", 0);
+        mock_request_merchant_respond_200("http://merchant-3.com/api/product", "merchant3_response.json", 0);
+
+        // WHEN
+        EntityExchangeResult<ProductResponse> result = requestToProductHub(null);
+
+        // THEN
+        ProductResponse expectedProdResp = mapper.readValue(readResourceToString("winner_response.json"),
+                ProductResponse.class);
+        assertEquals(HttpStatus.OK, result.getStatus());
+        assertNotNull(result.getResponseBody());
+        assertEquals(expectedProdResp, result.getResponseBody());
+        assertEquals("3", result.getResponseHeaders().getFirst(HttpUtils.HEADER_MERCHANTS_ANSWERED));
+        assertEquals(HttpUtils.CACHE_MISS, result.getResponseHeaders().getFirst(HttpUtils.HEADER_CACHE));
+    }
+
+    /**
+     * Tests the case described below:
+     * All merchants respond with status 200 and a product response, and then
+     * a product request of the same search term with a narrower price range
+     * is received.
+     * The product hub should respond with status 200 and the product response
+     * containing the product with the minimum price within the narrower
+     * range, served from the offer index without posting it to merchants.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void respond_200_and_product_lowest_price_from_offer_index_if_range_covered() throws IOException {
+        // GIVEN
+        mock_request_merchant_respond_200("http://merchant-1.com/api/product", "merchant1_response.json", 0);
+        mock_request_merchant_respond_200("http://merchant-2.com/api/product", "merchant2_response.json", 0);
+        mock_request_merchant_respond_200("http://merchant-3.com/api/product", "merchant3_response.json", 0);
+        requestToProductHub(null);
+        prodReq.setMinPrice(14000);
+        prodReq.setMaxPrice(15000);
+
+        // WHEN
+        EntityExchangeResult<ProductResponse> result = requestToProductHub(null);
+
+        // THEN
+        assertEquals(HttpStatus.OK, result.getStatus());
+        assertEquals(HttpUtils.CACHE_INDEX, result.getResponseHeaders().getFirst(HttpUtils.HEADER_CACHE));
+        assertEquals(mapper.readValue(readResourceToString("winner_response.json"), ProductResponse.class),
+                result.getResponseBody());
+        verify(mockTemplate, times(3)).postForEntity(anyString(), any(HttpEntity.class), eq(ProductResponse.class));
+    }
+
+    /**
+     * Tests the case described below:
+     * A merchant responds after the timeout requested by the client.
+     * The product hub should respond within the timeout with the lowest price
+     * among the rest of merchants and report the merchant as timed out.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void respond_200_within_request_timeout() throws IOException {
+        // GIVEN
+        mock_request_merchant_respond_200("http://merchant-1.com/api/product", "merchant1_response.json", 3000);
+        mock_request_merchant_respond_200("http://merchant-2.com/api/product", "merchant2_response.json", 0);
+        mock_request_merchant_respond_200("http://merchant-3.com/api/product", "merchant3_response.json", 0);
+
+        // WHEN
+        EntityExchangeResult<ProductResponse> result = requestToProductHub(500L);
+
+        // THEN
+        assertEquals(HttpStatus.OK, result.getStatus());
+        assertNotNull(result.getResponseBody());
+        assertEquals("2", result.getResponseHeaders().getFirst(HttpUtils.HEADER_MERCHANTS_ANSWERED));
+        assertEquals("1", result.getResponseHeaders().getFirst(HttpUtils.HEADER_MERCHANTS_TIMED_OUT));
+    }
+
+    /**
+     * Tests the case described below:
+     * A client streams a product request as server-sent events and a
+     * merchant responds after the timeout requested by the client.
+     * The product hub should stream the offers of the rest of merchants and
+     * finish within the timeout with a winner event reporting the merchant
+     * as timed out.
+     *
+     * @throws IOException
+     */
+    @Test
+    public void stream_offers_and_winner_within_request_timeout() throws IOException {
+        // GIVEN
+        mock_request_merchant_respond_200("http://merchant-1.com/api/product", "merchant1_response.json", 3000);
+        mock_request_merchant_respond_200("http://merchant-2.com/api/product", "merchant2_response.json", 0);
+        mock_request_merchant_respond_200("http://merchant-3.com/api/product", "merchant3_response.json", 0);
+
+        // WHEN
+        List<JsonNode> events = webTestClient.post()
+                .uri("/products/stream")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .header(HttpUtils.HEADER_REQUEST_TIMEOUT, "500")
+                .syncBody(prodReq)
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(JsonNode.class)
+                .getResponseBody()
+                .collectList()
+                .block();
+
+        // THEN
+        assertNotNull(events);
+        assertEquals(3, events.size());
+        assertEquals(ProductOfferEvent.Type.OFFER.name(), events.get(0).get("type").asText());
+        assertEquals(ProductOfferEvent.Type.OFFER.name(), events.get(1).get("type").asText());
+        JsonNode winnerEvent = events.get(2);
+        assertEquals(ProductOfferEvent.Type.WINNER.name(), winnerEvent.get("type").asText());
+        assertEquals(2, winnerEvent.get("answeredCount").asInt());
+        assertEquals(1, winnerEvent.get("timedOutCount").asInt());
+        assertEquals("merchant_2", winnerEvent.at("/productResponse/product/merchant/name").asText());
+    }
+
+    private void mock_request_merchant_respond_200(String merchantUrl, String responseResource,
+            long delayMillis) throws IOException {
+        ProductResponse prodResp = mapper.readValue(readResourceToString(responseResource), ProductResponse.class);
+        when(mockTemplate.postForEntity(eq(merchantUrl), any(HttpEntity.class), eq(ProductResponse.class)))
+                .thenAnswer(invocation -> {
+                    Thread.sleep(delayMillis);
+                    return ResponseEntity.ok(prodResp);
+                });
+    }
+
+    private EntityExchangeResult<ProductResponse> requestToProductHub(Long timeoutMillis) {
+        WebTestClient.RequestBodySpec request = webTestClient.post()
+                .uri("/products")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON);
+        if (timeoutMillis != null) {
+            request.header(HttpUtils.HEADER_REQUEST_TIMEOUT, String.valueOf(timeoutMillis));
+        }
+
+        return request.syncBody(prodReq)
+                .exchange()
+                .expectBody(ProductResponse.class)
+                .returnResult();
+    }
+
+    private String readResourceToString(String name) {
+        try {
+            URI uri = Objects.requireNonNull(this.getClass().getClassLoader().getResource(name)).toURI();
+            Path path = Paths.get(uri);
+            return Files.readAllLines(path).stream().reduce("", String::concat);
+        } catch (Exception error) {
+            throw new RuntimeException(error);
+        }
+    }
+}
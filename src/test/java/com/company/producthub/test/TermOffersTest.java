@@ -0,0 +1,102 @@
+package com.company.producthub.test;
+
+import com.company.producthub.cache.CachedProductResponse;
+import com.company.producthub.cache.TermOffers;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Represents TermOffers's unit Test.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+public class TermOffersTest {
+
+    private static final String MERCHANT_1 = "http://merchant-1.com/api/product";
+    private static final String MERCHANT_2 = "http://merchant-2.com/api/product";
+    private static final String MERCHANT_3 = "http://merchant-3.com/api/product";
+    private static final List<String> MERCHANTS = Arrays.asList(MERCHANT_1, MERCHANT_2, MERCHANT_3);
+    private static final long TTL_MILLIS = 30000;
+    private static final long NOW_MILLIS = 1_000_000;
+
+    private TermOffers offers;
+
+    @Before
+    public void setUp() {
+        offers = TermOffers.empty()
+                .answer(MERCHANT_1, 12000, 17000, 15500, body("merchant_1"), NOW_MILLIS - 1000, TTL_MILLIS)
+                .answer(MERCHANT_2, 12000, 17000, 14700, body("merchant_2"), NOW_MILLIS - 2000, TTL_MILLIS)
+                .answer(MERCHANT_3, 12000, 17000, Double.NaN, null, NOW_MILLIS, TTL_MILLIS);
+    }
+
+    /**
+     * Tests the case described below:
+     * All merchants answered a price range including the one searched.
+     * The cheapest offer within the price range should be found, created
+     * when the oldest answer was received.
+     */
+    @Test
+    public void find_cheapest_offer_within_covered_range() {
+        // WHEN
+        CachedProductResponse cheapest = offers.findCheapest(MERCHANTS, 12000, 17000, NOW_MILLIS, TTL_MILLIS);
+        CachedProductResponse cheapestAbove = offers.findCheapest(MERCHANTS, 15000, 16000, NOW_MILLIS,
+                TTL_MILLIS);
+        CachedProductResponse none = offers.findCheapest(MERCHANTS, 12000, 14000, NOW_MILLIS, TTL_MILLIS);
+
+        // THEN
+        assertArrayEquals(body("merchant_2"), cheapest.getBody());
+        assertEquals(NOW_MILLIS - 2000, cheapest.getCreatedMillis());
+        assertNull(cheapestAbove);
+        assertNotNull(none);
+        assertNull(none.getBody());
+    }
+
+    /**
+     * Tests the case described below:
+     * A price range is searched that is not covered by the answers, because
+     * it is wider, a merchant has not answered, an answer is not fresh or a
+     * cheaper offer may hide one within the range.
+     * The index should not answer.
+     */
+    @Test
+    public void not_find_cheapest_offer_if_range_not_covered() {
+        // WHEN / THEN
+        assertNull(offers.findCheapest(MERCHANTS, 10000, 17000, NOW_MILLIS, TTL_MILLIS));
+        assertNull(offers.findCheapest(MERCHANTS, 12000, 0, NOW_MILLIS, TTL_MILLIS));
+        assertNull(offers.findCheapest(Collections.singletonList("http://merchant-4.com/api/product"),
+                12000, 17000, NOW_MILLIS, TTL_MILLIS));
+        assertNull(offers.findCheapest(MERCHANTS, 12000, 17000, NOW_MILLIS + TTL_MILLIS, TTL_MILLIS));
+        assertNull(offers.findCheapest(MERCHANTS, 15000, 17000, NOW_MILLIS, TTL_MILLIS));
+    }
+
+    /**
+     * Tests the case described below:
+     * A merchant answers again with a more expensive offer.
+     * Its previous offer should be replaced, keeping the offers sorted.
+     */
+    @Test
+    public void replace_offer_of_merchant_answering_again() {
+        // GIVEN
+        offers = offers.answer(MERCHANT_2, 12000, 17000, 16000, body("merchant_2_again"), NOW_MILLIS,
+                TTL_MILLIS);
+
+        // WHEN
+        CachedProductResponse cheapest = offers.findCheapest(MERCHANTS, 12000, 17000, NOW_MILLIS, TTL_MILLIS);
+
+        // THEN
+        assertEquals(2, offers.size());
+        assertArrayEquals(body("merchant_1"), cheapest.getBody());
+    }
+
+    private static byte[] body(String merchant) {
+        return ("{\"merchant\":\"" + merchant + "\"}").getBytes(StandardCharsets.UTF_8);
+    }
+}
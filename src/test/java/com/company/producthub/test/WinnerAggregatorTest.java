@@ -0,0 +1,196 @@
+package com.company.producthub.test;
+
+import com.company.producthub.entities.Merchant;
+import com.company.producthub.entities.Product;
+import com.company.producthub.entities.ProductResponse;
+import com.company.producthub.entities.ProductSearchResult;
+import com.company.producthub.services.WinnerAggregator;
+import com.company.producthub.utils.Deadline;
+import java.util.Arrays;
+import java.util.stream.Collectors;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * Represents WinnerAggregator's unit Test.
+ *
+ * @author Petros Kolontis <petros.kolontis@gmail.com>
+ */
+public class WinnerAggregatorTest {
+
+    /**
+     * Tests the case described below:
+     * All merchants answer before the deadline.
+     * The aggregator should complete without waiting and the winner should be
+     * the product response containing the minimum price.
+     */
+    @Test
+    public void complete_with_lowest_price_when_all_merchants_answered() {
+        // GIVEN
+        WinnerAggregator aggregator = new WinnerAggregator(3, 3, 0);
+        aggregator.accept(buildProductResponse("1", 15500));
+        aggregator.accept(null);
+        aggregator.accept(buildProductResponse("3", 14700));
+
+        // WHEN
+        long startMillis = System.currentTimeMillis();
+        aggregator.await(Deadline.after(5000), 5000);
+        ProductSearchResult searchResult = aggregator.finish(Deadline.after(5000));
+
+        // THEN
+        assertTrue(System.currentTimeMillis() - startMillis < 1000);
+        assertEquals("3", searchResult.getWinner().getId());
+        assertEquals(3, searchResult.getAnsweredCount());
+        assertEquals(0, searchResult.getTimedOutCount());
+        assertEquals(0, searchResult.getCancelledCount());
+    }
+
+    /**
+     * Tests the case described below:
+     * A merchant answers with an offer at or below the stop price.
+     * The aggregator should complete early and the rest of merchants should
+     * be reported as cancelled.
+     */
+    @Test
+    public void complete_early_when_offer_at_or_below_stop_price() {
+        // GIVEN
+        WinnerAggregator aggregator = new WinnerAggregator(3, 3, 12000);
+        aggregator.accept(buildProductResponse("1", 12000));
+
+        // WHEN
+        long startMillis = System.currentTimeMillis();
+        aggregator.await(Deadline.after(5000), 5000);
+        ProductSearchResult searchResult = aggregator.finish(Deadline.after(5000));
+
+        // THEN
+        assertTrue(System.currentTimeMillis() - startMillis < 1000);
+        assertEquals("1", searchResult.getWinner().getId());
+        assertEquals(1, searchResult.getAnsweredCount());
+        assertEquals(2, searchResult.getCancelledCount());
+    }
+
+    /**
+     * Tests the case described below:
+     * A quorum of merchants answers and the rest do not answer within the
+     * grace window. The aggregator should finish after the grace window
+     * reporting the rest of merchants as cancelled.
+     */
+    @Test
+    public void finish_after_grace_window_when_quorum_answered() {
+        // GIVEN
+        WinnerAggregator aggregator = new WinnerAggregator(3, 2, 0);
+        aggregator.accept(buildProductResponse("1", 15500));
+        aggregator.accept(buildProductResponse("2", 14700));
+
+        // WHEN
+        long startMillis = System.currentTimeMillis();
+        aggregator.await(Deadline.after(5000), 100);
+        ProductSearchResult searchResult = aggregator.finish(Deadline.after(5000));
+        aggregator.accept(buildProductResponse("3", 100));
+
+        // THEN
+        assertTrue(System.currentTimeMillis() - startMillis < 1000);
+        assertEquals("2", searchResult.getWinner().getId());
+        assertEquals(2, searchResult.getAnsweredCount());
+        assertEquals(1, searchResult.getCancelledCount());
+    }
+
+    /**
+     * Tests the case described below:
+     * No merchant answers before the deadline.
+     * The aggregator should finish without a winner reporting all merchants
+     * as timed out.
+     */
+    @Test
+    public void finish_without_winner_when_deadline_expired() {
+        // GIVEN
+        WinnerAggregator aggregator = new WinnerAggregator(2, 2, 0);
+        Deadline deadline = Deadline.after(100);
+
+        // WHEN
+        aggregator.await(deadline, 100);
+        ProductSearchResult searchResult = aggregator.finish(deadline);
+
+        // THEN
+        assertNull(searchResult.getWinner());
+        assertEquals(0, searchResult.getAnsweredCount());
+        assertEquals(2, searchResult.getTimedOutCount());
+    }
+
+    /**
+     * Tests the case described below:
+     * A merchant answers and the rest fail to answer.
+     * The aggregator should complete without waiting for the deadline and
+     * report the failed merchants as failed rather than timed out.
+     */
+    @Test
+    public void complete_when_rest_of_merchants_failed() {
+        // GIVEN
+        WinnerAggregator aggregator = new WinnerAggregator(3, 3, 0);
+        aggregator.accept(buildProductResponse("1", 15500));
+        aggregator.acceptFailure();
+        aggregator.acceptFailure();
+
+        // WHEN
+        long startMillis = System.currentTimeMillis();
+        aggregator.await(Deadline.after(5000), 5000);
+        ProductSearchResult searchResult = aggregator.finish(Deadline.after(5000));
+
+        // THEN
+        assertTrue(System.currentTimeMillis() - startMillis < 1000);
+        assertEquals("1", searchResult.getWinner().getId());
+        assertEquals(1, searchResult.getAnsweredCount());
+        assertEquals(2, searchResult.getFailedCount());
+        assertEquals(0, searchResult.getTimedOutCount());
+        assertEquals(0, searchResult.getCancelledCount());
+    }
+
+    /**
+     * Tests the case described below:
+     * All merchants answer, two of them with offers of equal price.
+     * The aggregator should keep the k cheapest offers in ascending order of
+     * price, offers of equal price ordered by merchant id regardless of the
+     * order of arrival.
+     */
+    @Test
+    public void keep_k_cheapest_offers_with_ties_ordered_by_merchant() {
+        // GIVEN
+        WinnerAggregator aggregator = new WinnerAggregator(5, 5, 0, 3);
+        aggregator.accept(buildProductResponse("1", 15500, "merchant-b"));
+        aggregator.accept(buildProductResponse("2", 14700, "merchant-d"));
+        aggregator.accept(buildProductResponse("3", 16400, "merchant-c"));
+        aggregator.accept(buildProductResponse("4", 14700, "merchant-a"));
+        aggregator.accept(buildProductResponse("5", 17000, "merchant-e"));
+
+        // WHEN
+        ProductSearchResult searchResult = aggregator.finish(Deadline.after(5000));
+
+        // THEN
+        assertEquals("4", searchResult.getWinner().getId());
+        assertEquals(Arrays.asList("4", "2", "1"), searchResult.getOffers().stream()
+                .map(ProductResponse::getId)
+                .collect(Collectors.toList()));
+        assertEquals(5, searchResult.getAnsweredCount());
+    }
+
+    private ProductResponse buildProductResponse(String id, double price, String merchantId) {
+        ProductResponse prodResp = buildProductResponse(id, price);
+        Merchant merchant = new Merchant();
+        merchant.setId(merchantId);
+        prodResp.getProduct().setMerchant(merchant);
+
+        return prodResp;
+    }
+
+    private ProductResponse buildProductResponse(String id, double price) {
+        Product product = new Product();
+        product.setPrice(price);
+        ProductResponse prodResp = new ProductResponse();
+        prodResp.setId(id);
+        prodResp.setProduct(product);
+
+        return prodResp;
+    }
+}